@@ -93,7 +93,8 @@ public class AppService extends Service {
         GAUtils.initGATracker(dpApp);
         GAUtils.startNewSession(context);
 
-        notificationHandler = new NotificationHandler(context, drone);
+        notificationHandler = new NotificationHandler(context, drone, dpApp.getEventBus(),
+                dpApp.getVehicleSnapshot());
 
         if (drone.isConnected()) {
             notificationHandler.init();
@@ -30,12 +30,17 @@ import com.squareup.leakcanary.LeakCanary;
 
 import org.droidplanner.android.activities.helpers.BluetoothDevicesActivity;
 import org.droidplanner.android.droneshare.UploaderService;
+import org.droidplanner.android.droneshare.data.DatabaseExecutor;
 import org.droidplanner.android.droneshare.data.DroneShareDB;
 import org.droidplanner.android.droneshare.data.SessionDB;
+import org.droidplanner.android.maps.MarkerIconCache;
+import org.droidplanner.android.maps.providers.google_map.tiles.TileCache;
 import org.droidplanner.android.proxy.mission.MissionProxy;
+import org.droidplanner.android.utils.DroneEventBus;
 import org.droidplanner.android.utils.LogToFileTree;
 import org.droidplanner.android.utils.TLogUtils;
 import org.droidplanner.android.utils.Utils;
+import org.droidplanner.android.utils.VehicleSnapshot;
 import org.droidplanner.android.utils.file.IO.ExceptionWriter;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 import org.droidplanner.android.utils.sound.SoundManager;
@@ -61,6 +66,18 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
     private static final long INVALID_SESSION_ID = -1L;
 
+    // Attribute events refreshed when a replay stops.
+    private static final String[] REPLAY_EVENTS = {
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.GPS_COUNT,
+            AttributeEvent.ALTITUDE_UPDATED,
+            AttributeEvent.SPEED_UPDATED,
+            AttributeEvent.ATTITUDE_UPDATED,
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.HOME_UPDATED
+    };
+
     private static final AtomicBoolean isCellularNetworkOn = new AtomicBoolean(false);
 
     private final BroadcastReceiver broadcastReceiver = new BroadcastReceiver() {
@@ -145,6 +162,9 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
     private DroidPlannerPrefs dpPrefs;
     private LocalBroadcastManager lbm;
 
+    private DroneEventBus eventBus;
+    private VehicleSnapshot vehicleSnapshot;
+
     private LogToFileTree logToFileTree;
     private SoundManager soundManager;
 
@@ -160,6 +180,7 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
         dpPrefs = DroidPlannerPrefs.getInstance(context);
         lbm = LocalBroadcastManager.getInstance(context);
+        eventBus = new DroneEventBus();
         soundManager = new SoundManager(context);
 
         initLoggingAndAnalytics();
@@ -167,6 +188,13 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
         initDatabases();
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        TileCache.getInstance().trimMemory(level);
+        MarkerIconCache.getInstance().trimMemory(level);
+    }
+
     private void initLoggingAndAnalytics(){
         //Init leak canary
         LeakCanary.install(this);
@@ -201,6 +229,7 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
         controlTower = new ControlTower(context);
         drone = new Drone(context);
+        vehicleSnapshot = new VehicleSnapshot(drone, EVENTS_DISPATCHING_PERIOD);
         missionProxy = new MissionProxy(this, this.drone);
 
         final IntentFilter intentFilter = new IntentFilter();
@@ -212,7 +241,7 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
     private void initDatabases(){
         Context context = getApplicationContext();
         sessionDB = new SessionDB(context);
-        droneShareDb = new DroneShareDB(context);
+        droneShareDb = new DroneShareDB(context, sessionDB);
         cleanupDroneSessions();
     }
 
@@ -308,6 +337,54 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
         return this.drone;
     }
 
+    public DroneEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public VehicleSnapshot getVehicleSnapshot() {
+        return vehicleSnapshot;
+    }
+
+    /**
+     * Feeds the ui with the vehicle attributes of the given source in place of the drone's, e.g: to replay a tlog
+     * file. Only possible while no vehicle is connected. The replay is stopped when a vehicle connects.
+     * @return true if the replay started.
+     */
+    public boolean startReplay(VehicleSnapshot.Source source) {
+        if (drone.isConnected())
+            return false;
+
+        vehicleSnapshot.setSource(source);
+        return true;
+    }
+
+    /**
+     * Stops the replay from the given source, if it's still running, and refreshes the ui with the drone attributes.
+     */
+    public void stopReplay(VehicleSnapshot.Source source) {
+        if (vehicleSnapshot.getSource() != source)
+            return;
+
+        vehicleSnapshot.setSource(null);
+        for (String event : REPLAY_EVENTS) {
+            eventBus.publish(event, null);
+        }
+    }
+
+    /**
+     * Publishes an attribute update from the given replay source. The replayed events are only published on the
+     * event bus, so they don't trigger the vehicle notifications. Can be called from any thread.
+     * @return false if the replay from the given source was stopped.
+     */
+    public boolean publishReplayEvent(VehicleSnapshot.Source source, String event) {
+        if (vehicleSnapshot.getSource() != source)
+            return false;
+
+        vehicleSnapshot.onDroneEvent(event);
+        eventBus.publish(event, null);
+        return true;
+    }
+
     public MissionProxy getMissionProxy() {
         return this.missionProxy;
     }
@@ -373,10 +450,15 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
 
     @Override
     public void onDroneEvent(String event, Bundle extras) {
+        vehicleSnapshot.onDroneEvent(event);
+
         switch (event) {
             case AttributeEvent.STATE_CONNECTED: {
                 handler.removeCallbacks(disconnectionTask);
 
+                // The connected vehicle takes over from any running replay.
+                vehicleSnapshot.setSource(null);
+
                 startDroneSession(System.currentTimeMillis());
 
                 startService(new Intent(getApplicationContext(), AppService.class));
@@ -399,24 +481,17 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
                     }
                 });
 
-                final Intent droneIntent = new Intent(event);
-                if (extras != null)
-                    droneIntent.putExtras(extras);
-                lbm.sendBroadcast(droneIntent);
+                dispatchDroneEvent(event, extras);
                 break;
             }
 
             case AttributeEvent.STATE_DISCONNECTED: {
+                Timber.d("Vehicle attributes: %s", vehicleSnapshot);
                 shouldWeTerminate();
 
-                final Intent droneIntent = new Intent(event);
-                if (extras != null)
-                    droneIntent.putExtras(extras);
-                lbm.sendBroadcast(droneIntent);
+                dispatchDroneEvent(event, extras);
 
                 endDroneSession();
-                // Fire the droneshare log uploader
-                UploaderService.kickStart(getApplicationContext());
                 break;
             }
 
@@ -429,15 +504,25 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
                 // FALL THROUGH
 
             default: {
-                final Intent droneIntent = new Intent(event);
-                if (extras != null)
-                    droneIntent.putExtras(extras);
-                lbm.sendBroadcast(droneIntent);
+                dispatchDroneEvent(event, extras);
                 break;
             }
         }
     }
 
+    private void dispatchDroneEvent(String event, Bundle extras) {
+        eventBus.publish(event, extras);
+
+        // The high rate telemetry events are only published on the event bus.
+        if (DroneEventBus.COALESCED_EVENTS.contains(event))
+            return;
+
+        final Intent droneIntent = new Intent(event);
+        if (extras != null)
+            droneIntent.putExtras(extras);
+        lbm.sendBroadcast(droneIntent);
+    }
+
     @Override
     public void onDroneServiceInterrupted(String errorMsg) {
         Timber.d("Drone service interrupted: %s", errorMsg);
@@ -471,33 +556,58 @@ public class DroidPlannerApp extends MultiDexApplication implements DroneListene
         return soundManager;
     }
 
-    private void startDroneSession(long startTime) {
+    private void startDroneSession(final long startTime) {
         ConnectionParameter connParams = drone.getConnectionParameter();
         @ConnectionType.Type int connectionType = connParams.getConnectionType();
         final String connectionTypeLabel = ConnectionType.getConnectionTypeLabel(connectionType);
-        Uri tlogLoggingUri = connParams.getTLogLoggingUri();
+        final Uri tlogLoggingUri = connParams.getTLogLoggingUri();
+        final String droneshareLogin = tlogLoggingUri != null && dpPrefs.isDroneshareEnabled()
+            ? dpPrefs.getDroneshareLogin()
+            : null;
 
-        // Record the starting drone session
-        currentSessionId = this.sessionDB.startSession(startTime, connectionTypeLabel, tlogLoggingUri);
-        if(tlogLoggingUri != null && dpPrefs.isDroneshareEnabled()){
-            //Create an entry in the droneshare upload queue
-            droneShareDb.queueDataUploadEntry(dpPrefs.getDroneshareLogin(), currentSessionId);
-        }
+        // The current session id is only accessed from the database executor.
+        DatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Record the starting drone session
+                currentSessionId = sessionDB.startSession(startTime, connectionTypeLabel, tlogLoggingUri);
+                if(droneshareLogin != null){
+                    //Create an entry in the droneshare upload queue
+                    droneShareDb.queueDataUploadEntry(droneshareLogin, currentSessionId);
+                }
+            }
+        });
     }
 
     private void endDroneSession() {
-        //log into the database the disconnection time.
-        if(currentSessionId != INVALID_SESSION_ID) {
-            this.sessionDB.endSessions(System.currentTimeMillis(), currentSessionId);
-        }
+        final long endTime = System.currentTimeMillis();
+        DatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                //log into the database the disconnection time.
+                if(currentSessionId != INVALID_SESSION_ID) {
+                    sessionDB.endSessions(endTime, currentSessionId);
+                    currentSessionId = INVALID_SESSION_ID;
+                }
+
+                // Fire the droneshare log uploader, now that the session is completed.
+                UploaderService.kickStart(getApplicationContext());
+            }
+        });
     }
 
     private void cleanupDroneSessions(){
-        //Cleanup all the opened drone sessions
-        sessionDB.cleanupOpenedSessions(System.currentTimeMillis());
+        final long endTime = System.currentTimeMillis();
+        DatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                //Cleanup all the opened drone sessions
+                sessionDB.cleanupOpenedSessions(endTime);
 
-        // Check for droneshare logs to upload.
-        UploaderService.kickStart(getApplicationContext());
+                // Check for droneshare logs to upload.
+                UploaderService.kickStart(getApplicationContext());
+            }
+        });
     }
 
     public DroneShareDB getDroneShareDatabase(){
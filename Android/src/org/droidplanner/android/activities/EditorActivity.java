@@ -22,6 +22,7 @@ import com.o3dr.android.client.utils.FileUtils;
 import com.o3dr.services.android.lib.coordinate.LatLong;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
 import com.o3dr.services.android.lib.drone.mission.MissionItemType;
+import com.o3dr.services.android.lib.util.MathUtils;
 
 import org.beyene.sius.unit.length.LengthUnit;
 import org.droidplanner.android.R;
@@ -46,6 +47,7 @@ import org.droidplanner.android.utils.prefs.AutoPanMode;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -69,6 +71,8 @@ public class EditorActivity extends DrawerNavigationUI implements OnPathFinished
     private static final IntentFilter eventFilter = new IntentFilter();
     private static final String MISSION_FILENAME_DIALOG_TAG = "Mission filename";
 
+    private static final int TOUCH_TOLERANCE = 24; // dp
+
     static {
         eventFilter.addAction(MissionProxy.ACTION_MISSION_PROXY_UPDATE);
         eventFilter.addAction(AttributeEvent.MISSION_RECEIVED);
@@ -425,6 +429,12 @@ public class EditorActivity extends DrawerNavigationUI implements OnPathFinished
         toolImpl.onMapClick(point);
     }
 
+    @Override
+    public void onMapLongClick(LatLong point) {
+        EditorToolsImpl toolImpl = getToolImpl();
+        toolImpl.onMapLongClick(point);
+    }
+
     public EditorTools getTool() {
         return editorToolsFragment.getTool();
     }
@@ -567,6 +577,24 @@ public class EditorActivity extends DrawerNavigationUI implements OnPathFinished
         }
     }
 
+    @Override
+    public double getTouchTolerance() {
+        final EditorMapFragment planningMapFragment = gestureMapFragment == null
+                ? null
+                : gestureMapFragment.getMapFragment();
+        if (planningMapFragment == null)
+            return 0;
+
+        // Screen points are passed as (x, y) pairs, like the gesture paths.
+        final float tolerance = TOUCH_TOLERANCE * getResources().getDisplayMetrics().density;
+        final List<LatLong> touchArea = new ArrayList<>(2);
+        touchArea.add(new LatLong(0, 0));
+        touchArea.add(new LatLong(tolerance, 0));
+
+        final List<LatLong> mapTouchArea = planningMapFragment.projectPathIntoMap(touchArea);
+        return MathUtils.getDistance2D(mapTouchArea.get(0), mapTouchArea.get(1));
+    }
+
     @Override
     public void onListVisibilityChanged() {
     }
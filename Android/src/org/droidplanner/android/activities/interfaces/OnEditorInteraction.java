@@ -9,5 +9,7 @@ public interface OnEditorInteraction {
 
 	void onMapClick(LatLong coord);
 
+	void onMapLongClick(LatLong coord);
+
 	void onListVisibilityChanged();
 }
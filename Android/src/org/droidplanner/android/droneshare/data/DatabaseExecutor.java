@@ -0,0 +1,95 @@
+package org.droidplanner.android.droneshare.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import timber.log.Timber;
+
+/**
+ * Runs the session and droneshare database operations off the main thread.
+ *
+ * The operations are run one at a time, in submission order, so an operation always sees the changes made by the
+ * operations submitted before it.
+ */
+public final class DatabaseExecutor {
+
+    /**
+     * Receives the result of a database operation, on the main thread. The result is null if the operation failed.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Database executor");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    //Private constructor to prevent instantiation.
+    private DatabaseExecutor(){}
+
+    /**
+     * Runs the given database operation.
+     */
+    public static void execute(final Runnable operation) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    operation.run();
+                } catch (RuntimeException e) {
+                    Timber.e(e, "Database operation failed.");
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the given database operation, and passes its result to the callback, if any. If the operation fails,
+     * the callback receives a null result.
+     * @return the future result of the operation.
+     */
+    public static <T> Future<T> submit(final Callable<T> operation, @Nullable final Callback<T> callback) {
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                final T result;
+                try {
+                    result = operation.call();
+                } catch (Exception e) {
+                    Timber.e(e, "Database operation failed.");
+                    postResult(callback, null);
+                    throw e;
+                }
+
+                postResult(callback, result);
+                return result;
+            }
+        });
+    }
+
+    private static <T> void postResult(@Nullable final Callback<T> callback, final T result) {
+        if (callback == null)
+            return;
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onResult(result);
+            }
+        });
+    }
+}
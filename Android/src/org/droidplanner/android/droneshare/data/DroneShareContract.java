@@ -9,7 +9,7 @@ import android.provider.BaseColumns;
 public final class DroneShareContract {
 
     static final String DB_NAME = "droneshare";
-    static final int DB_VERSION = 2;
+    static final int DB_VERSION = 3;
 
     private DroneShareContract(){}
 
@@ -19,6 +19,13 @@ public final class DroneShareContract {
         };
     }
 
+    static String[] getSQLCreateIndexes(){
+        return new String[]{
+            UploadData.SQL_CREATE_PENDING_INDEX,
+            UploadData.SQL_CREATE_SESSION_INDEX,
+        };
+    }
+
     static String[] getSQLDeleteEntries(){
         return new String[]{
             UploadData.SQL_DELETE_ENTRIES,
@@ -41,5 +48,14 @@ public final class DroneShareContract {
                 " )";
 
         static final String SQL_DELETE_ENTRIES = "DROP TABLE IF EXISTS " + TABLE_NAME;
+
+        // Speeds up the lookup of the user's data yet to be uploaded.
+        static final String SQL_CREATE_PENDING_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_pending_idx ON " + TABLE_NAME +
+                " (" + COL_DSHARE_USER + " COLLATE NOCASE, " + COL_DATA_UPLOAD_TIME + ")";
+
+        static final String SQL_CREATE_SESSION_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COL_SESSION_ID + "_idx ON " + TABLE_NAME +
+                " (" + COL_SESSION_ID + ")";
     }
 }
@@ -1,32 +1,52 @@
 package org.droidplanner.android.droneshare.data
 
-import android.content.ContentValues
 import android.content.Context
 import android.database.sqlite.SQLiteDatabase
 import android.database.sqlite.SQLiteOpenHelper
+import android.database.sqlite.SQLiteStatement
 import android.net.Uri
 import android.support.v4.util.Pair
 import org.droidplanner.android.droneshare.data.DroneShareContract.UploadData
-import org.droidplanner.android.droneshare.data.SessionContract.SessionData
 import timber.log.Timber
 import java.util.*
 
 /**
+ * The database methods block on disk access, and must not be called on the main thread.
+ *
  * @author ne0fhyk (Fredia Huya-Kouadio)
  */
-class DroneShareDB(context: Context) :
+class DroneShareDB(context: Context, private val sessionDB: SessionDB) :
         SQLiteOpenHelper(context, DroneShareContract.DB_NAME, null, DroneShareContract.DB_VERSION) {
 
+    companion object {
+        private const val SQL_QUEUE_UPLOAD = "INSERT INTO ${UploadData.TABLE_NAME} " +
+                "(${UploadData.COL_DSHARE_USER}, ${UploadData.COL_SESSION_ID}) VALUES (?, ?)"
+
+        private const val SQL_COMMIT_UPLOAD = "UPDATE ${UploadData.TABLE_NAME} " +
+                "SET ${UploadData.COL_DATA_UPLOAD_TIME} = ? WHERE ${UploadData._ID} = ?"
+    }
+
+    // Compiled statements, reused across calls.
+    private var queueUploadStatement: SQLiteStatement? = null
+    private var commitUploadStatement: SQLiteStatement? = null
+
     override fun onCreate(db: SQLiteDatabase) {
           Timber.i("Creating ${DroneShareContract.DB_NAME} database.")
         val sqlCreateEntries = DroneShareContract.getSQLCreateEntries()
         for(sqlCreateEntry in sqlCreateEntries) {
             db.execSQL(sqlCreateEntry)
         }
+        createIndexes(db)
     }
 
     override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
         Timber.i("Upgrading ${DroneShareContract.DB_NAME} database from version $oldVersion to version $newVersion")
+        if(oldVersion >= 2){
+            // Same table, only the indexes were added.
+            createIndexes(db)
+            return
+        }
+
         val sqlDelEntries = DroneShareContract.getSQLDeleteEntries()
         for(sqlDelEntry in sqlDelEntries) {
             db.execSQL(sqlDelEntry)
@@ -34,15 +54,27 @@ class DroneShareDB(context: Context) :
         onCreate(db)
     }
 
-    fun queueDataUploadEntry(username: String, sessionId: Long){
-        val db = getWritableDatabase()
+    override fun onOpen(db: SQLiteDatabase) {
+        super.onOpen(db)
+        if(!db.isReadOnly) {
+            db.enableWriteAheadLogging()
+        }
+    }
 
-        val values = ContentValues().apply{
-            put(UploadData.COL_DSHARE_USER, username)
-            put(UploadData.COL_SESSION_ID, sessionId)
+    private fun createIndexes(db: SQLiteDatabase) {
+        for(sqlCreateIndex in DroneShareContract.getSQLCreateIndexes()) {
+            db.execSQL(sqlCreateIndex)
         }
+    }
+
+    @Synchronized
+    fun queueDataUploadEntry(username: String, sessionId: Long){
+        val statement = queueUploadStatement ?: getWritableDatabase().compileStatement(SQL_QUEUE_UPLOAD)
+        queueUploadStatement = statement
 
-        db.insert(UploadData.TABLE_NAME, null, values)
+        statement.bindString(1, username)
+        statement.bindLong(2, sessionId)
+        statement.executeInsert()
     }
 
     /**
@@ -51,40 +83,44 @@ class DroneShareDB(context: Context) :
     fun getDataToUpload(username: String): List<Pair<Long, Uri>> {
         val db = getReadableDatabase()
 
-        val query = "SELECT ${UploadData._ID}, ${SessionData.COLUMN_NAME_TLOG_LOGGING_URI} " +
-                "FROM ${UploadData.TABLE_NAME} JOIN ${SessionData.TABLE_NAME} " +
-                "ON ${UploadData.COL_SESSION_ID} = ${SessionData._ID} " +
-                "WHERE ${UploadData.COL_DATA_UPLOAD_TIME} IS NULL " +
-                "AND ${SessionData.COLUMN_NAME_END_TIME} IS NOT NULL " +
-                "AND ${UploadData.COL_DSHARE_USER} LIKE ? " +
-                "ORDER BY ${UploadData._ID} ASC"
+        // The session data lives in the session database, so it's looked up separately.
+        val projection = arrayOf(UploadData._ID, UploadData.COL_SESSION_ID)
+        val selection = "${UploadData.COL_DSHARE_USER} = ? COLLATE NOCASE " +
+                "AND ${UploadData.COL_DATA_UPLOAD_TIME} IS NULL"
         val selectionArgs = arrayOf(username)
-
-        val cursor = db.rawQuery(query, selectionArgs)
-        val result = ArrayList<Pair<Long, Uri>>(cursor.count)
-        if(cursor.moveToFirst()){
-            do {
-                val uploadId = cursor.getLong(cursor.getColumnIndex(UploadData._ID))
-                val dataUri = Uri.parse(cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_TLOG_LOGGING_URI)))
-                result.add(Pair(uploadId, dataUri))
-            } while(cursor.moveToNext())
+        val orderBy = "${UploadData._ID} ASC"
+
+        val cursor = db.query(UploadData.TABLE_NAME, projection, selection, selectionArgs, null, null, orderBy)
+        val uploadIds = LongArray(cursor.count)
+        val sessionIds = LongArray(cursor.count)
+        try {
+            var index = 0
+            while (cursor.moveToNext()) {
+                uploadIds[index] = cursor.getLong(0)
+                sessionIds[index] = cursor.getLong(1)
+                index++
+            }
+        } finally {
+            cursor.close()
         }
 
-        cursor.close()
+        val tlogUris = sessionDB.getCompletedTLogUris(*sessionIds)
+        val result = ArrayList<Pair<Long, Uri>>(tlogUris.size())
+        for (i in uploadIds.indices) {
+            val dataUri = tlogUris.get(sessionIds[i]) ?: continue
+            result.add(Pair(uploadIds[i], dataUri))
+        }
         return result
     }
 
+    @Synchronized
     fun commitUploadedData(uploadId: Long, uploadTimeInMillis: Long){
-        val db = getWritableDatabase()
-
-        val values = ContentValues().apply {
-            put(UploadData.COL_DATA_UPLOAD_TIME, uploadTimeInMillis)
-        }
-
-        val selection = "${UploadData._ID} LIKE ?"
-        val selectionArgs = arrayOf(uploadId.toString())
+        val statement = commitUploadStatement ?: getWritableDatabase().compileStatement(SQL_COMMIT_UPLOAD)
+        commitUploadStatement = statement
 
-        db.update(UploadData.TABLE_NAME, values, selection, selectionArgs)
+        statement.bindLong(1, uploadTimeInMillis)
+        statement.bindLong(2, uploadId)
+        statement.executeUpdateDelete()
     }
 
-}
\ No newline at end of file
+}
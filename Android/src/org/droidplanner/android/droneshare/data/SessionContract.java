@@ -18,7 +18,7 @@ import java.util.Locale;
 public final class SessionContract {
 
     static final String DB_NAME = "session";
-    static final int DB_VERSION = 2;
+    static final int DB_VERSION = 3;
 
     //Private constructor to prevent instantiation.
     private SessionContract(){}
@@ -27,6 +27,13 @@ public final class SessionContract {
         return SessionData.SQL_CREATE_ENTRIES;
     }
 
+    static String[] getSqlCreateIndexes(){
+        return new String[]{
+            SessionData.SQL_CREATE_START_TIME_INDEX,
+            SessionData.SQL_CREATE_END_TIME_INDEX,
+        };
+    }
+
     static String getSqlDeleteEntries(){
         return SessionData.SQL_DELETE_ENTRIES;
     }
@@ -62,6 +69,16 @@ public final class SessionContract {
         static final String SQL_DELETE_ENTRIES =
                 "DROP TABLE IF EXISTS " + TABLE_NAME;
 
+        // Speeds up the sessions listing, sorted by start time.
+        static final String SQL_CREATE_START_TIME_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_NAME_START_TIME + "_idx ON " + TABLE_NAME +
+                " (" + COLUMN_NAME_START_TIME + ")";
+
+        // Speeds up the lookup of the opened sessions.
+        static final String SQL_CREATE_END_TIME_INDEX =
+            "CREATE INDEX IF NOT EXISTS " + TABLE_NAME + "_" + COLUMN_NAME_END_TIME + "_idx ON " + TABLE_NAME +
+                " (" + COLUMN_NAME_END_TIME + ")";
+
         public final long id;
         public final long startTime;
         public final long endTime;
@@ -5,21 +5,60 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
 
 import org.droidplanner.android.droneshare.data.SessionContract.SessionData;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import timber.log.Timber;
 
 /**
  * Created by fhuya on 12/30/14.
+ *
+ * The database methods block on disk access, and must not be called on the main thread. The *Async variants run
+ * through the {@link DatabaseExecutor}.
  */
 public class SessionDB extends SQLiteOpenHelper {
 
+    // Columns of the session data queries, in projection order.
+    private static final String[] SESSION_DATA_PROJECTION = {SessionData._ID, SessionData.COLUMN_NAME_START_TIME,
+        SessionData.COLUMN_NAME_END_TIME, SessionData.COLUMN_NAME_CONNECTION_TYPE,
+        SessionData.COLUMN_NAME_TLOG_LOGGING_URI, SessionData.COLUMN_NAME_LABEL};
+    private static final int COLUMN_ID = 0;
+    private static final int COLUMN_START_TIME = 1;
+    private static final int COLUMN_END_TIME = 2;
+    private static final int COLUMN_CONNECTION_TYPE = 3;
+    private static final int COLUMN_TLOG_LOGGING_URI = 4;
+    private static final int COLUMN_LABEL = 5;
+
+    // Kept below sqlite's default limit of 999 arguments per statement.
+    private static final int MAX_QUERY_ARGUMENTS = 500;
+
+    private static final String SQL_INSERT_SESSION = "INSERT INTO " + SessionData.TABLE_NAME + " ("
+        + SessionData.COLUMN_NAME_START_TIME + ", " + SessionData.COLUMN_NAME_CONNECTION_TYPE + ", "
+        + SessionData.COLUMN_NAME_LABEL + ", " + SessionData.COLUMN_NAME_TLOG_LOGGING_URI + ") VALUES (?, ?, ?, ?)";
+
+    private static final String SQL_END_SESSION = "UPDATE " + SessionData.TABLE_NAME + " SET "
+        + SessionData.COLUMN_NAME_END_TIME + " = ? WHERE " + SessionData._ID + " = ?";
+
+    private static final String SQL_RENAME_SESSION = "UPDATE " + SessionData.TABLE_NAME + " SET "
+        + SessionData.COLUMN_NAME_LABEL + " = ? WHERE " + SessionData._ID + " = ?";
+
+    private static final String SQL_REMOVE_SESSION = "DELETE FROM " + SessionData.TABLE_NAME + " WHERE "
+        + SessionData._ID + " = ?";
+
+    // Compiled statements, reused across calls.
+    private SQLiteStatement insertSessionStatement;
+    private SQLiteStatement endSessionStatement;
+    private SQLiteStatement renameSessionStatement;
+    private SQLiteStatement removeSessionStatement;
+
     public SessionDB(Context context) {
         super(context, SessionContract.DB_NAME, null, SessionContract.DB_VERSION);
     }
@@ -28,14 +67,40 @@ public class SessionDB extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         Timber.i("Creating session database.");
         db.execSQL(SessionContract.getSqlCreateEntries());
+        createIndexes(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (oldVersion == 1) {
-            SessionContract.migrateFromV1(db);
-        } else {
-            Timber.w("Unrecognized database version %d for %s.", oldVersion, SessionContract.DB_NAME);
+        switch (oldVersion) {
+            case 1:
+                SessionContract.migrateFromV1(db);
+                createIndexes(db);
+                break;
+
+            case 2:
+                createIndexes(db);
+                break;
+
+            default:
+                Timber.w("Unrecognized database version %d for %s.", oldVersion, SessionContract.DB_NAME);
+                break;
+        }
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        // Lets the session listing read the database while a session is being recorded.
+        if (!db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
+    }
+
+    private static void createIndexes(SQLiteDatabase db) {
+        for (String sqlCreateIndex : SessionContract.getSqlCreateIndexes()) {
+            db.execSQL(sqlCreateIndex);
         }
     }
 
@@ -44,144 +109,198 @@ public class SessionDB extends SQLiteOpenHelper {
      * @param startTimeInMillis
      * @param connectionType
      */
-    public long startSession(long startTimeInMillis, String connectionType, @Nullable Uri tlogLoggingUri){
-        //Get the data repository in write mode.
-        SQLiteDatabase db = getWritableDatabase();
+    public synchronized long startSession(long startTimeInMillis, String connectionType, @Nullable Uri tlogLoggingUri){
+        if (insertSessionStatement == null) {
+            insertSessionStatement = getWritableDatabase().compileStatement(SQL_INSERT_SESSION);
+        }
 
-        ContentValues values = new ContentValues();
-        values.put(SessionContract.SessionData.COLUMN_NAME_START_TIME, startTimeInMillis);
-        values.put(SessionData.COLUMN_NAME_CONNECTION_TYPE, connectionType);
-        values.put(SessionData.COLUMN_NAME_LABEL, SessionData.getSessionLabel(startTimeInMillis));
-        if(tlogLoggingUri != null) {
-            values.put(SessionData.COLUMN_NAME_TLOG_LOGGING_URI, tlogLoggingUri.toString());
+        insertSessionStatement.clearBindings();
+        insertSessionStatement.bindLong(1, startTimeInMillis);
+        insertSessionStatement.bindString(2, connectionType);
+        insertSessionStatement.bindString(3, SessionData.getSessionLabel(startTimeInMillis));
+        if (tlogLoggingUri != null) {
+            insertSessionStatement.bindString(4, tlogLoggingUri.toString());
+        } else {
+            insertSessionStatement.bindNull(4);
         }
 
-        return db.insert(SessionData.TABLE_NAME, null, values);
+        return insertSessionStatement.executeInsert();
     }
 
-    public void endSessions(long endTimeInMillis, long... rowIds){
+    public synchronized void endSessions(long endTimeInMillis, long... rowIds){
         if(rowIds == null || rowIds.length == 0)
             return;
 
-        SQLiteDatabase db = getWritableDatabase();
-
-        ContentValues values = new ContentValues();
-        values.put(SessionData.COLUMN_NAME_END_TIME, endTimeInMillis);
+        if (endSessionStatement == null) {
+            endSessionStatement = getWritableDatabase().compileStatement(SQL_END_SESSION);
+        }
 
-        boolean isFirst = true;
-        StringBuilder selection = new StringBuilder();
-        String[] selectionArgs = new String[rowIds.length];
-        int argIndex = 0;
-        for(long rowId : rowIds){
-            if(!isFirst) {
-                selection.append(" OR ");
-            }
-            else {
-                isFirst = false;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (long rowId : rowIds) {
+                endSessionStatement.bindLong(1, endTimeInMillis);
+                endSessionStatement.bindLong(2, rowId);
+                endSessionStatement.executeUpdateDelete();
             }
-            selection.append(SessionData._ID).append(" LIKE ?");
-
-            selectionArgs[argIndex++] = String.valueOf(rowId);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
-
-        db.update(SessionData.TABLE_NAME, values, selection.toString(), selectionArgs);
     }
 
     public SessionData getSessionData(long sessionId){
         SQLiteDatabase db = getReadableDatabase();
 
-        String[] projection = {SessionData.COLUMN_NAME_START_TIME,
-            SessionData.COLUMN_NAME_END_TIME, SessionData.COLUMN_NAME_CONNECTION_TYPE,
-            SessionData.COLUMN_NAME_TLOG_LOGGING_URI, SessionData.COLUMN_NAME_LABEL};
-
-        String selection = SessionData._ID + " LIKE ?";
+        String selection = SessionData._ID + " = ?";
         String[] selectionArgs = {String.valueOf(sessionId)};
 
-        Cursor cursor = db.query(SessionData.TABLE_NAME, projection, selection, selectionArgs, null,
+        Cursor cursor = db.query(SessionData.TABLE_NAME, SESSION_DATA_PROJECTION, selection, selectionArgs, null,
             null, null);
         SessionData sessionData = null;
-        if(cursor.moveToFirst()){
-            long startTime = cursor.getLong(cursor.getColumnIndex(SessionData.COLUMN_NAME_START_TIME));
-            long endTime = cursor.getLong(cursor.getColumnIndex(SessionData.COLUMN_NAME_END_TIME));
-            String connectionTypeLabel = cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_CONNECTION_TYPE));
-            String tlogEncodedUri = cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_TLOG_LOGGING_URI));
-            Uri tlogLoggingUri = Uri.parse(tlogEncodedUri);
-            String sessionLabel = cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_LABEL));
-
-            sessionData = new SessionData(sessionId, startTime, endTime, connectionTypeLabel, tlogLoggingUri, sessionLabel);
+        try {
+            if (cursor.moveToFirst()) {
+                sessionData = readSessionData(cursor);
+            }
+        } finally {
+            cursor.close();
         }
-
-        cursor.close();
         return sessionData;
     }
 
+    public void getSessionDataAsync(final long sessionId, DatabaseExecutor.Callback<SessionData> callback) {
+        DatabaseExecutor.submit(new Callable<SessionData>() {
+            @Override
+            public SessionData call() {
+                return getSessionData(sessionId);
+            }
+        }, callback);
+    }
+
     public long[] getOpenedSessions(){
         SQLiteDatabase db = getReadableDatabase();
 
         String[] projection = {SessionData._ID};
-        String selection = SessionData.COLUMN_NAME_END_TIME + "IS NULL";
+        String selection = SessionData.COLUMN_NAME_END_TIME + " IS NULL";
 
         Cursor cursor = db.query(SessionData.TABLE_NAME, projection, selection, null, null, null, null);
-        long[] sessionIds = new long[cursor.getCount()];
-        int index = 0;
-        for(boolean hasNext = cursor.moveToFirst(); hasNext; hasNext = cursor.moveToNext()){
-            sessionIds[index++] = cursor.getLong(cursor.getColumnIndex(SessionData._ID));
+        try {
+            long[] sessionIds = new long[cursor.getCount()];
+            int index = 0;
+            for (boolean hasNext = cursor.moveToFirst(); hasNext; hasNext = cursor.moveToNext()) {
+                sessionIds[index++] = cursor.getLong(0);
+            }
+            return sessionIds;
+        } finally {
+            cursor.close();
         }
-
-        cursor.close();
-        return sessionIds;
     }
 
     public List<SessionData> getCompletedSessions(boolean tlogLogged){
         SQLiteDatabase db = getReadableDatabase();
 
-        String[] projection = {SessionData._ID, SessionData.COLUMN_NAME_START_TIME,
-            SessionData.COLUMN_NAME_END_TIME, SessionData.COLUMN_NAME_CONNECTION_TYPE,
-            SessionData.COLUMN_NAME_TLOG_LOGGING_URI, SessionData.COLUMN_NAME_LABEL};
-
         String selection = SessionData.COLUMN_NAME_END_TIME + " IS NOT NULL";
         if(tlogLogged){
             selection += " AND " + SessionData.COLUMN_NAME_TLOG_LOGGING_URI + " IS NOT NULL";
         }
         String orderBy = SessionData.COLUMN_NAME_START_TIME + " ASC";
 
-        Cursor cursor = db.query(SessionData.TABLE_NAME, projection, selection, null, null, null, orderBy);
-        List<SessionData> sessionDataList = new ArrayList<>(cursor.getCount());
-        for(boolean hasNext = cursor.moveToFirst(); hasNext; hasNext = cursor.moveToNext()){
-            long id = cursor.getLong(cursor.getColumnIndex(SessionData._ID));
-            long startTime = cursor.getLong(cursor.getColumnIndex(SessionData.COLUMN_NAME_START_TIME));
-            long endTime = cursor.getLong(cursor.getColumnIndex(SessionData.COLUMN_NAME_END_TIME));
-            String connectionTypeLabel = cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_CONNECTION_TYPE));
-            String tlogEncodedUri = cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_TLOG_LOGGING_URI));
-            Uri tlogLoggingUri = Uri.parse(tlogEncodedUri);
-            String sessionLabel = cursor.getString(cursor.getColumnIndex(SessionData.COLUMN_NAME_LABEL));
-
-            sessionDataList.add(new SessionData(id, startTime, endTime, connectionTypeLabel, tlogLoggingUri, sessionLabel));
+        Cursor cursor = db.query(SessionData.TABLE_NAME, SESSION_DATA_PROJECTION, selection, null, null, null,
+            orderBy);
+        try {
+            List<SessionData> sessionDataList = new ArrayList<>(cursor.getCount());
+            for (boolean hasNext = cursor.moveToFirst(); hasNext; hasNext = cursor.moveToNext()) {
+                sessionDataList.add(readSessionData(cursor));
+            }
+            return sessionDataList;
+        } finally {
+            cursor.close();
         }
+    }
 
-        cursor.close();
-        return sessionDataList;
+    public void getCompletedSessionsAsync(final boolean tlogLogged,
+                                          DatabaseExecutor.Callback<List<SessionData>> callback) {
+        DatabaseExecutor.submit(new Callable<List<SessionData>>() {
+            @Override
+            public List<SessionData> call() {
+                return getCompletedSessions(tlogLogged);
+            }
+        }, callback);
     }
 
-    public void removeSessionData(long id) {
-        SQLiteDatabase db = getWritableDatabase();
+    /**
+     * @return the tlog uri of the given sessions, if they're completed and have a tlog file.
+     */
+    LongSparseArray<Uri> getCompletedTLogUris(long... sessionIds) {
+        final LongSparseArray<Uri> tlogUris = new LongSparseArray<>(sessionIds.length);
+        if (sessionIds.length == 0)
+            return tlogUris;
 
-        String whereClause = SessionData._ID + " LIKE ?";
-        String[] whereArgs = {String.valueOf(id)};
+        SQLiteDatabase db = getReadableDatabase();
+        String[] projection = {SessionData._ID, SessionData.COLUMN_NAME_TLOG_LOGGING_URI};
+
+        // The ids are queried in chunks, as sqlite limits the number of arguments of a statement.
+        for (int chunkStart = 0; chunkStart < sessionIds.length; chunkStart += MAX_QUERY_ARGUMENTS) {
+            final int chunkSize = Math.min(MAX_QUERY_ARGUMENTS, sessionIds.length - chunkStart);
+
+            StringBuilder selection = new StringBuilder(SessionData.COLUMN_NAME_END_TIME).append(" IS NOT NULL AND ")
+                .append(SessionData.COLUMN_NAME_TLOG_LOGGING_URI).append(" IS NOT NULL AND ")
+                .append(SessionData._ID).append(" IN (");
+            String[] selectionArgs = new String[chunkSize];
+            for (int i = 0; i < chunkSize; i++) {
+                selection.append(i == 0 ? "?" : ", ?");
+                selectionArgs[i] = String.valueOf(sessionIds[chunkStart + i]);
+            }
+            selection.append(')');
+
+            Cursor cursor = db.query(SessionData.TABLE_NAME, projection, selection.toString(), selectionArgs, null,
+                null, null);
+            try {
+                for (boolean hasNext = cursor.moveToFirst(); hasNext; hasNext = cursor.moveToNext()) {
+                    tlogUris.put(cursor.getLong(0), Uri.parse(cursor.getString(1)));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return tlogUris;
+    }
+
+    public synchronized void removeSessionData(long id) {
+        if (removeSessionStatement == null) {
+            removeSessionStatement = getWritableDatabase().compileStatement(SQL_REMOVE_SESSION);
+        }
 
-        db.delete(SessionData.TABLE_NAME, whereClause, whereArgs);
+        removeSessionStatement.bindLong(1, id);
+        removeSessionStatement.executeUpdateDelete();
     }
 
-    public void renameSession(long id, String label) {
-        SQLiteDatabase db = getWritableDatabase();
+    public void removeSessionDataAsync(final long id) {
+        DatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                removeSessionData(id);
+            }
+        });
+    }
 
-        ContentValues values = new ContentValues();
-        values.put(SessionData.COLUMN_NAME_LABEL, label);
+    public synchronized void renameSession(long id, String label) {
+        if (renameSessionStatement == null) {
+            renameSessionStatement = getWritableDatabase().compileStatement(SQL_RENAME_SESSION);
+        }
 
-        String whereClause = SessionData._ID + " LIKE ?";
-        String[] whereArgs = {String.valueOf(id)};
+        renameSessionStatement.bindString(1, label);
+        renameSessionStatement.bindLong(2, id);
+        renameSessionStatement.executeUpdateDelete();
+    }
 
-        db.update(SessionData.TABLE_NAME, values, whereClause, whereArgs);
+    public void renameSessionAsync(final long id, final String label) {
+        DatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                renameSession(id, label);
+            }
+        });
     }
 
     public void cleanupOpenedSessions(long endTimeInMillis){
@@ -193,4 +312,16 @@ public class SessionDB extends SQLiteOpenHelper {
         String selection = SessionData.COLUMN_NAME_END_TIME + " IS NULL";
         db.update(SessionData.TABLE_NAME, values, selection, null);
     }
+
+    private static SessionData readSessionData(Cursor cursor) {
+        long id = cursor.getLong(COLUMN_ID);
+        long startTime = cursor.getLong(COLUMN_START_TIME);
+        long endTime = cursor.getLong(COLUMN_END_TIME);
+        String connectionTypeLabel = cursor.getString(COLUMN_CONNECTION_TYPE);
+        String tlogEncodedUri = cursor.getString(COLUMN_TLOG_LOGGING_URI);
+        Uri tlogLoggingUri = tlogEncodedUri == null ? null : Uri.parse(tlogEncodedUri);
+        String sessionLabel = cursor.getString(COLUMN_LABEL);
+
+        return new SessionData(id, startTime, endTime, connectionTypeLabel, tlogLoggingUri, sessionLabel);
+    }
 }
@@ -14,12 +14,14 @@ import android.view.ViewGroup;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
-import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
 import com.o3dr.services.android.lib.drone.attribute.AttributeType;
+import com.o3dr.services.android.lib.drone.mission.item.complex.Survey;
 import com.o3dr.services.android.lib.drone.property.Altitude;
+import com.o3dr.services.android.lib.drone.property.Attitude;
 import com.o3dr.services.android.lib.drone.property.CameraProxy;
 import com.o3dr.services.android.lib.drone.property.Gps;
+import com.o3dr.services.android.lib.drone.property.Speed;
 
 import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment;
@@ -31,17 +33,19 @@ import org.droidplanner.android.maps.MarkerInfo;
 import org.droidplanner.android.maps.PolylineInfo;
 import org.droidplanner.android.maps.providers.DPMapProvider;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader;
+import org.droidplanner.android.proxy.mission.MissionChangeSet;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
-import org.droidplanner.android.proxy.mission.item.markers.MissionItemMarkerInfo;
+import org.droidplanner.android.proxy.mission.item.markers.MissionClusterMarkerInfo;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.FlightTrack;
 import org.droidplanner.android.utils.Utils;
+import org.droidplanner.android.utils.VehicleSnapshot;
 import org.droidplanner.android.utils.prefs.AutoPanMode;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 public abstract class DroneMap extends ApiListenerFragment {
 
@@ -51,94 +55,125 @@ public abstract class DroneMap extends ApiListenerFragment {
 	private static final IntentFilter eventFilter = new IntentFilter();
 	static {
 		eventFilter.addAction(MissionProxy.ACTION_MISSION_PROXY_UPDATE);
-		eventFilter.addAction(AttributeEvent.GPS_POSITION);
-		eventFilter.addAction(AttributeEvent.GUIDED_POINT_UPDATED);
-		eventFilter.addAction(AttributeEvent.HEARTBEAT_FIRST);
-		eventFilter.addAction(AttributeEvent.HEARTBEAT_RESTORED);
-		eventFilter.addAction(AttributeEvent.HEARTBEAT_TIMEOUT);
-		eventFilter.addAction(AttributeEvent.STATE_CONNECTED);
-		eventFilter.addAction(AttributeEvent.STATE_DISCONNECTED);
-		eventFilter.addAction(AttributeEvent.CAMERA_FOOTPRINTS_UPDATED);
-		eventFilter.addAction(AttributeEvent.ATTITUDE_UPDATED);
-		eventFilter.addAction(AttributeEvent.HOME_UPDATED);
         eventFilter.addAction(ACTION_UPDATE_MAP);
 	}
 
+	private static final String[] droneEvents = {
+		AttributeEvent.GPS_POSITION,
+		AttributeEvent.GUIDED_POINT_UPDATED,
+		AttributeEvent.HEARTBEAT_FIRST,
+		AttributeEvent.HEARTBEAT_RESTORED,
+		AttributeEvent.HEARTBEAT_TIMEOUT,
+		AttributeEvent.STATE_CONNECTED,
+		AttributeEvent.STATE_DISCONNECTED,
+		AttributeEvent.CAMERA_FOOTPRINTS_UPDATED,
+		AttributeEvent.ATTITUDE_UPDATED,
+		AttributeEvent.HOME_UPDATED
+	};
+
     private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
 		@Override
 		public void onReceive(Context context, Intent intent) {
-			if (!isResumed())
-				return;
-
-			final String action = intent.getAction();
-            switch (action) {
-                case ACTION_UPDATE_MAP:
-					guided.updateMarker(DroneMap.this);
-					break;
-
-				case AttributeEvent.HOME_UPDATED:
-					home.updateMarker(DroneMap.this);
-					break;
-
-                case MissionProxy.ACTION_MISSION_PROXY_UPDATE:
-					home.updateMarker(DroneMap.this);
-					onMissionUpdate();
-                    break;
-
-                case AttributeEvent.GPS_POSITION: {
-					graphicDrone.updateMarker(DroneMap.this);
-                    mMapFragment.updateDroneLeashPath(guided);
-                    updateFlightPath();
-                    break;
-                }
+			onEvent(intent.getAction());
+		}
+	};
 
-                case AttributeEvent.GUIDED_POINT_UPDATED:
-					guided.updateMarker(DroneMap.this);
-                    mMapFragment.updateDroneLeashPath(guided);
-                    break;
-
-                case AttributeEvent.HEARTBEAT_FIRST:
-                case AttributeEvent.HEARTBEAT_RESTORED:
-				case AttributeEvent.STATE_CONNECTED:
-					graphicDrone.updateMarker(DroneMap.this);
-                    break;
-
-                case AttributeEvent.STATE_DISCONNECTED:
-                case AttributeEvent.HEARTBEAT_TIMEOUT:
-					graphicDrone.updateMarker(DroneMap.this);
-                    break;
-
-                case AttributeEvent.CAMERA_FOOTPRINTS_UPDATED: {
-					if(mAppPrefs.isRealtimeFootprintsEnabled()) {
-						CameraProxy camera = drone.getAttribute(AttributeType.CAMERA);
-						if (camera != null && camera.getLastFootPrint() != null)
-							mMapFragment.addCameraFootprint(camera.getLastFootPrint());
-					}
-                    break;
-                }
+	private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
+		@Override
+		public void onDroneEvent(String event, Bundle extras) {
+			onEvent(event);
+		}
+	};
 
-                case AttributeEvent.ATTITUDE_UPDATED: {
-                    if (mAppPrefs.isRealtimeFootprintsEnabled()) {
-                        final Gps droneGps = drone.getAttribute(AttributeType.GPS);
-                        if (droneGps.isValid()) {
-                            CameraProxy camera = drone.getAttribute(AttributeType.CAMERA);
-                            if (camera != null && camera.getCurrentFieldOfView() != null)
-                                mMapFragment.updateRealTimeFootprint(camera.getCurrentFieldOfView());
-                        }
+	private void onEvent(String action) {
+		if (!isResumed())
+			return;
 
+        switch (action) {
+            case ACTION_UPDATE_MAP:
+				guided.updateMarker(DroneMap.this);
+				break;
+
+			case AttributeEvent.HOME_UPDATED:
+				home.updateMarker(DroneMap.this);
+				break;
+
+            case MissionProxy.ACTION_MISSION_PROXY_UPDATE:
+				// The mission markers are updated through the mission change listener.
+				home.updateMarker(DroneMap.this);
+                break;
+
+            case AttributeEvent.GPS_POSITION: {
+				graphicDrone.updateMarker(DroneMap.this);
+                mMapFragment.updateDroneLeashPath(guided);
+                updateFlightPath();
+                break;
+            }
+
+            case AttributeEvent.GUIDED_POINT_UPDATED:
+				guided.updateMarker(DroneMap.this);
+                mMapFragment.updateDroneLeashPath(guided);
+                break;
+
+            case AttributeEvent.HEARTBEAT_FIRST:
+            case AttributeEvent.HEARTBEAT_RESTORED:
+			case AttributeEvent.STATE_CONNECTED:
+				graphicDrone.updateMarker(DroneMap.this);
+                break;
+
+            case AttributeEvent.STATE_DISCONNECTED:
+            case AttributeEvent.HEARTBEAT_TIMEOUT:
+				graphicDrone.updateMarker(DroneMap.this);
+                break;
+
+            case AttributeEvent.CAMERA_FOOTPRINTS_UPDATED: {
+				if(mAppPrefs.isRealtimeFootprintsEnabled()) {
+					CameraProxy camera = drone.getAttribute(AttributeType.CAMERA);
+					if (camera != null && camera.getLastFootPrint() != null)
+						mMapFragment.addCameraFootprint(camera.getLastFootPrint());
+				}
+                break;
+            }
+
+            case AttributeEvent.ATTITUDE_UPDATED: {
+                if (mAppPrefs.isRealtimeFootprintsEnabled()) {
+                    final Gps droneGps = vehicleSnapshot.getGps();
+                    if (droneGps.isValid()) {
+                        CameraProxy camera = drone.getAttribute(AttributeType.CAMERA);
+                        if (camera != null && camera.getCurrentFieldOfView() != null)
+                            mMapFragment.updateRealTimeFootprint(camera.getCurrentFieldOfView());
                     }
-                    else{
-                        mMapFragment.updateRealTimeFootprint(null);
-                    }
-                    break;
+
+                }
+                else{
+                    mMapFragment.updateRealTimeFootprint(null);
                 }
+                break;
             }
-		}
-	};
+        }
+	}
+
+    protected final FlightTrack flightTrack = new FlightTrack();
+
+    private final MissionProxy.OnMissionChangeListener missionChangeListener = new MissionProxy.OnMissionChangeListener() {
+        @Override
+        public void onMissionChange(MissionChangeSet changes) {
+            if (changes.isFullUpdate())
+                onMissionUpdate();
+            else
+                onMissionUpdate(changes);
+        }
+    };
 
-    protected final LinkedList<LatLongAlt> flightPathPoints = new LinkedList<>();
+    private final MissionMarkersLayer missionMarkers = new MissionMarkersLayer(this);
 
-    private final Map<MissionItemProxy, List<MarkerInfo>> missionMarkers = new HashMap<>();
+    private final DPMap.OnMapCameraIdleListener cameraIdleListener = new DPMap.OnMapCameraIdleListener() {
+        @Override
+        public void onMapCameraIdle() {
+            if (missionProxy != null && shouldUpdateMission())
+                missionMarkers.render();
+        }
+    };
 	private final LinkedList<MarkerInfo> externalMarkersToAdd = new LinkedList<>();
     private final LinkedList<PolylineInfo> externalPolylinesToAdd = new LinkedList<>();
 
@@ -152,6 +187,7 @@ public abstract class DroneMap extends ApiListenerFragment {
 
 	protected MissionProxy missionProxy;
 	protected Drone drone;
+	protected VehicleSnapshot vehicleSnapshot;
 
 	protected Context context;
 
@@ -167,10 +203,10 @@ public abstract class DroneMap extends ApiListenerFragment {
 		updateMapFragment();
 
 		if(bundle != null){
-			flightPathPoints.clear();
-			List<LatLongAlt> flightPoints = (List<LatLongAlt>) bundle.getSerializable(EXTRA_DRONE_FLIGHT_PATH);
-			if(flightPoints != null && !flightPoints.isEmpty()){
-                flightPathPoints.addAll(flightPoints);
+			flightTrack.clear();
+			FlightTrack savedFlightTrack = bundle.getParcelable(EXTRA_DRONE_FLIGHT_PATH);
+			if(savedFlightTrack != null){
+                flightTrack.set(savedFlightTrack);
 			}
 		}
 
@@ -183,44 +219,57 @@ public abstract class DroneMap extends ApiListenerFragment {
 			mMapFragment.clearAll();
 
 		drone = getDrone();
+		vehicleSnapshot = getVehicleSnapshot();
 		missionProxy = getMissionProxy();
 
-		home = new GraphicHome(drone, getContext());
+		home = new GraphicHome(drone, vehicleSnapshot, getContext());
 		mMapFragment.addMarker(home);
 
-		graphicDrone = new GraphicDrone(drone, context);
+		graphicDrone = new GraphicDrone(drone, vehicleSnapshot, context);
 		mMapFragment.addMarker(graphicDrone);
 
-		guided = new GraphicGuided(drone);
+		guided = new GraphicGuided(drone, vehicleSnapshot);
 		mMapFragment.addMarker(guided);
 
-        for(LatLongAlt point : flightPathPoints) {
-            mMapFragment.addFlightPathPoint(point);
-        }
+        mMapFragment.updateFlightPath(flightTrack);
 
 		onMissionUpdate();
+		missionProxy.addMissionChangeListener(missionChangeListener);
 		getBroadcastManager().registerReceiver(eventReceiver, eventFilter);
+		getEventBus().subscribe(eventSubscriber, droneEvents);
 	}
 
     private void updateFlightPath(){
-        if(showFlightPath()) {
-            LatLongAlt currentFlightPoint = getCurrentFlightPoint();
-            if(currentFlightPoint != null){
-                mMapFragment.addFlightPathPoint(currentFlightPoint);
-                flightPathPoints.add(currentFlightPoint);
-            }
+        if(showFlightPath() && appendCurrentFlightPoint()) {
+            mMapFragment.updateFlightPath(flightTrack);
         }
     }
 
-    protected LatLongAlt getCurrentFlightPoint(){
-        final Gps droneGps = drone.getAttribute(AttributeType.GPS);
-        if (droneGps != null && droneGps.isValid()) {
-            Altitude droneAltitude = drone.getAttribute(AttributeType.ALTITUDE);
-            LatLongAlt point = new LatLongAlt(droneGps.getPosition(),
-                droneAltitude.getAltitude());
-            return point;
+    /**
+     * Appends the drone current position, attitude and speed to the flight track.
+     * @return true if the drone position was valid.
+     */
+    private boolean appendCurrentFlightPoint(){
+        final Gps droneGps = vehicleSnapshot.getGps();
+        if (droneGps == null || !droneGps.isValid()) {
+            return false;
         }
-        return null;
+
+        final LatLong position = droneGps.getPosition();
+        final Altitude droneAltitude = vehicleSnapshot.getAltitude();
+        final Attitude droneAttitude = vehicleSnapshot.getAttitude();
+        final Speed droneSpeed = vehicleSnapshot.getSpeed();
+
+        flightTrack.append(System.currentTimeMillis(),
+            position.getLatitude(),
+            position.getLongitude(),
+            droneAltitude == null ? 0 : droneAltitude.getAltitude(),
+            droneAttitude == null ? Float.NaN : (float) droneAttitude.getRoll(),
+            droneAttitude == null ? Float.NaN : (float) droneAttitude.getPitch(),
+            droneAttitude == null ? Float.NaN : (float) droneAttitude.getYaw(),
+            droneSpeed == null ? Float.NaN : (float) droneSpeed.getGroundSpeed(),
+            droneSpeed == null ? Float.NaN : (float) droneSpeed.getVerticalSpeed());
+        return true;
     }
 
     protected final void onMissionUpdate(){
@@ -232,41 +281,68 @@ public abstract class DroneMap extends ApiListenerFragment {
 
         mMapFragment.updatePolygonsPaths(missionProxy.getPolygonsPath());
 
-        //TODO: improve mission markers rendering performance
-		List<MissionItemProxy> proxyMissionItems = missionProxy.getItems();
-        // Clear the previous proxy mission item markers.
-		Map<MissionItemProxy, List<MarkerInfo>> newMissionMarkers = new HashMap<>(proxyMissionItems.size());
+        missionMarkers.setItems(missionProxy.getItems());
+        missionMarkers.render();
+    }
 
-		for(MissionItemProxy proxyItem : proxyMissionItems){
-			List<MarkerInfo> proxyMarkers = missionMarkers.remove(proxyItem);
-			if(proxyMarkers == null){
-				proxyMarkers = MissionItemMarkerInfo.newInstance(proxyItem);
+    /**
+     * Applies the given mission changes to the map, only touching the markers of the affected items.
+     */
+    private void onMissionUpdate(MissionChangeSet changes){
+        if (!shouldUpdateMission() || changes.isEmpty()) {
+            return;
+        }
 
-				if(!proxyMarkers.isEmpty()){
-					// Add the new markers to the map.
-					mMapFragment.addMarkers(proxyMarkers, isMissionDraggable());
-				}
-			}
-			else {
-				//Refresh the proxy markers
-				for(MarkerInfo marker: proxyMarkers){
-                    if (marker.isOnMap()) {
-                        marker.updateMarker(DroneMap.this);
-                    } else {
-                        mMapFragment.addMarker(marker);
-                    }
-                }
-			}
-            newMissionMarkers.put(proxyItem, proxyMarkers);
-		}
+        boolean polygonsChanged = false;
 
-		// Remove the now invalid mission items
-		for(List<MarkerInfo> invalidMarkers : missionMarkers.values()) {
-			mMapFragment.removeMarkers(invalidMarkers);
-		}
-		missionMarkers.clear();
+        for (MissionItemProxy removedItem : changes.getRemovedItems()) {
+            missionMarkers.removeItem(removedItem);
+            polygonsChanged |= removedItem.getMissionItem() instanceof Survey;
+        }
+
+        for (MissionItemProxy insertedItem : changes.getInsertedItems()) {
+            missionMarkers.addItem(insertedItem);
+            polygonsChanged |= insertedItem.getMissionItem() instanceof Survey;
+        }
+
+        for (MissionItemProxy modifiedItem : changes.getModifiedItems()) {
+            if (modifiedItem.getMissionItem() instanceof Survey) {
+                // The survey polygon may have gained or lost vertices, so its markers are rebuilt.
+                missionMarkers.removeItem(modifiedItem);
+                missionMarkers.addItem(modifiedItem);
+                polygonsChanged = true;
+            } else {
+                missionMarkers.refreshItem(modifiedItem);
+            }
+        }
+
+        // Refresh the order labels of the items which moved.
+        final int firstMovedIndex = changes.getFirstMovedIndex();
+        if (firstMovedIndex != MissionChangeSet.NO_MOVED_ITEMS) {
+            final List<MissionItemProxy> proxyMissionItems = missionProxy.getItems();
+            for (int i = firstMovedIndex; i < proxyMissionItems.size(); i++) {
+                missionMarkers.refreshItem(proxyMissionItems.get(i));
+            }
+        }
 
-        missionMarkers.putAll(newMissionMarkers);
+        missionMarkers.render();
+
+        mMapFragment.updateMissionPath(missionProxy);
+        if (polygonsChanged) {
+            mMapFragment.updatePolygonsPaths(missionProxy.getPolygonsPath());
+        }
+    }
+
+    /**
+     * Zooms in on the markers of the given mission cluster marker.
+     * @return true if the marker was a cluster marker.
+     */
+    protected boolean onClusterMarkerClick(MarkerInfo markerInfo) {
+        if (!(markerInfo instanceof MissionClusterMarkerInfo))
+            return false;
+
+        mMapFragment.zoomToFit(((MissionClusterMarkerInfo) markerInfo).getMarkersPositions());
+        return true;
     }
 
     protected boolean shouldUpdateMission() {
@@ -283,6 +359,9 @@ public abstract class DroneMap extends ApiListenerFragment {
 	@Override
 	public void onApiDisconnected() {
 		getBroadcastManager().unregisterReceiver(eventReceiver);
+		getEventBus().unsubscribe(eventSubscriber);
+		if (missionProxy != null)
+			missionProxy.removeMissionChangeListener(missionChangeListener);
 	}
 
 	private void updateMapFragment() {
@@ -300,6 +379,7 @@ public abstract class DroneMap extends ApiListenerFragment {
 			fm.beginTransaction().replace(R.id.map_fragment_container, (Fragment) mMapFragment)
 					.commit();
 		}
+		mMapFragment.setOnMapCameraIdleListener(cameraIdleListener);
 
 		if(!externalMarkersToAdd.isEmpty()){
 			for(MarkerInfo markerInfo = externalMarkersToAdd.poll();
@@ -321,8 +401,8 @@ public abstract class DroneMap extends ApiListenerFragment {
     public void onSaveInstanceState(Bundle outState){
         super.onSaveInstanceState(outState);
         if(mMapFragment != null) {
-            if(!flightPathPoints.isEmpty()){
-                outState.putSerializable(EXTRA_DRONE_FLIGHT_PATH, flightPathPoints);
+            if(!flightTrack.isEmpty()){
+                outState.putParcelable(EXTRA_DRONE_FLIGHT_PATH, flightTrack);
             }
         }
     }
@@ -360,7 +440,7 @@ public abstract class DroneMap extends ApiListenerFragment {
 		if (mMapFragment != null) {
 			mMapFragment.clearFlightPath();
 		}
-        flightPathPoints.clear();
+        flightTrack.clear();
 	}
 
 	/**
@@ -8,7 +8,6 @@ import android.view.ViewGroup;
 import android.widget.Toast;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.drone.property.Home;
 
@@ -44,6 +43,7 @@ public class EditorMapFragment extends DroneMap implements DPMap.OnMapLongClickL
 
 	@Override
 	public void onMapLongClick(LatLong point) {
+		editorListener.onMapLongClick(point);
 	}
 
 	@Override
@@ -127,7 +127,9 @@ public class EditorMapFragment extends DroneMap implements DPMap.OnMapLongClickL
 
 	@Override
 	public boolean onMarkerClick(MarkerInfo info) {
-		if (info instanceof MissionItemMarkerInfo) {
+		if (onClusterMarkerClick(info)) {
+			return true;
+		} else if (info instanceof MissionItemMarkerInfo) {
 			editorListener.onItemClick(((MissionItemMarkerInfo) info).getMarkerOrigin(), false);
 			return true;
 		} else {
@@ -146,7 +148,7 @@ public class EditorMapFragment extends DroneMap implements DPMap.OnMapLongClickL
 
 		// add home coord if visible
 		if(drone != null) {
-			Home home = drone.getAttribute(AttributeType.HOME);
+			Home home = vehicleSnapshot.getHome();
 			if (home != null && home.isValid()) {
 				final LatLong homeCoord = home.getCoordinate();
 				if (homeCoord.getLongitude() != 0 && homeCoord.getLatitude() != 0)
@@ -16,7 +16,6 @@ import android.widget.Toast;
 import com.google.android.gms.maps.model.LatLng;
 import com.o3dr.android.client.apis.ControlApi;
 import com.o3dr.services.android.lib.coordinate.LatLong;
-import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
 import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
@@ -33,7 +32,6 @@ import org.droidplanner.android.maps.DPMap;
 import org.droidplanner.android.maps.MarkerInfo;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.utils.MapUtils;
-import org.droidplanner.android.utils.SpaceTime;
 import org.droidplanner.android.utils.prefs.AutoPanMode;
 
 import java.util.List;
@@ -67,7 +65,7 @@ public class FlightMapFragment extends DroneMap implements DPMap.OnMapLongClickL
         public void onReceive(Context context, Intent intent) {
             final String action = intent.getAction();
             if (AttributeEvent.STATE_ARMING.equals(action)) {
-                final State droneState = drone.getAttribute(AttributeType.STATE);
+                final State droneState = vehicleSnapshot.getState();
                 if (droneState.isArmed()) {
                     clearFlightPath();
                 }
@@ -103,15 +101,6 @@ public class FlightMapFragment extends DroneMap implements DPMap.OnMapLongClickL
         }
     }
 
-    @Override
-    protected LatLongAlt getCurrentFlightPoint(){
-        LatLongAlt space = super.getCurrentFlightPoint();
-        if (space != null) {
-            return new SpaceTime(space, System.currentTimeMillis());
-        }
-        return null;
-    }
-
     @Override
     public void onPause() {
         super.onPause();
@@ -160,12 +149,12 @@ public class FlightMapFragment extends DroneMap implements DPMap.OnMapLongClickL
                 return true;
 
             case R.id.menu_export_flight_path_as_mission:
-                if (flightPathPoints.isEmpty()) {
+                if (flightTrack.isEmpty()) {
                     Toast.makeText(getContext(), R.string.error_empty_flight_path, Toast.LENGTH_LONG).show();
                     return true;
                 }
 
-                List<MissionItem> exportedMissionItems = MapUtils.exportPathAsMissionItems(flightPathPoints, 0.00012);
+                List<MissionItem> exportedMissionItems = MapUtils.exportPathAsMissionItems(flightTrack, 0.00012);
                 MissionProxy missionProxy = getMissionProxy();
                 missionProxy.clear();
                 missionProxy.addMissionItems(exportedMissionItems);
@@ -224,6 +213,8 @@ public class FlightMapFragment extends DroneMap implements DPMap.OnMapLongClickL
     public boolean onMarkerClick(MarkerInfo markerInfo) {
         if(markerInfo == null)
             return false;
+        if(onClusterMarkerClick(markerInfo))
+            return true;
         ControlApi.getApi(drone).goTo(markerInfo.getPosition(), false, null);
         return true;
     }
@@ -251,7 +242,7 @@ public class FlightMapFragment extends DroneMap implements DPMap.OnMapLongClickL
         if(this.drone == null)
             return;
 
-        final Gps droneGps = this.drone.getAttribute(AttributeType.GPS);
+        final Gps droneGps = this.vehicleSnapshot.getGps();
         if (droneGps == null || !droneGps.isValid())
             return;
 
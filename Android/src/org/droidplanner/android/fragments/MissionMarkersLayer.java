@@ -0,0 +1,369 @@
+package org.droidplanner.android.fragments;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import org.droidplanner.android.maps.DPMap;
+import org.droidplanner.android.maps.MarkerInfo;
+import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+import org.droidplanner.android.proxy.mission.item.markers.MissionClusterMarkerInfo;
+import org.droidplanner.android.proxy.mission.item.markers.MissionItemMarkerInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mission item markers of a {@link DroneMap}.
+ *
+ * The markers are only added to the map when they're around its visible area, so the cost of a pan, a zoom, or a
+ * mission update depends on the number of markers on screen rather than on the mission size. When zoomed out, the
+ * markers too close to each other to be told apart are replaced by a cluster marker showing their count. The
+ * markers of the selected items are never clustered.
+ */
+final class MissionMarkersLayer {
+
+    // Size of the cells the markers are bucketed in, in degrees.
+    private static final double CELL_SIZE = 0.01;
+
+    // Margin added on each side of the visible area, as a fraction of its size, so short pans don't add markers.
+    private static final double VISIBLE_AREA_MARGIN = 0.5;
+
+    // Markers are clustered below this zoom level.
+    private static final int CLUSTERING_MAX_ZOOM = 16;
+
+    // Size of the clusters on screen, in density independent pixels, and minimum number of markers they group.
+    private static final int CLUSTER_SIZE = 48;
+    private static final int MIN_CLUSTER_MARKERS = 3;
+
+    private static final class MarkerEntry {
+        final MissionItemProxy item;
+        final MarkerInfo marker;
+        long cell;
+
+        MarkerEntry(MissionItemProxy item, MarkerInfo marker) {
+            this.item = item;
+            this.marker = marker;
+        }
+    }
+
+    private final DroneMap droneMap;
+
+    private final Map<MissionItemProxy, List<MarkerEntry>> itemsMarkers = new IdentityHashMap<>();
+    private final Map<Long, List<MarkerEntry>> cells = new HashMap<>();
+
+    // Markers shown by the last render, and markers whose item changed since.
+    private Set<MarkerEntry> shownMarkers = newEntrySet();
+    private final Set<MarkerEntry> staleMarkers = newEntrySet();
+
+    private Map<Long, MissionClusterMarkerInfo> clusters = new HashMap<>();
+    private int clustersZoom = -1;
+
+    // Latitude the cluster cells are scaled for, so they don't shift as the map is panned.
+    private double clustersLatitude = Double.NaN;
+
+    MissionMarkersLayer(DroneMap droneMap) {
+        this.droneMap = droneMap;
+    }
+
+    /**
+     * Replaces the layer items with the given ones. The markers of the items already in the layer are reused.
+     */
+    void setItems(List<MissionItemProxy> items) {
+        final Map<MissionItemProxy, List<MarkerEntry>> previousItems = new IdentityHashMap<>(itemsMarkers);
+        itemsMarkers.clear();
+
+        boolean isReplaced = true;
+        for (MissionItemProxy item : items) {
+            final List<MarkerEntry> entries = previousItems.remove(item);
+            if (entries == null) {
+                addItem(item);
+            } else {
+                itemsMarkers.put(item, entries);
+                invalidate(entries);
+                isReplaced = false;
+            }
+        }
+
+        // Remove the now invalid mission items
+        for (List<MarkerEntry> invalidEntries : previousItems.values()) {
+            removeEntries(invalidEntries);
+        }
+
+        // A new mission may be elsewhere, so its cluster cells are scaled for its own latitude.
+        if (isReplaced) {
+            clustersLatitude = Double.NaN;
+            clustersZoom = -1;
+        }
+    }
+
+    void addItem(MissionItemProxy item) {
+        final List<MarkerInfo> markers = MissionItemMarkerInfo.newInstance(item);
+        final List<MarkerEntry> entries = new ArrayList<>(markers.size());
+        for (MarkerInfo marker : markers) {
+            final MarkerEntry entry = new MarkerEntry(item, marker);
+            entries.add(entry);
+            bucket(entry);
+        }
+        itemsMarkers.put(item, entries);
+    }
+
+    void removeItem(MissionItemProxy item) {
+        final List<MarkerEntry> entries = itemsMarkers.remove(item);
+        if (entries != null)
+            removeEntries(entries);
+    }
+
+    /**
+     * Refreshes the markers of the given item on the next render.
+     */
+    void refreshItem(MissionItemProxy item) {
+        final List<MarkerEntry> entries = itemsMarkers.get(item);
+        if (entries == null)
+            addItem(item);
+        else
+            invalidate(entries);
+    }
+
+    /**
+     * Updates the map with the markers around its visible area.
+     */
+    void render() {
+        final DPMap map = droneMap.getMapFragment();
+        if (map == null)
+            return;
+
+        final Set<MarkerEntry> markersToShow = newEntrySet();
+        final Map<Long, MissionClusterMarkerInfo> clustersToShow = new HashMap<>();
+
+        final DPMap.VisibleMapArea visibleArea = map.getVisibleMapArea();
+        if (visibleArea == null) {
+            // Without a visible area, every marker is shown.
+            for (List<MarkerEntry> entries : itemsMarkers.values()) {
+                markersToShow.addAll(entries);
+            }
+        } else {
+            final List<MarkerEntry> visibleMarkers = getMarkersAround(visibleArea);
+            final int zoom = (int) Math.floor(map.getMapZoomLevel());
+            if (zoom < CLUSTERING_MAX_ZOOM) {
+                cluster(visibleMarkers, zoom, markersToShow, clustersToShow);
+            } else {
+                markersToShow.addAll(visibleMarkers);
+            }
+        }
+
+        // Remove the markers which are out of sight, or clustered.
+        final List<MarkerInfo> hiddenMarkers = new ArrayList<>();
+        for (MarkerEntry entry : shownMarkers) {
+            if (!markersToShow.contains(entry))
+                hiddenMarkers.add(entry.marker);
+        }
+        for (Map.Entry<Long, MissionClusterMarkerInfo> cluster : clusters.entrySet()) {
+            if (clustersToShow.get(cluster.getKey()) != cluster.getValue())
+                hiddenMarkers.add(cluster.getValue());
+        }
+        map.removeMarkers(hiddenMarkers);
+
+        // Add the markers which came into sight, and refresh the ones which changed.
+        final List<MarkerInfo> newMarkers = new ArrayList<>();
+        for (MarkerEntry entry : markersToShow) {
+            if (!entry.marker.isOnMap())
+                newMarkers.add(entry.marker);
+            else if (staleMarkers.contains(entry))
+                entry.marker.updateMarker(droneMap);
+        }
+        if (!newMarkers.isEmpty())
+            map.addMarkers(newMarkers, droneMap.isMissionDraggable());
+
+        for (MissionClusterMarkerInfo cluster : clustersToShow.values()) {
+            if (!cluster.isOnMap())
+                map.addMarker(cluster);
+        }
+
+        shownMarkers = markersToShow;
+        clusters = clustersToShow;
+        staleMarkers.clear();
+    }
+
+    /**
+     * Groups the given markers by cluster cell. The cells holding enough markers are replaced by a cluster
+     * marker, the others have their markers shown.
+     */
+    private void cluster(List<MarkerEntry> visibleMarkers, int zoom, Set<MarkerEntry> markersToShow,
+                         Map<Long, MissionClusterMarkerInfo> clustersToShow) {
+        if (visibleMarkers.isEmpty())
+            return;
+
+        if (Double.isNaN(clustersLatitude))
+            clustersLatitude = visibleMarkers.get(0).marker.getPosition().getLatitude();
+
+        // The map is 256 density independent pixels wide at zoom level 0, and doubles with each level.
+        final double clusterWidth = CLUSTER_SIZE * 360.0 / (256.0 * (1L << zoom));
+        final double clusterHeight = clusterWidth * Math.cos(Math.toRadians(clustersLatitude));
+
+        final Map<Long, List<MarkerEntry>> clusterCells = new HashMap<>();
+        for (MarkerEntry entry : visibleMarkers) {
+            final MissionItemProxy item = entry.item;
+            if (item.getMissionProxy().selection.selectionContains(item)) {
+                markersToShow.add(entry);
+                continue;
+            }
+
+            final LatLong position = entry.marker.getPosition();
+            final Long cellKey = toKey((long) Math.floor(position.getLatitude() / clusterHeight),
+                    (long) Math.floor(position.getLongitude() / clusterWidth));
+            List<MarkerEntry> cellMarkers = clusterCells.get(cellKey);
+            if (cellMarkers == null) {
+                cellMarkers = new ArrayList<>();
+                clusterCells.put(cellKey, cellMarkers);
+            }
+            cellMarkers.add(entry);
+        }
+
+        for (Map.Entry<Long, List<MarkerEntry>> clusterCell : clusterCells.entrySet()) {
+            final List<MarkerEntry> cellMarkers = clusterCell.getValue();
+            if (cellMarkers.size() < MIN_CLUSTER_MARKERS) {
+                markersToShow.addAll(cellMarkers);
+                continue;
+            }
+
+            final List<LatLong> positions = new ArrayList<>(cellMarkers.size());
+            double latitude = 0;
+            double longitude = 0;
+            for (MarkerEntry entry : cellMarkers) {
+                final LatLong position = entry.marker.getPosition();
+                positions.add(new LatLong(position.getLatitude(), position.getLongitude()));
+                latitude += position.getLatitude();
+                longitude += position.getLongitude();
+            }
+            final LatLong center = new LatLong(latitude / positions.size(), longitude / positions.size());
+
+            // The cluster already on the map is kept if it didn't change.
+            final MissionClusterMarkerInfo previousCluster = clustersZoom == zoom
+                    ? clusters.get(clusterCell.getKey())
+                    : null;
+            if (previousCluster != null && previousCluster.getSize() == positions.size()
+                    && previousCluster.getPosition().equals(center)) {
+                clustersToShow.put(clusterCell.getKey(), previousCluster);
+            } else {
+                clustersToShow.put(clusterCell.getKey(), new MissionClusterMarkerInfo(center, positions));
+            }
+        }
+        clustersZoom = zoom;
+    }
+
+    /**
+     * @return the markers in the given area, extended by its margin.
+     */
+    private List<MarkerEntry> getMarkersAround(DPMap.VisibleMapArea visibleArea) {
+        final LatLong[] corners = {visibleArea.farLeft, visibleArea.nearLeft, visibleArea.nearRight,
+                visibleArea.farRight};
+        double minLatitude = Double.MAX_VALUE, minLongitude = Double.MAX_VALUE;
+        double maxLatitude = -Double.MAX_VALUE, maxLongitude = -Double.MAX_VALUE;
+        for (LatLong corner : corners) {
+            minLatitude = Math.min(minLatitude, corner.getLatitude());
+            minLongitude = Math.min(minLongitude, corner.getLongitude());
+            maxLatitude = Math.max(maxLatitude, corner.getLatitude());
+            maxLongitude = Math.max(maxLongitude, corner.getLongitude());
+        }
+
+        final double latitudeMargin = (maxLatitude - minLatitude) * VISIBLE_AREA_MARGIN;
+        final double longitudeMargin = (maxLongitude - minLongitude) * VISIBLE_AREA_MARGIN;
+        minLatitude -= latitudeMargin;
+        maxLatitude += latitudeMargin;
+        minLongitude -= longitudeMargin;
+        maxLongitude += longitudeMargin;
+
+        final long minCellLatitude = toCell(minLatitude);
+        final long maxCellLatitude = toCell(maxLatitude);
+        final long minCellLongitude = toCell(minLongitude);
+        final long maxCellLongitude = toCell(maxLongitude);
+
+        final List<MarkerEntry> markers = new ArrayList<>();
+
+        // When the area spans more cells than there are occupied ones, walking the occupied cells is cheaper.
+        final double cellsCount = (double) (maxCellLatitude - minCellLatitude + 1)
+                * (maxCellLongitude - minCellLongitude + 1);
+        if (cellsCount > cells.size()) {
+            for (List<MarkerEntry> cellMarkers : cells.values()) {
+                addMarkersIn(cellMarkers, minLatitude, minLongitude, maxLatitude, maxLongitude, markers);
+            }
+        } else {
+            for (long cellLatitude = minCellLatitude; cellLatitude <= maxCellLatitude; cellLatitude++) {
+                for (long cellLongitude = minCellLongitude; cellLongitude <= maxCellLongitude; cellLongitude++) {
+                    final List<MarkerEntry> cellMarkers = cells.get(toKey(cellLatitude, cellLongitude));
+                    if (cellMarkers != null)
+                        addMarkersIn(cellMarkers, minLatitude, minLongitude, maxLatitude, maxLongitude, markers);
+                }
+            }
+        }
+        return markers;
+    }
+
+    private static void addMarkersIn(List<MarkerEntry> cellMarkers, double minLatitude, double minLongitude,
+                                     double maxLatitude, double maxLongitude, List<MarkerEntry> markers) {
+        for (MarkerEntry entry : cellMarkers) {
+            final LatLong position = entry.marker.getPosition();
+            if (position.getLatitude() >= minLatitude && position.getLatitude() <= maxLatitude
+                    && position.getLongitude() >= minLongitude && position.getLongitude() <= maxLongitude)
+                markers.add(entry);
+        }
+    }
+
+    private void invalidate(List<MarkerEntry> entries) {
+        for (MarkerEntry entry : entries) {
+            // The marker may have moved to another cell.
+            unbucket(entry);
+            bucket(entry);
+            staleMarkers.add(entry);
+        }
+    }
+
+    private void removeEntries(List<MarkerEntry> entries) {
+        final DPMap map = droneMap.getMapFragment();
+        for (MarkerEntry entry : entries) {
+            unbucket(entry);
+            shownMarkers.remove(entry);
+            staleMarkers.remove(entry);
+            if (map != null)
+                map.removeMarker(entry.marker);
+        }
+    }
+
+    private void bucket(MarkerEntry entry) {
+        final LatLong position = entry.marker.getPosition();
+        entry.cell = toKey(toCell(position.getLatitude()), toCell(position.getLongitude()));
+
+        List<MarkerEntry> cellMarkers = cells.get(entry.cell);
+        if (cellMarkers == null) {
+            cellMarkers = new ArrayList<>();
+            cells.put(entry.cell, cellMarkers);
+        }
+        cellMarkers.add(entry);
+    }
+
+    private void unbucket(MarkerEntry entry) {
+        final List<MarkerEntry> cellMarkers = cells.get(entry.cell);
+        if (cellMarkers == null)
+            return;
+
+        cellMarkers.remove(entry);
+        if (cellMarkers.isEmpty())
+            cells.remove(entry.cell);
+    }
+
+    private static long toCell(double degrees) {
+        return (long) Math.floor(degrees / CELL_SIZE);
+    }
+
+    private static long toKey(long cellLatitude, long cellLongitude) {
+        return (cellLatitude << 32) | (cellLongitude & 0xffffffffL);
+    }
+
+    private static Set<MarkerEntry> newEntrySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<MarkerEntry, Boolean>());
+    }
+}
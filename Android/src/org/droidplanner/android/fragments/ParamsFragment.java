@@ -36,6 +36,7 @@ import org.droidplanner.android.dialogs.SupportEditInputDialog;
 import org.droidplanner.android.dialogs.openfile.OpenParameterDialog;
 import org.droidplanner.android.dialogs.parameters.DialogParameterInfo;
 import org.droidplanner.android.fragments.helpers.ApiListenerListFragment;
+import org.droidplanner.android.utils.ParameterBatchWriter;
 import org.droidplanner.android.utils.file.DirectoryPath;
 import org.droidplanner.android.utils.file.FileList;
 import org.droidplanner.android.utils.file.FileStream;
@@ -92,6 +93,16 @@ ParamsFragment extends ApiListenerListFragment implements
                     break;
 
                 case AttributeEvent.PARAMETER_RECEIVED:
+                    if (parameterWriter != null && parameterWriter.isRunning()) {
+                        // Value echoed back by the vehicle for a written parameter.
+                        final String name = intent.getStringExtra(AttributeEventExtra.EXTRA_PARAMETER_NAME);
+                        if (name != null) {
+                            parameterWriter.onParameterReceived(name,
+                                    intent.getDoubleExtra(AttributeEventExtra.EXTRA_PARAMETER_VALUE, Double.NaN));
+                        }
+                        break;
+                    }
+
                     final int defaultValue = -1;
                     int index = intent.getIntExtra(AttributeEventExtra.EXTRA_PARAMETER_INDEX, defaultValue);
                     int count = intent.getIntExtra(AttributeEventExtra.EXTRA_PARAMETERS_COUNT, defaultValue);
@@ -120,6 +131,7 @@ ParamsFragment extends ApiListenerListFragment implements
     private String openedParamsFilename;
     private View searchButton;
     private Snackbar snackbar;
+    private ParameterBatchWriter parameterWriter;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -246,6 +258,11 @@ ParamsFragment extends ApiListenerListFragment implements
     @Override
     public void onApiDisconnected() {
         getBroadcastManager().unregisterReceiver(broadcastReceiver);
+
+        if (parameterWriter != null && parameterWriter.isRunning()) {
+            parameterWriter.cancel();
+            stopProgress();
+        }
     }
 
     @Override
@@ -346,11 +363,45 @@ ParamsFragment extends ApiListenerListFragment implements
 
         final int parametersCount = parametersList.size();
         if (parametersCount > 0) {
-            VehicleApi.getApi(drone).writeParameters(new Parameters(parametersList));
             adapter.notifyDataSetChanged();
-            Toast.makeText(getActivity(),
-                    parametersCount + " " + getString(R.string.msg_parameters_written_to_drone),
-                    Toast.LENGTH_SHORT).show();
+
+            if (parameterWriter != null)
+                parameterWriter.cancel();
+
+            parameterWriter = new ParameterBatchWriter(drone, parametersList, new ParameterBatchWriter.Listener() {
+                @Override
+                public void onWriteProgress(int processedCount, int totalCount) {
+                    if (getActivity() != null)
+                        updateProgress(processedCount, totalCount);
+                }
+
+                @Override
+                public void onWriteCompleted(int writtenCount, List<Parameter> mismatches) {
+                    stopProgress();
+
+                    final Activity activity = getActivity();
+                    if (activity == null)
+                        return;
+
+                    if (mismatches.isEmpty()) {
+                        Toast.makeText(activity,
+                                writtenCount + " " + getString(R.string.msg_parameters_written_to_drone),
+                                Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(activity,
+                                mismatches.size() + " " + getString(R.string.msg_parameters_not_verified),
+                                Toast.LENGTH_LONG).show();
+                    }
+                }
+            });
+
+            // Skipped when the vehicle already has all the values.
+            if (parameterWriter.start()) {
+                stopProgress();
+                startProgress(R.string.writing_parameters);
+            } else {
+                parameterWriter = null;
+            }
         }
         snackbar = null;
     }
@@ -421,12 +472,16 @@ ParamsFragment extends ApiListenerListFragment implements
     }
 
     private void startProgress() {
+        startProgress(R.string.refreshing_parameters);
+    }
+
+    private void startProgress(int titleResId) {
         final Activity activity = getActivity();
         if(activity == null)
             return;
 
         progressDialog = new ProgressDialog(activity);
-        progressDialog.setTitle(R.string.refreshing_parameters);
+        progressDialog.setTitle(titleResId);
         progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
         progressDialog.setIndeterminate(true);
         progressDialog.setCancelable(false);
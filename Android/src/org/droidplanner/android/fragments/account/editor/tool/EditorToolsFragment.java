@@ -9,6 +9,7 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.view.View.OnLongClickListener;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.RadioGroup;
@@ -49,6 +50,11 @@ public class EditorToolsFragment extends ApiListenerFragment implements OnClickL
         void enableGestureDetection(boolean enable);
 
         void zoomToFitSelected();
+
+        /**
+         * @return the map distance, in meters, within which a touch hits a mission item.
+         */
+        double getTouchTolerance();
     }
 
     private static final IntentFilter eventFilter = new IntentFilter();
@@ -198,6 +204,19 @@ public class EditorToolsFragment extends ApiListenerFragment implements OnClickL
                 }
             }
         });
+        buttonUndo.setOnLongClickListener(new OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                setTool(EditorTools.NONE);
+
+                if (mMissionProxy.canRedoMission())
+                    mMissionProxy.redoMission();
+                else {
+                    Toast.makeText(getContext(), "No operation left to redo.", Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            }
+        });
 
         if (mMissionProxy != null) {
             for (EditorToolsImpl toolImpl : editorToolsImpls)
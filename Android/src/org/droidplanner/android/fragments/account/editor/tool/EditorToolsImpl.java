@@ -1,9 +1,11 @@
 package org.droidplanner.android.fragments.account.editor.tool;
 
 import android.os.Bundle;
+import android.widget.Toast;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
 
+import org.droidplanner.android.R;
 import org.droidplanner.android.dialogs.SupportYesNoDialog;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.proxy.mission.MissionSelection;
@@ -36,10 +38,44 @@ public abstract class EditorToolsImpl implements MissionSelection.OnSelectionUpd
     public void onMapClick(LatLong point) {
         if (missionProxy == null) return;
 
+        // A click on an item's path acts as a click on the item.
+        final MissionItemProxy item = getItemOnPath(point);
+        if (item != null) {
+            onListItemClick(item);
+            return;
+        }
+
         // If an mission item is selected, unselect it.
         missionProxy.selection.clearSelection();
     }
 
+    public void onMapLongClick(LatLong point) {
+    }
+
+    /**
+     * Arms the lasso: the next stroke drawn on the map is handed to {@link #onPathFinished(List)}, instead of
+     * panning the map.
+     */
+    protected void startLasso() {
+        final EditorToolsFragment.EditorToolListener listener = editorToolsFragment.listener;
+        if (listener == null)
+            return;
+
+        listener.enableGestureDetection(true);
+        Toast.makeText(editorToolsFragment.getContext(), R.string.label_draw_lasso, Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * @return the mission item whose path is under the given map point, or null.
+     */
+    protected MissionItemProxy getItemOnPath(LatLong point) {
+        final EditorToolsFragment.EditorToolListener listener = editorToolsFragment.listener;
+        if (missionProxy == null || listener == null)
+            return null;
+
+        return missionProxy.getItemOnPath(point, listener.getTouchTolerance());
+    }
+
     public void onListItemClick(MissionItemProxy item) {
         if (missionProxy == null)
             return;
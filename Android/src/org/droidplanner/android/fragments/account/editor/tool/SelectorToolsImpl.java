@@ -3,6 +3,8 @@ package org.droidplanner.android.fragments.account.editor.tool;
 import android.view.View;
 import android.widget.Toast;
 
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
 import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
 
 import java.util.List;
@@ -28,6 +30,18 @@ class SelectorToolsImpl extends EditorToolsImpl implements View.OnClickListener
         }
     }
 
+    @Override
+    public void onPathFinished(List<LatLong> path) {
+        if (missionProxy != null && path.size() > 2) {
+            missionProxy.selection.addToSelection(missionProxy.getItemsInPolygon(path));
+        }
+    }
+
+    @Override
+    public void onMapLongClick(LatLong point) {
+        startLasso();
+    }
+
     private void selectAll() {
         if (missionProxy == null)
             return;
@@ -47,10 +61,12 @@ class SelectorToolsImpl extends EditorToolsImpl implements View.OnClickListener
     public void setup() {
         EditorToolsFragment.EditorToolListener listener = editorToolsFragment.listener;
         if (listener != null) {
+            // The lasso is only armed by a long press, so the map can still be panned.
             listener.enableGestureDetection(false);
         }
 
-        Toast.makeText(editorToolsFragment.getContext(), "Click on mission items to select them.",
+        Toast.makeText(editorToolsFragment.getContext(),
+                "Click on mission items, or long press the map and draw around them, to select them.",
                 Toast.LENGTH_SHORT).show();
 
         if (missionProxy != null) {
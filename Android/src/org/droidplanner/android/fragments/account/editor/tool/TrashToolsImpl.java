@@ -3,6 +3,8 @@ package org.droidplanner.android.fragments.account.editor.tool;
 import android.content.Context;
 import android.view.View;
 
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
 import org.droidplanner.android.R;
 import org.droidplanner.android.dialogs.SupportYesNoDialog;
 import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
@@ -35,6 +37,39 @@ class TrashToolsImpl extends EditorToolsImpl implements View.OnClickListener {
         }
     }
 
+    @Override
+    public void onMapClick(LatLong point) {
+        if (missionProxy == null)
+            return;
+
+        // A path is easy to hit by mistake, so the item is only deleted once confirmed.
+        final MissionItemProxy item = getItemOnPath(point);
+        if (item == null) {
+            missionProxy.selection.clearSelection();
+            return;
+        }
+
+        missionProxy.selection.setSelectionTo(item);
+        deleteSelectedItems();
+    }
+
+    @Override
+    public void onPathFinished(List<LatLong> path) {
+        if (missionProxy != null && path.size() > 2) {
+            final List<MissionItemProxy> enclosedItems = missionProxy.getItemsInPolygon(path);
+            if (!enclosedItems.isEmpty()) {
+                // The enclosed items are selected, and deleted once confirmed.
+                missionProxy.selection.setSelectionTo(enclosedItems);
+                deleteSelectedItems();
+            }
+        }
+    }
+
+    @Override
+    public void onMapLongClick(LatLong point) {
+        startLasso();
+    }
+
     @Override
     public void onSelectionUpdate(List<MissionItemProxy> selected) {
         super.onSelectionUpdate(selected);
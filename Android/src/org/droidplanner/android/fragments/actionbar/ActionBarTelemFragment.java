@@ -24,16 +24,16 @@ import com.o3dr.services.android.lib.drone.property.State;
 import com.o3dr.services.android.lib.gcs.returnToMe.ReturnToMeState;
 import com.o3dr.services.android.lib.util.MathUtils;
 
-import org.beyene.sius.unit.length.LengthUnit;
 import org.droidplanner.android.R;
 import org.droidplanner.android.dialogs.SelectionListDialog;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.FrameScheduler;
+import org.droidplanner.android.utils.TelemetryText;
 import org.droidplanner.android.utils.Utils;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
-import java.util.Locale;
-
 /**
  * Created by Fredia Huya-Kouadio on 1/14/15.
  */
@@ -42,85 +42,138 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
     private final static IntentFilter eventFilter = new IntentFilter();
 
     static {
-        eventFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_CONNECTED);
-        eventFilter.addAction(AttributeEvent.STATE_DISCONNECTED);
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
-        eventFilter.addAction(AttributeEvent.GPS_COUNT);
-        eventFilter.addAction(AttributeEvent.GPS_FIX);
-        eventFilter.addAction(AttributeEvent.SIGNAL_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_VEHICLE_MODE);
-        eventFilter.addAction(AttributeEvent.TYPE_UPDATED);
-        eventFilter.addAction(AttributeEvent.ALTITUDE_UPDATED);
-
         eventFilter.addAction(SettingsFragment.ACTION_PREF_HDOP_UPDATE);
         eventFilter.addAction(SettingsFragment.ACTION_PREF_UNIT_SYSTEM_UPDATE);
 
         eventFilter.addAction(DroidPlannerPrefs.ACTION_PREF_RETURN_TO_ME_UPDATED);
-        eventFilter.addAction(AttributeEvent.RETURN_TO_ME_STATE_UPDATE);
-        eventFilter.addAction(AttributeEvent.HOME_UPDATED);
     }
 
+    private static final String[] droneEvents = {
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.STATE_CONNECTED,
+            AttributeEvent.STATE_DISCONNECTED,
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.GPS_COUNT,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.SIGNAL_UPDATED,
+            AttributeEvent.STATE_VEHICLE_MODE,
+            AttributeEvent.TYPE_UPDATED,
+            AttributeEvent.ALTITUDE_UPDATED,
+            AttributeEvent.RETURN_TO_ME_STATE_UPDATE,
+            AttributeEvent.HOME_UPDATED
+    };
+
     private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            if (getActivity() == null)
-                return;
-
-            switch (intent.getAction()) {
-                case AttributeEvent.BATTERY_UPDATED:
-                    updateBatteryTelem();
-                    break;
-
-                case AttributeEvent.STATE_CONNECTED:
-                    showTelemBar();
-                    updateAllTelem();
-                    break;
-
-                case AttributeEvent.STATE_DISCONNECTED:
-                    hideTelemBar();
-                    updateAllTelem();
-                    break;
-
-                case DroidPlannerPrefs.ACTION_PREF_RETURN_TO_ME_UPDATED:
-                case AttributeEvent.RETURN_TO_ME_STATE_UPDATE:
-                case AttributeEvent.GPS_POSITION:
-                case AttributeEvent.HOME_UPDATED:
-                    updateHomeTelem();
-                    break;
+            onEvent(intent.getAction());
+        }
+    };
 
-                case AttributeEvent.GPS_COUNT:
-                case AttributeEvent.GPS_FIX:
-                    updateGpsTelem();
-                    break;
+    private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
+        @Override
+        public void onDroneEvent(String event, Bundle extras) {
+            onEvent(event);
+        }
+    };
 
-                case AttributeEvent.SIGNAL_UPDATED:
-                    updateSignalTelem();
-                    break;
+    /**
+     * Maximum number of times per second each telemetry field is refreshed.
+     */
+    private static final int TELEM_REFRESH_RATE = 4;
 
-                case AttributeEvent.STATE_VEHICLE_MODE:
-                case AttributeEvent.TYPE_UPDATED:
-                    updateFlightModeTelem();
-                    break;
+    private final FrameScheduler.Task batteryTelemUpdate = new FrameScheduler.Task(TELEM_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            updateBatteryTelem();
+        }
+    };
 
-                case SettingsFragment.ACTION_PREF_HDOP_UPDATE:
-                    updateGpsTelem();
-                    break;
+    private final FrameScheduler.Task homeTelemUpdate = new FrameScheduler.Task(TELEM_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            updateHomeTelem();
+        }
+    };
 
-                case SettingsFragment.ACTION_PREF_UNIT_SYSTEM_UPDATE:
-                    updateHomeTelem();
-                    break;
+    private final FrameScheduler.Task gpsTelemUpdate = new FrameScheduler.Task(TELEM_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            updateGpsTelem();
+        }
+    };
 
-                case AttributeEvent.ALTITUDE_UPDATED:
-                    updateAltitudeTelem();
-                    break;
+    private final FrameScheduler.Task signalTelemUpdate = new FrameScheduler.Task(TELEM_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            updateSignalTelem();
+        }
+    };
 
-                default:
-                    break;
-            }
+    private final FrameScheduler.Task altitudeTelemUpdate = new FrameScheduler.Task(TELEM_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            updateAltitudeTelem();
         }
     };
 
+    private void onEvent(String action) {
+        if (getActivity() == null)
+            return;
+
+        switch (action) {
+            case AttributeEvent.BATTERY_UPDATED:
+                batteryTelemUpdate.request();
+                break;
+
+            case AttributeEvent.STATE_CONNECTED:
+                showTelemBar();
+                updateAllTelem();
+                break;
+
+            case AttributeEvent.STATE_DISCONNECTED:
+                hideTelemBar();
+                updateAllTelem();
+                break;
+
+            case DroidPlannerPrefs.ACTION_PREF_RETURN_TO_ME_UPDATED:
+            case AttributeEvent.RETURN_TO_ME_STATE_UPDATE:
+            case AttributeEvent.GPS_POSITION:
+            case AttributeEvent.HOME_UPDATED:
+                homeTelemUpdate.request();
+                break;
+
+            case AttributeEvent.GPS_COUNT:
+            case AttributeEvent.GPS_FIX:
+                gpsTelemUpdate.request();
+                break;
+
+            case AttributeEvent.SIGNAL_UPDATED:
+                signalTelemUpdate.request();
+                break;
+
+            case AttributeEvent.STATE_VEHICLE_MODE:
+            case AttributeEvent.TYPE_UPDATED:
+                updateFlightModeTelem();
+                break;
+
+            case SettingsFragment.ACTION_PREF_HDOP_UPDATE:
+                updateGpsTelem();
+                break;
+
+            case SettingsFragment.ACTION_PREF_UNIT_SYSTEM_UPDATE:
+                updateHomeTelem();
+                break;
+
+            case AttributeEvent.ALTITUDE_UPDATED:
+                altitudeTelemUpdate.request();
+                break;
+
+            default:
+                break;
+        }
+    }
+
     private DroidPlannerPrefs appPrefs;
 
     private TextView homeTelem;
@@ -209,7 +262,7 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
                 //Launch dialog to allow the user to select vehicle modes
                 final Drone drone = getDrone();
 
-                final SelectionListDialog selectionDialog = SelectionListDialog.newInstance(new FlightModeAdapter(context, drone));
+                final SelectionListDialog selectionDialog = SelectionListDialog.newInstance(new FlightModeAdapter(context, drone, getVehicleSnapshot()));
                 Utils.showDialog(selectionDialog, getChildFragmentManager(), "Flight modes selection", true);
             }
         });
@@ -245,11 +298,19 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
 
         updateAllTelem();
         getBroadcastManager().registerReceiver(eventReceiver, eventFilter);
+        getEventBus().subscribe(eventSubscriber, droneEvents);
     }
 
     @Override
     public void onApiDisconnected() {
         getBroadcastManager().unregisterReceiver(eventReceiver);
+        getEventBus().unsubscribe(eventSubscriber);
+
+        batteryTelemUpdate.cancel();
+        homeTelemUpdate.cancel();
+        gpsTelemUpdate.cancel();
+        signalTelemUpdate.cancel();
+        altitudeTelemUpdate.cancel();
     }
 
     private void updateAllTelem() {
@@ -265,7 +326,7 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
         final Drone drone = getDrone();
 
         final boolean isDroneConnected = drone.isConnected();
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         if (isDroneConnected) {
             flightModeTelem.setText(droneState.getVehicleMode().getLabel());
             flightModeTelem.setCompoundDrawablesWithIntrinsicBounds(R.drawable.ic_navigation_light_blue_a400_18dp, 0, 0, 0);
@@ -286,18 +347,17 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
         TextView fadeView = (TextView) popupView.findViewById(R.id.bar_signal_fade);
         TextView remFadeView = (TextView) popupView.findViewById(R.id.bar_signal_remfade);
 
-        final Signal droneSignal = drone.getAttribute(AttributeType.SIGNAL);
+        final Signal droneSignal = getVehicleSnapshot().getSignal();
         if (!drone.isConnected() || !droneSignal.isValid()) {
-            signalTelem.setText(emptyString);
-            signalTelem.setCompoundDrawablesWithIntrinsicBounds(R.drawable.ic_signal_cellular_null_grey_700_18dp,
-                    0, 0, 0);
-
-            rssiView.setText("RSSI: " + emptyString);
-            remRssiView.setText("RemRSSI: " + emptyString);
-            noiseView.setText("Noise: " + emptyString);
-            remNoiseView.setText("RemNoise: " + emptyString);
-            fadeView.setText("Fade: " + emptyString);
-            remFadeView.setText("RemFade: " + emptyString);
+            TelemetryText.of(signalTelem).append(emptyString)
+                    .icon(R.drawable.ic_signal_cellular_null_grey_700_18dp).apply();
+
+            TelemetryText.of(rssiView).append("RSSI: ").append(emptyString).apply();
+            TelemetryText.of(remRssiView).append("RemRSSI: ").append(emptyString).apply();
+            TelemetryText.of(noiseView).append("Noise: ").append(emptyString).apply();
+            TelemetryText.of(remNoiseView).append("RemNoise: ").append(emptyString).apply();
+            TelemetryText.of(fadeView).append("Fade: ").append(emptyString).apply();
+            TelemetryText.of(remFadeView).append("RemFade: ").append(emptyString).apply();
         } else {
             final int signalStrength = (int) droneSignal.getSignalStrength();
             final int signalIcon;
@@ -312,15 +372,18 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
             else
                 signalIcon = R.drawable.ic_signal_cellular_0_bar_grey_700_18dp;
 
-            signalTelem.setText(String.format(Locale.ENGLISH, "%d%%", signalStrength));
-            signalTelem.setCompoundDrawablesWithIntrinsicBounds(signalIcon, 0, 0, 0);
-
-            rssiView.setText(String.format("RSSI %2.0f dB", droneSignal.getRssi()));
-            remRssiView.setText(String.format("RemRSSI %2.0f dB", droneSignal.getRemrssi()));
-            noiseView.setText(String.format("Noise %2.0f dB", droneSignal.getNoise()));
-            remNoiseView.setText(String.format("RemNoise %2.0f dB", droneSignal.getRemnoise()));
-            fadeView.setText(String.format("Fade %2.0f dB", droneSignal.getFadeMargin()));
-            remFadeView.setText(String.format("RemFade %2.0f dB", droneSignal.getRemFadeMargin()));
+            TelemetryText.of(signalTelem).append(signalStrength).append('%').icon(signalIcon).apply();
+
+            TelemetryText.of(rssiView).append("RSSI ").append(droneSignal.getRssi(), 0, 2).append(" dB").apply();
+            TelemetryText.of(remRssiView).append("RemRSSI ").append(droneSignal.getRemrssi(), 0, 2).append(" dB")
+                    .apply();
+            TelemetryText.of(noiseView).append("Noise ").append(droneSignal.getNoise(), 0, 2).append(" dB").apply();
+            TelemetryText.of(remNoiseView).append("RemNoise ").append(droneSignal.getRemnoise(), 0, 2).append(" dB")
+                    .apply();
+            TelemetryText.of(fadeView).append("Fade ").append(droneSignal.getFadeMargin(), 0, 2).append(" dB")
+                    .apply();
+            TelemetryText.of(remFadeView).append("RemFade ").append(droneSignal.getRemFadeMargin(), 0, 2)
+                    .append(" dB").apply();
         }
 
         signalPopup.update();
@@ -335,65 +398,64 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
         TextView hdopStatusView = (TextView) popupView.findViewById(R.id.bar_gps_hdop_status);
         hdopStatusView.setVisibility(displayHdop ? View.GONE : View.VISIBLE);
 
-        final String update;
-        final int gpsIcon;
+        final TelemetryText update = TelemetryText.of(gpsTelem);
+        final TelemetryText satNo = TelemetryText.of(satNoView).append("S: ");
+        final TelemetryText hdopStatus = TelemetryText.of(hdopStatusView);
         if (!drone.isConnected()) {
-            update = (displayHdop ? "hdop: " : "") + emptyString;
-            gpsIcon = R.drawable.ic_gps_off_grey_700_18dp;
-            satNoView.setText("S: " + emptyString);
-            hdopStatusView.setText("hdop: " + emptyString);
+            if (displayHdop)
+                update.append("hdop: ");
+            update.append(emptyString).icon(R.drawable.ic_gps_off_grey_700_18dp);
+            satNo.append(emptyString);
+            hdopStatus.append("hdop: ").append(emptyString);
         } else {
-            Gps droneGps = drone.getAttribute(AttributeType.GPS);
+            Gps droneGps = getVehicleSnapshot().getGps();
             final String fixStatus = droneGps.getFixStatus();
 
             if (displayHdop) {
-                update = String.format(Locale.ENGLISH, "hdop: %.1f", droneGps.getGpsEph());
+                update.append("hdop: ").append(droneGps.getGpsEph(), 1);
+                hdopStatus.append(fixStatus);
             } else {
-                update = String.format(Locale.ENGLISH, "%s", fixStatus);
+                update.append(fixStatus);
+                hdopStatus.append("hdop: ").append(droneGps.getGpsEph(), 1);
             }
 
             switch (fixStatus) {
                 case Gps.LOCK_3D:
                 case Gps.LOCK_3D_DGPS:
                 case Gps.LOCK_3D_RTK:
-                    gpsIcon = R.drawable.ic_gps_fixed_black_24dp;
+                    update.icon(R.drawable.ic_gps_fixed_black_24dp);
                     break;
 
                 case Gps.LOCK_2D:
                 case Gps.NO_FIX:
                 default:
-                    gpsIcon = R.drawable.ic_gps_not_fixed_grey_700_18dp;
+                    update.icon(R.drawable.ic_gps_not_fixed_grey_700_18dp);
                     break;
             }
 
-            satNoView.setText(String.format(Locale.ENGLISH, "S: %d", droneGps.getSatellitesCount()));
-            if (appPrefs.shouldGpsHdopBeDisplayed()) {
-                hdopStatusView.setText(String.format(Locale.ENGLISH, "%s", fixStatus));
-            } else {
-                hdopStatusView.setText(String.format(Locale.ENGLISH, "hdop: %.1f", droneGps.getGpsEph()));
-            }
+            satNo.append(droneGps.getSatellitesCount());
         }
 
-        gpsTelem.setText(update);
-        gpsTelem.setCompoundDrawablesWithIntrinsicBounds(gpsIcon, 0, 0, 0);
+        satNo.apply();
+        hdopStatus.apply();
+        update.apply();
         gpsPopup.update();
     }
 
     private void updateHomeTelem() {
         final Drone drone = getDrone();
 
-        String update = getString(R.string.empty_content);
+        final TelemetryText update = TelemetryText.of(homeTelem);
         int drawableResId = appPrefs.isReturnToMeEnabled()
                 ? R.drawable.ic_person_grey_700_18dp
                 : R.drawable.ic_home_grey_700_18dp;
+        boolean isDistanceValid = false;
 
         if (drone.isConnected()) {
-            final Gps droneGps = drone.getAttribute(AttributeType.GPS);
-            final Home droneHome = drone.getAttribute(AttributeType.HOME);
+            final Gps droneGps = getVehicleSnapshot().getGps();
+            final Home droneHome = getVehicleSnapshot().getHome();
             if (droneGps.isValid() && droneHome.isValid()) {
-                LengthUnit distanceToHome = getLengthUnitProvider().boxBaseValueToTarget
-                        (MathUtils.getDistance2D(droneHome.getCoordinate(), droneGps.getPosition()));
-                update = String.format("%s", distanceToHome);
+                isDistanceValid = true;
 
                 final ReturnToMeState returnToMe = drone.getAttribute(AttributeType.RETURN_TO_ME_STATE);
                 switch (returnToMe.getState()) {
@@ -408,14 +470,21 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
                     case ReturnToMeState.STATE_WAITING_FOR_VEHICLE_GPS:
                     case ReturnToMeState.STATE_ERROR_UPDATING_HOME:
                         drawableResId = R.drawable.ic_person_red_500_18dp;
-                        update = getString(R.string.empty_content);
+                        isDistanceValid = false;
                         break;
                 }
+
+                if (isDistanceValid) {
+                    update.appendLength(getLengthUnitProvider(),
+                            MathUtils.getDistance2D(droneHome.getCoordinate(), droneGps.getPosition()));
+                }
             }
         }
 
-        homeTelem.setCompoundDrawablesWithIntrinsicBounds(drawableResId, 0, 0, 0);
-        homeTelem.setText(update);
+        if (!isDistanceValid)
+            update.append(emptyString);
+
+        update.icon(drawableResId).apply();
     }
 
     private void updateBatteryTelem() {
@@ -426,32 +495,32 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
         final TextView currentView = (TextView) batteryPopupView.findViewById(R.id.bar_power_current);
         final TextView remainView = (TextView) batteryPopupView.findViewById(R.id.bar_power_remain);
 
-        String update;
+        final TelemetryText update = TelemetryText.of(batteryTelem);
+        final TelemetryText discharge = TelemetryText.of(dischargeView).append("D: ");
+        final TelemetryText current = TelemetryText.of(currentView).append("C: ");
+        final TelemetryText remain = TelemetryText.of(remainView).append("R: ");
+
         Battery droneBattery;
         final int batteryIcon;
-        if (!drone.isConnected() || ((droneBattery = drone.getAttribute(AttributeType.BATTERY)) == null)) {
-            update = emptyString;
-            dischargeView.setText("D: " + emptyString);
-            currentView.setText("C: " + emptyString);
-            remainView.setText("R: " + emptyString);
+        if (!drone.isConnected() || ((droneBattery = getVehicleSnapshot().getBattery()) == null)) {
+            update.append(emptyString);
+            discharge.append(emptyString);
+            current.append(emptyString);
+            remain.append(emptyString);
             batteryIcon = R.drawable.ic_battery_circle_0_24dp;
         } else {
-            Double discharge = droneBattery.getBatteryDischarge();
-            String dischargeText;
-            if (discharge == null) {
-                dischargeText = "D: " + emptyString;
+            Double dischargeValue = droneBattery.getBatteryDischarge();
+            if (dischargeValue == null) {
+                discharge.append(emptyString);
             } else {
-                dischargeText = "D: " + electricChargeToString(discharge);
+                appendElectricCharge(discharge, dischargeValue);
             }
 
-            dischargeView.setText(dischargeText);
-
             final double battRemain = droneBattery.getBatteryRemain();
-            remainView.setText(String.format(Locale.ENGLISH, "R: %2.0f %%", battRemain));
-            currentView.setText(String.format("C: %2.1f A", droneBattery.getBatteryCurrent()));
+            remain.append(battRemain, 0, 2).append(" %");
+            current.append(droneBattery.getBatteryCurrent(), 1, 2).append(" A");
 
-
-            update = String.format(Locale.ENGLISH, "%2.1fV", droneBattery.getBatteryVoltage());
+            update.append(droneBattery.getBatteryVoltage(), 1, 2).append('V');
 
             if (battRemain >= 100) {
                 batteryIcon = R.drawable.ic_battery_circle_8_24dp;
@@ -474,28 +543,26 @@ public class ActionBarTelemFragment extends ApiListenerFragment {
             }
         }
 
+        discharge.apply();
+        current.apply();
+        remain.apply();
         batteryPopup.update();
-        batteryTelem.setText(update);
-        batteryTelem.setCompoundDrawablesWithIntrinsicBounds(batteryIcon, 0, 0, 0);
+        update.icon(batteryIcon).apply();
     }
 
-    private String electricChargeToString(double chargeInmAh) {
+    private static void appendElectricCharge(TelemetryText text, double chargeInmAh) {
         double absCharge = Math.abs(chargeInmAh);
         if (absCharge >= 1000) {
-            return String.format(Locale.US, "%2.1f Ah", chargeInmAh / 1000);
+            text.append(chargeInmAh / 1000, 1, 2).append(" Ah");
         } else {
-            return String.format(Locale.ENGLISH, "%2.0f mAh", chargeInmAh);
+            text.append(chargeInmAh, 0, 2).append(" mAh");
         }
     }
 
     private void updateAltitudeTelem() {
-        final Drone drone = getDrone();
-        final Altitude altitude = drone.getAttribute(AttributeType.ALTITUDE);
+        final Altitude altitude = getVehicleSnapshot().getAltitude();
         if (altitude != null) {
-            double alt = altitude.getAltitude();
-            LengthUnit altUnit = getLengthUnitProvider().boxBaseValueToTarget(alt);
-
-            this.altitudeTelem.setText(altUnit.toString());
+            TelemetryText.of(altitudeTelem).appendLength(getLengthUnitProvider(), altitude.getAltitude()).apply();
         }
     }
 
@@ -15,18 +15,19 @@ import com.o3dr.services.android.lib.drone.property.State
 import com.o3dr.services.android.lib.drone.property.Type
 import com.o3dr.services.android.lib.drone.property.VehicleMode
 import org.droidplanner.android.R
+import org.droidplanner.android.utils.VehicleSnapshot
 import org.droidplanner.android.utils.analytics.GAUtils
 
 /**
  * Created by Fredia Huya-Kouadio on 9/25/15.
  */
-public class FlightModeAdapter(context: Context, val drone: Drone) : SelectionListAdapter<VehicleMode>(context) {
+public class FlightModeAdapter(context: Context, val drone: Drone, vehicleSnapshot: VehicleSnapshot) : SelectionListAdapter<VehicleMode>(context) {
 
     private var selectedMode: VehicleMode
     private val flightModes : List<VehicleMode>
 
     init {
-        val state: State = drone.getAttribute(AttributeType.STATE)
+        val state: State = vehicleSnapshot.state
         selectedMode = state.vehicleMode
 
         val type: Type = drone.getAttribute(AttributeType.TYPE);
@@ -1,9 +1,5 @@
 package org.droidplanner.android.fragments.actionbar
 
-import android.content.BroadcastReceiver
-import android.content.Context
-import android.content.Intent
-import android.content.IntentFilter
 import android.os.Bundle
 import android.view.LayoutInflater
 import android.view.View
@@ -11,11 +7,11 @@ import android.view.ViewGroup
 import android.widget.ImageView
 import android.widget.TextView
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
-import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.property.Battery
 import com.o3dr.services.android.lib.drone.property.State
 import org.droidplanner.android.R
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment
+import org.droidplanner.android.utils.DroneEventBus
 import kotlin.properties.Delegates
 
 /**
@@ -24,24 +20,17 @@ import kotlin.properties.Delegates
 public class VehicleStatusFragment : ApiListenerFragment() {
 
     companion object {
-        private val filter = initFilter()
-
-        private fun initFilter(): IntentFilter {
-            val filter = IntentFilter()
-
-            filter.addAction(AttributeEvent.STATE_CONNECTED)
-            filter.addAction(AttributeEvent.STATE_DISCONNECTED)
-            filter.addAction(AttributeEvent.HEARTBEAT_TIMEOUT)
-            filter.addAction(AttributeEvent.HEARTBEAT_RESTORED)
-            filter.addAction(AttributeEvent.BATTERY_UPDATED)
-
-            return filter
-        }
+        private val droneEvents = arrayOf(
+                AttributeEvent.STATE_CONNECTED,
+                AttributeEvent.STATE_DISCONNECTED,
+                AttributeEvent.HEARTBEAT_TIMEOUT,
+                AttributeEvent.HEARTBEAT_RESTORED,
+                AttributeEvent.BATTERY_UPDATED)
     }
 
-    private val receiver = object : BroadcastReceiver(){
-        override fun onReceive(context: Context, intent: Intent) {
-            when(intent.action){
+    private val eventSubscriber = object : DroneEventBus.Subscriber {
+        override fun onDroneEvent(event: String, extras: Bundle?) {
+            when(event){
                 AttributeEvent.STATE_CONNECTED -> updateAllStatus()
 
                 AttributeEvent.STATE_DISCONNECTED -> updateAllStatus()
@@ -80,11 +69,11 @@ public class VehicleStatusFragment : ApiListenerFragment() {
 
     override fun onApiConnected() {
         updateAllStatus()
-        broadcastManager.registerReceiver(receiver, filter)
+        eventBus.subscribe(eventSubscriber, *droneEvents)
     }
 
     override fun onApiDisconnected() {
-        broadcastManager.unregisterReceiver(receiver)
+        eventBus.unsubscribe(eventSubscriber)
         updateAllStatus()
     }
 
@@ -99,7 +88,7 @@ public class VehicleStatusFragment : ApiListenerFragment() {
                 if(drone == null || !drone.isConnected)
                     0
                 else {
-                    val state: State = drone.getAttribute(AttributeType.STATE)
+                    val state: State = vehicleSnapshot.state
                     if (state.isTelemetryLive)
                         2
                     else
@@ -120,7 +109,7 @@ public class VehicleStatusFragment : ApiListenerFragment() {
                     0
                 }
                 else{
-                    val battery: Battery = drone.getAttribute(AttributeType.BATTERY)
+                    val battery: Battery = vehicleSnapshot.battery
                     val battRemain = battery.batteryRemain
 
                     if (battRemain >= 100) {
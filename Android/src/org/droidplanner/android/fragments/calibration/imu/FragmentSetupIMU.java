@@ -20,7 +20,6 @@ import com.o3dr.android.client.Drone;
 import com.o3dr.android.client.apis.CalibrationApi;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEventExtra;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.State;
 import com.o3dr.services.android.lib.model.SimpleCommandListener;
 
@@ -147,7 +146,7 @@ public class FragmentSetupIMU extends ApiListenerFragment {
     @Override
     public void onApiConnected() {
         Drone drone = getDrone();
-        State droneState = drone.getAttribute(AttributeType.STATE);
+        State droneState = getVehicleSnapshot().getState();
         if (drone.isConnected() && !droneState.isFlying()) {
             btnStep.setEnabled(true);
             if (droneState.isCalibrating()) {
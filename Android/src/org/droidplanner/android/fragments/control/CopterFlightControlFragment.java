@@ -350,7 +350,7 @@ public class CopterFlightControlFragment extends BaseFlightControlFragment imple
     private void updateFlightModeButtons() {
         resetFlightModeButtons();
 
-        State droneState = getDrone().getAttribute(AttributeType.STATE);
+        State droneState = getVehicleSnapshot().getState();
         if (droneState == null)
             return;
 
@@ -416,7 +416,7 @@ public class CopterFlightControlFragment extends BaseFlightControlFragment imple
     }
 
     private void setupButtonsByFlightState() {
-        final State droneState = getDrone().getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         if (droneState != null && droneState.isConnected()) {
             if (droneState.isArmed()) {
                 if (droneState.isFlying()) {
@@ -457,7 +457,7 @@ public class CopterFlightControlFragment extends BaseFlightControlFragment imple
         if (!drone.isConnected())
             return false;
 
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         return droneState.isArmed() && droneState.isFlying();
     }
 
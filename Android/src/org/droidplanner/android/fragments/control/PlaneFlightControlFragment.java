@@ -192,7 +192,7 @@ public class PlaneFlightControlFragment extends BaseFlightControlFragment {
         resetFlightModeButtons();
 
         final Drone drone = getDrone();
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         final VehicleMode flightMode = droneState.getVehicleMode();
         if (flightMode != null) {
             switch (flightMode) {
@@ -222,7 +222,7 @@ public class PlaneFlightControlFragment extends BaseFlightControlFragment {
     }
 
     private void setupButtonsByFlightState() {
-        final State droneState = getDrone().getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         if (droneState != null && droneState.isConnected()) {
             if (droneState.isArmed()) {
                 if (droneState.isFlying()) {
@@ -352,7 +352,7 @@ public class PlaneFlightControlFragment extends BaseFlightControlFragment {
 
     @Override
     public boolean isSlidingUpPanelEnabled(Drone drone) {
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         return droneState.isConnected() && droneState.isArmed() && droneState.isFlying();
     }
 }
@@ -14,7 +14,6 @@ import com.google.android.gms.analytics.HitBuilders;
 import com.o3dr.android.client.Drone;
 import com.o3dr.android.client.apis.VehicleApi;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.State;
 import com.o3dr.services.android.lib.drone.property.VehicleMode;
 
@@ -95,8 +94,7 @@ public class RoverFlightControlFragment extends BaseFlightControlFragment {
     private void updateFlightModeButtons() {
         resetFlightModeButtons();
 
-        final Drone drone = getDrone();
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         final VehicleMode flightMode = droneState.getVehicleMode();
         if (flightMode != null) {
             switch (flightMode) {
@@ -123,7 +121,7 @@ public class RoverFlightControlFragment extends BaseFlightControlFragment {
     }
 
     private void setupButtonsByFlightState() {
-        final State droneState = getDrone().getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         if (droneState != null && droneState.isConnected()) {
             setupButtonsForConnected();
         } else {
@@ -162,7 +160,7 @@ public class RoverFlightControlFragment extends BaseFlightControlFragment {
 
     @Override
     public boolean isSlidingUpPanelEnabled(Drone drone) {
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
         return droneState.isConnected();
     }
 
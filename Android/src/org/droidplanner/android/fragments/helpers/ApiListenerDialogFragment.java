@@ -13,6 +13,7 @@ import com.o3dr.android.client.Drone;
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.proxy.mission.MissionProxy;
+import org.droidplanner.android.utils.VehicleSnapshot;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 import org.droidplanner.android.utils.unit.UnitManager;
 import org.droidplanner.android.utils.unit.providers.area.AreaUnitProvider;
@@ -54,6 +55,10 @@ public abstract class ApiListenerDialogFragment extends DialogFragment implement
         return dpApp.getDrone();
     }
 
+    protected VehicleSnapshot getVehicleSnapshot() {
+        return dpApp.getVehicleSnapshot();
+    }
+
     protected LocalBroadcastManager getBroadcastManager(){
         return broadcastManager;
     }
@@ -13,6 +13,8 @@ import com.o3dr.android.client.Drone;
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.proxy.mission.MissionProxy;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.VehicleSnapshot;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 import org.droidplanner.android.utils.sound.SoundManager;
 import org.droidplanner.android.utils.unit.UnitManager;
@@ -63,6 +65,14 @@ public abstract class ApiListenerFragment extends Fragment implements DroidPlann
         return dpApp.getSoundManager();
     }
 
+    protected DroneEventBus getEventBus() {
+        return dpApp.getEventBus();
+    }
+
+    protected VehicleSnapshot getVehicleSnapshot() {
+        return dpApp.getVehicleSnapshot();
+    }
+
 	protected LocalBroadcastManager getBroadcastManager() {
 		return broadcastManager;
 	}
@@ -64,7 +64,7 @@ public class FlightModePanel extends ApiListenerFragment{
 
 	private void onModeUpdate(Drone drone) {
 		// Update the info panel fragment
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = getVehicleSnapshot().getState();
 		Fragment infoPanel;
 		if (droneState == null || !droneState.isConnected()) {
 			infoPanel = new ModeDisconnectedFragment();
@@ -2,11 +2,30 @@ package org.droidplanner.android.fragments.widget
 
 import android.support.annotation.IdRes
 import org.droidplanner.android.fragments.helpers.ApiListenerFragment
+import org.droidplanner.android.utils.FrameScheduler
 
 /**
  * Created by Fredia Huya-Kouadio on 8/28/15.
  */
 public abstract class TowerWidget : ApiListenerFragment() {
 
+    companion object {
+        const val DEFAULT_MAX_REFRESH_RATE = 10
+    }
+
     abstract fun getWidgetType(): TowerWidgets
-}
\ No newline at end of file
+
+    /**
+     * @return the maximum number of times per second the widget refreshes its telemetry views.
+     */
+    open fun getMaxRefreshRate() = DEFAULT_MAX_REFRESH_RATE
+
+    /**
+     * Creates a task running the given view update at most at the widget maximum refresh rate.
+     */
+    protected fun newRefreshTask(update: () -> Unit): FrameScheduler.Task {
+        return object : FrameScheduler.Task(getMaxRefreshRate()) {
+            override fun run() = update()
+        }
+    }
+}
@@ -1,16 +1,13 @@
 package org.droidplanner.android.fragments.widget.diagnostics
 
-import android.content.BroadcastReceiver
-import android.content.Context
-import android.content.Intent
-import android.content.IntentFilter
+import android.os.Bundle
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
-import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.property.EkfStatus
 import com.o3dr.services.android.lib.drone.property.State
 import com.o3dr.services.android.lib.drone.property.Vibration
 import org.droidplanner.android.fragments.widget.TowerWidget
 import org.droidplanner.android.fragments.widget.TowerWidgets
+import org.droidplanner.android.utils.DroneEventBus
 
 /**
  * Created by Fredia Huya-Kouadio on 8/30/15.
@@ -18,20 +15,15 @@ import org.droidplanner.android.fragments.widget.TowerWidgets
 public abstract class BaseWidgetDiagnostic : TowerWidget(){
 
     companion object {
-        private val filter = initFilter()
+        private val droneEvents = arrayOf(
+                AttributeEvent.STATE_EKF_REPORT,
 
-        private fun initFilter(): IntentFilter {
-            val temp = IntentFilter()
-            temp.addAction(AttributeEvent.STATE_EKF_REPORT)
+                AttributeEvent.STATE_CONNECTED,
+                AttributeEvent.STATE_DISCONNECTED,
+                AttributeEvent.HEARTBEAT_RESTORED,
+                AttributeEvent.HEARTBEAT_TIMEOUT,
 
-            temp.addAction(AttributeEvent.STATE_CONNECTED)
-            temp.addAction(AttributeEvent.STATE_DISCONNECTED)
-            temp.addAction(AttributeEvent.HEARTBEAT_RESTORED)
-            temp.addAction(AttributeEvent.HEARTBEAT_TIMEOUT)
-
-            temp.addAction(AttributeEvent.STATE_VEHICLE_VIBRATION)
-            return temp
-        }
+                AttributeEvent.STATE_VEHICLE_VIBRATION)
 
         val INVALID_HIGHEST_VARIANCE: Float = -1f
 
@@ -58,10 +50,10 @@ public abstract class BaseWidgetDiagnostic : TowerWidget(){
         val WARNING_VIBRATION_THRESHOLD: Int = 60
     }
 
-    private val receiver = object : BroadcastReceiver() {
-        override fun onReceive(context: Context, intent: Intent) {
-            when (intent.action) {
-                AttributeEvent.STATE_EKF_REPORT -> updateEkfStatus()
+    private val eventSubscriber = object : DroneEventBus.Subscriber {
+        override fun onDroneEvent(event: String, extras: Bundle?) {
+            when (event) {
+                AttributeEvent.STATE_EKF_REPORT -> ekfStatusTask.request()
 
                 AttributeEvent.STATE_CONNECTED,
                 AttributeEvent.STATE_DISCONNECTED,
@@ -71,16 +63,19 @@ public abstract class BaseWidgetDiagnostic : TowerWidget(){
                     updateVibrationStatus()
                 }
 
-                AttributeEvent.STATE_VEHICLE_VIBRATION -> updateVibrationStatus()
+                AttributeEvent.STATE_VEHICLE_VIBRATION -> vibrationStatusTask.request()
             }
         }
     }
 
+    private val ekfStatusTask = newRefreshTask { updateEkfStatus() }
+    private val vibrationStatusTask = newRefreshTask { updateVibrationStatus() }
+
     private fun updateEkfStatus(){
         if (!isAdded)
             return
 
-        val state: State? = drone?.getAttribute(AttributeType.STATE)
+        val state: State? = vehicleSnapshot?.state
         val ekfStatus = state?.ekfStatus
         if (state == null || !state.isTelemetryLive || ekfStatus == null) {
             disableEkfView()
@@ -94,7 +89,7 @@ public abstract class BaseWidgetDiagnostic : TowerWidget(){
         if(!isAdded)
             return
 
-        val state: State? = drone?.getAttribute(AttributeType.STATE)
+        val state: State? = vehicleSnapshot?.state
         val vibration = state?.vehicleVibration
         if(state == null || !state.isTelemetryLive || vibration == null){
             disableVibrationView()
@@ -114,14 +109,21 @@ public abstract class BaseWidgetDiagnostic : TowerWidget(){
 
     override fun getWidgetType() = TowerWidgets.VEHICLE_DIAGNOSTICS
 
+    /**
+     * The diagnostic graphs animate to their new values, so they're refreshed less often than the other widgets.
+     */
+    override fun getMaxRefreshRate() = 2
+
     override fun onApiConnected() {
         updateEkfStatus()
         updateVibrationStatus()
-        broadcastManager.registerReceiver(receiver, filter)
+        eventBus.subscribe(eventSubscriber, *droneEvents)
     }
 
     override fun onApiDisconnected() {
-        broadcastManager.unregisterReceiver(receiver)
+        eventBus.unsubscribe(eventSubscriber)
+        ekfStatusTask.cancel()
+        vibrationStatusTask.cancel()
         updateEkfStatus()
         updateVibrationStatus()
     }
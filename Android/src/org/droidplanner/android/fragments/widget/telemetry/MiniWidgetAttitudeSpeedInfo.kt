@@ -1,9 +1,5 @@
 package org.droidplanner.android.fragments.widget.telemetry
 
-import android.content.BroadcastReceiver
-import android.content.Context
-import android.content.Intent
-import android.content.IntentFilter
 import android.os.Bundle
 import android.preference.PreferenceManager
 import android.view.LayoutInflater
@@ -11,14 +7,14 @@ import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
-import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.property.Attitude
 import com.o3dr.services.android.lib.drone.property.Speed
 import org.droidplanner.android.R
 import org.droidplanner.android.fragments.widget.TowerWidget
 import org.droidplanner.android.fragments.widget.TowerWidgets
+import org.droidplanner.android.utils.DroneEventBus
+import org.droidplanner.android.utils.TelemetryText
 import org.droidplanner.android.view.AttitudeIndicator
-import java.util.*
 
 /**
  * Created by Fredia Huya-Kouadio on 8/27/15.
@@ -26,28 +22,24 @@ import java.util.*
 public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
 
     companion object {
-        private val filter = initFilter()
-
-        private fun initFilter(): IntentFilter {
-            val temp = IntentFilter()
-            temp.addAction(AttributeEvent.ATTITUDE_UPDATED)
-            temp.addAction(AttributeEvent.SPEED_UPDATED)
-            temp.addAction(AttributeEvent.GPS_POSITION)
-            temp.addAction(AttributeEvent.ALTITUDE_UPDATED)
-            temp.addAction(AttributeEvent.HOME_UPDATED)
-            return temp
-        }
+        private val droneEvents = arrayOf(
+                AttributeEvent.ATTITUDE_UPDATED,
+                AttributeEvent.SPEED_UPDATED,
+                AttributeEvent.ALTITUDE_UPDATED)
     }
 
-    private val receiver = object : BroadcastReceiver() {
-        override fun onReceive(context: Context, intent: Intent) {
-            when (intent.action) {
-                AttributeEvent.ATTITUDE_UPDATED -> onOrientationUpdate()
-                AttributeEvent.SPEED_UPDATED, AttributeEvent.ALTITUDE_UPDATED -> onSpeedUpdate()
+    private val eventSubscriber = object : DroneEventBus.Subscriber {
+        override fun onDroneEvent(event: String, extras: Bundle?) {
+            when (event) {
+                AttributeEvent.ATTITUDE_UPDATED -> orientationTask.request()
+                AttributeEvent.SPEED_UPDATED, AttributeEvent.ALTITUDE_UPDATED -> speedTask.request()
             }
         }
     }
 
+    private val orientationTask = newRefreshTask { onOrientationUpdate() }
+    private val speedTask = newRefreshTask { onSpeedUpdate() }
+
     private var attitudeIndicator: AttitudeIndicator? = null
     private var roll: TextView? = null
     private var yaw: TextView? = null
@@ -56,6 +48,10 @@ public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
     private var horizontalSpeed: TextView? = null
     private var verticalSpeed: TextView? = null
 
+    // Localized labels around the speed values.
+    private var horizontalSpeedLabel = Pair("", "")
+    private var verticalSpeedLabel = Pair("", "")
+
     private var headingModeFPV: Boolean = false
 
     private val MIN_VERTICAL_SPEED_MPS = 0.10 //Meters Per Second
@@ -75,6 +71,9 @@ public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
 
         horizontalSpeed = view.findViewById(R.id.horizontal_speed_telem) as TextView?
         verticalSpeed = view.findViewById(R.id.vertical_speed_telem) as TextView?
+
+        horizontalSpeedLabel = splitLabel(getString(R.string.horizontal_speed_telem))
+        verticalSpeedLabel = splitLabel(getString(R.string.vertical_speed_telem))
     }
 
     override fun onStart() {
@@ -86,13 +85,17 @@ public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
 
     override fun getWidgetType() = TowerWidgets.ATTITUDE_SPEED_INFO
 
+    override fun getMaxRefreshRate() = 20
+
     override fun onApiConnected() {
         updateAllTelem()
-        broadcastManager.registerReceiver(receiver, filter)
+        eventBus.subscribe(eventSubscriber, *droneEvents)
     }
 
     override fun onApiDisconnected() {
-        broadcastManager.unregisterReceiver(receiver)
+        eventBus.unsubscribe(eventSubscriber)
+        orientationTask.cancel()
+        speedTask.cancel()
     }
 
     private fun updateAllTelem() {
@@ -104,9 +107,7 @@ public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
         if (!isAdded)
             return
 
-        val drone = drone
-
-        val attitude = drone.getAttribute<Attitude>(AttributeType.ATTITUDE) ?: return
+        val attitude: Attitude = vehicleSnapshot.attitude ?: return
 
         val r = attitude.roll.toFloat()
         val p = attitude.pitch.toFloat()
@@ -118,34 +119,49 @@ public class MiniWidgetAttitudeSpeedInfo : TowerWidget() {
 
         attitudeIndicator?.setAttitude(r, p, y)
 
-        roll?.text = String.format(Locale.US, "%3.0f\u00B0", r)
-        pitch?.text = String.format(Locale.US, "%3.0f\u00B0", p)
-        yaw?.text = String.format(Locale.US, "%3.0f\u00B0", y)
+        roll?.let { TelemetryText.of(it).append(r.toDouble(), 0, 3).append('\u00B0').apply() }
+        pitch?.let { TelemetryText.of(it).append(p.toDouble(), 0, 3).append('\u00B0').apply() }
+        yaw?.let { TelemetryText.of(it).append(y.toDouble(), 0, 3).append('\u00B0').apply() }
 
     }
 
+    /**
+     * Splits the given "label: %s" string around its value placeholder.
+     */
+    private fun splitLabel(format: String) = Pair(format.substringBefore("%s"), format.substringAfter("%s", ""))
+
     private fun onSpeedUpdate() {
         if (!isAdded)
             return
 
-        val drone = drone
-        val speed = drone.getAttribute<Speed>(AttributeType.SPEED) ?: return
+        val speed: Speed = vehicleSnapshot.speed ?: return
 
         val groundSpeedValue = speed.groundSpeed
         val verticalSpeedValue = speed.verticalSpeed
 
         val speedUnitProvider = speedUnitProvider
 
-        horizontalSpeed?.text = getString(R.string.horizontal_speed_telem, speedUnitProvider.boxBaseValueToTarget(groundSpeedValue).toString())
-        verticalSpeed?.text = getString(R.string.vertical_speed_telem, speedUnitProvider.boxBaseValueToTarget(verticalSpeedValue).toString())
+        horizontalSpeed?.let {
+            TelemetryText.of(it).append(horizontalSpeedLabel.first)
+                    .appendSpeed(speedUnitProvider, groundSpeedValue)
+                    .append(horizontalSpeedLabel.second)
+                    .apply()
+        }
 
-        if (verticalSpeedValue >= MIN_VERTICAL_SPEED_MPS){
-            verticalSpeed?.setCompoundDrawablesWithIntrinsicBounds(R.drawable.ic_debug_step_up, 0, 0, 0);
-        }else if(verticalSpeedValue <= -(MIN_VERTICAL_SPEED_MPS)){
-            verticalSpeed?.setCompoundDrawablesWithIntrinsicBounds(R.drawable.ic_debug_step_down, 0, 0, 0);
-        }else{
-            verticalSpeed?.setCompoundDrawablesWithIntrinsicBounds(R.drawable.ic_debug_step_none, 0, 0, 0);
+        val verticalSpeedIcon = if (verticalSpeedValue >= MIN_VERTICAL_SPEED_MPS) {
+            R.drawable.ic_debug_step_up
+        } else if (verticalSpeedValue <= -(MIN_VERTICAL_SPEED_MPS)) {
+            R.drawable.ic_debug_step_down
+        } else {
+            R.drawable.ic_debug_step_none
         }
 
+        verticalSpeed?.let {
+            TelemetryText.of(it).append(verticalSpeedLabel.first)
+                    .appendSpeed(speedUnitProvider, verticalSpeedValue)
+                    .append(verticalSpeedLabel.second)
+                    .icon(verticalSpeedIcon)
+                    .apply()
+        }
     }
 }
\ No newline at end of file
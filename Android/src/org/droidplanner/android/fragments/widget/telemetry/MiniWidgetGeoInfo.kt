@@ -9,11 +9,11 @@ import android.view.ViewGroup
 import android.widget.TextView
 import android.widget.Toast
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
-import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.property.Gps
 import org.droidplanner.android.R
 import org.droidplanner.android.fragments.widget.TowerWidget
 import org.droidplanner.android.fragments.widget.TowerWidgets
+import org.droidplanner.android.utils.DroneEventBus
 
 /**
  * Created by Fredia Huya-Kouadio on 9/20/15.
@@ -21,24 +21,21 @@ import org.droidplanner.android.fragments.widget.TowerWidgets
 class MiniWidgetGeoInfo : TowerWidget() {
 
     companion object {
-        private val filter = initFilter()
-
-        private fun initFilter(): IntentFilter {
-            val temp = IntentFilter()
-            temp.addAction(AttributeEvent.GPS_POSITION)
-            temp.addAction(AttributeEvent.HOME_UPDATED)
-            return temp
-        }
+        private val droneEvents = arrayOf(
+                AttributeEvent.GPS_POSITION,
+                AttributeEvent.HOME_UPDATED)
     }
 
-    private val receiver = object : BroadcastReceiver() {
-        override fun onReceive(context: Context, intent: Intent) {
-            when (intent.action) {
-                AttributeEvent.GPS_POSITION, AttributeEvent.HOME_UPDATED -> onPositionUpdate()
+    private val eventSubscriber = object : DroneEventBus.Subscriber {
+        override fun onDroneEvent(event: String, extras: Bundle?) {
+            when (event) {
+                AttributeEvent.GPS_POSITION, AttributeEvent.HOME_UPDATED -> positionTask.request()
             }
         }
     }
 
+    private val positionTask = newRefreshTask { onPositionUpdate() }
+
     private var latitude: TextView? = null
     private var longitude: TextView? = null
 
@@ -58,7 +55,7 @@ class MiniWidgetGeoInfo : TowerWidget() {
         container?.setOnClickListener {
             val drone = drone
             if(drone.isConnected) {
-                val droneGps = drone.getAttribute<Gps>(AttributeType.GPS)
+                val droneGps = vehicleSnapshot.gps
                 if(droneGps.isValid) {
                     //Copy the lat long to the clipboard.
                     val latLongText = "${droneGps.position.latitude}, ${droneGps.position.longitude}"
@@ -76,19 +73,19 @@ class MiniWidgetGeoInfo : TowerWidget() {
 
     override fun onApiConnected() {
         onPositionUpdate()
-        broadcastManager.registerReceiver(receiver, filter)
+        eventBus.subscribe(eventSubscriber, *droneEvents)
     }
 
     override fun onApiDisconnected() {
-        broadcastManager.unregisterReceiver(receiver)
+        eventBus.unsubscribe(eventSubscriber)
+        positionTask.cancel()
     }
 
     private fun onPositionUpdate() {
         if (!isAdded)
             return
 
-        val drone = drone
-        val droneGps = drone.getAttribute<Gps>(AttributeType.GPS) ?: return
+        val droneGps: Gps = vehicleSnapshot.gps ?: return
 
         if (droneGps.isValid) {
 
@@ -15,12 +15,10 @@ import android.widget.TextView
 import com.o3dr.android.client.apis.GimbalApi
 import com.o3dr.android.client.apis.solo.SoloCameraApi
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
-import com.o3dr.services.android.lib.drone.attribute.AttributeType
 import com.o3dr.services.android.lib.drone.companion.solo.SoloAttributes
 import com.o3dr.services.android.lib.drone.companion.solo.SoloEvents
 import com.o3dr.services.android.lib.drone.companion.solo.tlv.SoloGoproConstants
 import com.o3dr.services.android.lib.drone.companion.solo.tlv.SoloGoproState
-import com.o3dr.services.android.lib.drone.property.Attitude
 import com.o3dr.services.android.lib.model.AbstractCommandListener
 import org.droidplanner.android.R
 import org.droidplanner.android.dialogs.LoadingDialog
@@ -261,9 +259,10 @@ public class FullWidgetSoloLinkVideo : BaseVideoWidget() {
                     }
 
                     private fun yawRotateTo(view: View, event: MotionEvent): Double {
-                        val drone = drone ?: return -1.0
+                        if (drone == null)
+                            return -1.0
 
-                        val attitude = drone.getAttribute<Attitude>(AttributeType.ATTITUDE)
+                        val attitude = vehicleSnapshot.attitude
                         var currYaw = attitude.getYaw()
 
                         //yaw value is between -180 and 180. Convert so the value is between 0 to 360
@@ -5,11 +5,12 @@ import android.content.SharedPreferences;
 import com.o3dr.services.android.lib.drone.property.Type;
 import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.SettingsFragment;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
+import org.droidplanner.android.utils.VehicleSnapshot;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
@@ -20,14 +21,12 @@ import com.o3dr.services.android.lib.drone.property.Gps;
 public class GraphicDrone extends MarkerInfo {
 
 	private Drone drone;
+	private VehicleSnapshot vehicleSnapshot;
 	private SharedPreferences preferences;
 
-	public GraphicDrone(Drone drone) {
-		this.drone = drone;
-	}
-
-	public GraphicDrone(Drone drone, Context context) {
+	public GraphicDrone(Drone drone, VehicleSnapshot vehicleSnapshot, Context context) {
 		this.drone = drone;
+		this.vehicleSnapshot = vehicleSnapshot;
 		preferences = context.getSharedPreferences
 				("towerPrefsKey", android.content.Context.MODE_PRIVATE);
 	}
@@ -44,7 +43,7 @@ public class GraphicDrone extends MarkerInfo {
 
 	@Override
 	public LatLong getPosition() {
-        Gps droneGps = drone.getAttribute(AttributeType.GPS);
+        Gps droneGps = vehicleSnapshot.getGps();
         return isValid() ? droneGps.getPosition() :  null;
 	}
 
@@ -55,12 +54,12 @@ public class GraphicDrone extends MarkerInfo {
 		if (drone.isConnected()) {
 			if(showVehicleSpecificIcons) {
 				Type droneType = drone.getAttribute(AttributeType.TYPE);
-				return BitmapFactory.decodeResource(res, updateIcon(droneType));
+				return MarkerIconCache.getInstance().getIcon(res, updateIcon(droneType));
 			} else {
-				return BitmapFactory.decodeResource(res, R.drawable.quad);
+				return MarkerIconCache.getInstance().getIcon(res, R.drawable.quad);
 			}
 		}
-		return BitmapFactory.decodeResource(res, R.drawable.quad_disconnect);
+		return MarkerIconCache.getInstance().getIcon(res, R.drawable.quad_disconnect);
 	}
 
 	@Override
@@ -75,12 +74,12 @@ public class GraphicDrone extends MarkerInfo {
 
 	@Override
 	public float getRotation() {
-        Attitude attitude = drone.getAttribute(AttributeType.ATTITUDE);
+        Attitude attitude = vehicleSnapshot.getAttitude();
 		return attitude == null ? 0 : (float) attitude.getYaw();
 	}
 
 	public boolean isValid() {
-        Gps droneGps = drone.getAttribute(AttributeType.GPS);
+        Gps droneGps = vehicleSnapshot.getGps();
 		return droneGps != null && droneGps.isValid();
 	}
 
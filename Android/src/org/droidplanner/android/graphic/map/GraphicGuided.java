@@ -15,6 +15,7 @@ import org.droidplanner.android.R;
 import org.droidplanner.android.maps.DPMap.PathSource;
 import org.droidplanner.android.maps.MarkerWithText;
 import org.droidplanner.android.maps.MarkerInfo;
+import org.droidplanner.android.utils.VehicleSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -24,9 +25,11 @@ public class GraphicGuided extends MarkerInfo implements PathSource {
 	private final static String TAG = GraphicGuided.class.getSimpleName();
 
     private final Drone drone;
+    private final VehicleSnapshot vehicleSnapshot;
 
-	public GraphicGuided(Drone drone) {
+	public GraphicGuided(Drone drone, VehicleSnapshot vehicleSnapshot) {
         this.drone = drone;
+        this.vehicleSnapshot = vehicleSnapshot;
 	}
 
 	@Override
@@ -34,7 +37,7 @@ public class GraphicGuided extends MarkerInfo implements PathSource {
 		List<LatLong> path = new ArrayList<LatLong>();
         GuidedState guidedPoint = drone.getAttribute(AttributeType.GUIDED_STATE);
 		if (guidedPoint != null && guidedPoint.isActive()) {
-            Gps gps = drone.getAttribute(AttributeType.GPS);
+            Gps gps = vehicleSnapshot.getGps();
 			if (gps != null && gps.isValid()) {
 				path.add(gps.getPosition());
 			}
@@ -3,29 +3,31 @@ package org.droidplanner.android.graphic.map;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.widget.Toast;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.android.client.apis.VehicleApi;
 import com.o3dr.services.android.lib.coordinate.LatLong;
 import com.o3dr.services.android.lib.coordinate.LatLongAlt;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.Home;
 import com.o3dr.services.android.lib.model.AbstractCommandListener;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
+import org.droidplanner.android.utils.VehicleSnapshot;
 
 import timber.log.Timber;
 
 public class GraphicHome extends MarkerInfo {
 
 	private final Drone drone;
+	private final VehicleSnapshot vehicleSnapshot;
 	private final Context context;
 
-	public GraphicHome(Drone drone, Context context) {
+	public GraphicHome(Drone drone, VehicleSnapshot vehicleSnapshot, Context context) {
 		this.drone = drone;
+		this.vehicleSnapshot = vehicleSnapshot;
 		this.context = context;
 	}
 
@@ -35,7 +37,7 @@ public class GraphicHome extends MarkerInfo {
 	}
 
 	public boolean isValid() {
-        Home droneHome = drone.getAttribute(AttributeType.HOME);
+        Home droneHome = vehicleSnapshot.getHome();
 		return droneHome != null && droneHome.isValid();
 	}
 
@@ -46,12 +48,12 @@ public class GraphicHome extends MarkerInfo {
 
 	@Override
 	public Bitmap getIcon(Resources res) {
-		return BitmapFactory.decodeResource(res, R.drawable.ic_wp_home);
+		return MarkerIconCache.getInstance().getIcon(res, R.drawable.ic_wp_home);
 	}
 
 	@Override
 	public LatLong getPosition() {
-        Home droneHome = drone.getAttribute(AttributeType.HOME);
+        Home droneHome = vehicleSnapshot.getHome();
         if(droneHome == null) return null;
 
 		return droneHome.getCoordinate();
@@ -59,7 +61,7 @@ public class GraphicHome extends MarkerInfo {
 
 	public void setPosition(LatLong position){
 		//Move the home location
-		final Home currentHome = drone.getAttribute(AttributeType.HOME);
+		final Home currentHome = vehicleSnapshot.getHome();
 		final LatLongAlt homeCoord = currentHome.getCoordinate();
 		final double homeAlt = homeCoord == null ? 0 : homeCoord.getAltitude();
 
@@ -85,7 +87,7 @@ public class GraphicHome extends MarkerInfo {
 
 	@Override
 	public String getSnippet() {
-        Home droneHome = drone.getAttribute(AttributeType.HOME);
+        Home droneHome = vehicleSnapshot.getHome();
 		LatLongAlt coordinate = droneHome == null ? null : droneHome.getCoordinate();
 		return "Home " + (coordinate == null ? "N/A" : coordinate.getAltitude());
 	}
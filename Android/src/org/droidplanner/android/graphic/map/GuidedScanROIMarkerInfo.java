@@ -2,12 +2,12 @@ package org.droidplanner.android.graphic.map;
 
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
 import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 
 import org.droidplanner.android.R;
+import org.droidplanner.android.maps.MarkerIconCache;
 import org.droidplanner.android.maps.MarkerInfo;
 
 /**
@@ -39,7 +39,7 @@ public class GuidedScanROIMarkerInfo extends MarkerInfo {
 
     @Override
     public Bitmap getIcon(Resources res){
-        return BitmapFactory.decodeResource(res, R.drawable.ic_roi);
+        return MarkerIconCache.getInstance().getIcon(res, R.drawable.ic_roi);
     }
 
     @Override
@@ -6,11 +6,11 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.o3dr.services.android.lib.coordinate.LatLong;
-import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 import com.o3dr.services.android.lib.drone.property.FootPrint;
 
 import org.droidplanner.android.maps.providers.DPMapProvider;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader;
+import org.droidplanner.android.utils.FlightTrack;
 import org.droidplanner.android.utils.prefs.AutoPanMode;
 
 import java.util.Collection;
@@ -61,12 +61,12 @@ public interface DPMap {
 	int DEFAULT_ZOOM_LEVEL = 17;
 
 	/**
-	 * Adds a coordinate to the drone's flight path.
+	 * Draws the positions appended to the drone's flight track since the last update.
 	 * 
-	 * @param coord
-	 *            drone's coordinate
+	 * @param track
+	 *            drone's flight track. It's owned by the caller, and only read by the map.
 	 */
-	void addFlightPathPoint(LatLongAlt coord);
+	void updateFlightPath(FlightTrack track);
 
 	/**
 	 * Draw the footprint of the camera in the ground
@@ -263,6 +263,15 @@ public interface DPMap {
 	 */
 	void setOnMarkerDragListener(OnMarkerDragListener listener);
 
+	/**
+	 * Sets a callback that's invoked when the map camera stops moving.
+	 *
+	 * @param listener
+	 *            The callback that's invoked once the map is panned or zoomed.
+	 *            To unset the callback, use null.
+	 */
+	void setOnMapCameraIdleListener(OnMapCameraIdleListener listener);
+
     /**
      * Sets a callback that's invoked when the user location is updated.
      * @param listener
@@ -353,6 +362,16 @@ public interface DPMap {
 		void onMapLongClick(LatLong coord);
 	}
 
+	/**
+	 * Implemented by classes interested in the map camera moves.
+	 */
+	interface OnMapCameraIdleListener {
+		/**
+		 * Triggered when the map camera stops moving, after a pan or a zoom.
+		 */
+		void onMapCameraIdle();
+	}
+
 	/**
 	 * Implemented by classes interested in marker(s) click events.
 	 */
@@ -0,0 +1,194 @@
+package org.droidplanner.android.maps;
+
+import org.droidplanner.android.utils.FlightTrack;
+
+import java.util.Arrays;
+
+/**
+ * Level of detail model for the drone's flight path.
+ *
+ * The raw positions are read from the append-only {@link FlightTrack} of the map owner, which isn't copied, and
+ * each level maintains a simplified view of the track tuned for a range of map zoom levels. The simplification is streamed: the recent positions are
+ * kept pending, and every {@link #SIMPLIFICATION_WINDOW} positions the pending run is simplified and its stable
+ * part committed. Appending a position therefore costs roughly the same at the start of a flight as after hours
+ * of flight.
+ *
+ * The points of a level are its committed points, followed by the raw positions after its anchor (the last
+ * committed point).
+ */
+public class FlightPathLevels {
+
+    /**
+     * Maximum zoom level served by each simplified level. Above the last one, the raw track is used.
+     */
+    private static final int[] LEVEL_MAX_ZOOMS = {8, 11, 14, 17};
+
+    /**
+     * Number of positions appended between two simplification runs.
+     */
+    private static final int SIMPLIFICATION_WINDOW = 64;
+
+    /**
+     * Maximum number of pending positions. Past this bound, the pending run is committed as simplified, even if
+     * its last points could still change with the upcoming positions.
+     */
+    private static final int MAX_PENDING_POSITIONS = SIMPLIFICATION_WINDOW * 4;
+
+    /**
+     * Simplification tolerance, in screen pixels.
+     */
+    private static final double TOLERANCE_PIXELS = 1;
+
+    private final FlightTrack track;
+    private final Level[] levels;
+
+    // Number of track positions the levels were updated with.
+    private int size;
+
+    public FlightPathLevels(FlightTrack track) {
+        this.track = track;
+        levels = new Level[LEVEL_MAX_ZOOMS.length + 1];
+        for (int i = 0; i < LEVEL_MAX_ZOOMS.length; i++) {
+            levels[i] = new Level(getTolerance(LEVEL_MAX_ZOOMS[i]));
+        }
+        levels[LEVEL_MAX_ZOOMS.length] = new Level(0);
+    }
+
+    /**
+     * @return the size, in degrees, of a pixel at the given zoom level for 256 pixels wide map tiles.
+     */
+    private static double getTolerance(int zoom) {
+        return TOLERANCE_PIXELS * 360d / (256d * (1 << zoom));
+    }
+
+    public FlightTrack getTrack() {
+        return track;
+    }
+
+    /**
+     * @return the number of track positions the levels were updated with.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        for (Level level : levels) {
+            level.clear();
+        }
+    }
+
+    /**
+     * Updates the levels with the positions appended to the track since the last update.
+     */
+    public void update() {
+        final int trackSize = track.size();
+        while (size < trackSize) {
+            size++;
+            for (Level level : levels) {
+                level.onPositionAppended();
+            }
+        }
+    }
+
+    /**
+     * @return the level to display at the given map zoom level.
+     */
+    public Level getLevel(float zoom) {
+        for (int i = 0; i < LEVEL_MAX_ZOOMS.length; i++) {
+            if (zoom <= LEVEL_MAX_ZOOMS[i])
+                return levels[i];
+        }
+        return levels[LEVEL_MAX_ZOOMS.length];
+    }
+
+    public double getLatitude(int index) {
+        return track.getLatitude(index);
+    }
+
+    public double getLongitude(int index) {
+        return track.getLongitude(index);
+    }
+
+    /**
+     * Simplified view of the flight path.
+     */
+    public class Level {
+
+        private final double tolerance;
+
+        // Raw track indexes of the committed points. The last one is the anchor.
+        private int[] committed = new int[256];
+        private int committedCount;
+
+        private int nextSimplificationSize;
+
+        Level(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        void clear() {
+            committedCount = 0;
+            nextSimplificationSize = 0;
+        }
+
+        void onPositionAppended() {
+            if (committedCount == 0 || tolerance <= 0) {
+                commit(size - 1);
+                return;
+            }
+
+            if (size < nextSimplificationSize || size - getAnchor() - 1 < SIMPLIFICATION_WINDOW)
+                return;
+
+            final int[] kept = track.simplify(getAnchor(), size, tolerance);
+            if (size - getAnchor() >= MAX_PENDING_POSITIONS) {
+                for (int i = 1; i < kept.length; i++) {
+                    commit(kept[i]);
+                }
+            } else {
+                // The last kept point can still be removed by the upcoming positions, so it stays pending.
+                for (int i = 1; i < kept.length - 1; i++) {
+                    commit(kept[i]);
+                }
+            }
+            nextSimplificationSize = size + SIMPLIFICATION_WINDOW;
+        }
+
+        private void commit(int index) {
+            if (committedCount == committed.length)
+                committed = Arrays.copyOf(committed, committedCount * 2);
+            committed[committedCount++] = index;
+        }
+
+        private int getAnchor() {
+            return committed[committedCount - 1];
+        }
+
+        /**
+         * @return the number of points of this level.
+         */
+        public int getPointCount() {
+            if (committedCount == 0)
+                return 0;
+            return committedCount + size - getAnchor() - 1;
+        }
+
+        /**
+         * @return the number of points of this level which won't change anymore.
+         */
+        public int getCommittedCount() {
+            return committedCount;
+        }
+
+        /**
+         * @return the raw track index of the given point of this level.
+         */
+        public int getTrackIndex(int point) {
+            if (point < committedCount)
+                return committed[point];
+            return getAnchor() + point - committedCount + 1;
+        }
+    }
+}
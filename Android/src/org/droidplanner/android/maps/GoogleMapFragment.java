@@ -56,9 +56,7 @@ import com.google.android.gms.maps.model.TileOverlayOptions;
 import com.google.android.gms.maps.model.VisibleRegion;
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
-import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.FootPrint;
 import com.o3dr.services.android.lib.drone.property.Gps;
 import com.o3dr.services.android.lib.util.googleApi.GoogleApiClientManager;
@@ -74,10 +72,15 @@ import org.droidplanner.android.maps.providers.google_map.GoogleMapPrefConstants
 import org.droidplanner.android.maps.providers.google_map.GoogleMapPrefFragment;
 import org.droidplanner.android.maps.providers.google_map.tiles.TileProviderManager;
 import org.droidplanner.android.maps.providers.google_map.tiles.arcgis.ArcGISTileProviderManager;
+import org.droidplanner.android.maps.providers.google_map.tiles.coverage.CoverageGrid;
+import org.droidplanner.android.maps.providers.google_map.tiles.coverage.CoverageTileProvider;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.MapboxTileProviderManager;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.MapboxUtils;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader;
 import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.FlightTrack;
+import org.droidplanner.android.utils.FrameScheduler;
 import org.droidplanner.android.utils.MapUtils;
 import org.droidplanner.android.utils.prefs.AutoPanMode;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
@@ -105,6 +108,13 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
     private static final int ONLINE_TILE_PROVIDER_Z_INDEX = -1;
     private static final int OFFLINE_TILE_PROVIDER_Z_INDEX = -2;
+    private static final int COVERAGE_TILE_PROVIDER_Z_INDEX = 0;
+
+    // Maximum number of coverage overlay refreshes per second.
+    private static final int COVERAGE_REFRESH_RATE = 1;
+
+    // Maximum number of points in a flight path polyline. Longer paths are split in several polylines.
+    private static final int FLIGHT_PATH_CHUNK_SIZE = 500;
 
     private static final int GET_DRAGGABLE_FROM_MARKER_INFO = -1;
     private static final int IS_DRAGGABLE = 0;
@@ -113,31 +123,37 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
     private static final IntentFilter eventFilter = new IntentFilter();
 
     static {
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
         eventFilter.addAction(SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED);
     }
 
     private final static Api<? extends Api.ApiOptions.NotRequiredOptions>[] apisList = new Api[]{LocationServices.API};
 
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            final String action = intent.getAction();
-            switch (action) {
+        public void onDroneEvent(String event, Bundle extras) {
+            switch (event) {
                 case AttributeEvent.GPS_POSITION:
                     if (mPanMode.get() == AutoPanMode.DRONE) {
                         final Drone drone = getDroneApi();
                         if (!drone.isConnected())
                             return;
 
-                        final Gps droneGps = drone.getAttribute(AttributeType.GPS);
+                        final Gps droneGps = dpApp.getVehicleSnapshot().getGps();
                         if (droneGps != null && droneGps.isValid()) {
                             final LatLong droneLocation = droneGps.getPosition();
                             updateCamera(droneLocation);
                         }
                     }
                     break;
+            }
+        }
+    };
 
+    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            switch (action) {
                 case SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED:
                     getMapAsync(new OnMapReadyCallback() {
                         @Override
@@ -160,6 +176,18 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
     private final Handler handler = new Handler();
 
+    private final Runnable updateFlightPathTask = new Runnable() {
+        @Override
+        public void run() {
+            getMapAsync(new OnMapReadyCallback() {
+                @Override
+                public void onMapReady(GoogleMap googleMap) {
+                    drawFlightPath(googleMap);
+                }
+            });
+        }
+    };
+
     private final LocationCallback locationCb = new LocationCallback() {
         @Override
         public void onLocationAvailability(LocationAvailability locationAvailability) {
@@ -255,7 +283,15 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
     private Marker loopMarker;
     private int loopCount;
 
+    private FlightPathLevels flightPathLevels;
+    private FlightPathLevels.Level flightPathLevel;
+
+    // The flight path is drawn as a run of full polylines, which are never updated, followed by the polyline
+    // holding the most recent points.
+    private final List<Polyline> flightPathChunks = new ArrayList<>();
+    private int flightPathChunksEnd;
     private Polyline flightPath;
+
     private Polyline missionPath;
     private Polyline loopPath;
     private Polyline mDroneLeashPath;
@@ -268,6 +304,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
     private DPMap.OnMapLongClickListener mMapLongClickListener;
     private DPMap.OnMarkerClickListener mMarkerClickListener;
     private DPMap.OnMarkerDragListener mMarkerDragListener;
+    private DPMap.OnMapCameraIdleListener mCameraIdleListener;
     private android.location.LocationListener mLocationListener;
 
     private List<Polygon> polygonsPaths = new ArrayList<>();
@@ -283,6 +320,20 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
     private TileProviderManager tileProviderManager;
 
+    /*
+    Camera footprints coverage overlay
+     */
+    private final CoverageGrid footprintsCoverage = new CoverageGrid();
+    private TileOverlay coverageTileOverlay;
+
+    private final FrameScheduler.Task coverageRefresh = new FrameScheduler.Task(COVERAGE_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            if (coverageTileOverlay != null)
+                coverageTileOverlay.clearTileCache();
+        }
+    };
+
     private final OnMapReadyCallback loadCameraPositionTask = new OnMapReadyCallback() {
         @Override
         public void onMapReady(GoogleMap googleMap) {
@@ -360,6 +411,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
         mGApiClientMgr.addTask(mRequestLocationUpdateTask);
         lbm.registerReceiver(eventReceiver, eventFilter);
+        dpApp.getEventBus().subscribe(eventSubscriber, AttributeEvent.GPS_POSITION);
         setupMap();
     }
 
@@ -369,6 +421,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
         mGApiClientMgr.addTask(mRemoveLocationUpdateTask);
         lbm.unregisterReceiver(eventReceiver);
+        dpApp.getEventBus().unsubscribe(eventSubscriber);
 
         mGApiClientMgr.stopSafely();
     }
@@ -415,6 +468,20 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
     @Override
     public void clearFlightPath() {
+        handler.removeCallbacks(updateFlightPathTask);
+        removeFlightPathPolylines();
+        if (flightPathLevels != null)
+            flightPathLevels.clear();
+    }
+
+    private void removeFlightPathPolylines() {
+        for (Polyline chunk : flightPathChunks) {
+            chunk.remove();
+        }
+        flightPathChunks.clear();
+        flightPathChunksEnd = 0;
+        flightPathLevel = null;
+
         if (flightPath != null) {
             flightPath.remove();
             flightPath = null;
@@ -468,26 +535,72 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
     }
 
     @Override
-    public void addFlightPathPoint(final LatLongAlt coord) {
-        final LatLng position = MapUtils.coordToLatLng(coord);
+    public void updateFlightPath(FlightTrack track) {
+        if (!showFlightPath)
+            return;
 
-        getMapAsync(new OnMapReadyCallback() {
-            @Override
-            public void onMapReady(GoogleMap googleMap) {
-                if (showFlightPath) {
-                    if (flightPath == null) {
-                        PolylineOptions flightPathOptions = new PolylineOptions();
-                        flightPathOptions.color(FLIGHT_PATH_DEFAULT_COLOR)
-                                .width(FLIGHT_PATH_DEFAULT_WIDTH).zIndex(1);
-                        flightPath = googleMap.addPolyline(flightPathOptions);
-                    }
+        // The path is redrawn from scratch for a new track, or once the track was cleared.
+        if (flightPathLevels == null || flightPathLevels.getTrack() != track) {
+            clearFlightPath();
+            flightPathLevels = new FlightPathLevels(track);
+        } else if (flightPathLevels.size() > track.size()) {
+            clearFlightPath();
+        }
+        flightPathLevels.update();
 
-                    List<LatLng> oldFlightPath = flightPath.getPoints();
-                    oldFlightPath.add(position);
-                    flightPath.setPoints(oldFlightPath);
-                }
+        // Coalesce the points added in a burst (e.g: when restoring the flight path) in a single update.
+        handler.removeCallbacks(updateFlightPathTask);
+        handler.post(updateFlightPathTask);
+    }
+
+    /**
+     * Draws the new points of the flight path, using the level of detail matching the current zoom.
+     * Only the last polyline is updated, so the cost doesn't grow with the length of the flight path.
+     */
+    private void drawFlightPath(GoogleMap googleMap) {
+        final FlightPathLevels.Level level = flightPathLevels.getLevel(googleMap.getCameraPosition().zoom);
+        if (level != flightPathLevel) {
+            removeFlightPathPolylines();
+            flightPathLevel = level;
+        }
+
+        if (level.getPointCount() < 2)
+            return;
+
+        while (level.getCommittedCount() - flightPathChunksEnd > FLIGHT_PATH_CHUNK_SIZE) {
+            // Consecutive polylines share their boundary point.
+            final int chunkEnd = flightPathChunksEnd + FLIGHT_PATH_CHUNK_SIZE;
+            final PolylineOptions chunkOptions = getFlightPathOptions()
+                    .addAll(getFlightPathPoints(level, flightPathChunksEnd, chunkEnd + 1));
+            flightPathChunks.add(googleMap.addPolyline(chunkOptions));
+            flightPathChunksEnd = chunkEnd;
+        }
+
+        final List<LatLng> points = getFlightPathPoints(level, flightPathChunksEnd, level.getPointCount());
+        if (points.size() < 2) {
+            // The last point is already drawn by the previous polyline.
+            if (flightPath != null) {
+                flightPath.remove();
+                flightPath = null;
             }
-        });
+        } else if (flightPath == null) {
+            flightPath = googleMap.addPolyline(getFlightPathOptions().addAll(points));
+        } else {
+            flightPath.setPoints(points);
+        }
+    }
+
+    private PolylineOptions getFlightPathOptions() {
+        return new PolylineOptions().color(FLIGHT_PATH_DEFAULT_COLOR).width(FLIGHT_PATH_DEFAULT_WIDTH).zIndex(1);
+    }
+
+    private List<LatLng> getFlightPathPoints(FlightPathLevels.Level level, int fromPoint, int toPoint) {
+        final List<LatLng> points = new ArrayList<>(toPoint - fromPoint);
+        for (int i = fromPoint; i < toPoint; i++) {
+            final int trackIndex = level.getTrackIndex(i);
+            points.add(new LatLng(flightPathLevels.getLatitude(trackIndex), flightPathLevels.getLongitude(trackIndex)));
+        }
+        return points;
     }
 
     @Override
@@ -527,6 +640,13 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
             footprintPoly.remove();
             footprintPoly = null;
         }
+
+        footprintsCoverage.clear();
+        coverageRefresh.cancel();
+        if(coverageTileOverlay != null){
+            coverageTileOverlay.remove();
+            coverageTileOverlay = null;
+        }
     }
 
     private void clearPolygonPaths(){
@@ -757,6 +877,11 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
         mMarkerClickListener = listener;
     }
 
+    @Override
+    public void setOnMapCameraIdleListener(OnMapCameraIdleListener listener) {
+        mCameraIdleListener = listener;
+    }
+
     @Override
     public void setLocationListener(android.location.LocationListener receiver) {
         mLocationListener = receiver;
@@ -850,9 +975,9 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
             missionPath.setPoints(pathPoints);
         }
 
-        if(isLoop() && pathSource.getPathPoints().size() > 1) {
-            LoopPathPoints.add(MapUtils.coordToLatLng(pathSource.getPathPoints().get(pathPoints.size() - 1)));
-            LoopPathPoints.add(MapUtils.coordToLatLng(pathSource.getPathPoints().get(0)));
+        if(isLoop() && pathCoords.size() > 1) {
+            LoopPathPoints.add(MapUtils.coordToLatLng(pathCoords.get(pathCoords.size() - 1)));
+            LoopPathPoints.add(MapUtils.coordToLatLng(pathCoords.get(0)));
 
             if (loopPath == null) {
                 final PolylineOptions pathLoopOptions = new PolylineOptions();
@@ -951,17 +1076,27 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
 
     }
 
+    /**
+     * The footprints are accumulated in a coverage grid, rendered as a single tile overlay.
+     */
     @Override
     public void addCameraFootprint(FootPrint footprintToBeDraw) {
-        PolygonOptions pathOptions = new PolygonOptions();
-        pathOptions.strokeColor(FOOTPRINT_DEFAULT_COLOR).strokeWidth(FOOTPRINT_DEFAULT_WIDTH);
-        pathOptions.fillColor(FOOTPRINT_FILL_COLOR);
+        footprintsCoverage.addFootprint(footprintToBeDraw.getVertexInGlobalFrame());
 
-        for (LatLong vertex : footprintToBeDraw.getVertexInGlobalFrame()) {
-            pathOptions.add(MapUtils.coordToLatLng(vertex));
+        if (coverageTileOverlay == null) {
+            final GoogleMap map = getMap();
+            if (map != null)
+                setupCoverageOverlay(map);
+        } else {
+            coverageRefresh.request();
         }
-        getMap().addPolygon(pathOptions);
+    }
 
+    private void setupCoverageOverlay(GoogleMap map) {
+        coverageTileOverlay = map.addTileOverlay(new TileOverlayOptions()
+            .tileProvider(new CoverageTileProvider(footprintsCoverage))
+            .zIndex(COVERAGE_TILE_PROVIDER_Z_INDEX)
+            .fadeIn(false));
     }
 
     /**
@@ -1058,7 +1193,7 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
         if (!dpApi.isConnected())
             return;
 
-        Gps gps = dpApi.getAttribute(AttributeType.GPS);
+        Gps gps = dpApp.getVehicleSnapshot().getGps();
         if (!gps.isValid()) {
             Toast.makeText(getActivity().getApplicationContext(), R.string.drone_no_location, Toast.LENGTH_SHORT).show();
             return;
@@ -1122,6 +1257,22 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
             }
         });
 
+        // The camera idle listener would need Google Play services 9.6, this one is called once the camera settled.
+        googleMap.setOnCameraChangeListener(new GoogleMap.OnCameraChangeListener() {
+            @Override
+            public void onCameraChange(CameraPosition position) {
+                // Switch the flight path to the level of detail matching the new zoom.
+                if (flightPathLevel != null && flightPathLevels.getLevel(position.zoom) != flightPathLevel) {
+                    final GoogleMap map = getMap();
+                    if (map != null)
+                        drawFlightPath(map);
+                }
+
+                if (mCameraIdleListener != null)
+                    mCameraIdleListener.onMapCameraIdle();
+            }
+        });
+
         googleMap.setOnMarkerClickListener(new GoogleMap.OnMarkerClickListener() {
             @Override
             public boolean onMarkerClick(Marker marker) {
@@ -1302,6 +1453,10 @@ public class GoogleMapFragment extends SupportMapFragment implements DPMap,
             public void onMapReady(GoogleMap googleMap) {
                 googleMap.clear();
                 setupMapOverlay(googleMap);
+
+                coverageTileOverlay = null;
+                if (footprintsCoverage.getFootprintsCount() > 0)
+                    setupCoverageOverlay(googleMap);
             }
         });
     }
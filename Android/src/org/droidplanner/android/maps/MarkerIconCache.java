@@ -0,0 +1,130 @@
+package org.droidplanner.android.maps;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+/**
+ * In-memory cache of the map marker icons, shared by the markers.
+ *
+ * The icons are keyed on their drawable resource, label and detail texts, color, and the screen density. The
+ * cached bitmaps are shared by all the markers using the same icon, and must not be modified.
+ */
+public class MarkerIconCache {
+
+    // Fraction of the app's maximum heap used by the cache.
+    private static final int MEMORY_BUDGET_DIVIDER = 32;
+
+    private static MarkerIconCache instance;
+
+    public static synchronized MarkerIconCache getInstance() {
+        if (instance == null) {
+            final long memoryBudget = Runtime.getRuntime().maxMemory() / MEMORY_BUDGET_DIVIDER;
+            instance = new MarkerIconCache((int) Math.min(memoryBudget, Integer.MAX_VALUE));
+        }
+        return instance;
+    }
+
+    // How the icon is drawn from its resource.
+    static final int STYLE_ICON = 0;
+    static final int STYLE_TEXT = 1;
+    static final int STYLE_TEXT_AND_DETAIL = 2;
+
+    static final class Key {
+        private final int style;
+        private final int resId;
+        private final String text;
+        private final String detail;
+        private final int color;
+        private final float density;
+
+        Key(int style, int resId, String text, String detail, int color, float density) {
+            this.style = style;
+            this.resId = resId;
+            this.text = text;
+            this.detail = detail;
+            this.color = color;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key key = (Key) o;
+            return style == key.style
+                    && resId == key.resId
+                    && color == key.color
+                    && Float.compare(density, key.density) == 0
+                    && TextUtils.equals(text, key.text)
+                    && TextUtils.equals(detail, key.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = style;
+            result = 31 * result + resId;
+            result = 31 * result + (text != null ? text.hashCode() : 0);
+            result = 31 * result + (detail != null ? detail.hashCode() : 0);
+            result = 31 * result + color;
+            result = 31 * result + Float.floatToIntBits(density);
+            return result;
+        }
+    }
+
+    private final LruCache<Key, Bitmap> icons;
+
+    MarkerIconCache(int maxSize) {
+        icons = new LruCache<Key, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+    }
+
+    /**
+     * @return the icon decoded from the given drawable resource.
+     */
+    public Bitmap getIcon(Resources res, int resId) {
+        final Key key = new Key(STYLE_ICON, resId, null, null, 0, res.getDisplayMetrics().density);
+        Bitmap icon = icons.get(key);
+        if (icon == null) {
+            icon = BitmapFactory.decodeResource(res, resId);
+            if (icon != null)
+                icons.put(key, icon);
+        }
+        return icon;
+    }
+
+    Bitmap get(Key key) {
+        return icons.get(key);
+    }
+
+    void put(Key key, Bitmap icon) {
+        if (icon != null)
+            icons.put(key, icon);
+    }
+
+    /**
+     * Releases the cached icons when the system is running low on memory.
+     * @see ComponentCallbacks2#onTrimMemory(int)
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            icons.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            icons.trimToSize(icons.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerIconCache{size=" + icons.size() + ", maxSize=" + icons.maxSize() + ", hits="
+                + icons.hitCount() + ", misses=" + icons.missCount() + ", evictions=" + icons.evictionCount() + "}";
+    }
+}
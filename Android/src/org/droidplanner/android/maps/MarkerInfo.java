@@ -15,8 +15,13 @@ public abstract class MarkerInfo {
 
 	private ProxyMarker proxyMarker;
 
+	// Icon last set on the proxy marker. The icons are shared through the MarkerIconCache, so an unchanged icon
+	// is the same bitmap instance.
+	private Bitmap proxyMarkerIcon;
+
 	public void setProxyMarker(ProxyMarker proxyMarker){
 		this.proxyMarker = proxyMarker;
+		this.proxyMarkerIcon = null;
 	}
 
 	public ProxyMarker getProxyMarker(){
@@ -29,6 +34,7 @@ public abstract class MarkerInfo {
 		}
 
 		this.proxyMarker = null;
+		this.proxyMarkerIcon = null;
 	}
 
 	public final void updateMarker(DroneMap droneMap){
@@ -47,7 +53,12 @@ public abstract class MarkerInfo {
 			proxyMarker.setDraggable(isDraggable());
 			proxyMarker.setFlat(isFlat());
 			proxyMarker.setVisible(isVisible());
-			proxyMarker.setIcon(getIcon(res));
+
+			final Bitmap icon = getIcon(res);
+			if(icon != proxyMarkerIcon) {
+				proxyMarker.setIcon(icon);
+				proxyMarkerIcon = icon;
+			}
 		}
 	}
 
@@ -17,7 +17,16 @@ public class MarkerWithText {
 	private static final int RECT_PADDING = 6;
 
 	public static Bitmap getMarkerWithText(int color, String text, Context context) {
-		return drawTextToBitmap(context, R.drawable.ic_marker_white, color, text);
+		final MarkerIconCache iconCache = MarkerIconCache.getInstance();
+		final MarkerIconCache.Key key = new MarkerIconCache.Key(MarkerIconCache.STYLE_TEXT,
+				R.drawable.ic_marker_white, text, null, color, context.getResources().getDisplayMetrics().density);
+
+		Bitmap icon = iconCache.get(key);
+		if (icon == null) {
+			icon = drawTextToBitmap(context, R.drawable.ic_marker_white, color, text);
+			iconCache.put(key, icon);
+		}
+		return icon;
 	}
 
 	/**
@@ -62,9 +71,21 @@ public class MarkerWithText {
 		return bitmap;
 	}
 
+	/**
+	 * @return the marker icon, shared with the other markers using the same icon. It mustn't be modified.
+	 */
 	public static Bitmap getMarkerWithTextAndDetail(int gResId, String text, String detail,
 			Resources res) {
-		return drawTextAndDetailToBitmap(res, gResId, text, detail);
+		final MarkerIconCache iconCache = MarkerIconCache.getInstance();
+		final MarkerIconCache.Key key = new MarkerIconCache.Key(MarkerIconCache.STYLE_TEXT_AND_DETAIL, gResId,
+				text, detail, 0, res.getDisplayMetrics().density);
+
+		Bitmap icon = iconCache.get(key);
+		if (icon == null) {
+			icon = drawTextAndDetailToBitmap(res, gResId, text, detail);
+			iconCache.put(key, icon);
+		}
+		return icon;
 	}
 
 	/**
@@ -45,9 +45,7 @@ import com.baidu.mapapi.model.LatLng;
 import com.baidu.mapapi.model.LatLngBounds;
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
-import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.FootPrint;
 import com.o3dr.services.android.lib.drone.property.Gps;
 
@@ -56,10 +54,13 @@ import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.SettingsFragment;
 import org.droidplanner.android.graphic.map.GraphicHome;
 import org.droidplanner.android.maps.DPMap;
+import org.droidplanner.android.maps.FlightPathLevels;
 import org.droidplanner.android.maps.MarkerInfo;
 import org.droidplanner.android.maps.PolylineInfo;
 import org.droidplanner.android.maps.providers.DPMapProvider;
 import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline.MapDownloader;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.FlightTrack;
 import org.droidplanner.android.utils.MapUtils;
 import org.droidplanner.android.utils.prefs.AutoPanMode;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
@@ -71,7 +72,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -98,6 +98,9 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     public static final int LEASH_PATH = 0;
     public static final int MISSION_PATH = 1;
     public static final int FLIGHT_PATH = 2;
+
+    // Maximum number of points in a flight path polyline. Longer paths are split in several polylines.
+    private static final int FLIGHT_PATH_CHUNK_SIZE = 500;
     private int baseBottomPadding;
 
     @IntDef({LEASH_PATH, MISSION_PATH, FLIGHT_PATH})
@@ -105,7 +108,10 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     private @interface PolyLineType {}
 
     private boolean showFlightPath;
-    private List<LatLng> flightPathPoints = new LinkedList<>();
+    private FlightPathLevels flightPathLevels;
+    private FlightPathLevels.Level flightPathLevel;
+    private final List<Polyline> flightPathChunks = new ArrayList<>();
+    private int flightPathChunksEnd;
     private Polyline mFlightPath;
     private Polyline mMissionPath;
     private Polyline mDroneLeashPath;
@@ -114,6 +120,7 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     private DPMap.OnMapLongClickListener mMapLongClickListener;
     private DPMap.OnMarkerClickListener mMarkerClickListener;
     private DPMap.OnMarkerDragListener mMarkerDragListener;
+    private DPMap.OnMapCameraIdleListener mCameraIdleListener;
     private android.location.LocationListener mLocationListener;
 
     protected DroidPlannerApp mDpApp;
@@ -122,30 +129,37 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     private static final Stroke mFootprintStroke = new Stroke(FOOTPRINT_DEFAULT_WIDTH, FOOTPRINT_DEFAULT_COLOR);
 
     static {
-        mEventFilter.addAction(AttributeEvent.GPS_POSITION);
         mEventFilter.addAction(SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED);
         mEventFilter.addAction(com.baidu.mapapi.SDKInitializer.SDK_BROADTCAST_ACTION_STRING_PERMISSION_CHECK_ERROR);
         mEventFilter.addAction(com.baidu.mapapi.SDKInitializer.SDK_BROADCAST_ACTION_STRING_NETWORK_ERROR);
     }
 
-    private final BroadcastReceiver mEventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber mEventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            final String action = intent.getAction();
-            switch (action) {
+        public void onDroneEvent(String event, Bundle extras) {
+            switch (event) {
                 case AttributeEvent.GPS_POSITION:
                     if (mPanMode.get() == AutoPanMode.DRONE) {
                         final Drone drone = getDroneApi();
                         if (!drone.isConnected())
                             return;
 
-                        final Gps droneGps = drone.getAttribute(AttributeType.GPS);
+                        final Gps droneGps = mDpApp.getVehicleSnapshot().getGps();
                         if (droneGps != null && droneGps.isValid()) {
                             final LatLong droneLocation = droneGps.getPosition();
                             updateCamera(droneLocation);
                         }
                     }
                     break;
+            }
+        }
+    };
+
+    private final BroadcastReceiver mEventReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final String action = intent.getAction();
+            switch (action) {
                 case SettingsFragment.ACTION_MAP_ROTATION_PREFERENCE_UPDATED:
                     setupMapUI(getBaiduMap());
                     break;
@@ -238,6 +252,7 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
 
         LocalBroadcastManager.getInstance(getActivity().getApplicationContext())
                 .registerReceiver(mEventReceiver, mEventFilter);
+        mDpApp.getEventBus().subscribe(mEventSubscriber, AttributeEvent.GPS_POSITION);
 
         setupMap();
     }
@@ -248,6 +263,7 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
 
         LocalBroadcastManager.getInstance(getActivity().getApplicationContext())
                 .unregisterReceiver(mEventReceiver);
+        mDpApp.getEventBus().unsubscribe(mEventSubscriber);
 
 		mBDLocClient.stop();                       // close BaiduMap location service
 		getBaiduMap().setMyLocationEnabled(false); // disable location layer
@@ -255,7 +271,19 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
 
     @Override
     public void clearFlightPath() {
-        flightPathPoints.clear();
+        removeFlightPathOverlays();
+        if (flightPathLevels != null)
+            flightPathLevels.clear();
+    }
+
+    private void removeFlightPathOverlays() {
+        for (Polyline chunk : flightPathChunks) {
+            chunk.remove();
+        }
+        flightPathChunks.clear();
+        flightPathChunksEnd = 0;
+        flightPathLevel = null;
+
         if (mFlightPath != null) {
             mFlightPath.remove();
             mFlightPath = null;
@@ -312,30 +340,64 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     }
 
     @Override
-    public void addFlightPathPoint(LatLongAlt coord) {
-        final LatLng position = MapUtils.coordToBaiduLatLng(coord);
-
-        if (showFlightPath) {
-            flightPathPoints.add(position);
-            if (flightPathPoints.size() >= 2) {
-                if (mFlightPath == null) {
-                    PolylineOptions flightPathOptions = new PolylineOptions();
-                    flightPathOptions.color(FLIGHT_PATH_DEFAULT_COLOR)
-                        .width(FLIGHT_PATH_DEFAULT_WIDTH).zIndex(1)
-                    .points(flightPathPoints);
-                    mFlightPath = (Polyline) getBaiduMap().addOverlay(flightPathOptions);
-                } else {
-                    mFlightPath.setPoints(flightPathPoints);
-                }
-            } else {
-                if (mFlightPath != null) {
-                    mFlightPath.remove();
-                    mFlightPath = null;
-                }
+    public void updateFlightPath(FlightTrack track) {
+        if (!showFlightPath)
+            return;
+
+        // The path is redrawn from scratch for a new track, or once the track was cleared.
+        if (flightPathLevels == null || flightPathLevels.getTrack() != track) {
+            clearFlightPath();
+            flightPathLevels = new FlightPathLevels(track);
+        } else if (flightPathLevels.size() > track.size()) {
+            clearFlightPath();
+        }
+        flightPathLevels.update();
+
+        final FlightPathLevels.Level level = flightPathLevels.getLevel(getBaiduMap().getMapStatus().zoom);
+        if (level != flightPathLevel) {
+            removeFlightPathOverlays();
+            flightPathLevel = level;
+        }
+
+        if (level.getPointCount() < 2)
+            return;
+
+        // Only the last polyline is updated, so the cost doesn't grow with the length of the flight path.
+        while (level.getCommittedCount() - flightPathChunksEnd > FLIGHT_PATH_CHUNK_SIZE) {
+            final int chunkEnd = flightPathChunksEnd + FLIGHT_PATH_CHUNK_SIZE;
+            flightPathChunks.add((Polyline) getBaiduMap().addOverlay(
+                    getFlightPathOptions(getFlightPathPoints(level, flightPathChunksEnd, chunkEnd + 1))));
+            flightPathChunksEnd = chunkEnd;
+        }
+
+        final List<LatLng> points = getFlightPathPoints(level, flightPathChunksEnd, level.getPointCount());
+        if (points.size() < 2) {
+            // The last point is already drawn by the previous polyline.
+            if (mFlightPath != null) {
+                mFlightPath.remove();
+                mFlightPath = null;
             }
+        } else if (mFlightPath == null) {
+            mFlightPath = (Polyline) getBaiduMap().addOverlay(getFlightPathOptions(points));
+        } else {
+            mFlightPath.setPoints(points);
         }
     }
 
+    private PolylineOptions getFlightPathOptions(List<LatLng> points) {
+        return new PolylineOptions().color(FLIGHT_PATH_DEFAULT_COLOR).width(FLIGHT_PATH_DEFAULT_WIDTH).zIndex(1)
+                .points(points);
+    }
+
+    private List<LatLng> getFlightPathPoints(FlightPathLevels.Level level, int fromPoint, int toPoint) {
+        final List<LatLng> points = new ArrayList<>(toPoint - fromPoint);
+        for (int i = fromPoint; i < toPoint; i++) {
+            final int trackIndex = level.getTrackIndex(i);
+            points.add(new LatLng(flightPathLevels.getLatitude(trackIndex), flightPathLevels.getLongitude(trackIndex)));
+        }
+        return points;
+    }
+
     @Override
     public void clearAll(){
         clearMarkers();
@@ -565,6 +627,11 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
         mMarkerClickListener = listener;
     }
 
+    @Override
+    public void setOnMapCameraIdleListener(OnMapCameraIdleListener listener) {
+        mCameraIdleListener = listener;
+    }
+
     @Override
     public void setLocationListener(android.location.LocationListener receiver) {
         mLocationListener = receiver;
@@ -788,7 +855,7 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
         if (!dpApi.isConnected())
             return;
 
-        Gps gps = dpApi.getAttribute(AttributeType.GPS);
+        Gps gps = mDpApp.getVehicleSnapshot().getGps();
         if (!gps.isValid()) {
             Toast.makeText(getActivity().getApplicationContext(),
                     R.string.drone_no_location, Toast.LENGTH_SHORT).show();
@@ -858,6 +925,22 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
             }
         });
 
+        baiduMap.setOnMapStatusChangeListener(new BaiduMap.OnMapStatusChangeListener() {
+            @Override
+            public void onMapStatusChangeStart(MapStatus mapStatus) {
+            }
+
+            @Override
+            public void onMapStatusChange(MapStatus mapStatus) {
+            }
+
+            @Override
+            public void onMapStatusChangeFinish(MapStatus mapStatus) {
+                if (mCameraIdleListener != null)
+                    mCameraIdleListener.onMapCameraIdle();
+            }
+        });
+
         baiduMap.setOnMarkerClickListener(new BaiduMap.OnMarkerClickListener() {
             @Override
             public boolean onMarkerClick(Marker marker) {
@@ -919,7 +1002,18 @@ public class BaiduMapFragment extends SupportMapFragment implements DPMap{
     }
 
     public VisibleMapArea getVisibleMapArea(){
-        return null; // No visible area interface in BaiduMap yet.
+        final BaiduMap map = getBaiduMap();
+        final MapStatus mapStatus = map == null ? null : map.getMapStatus();
+        if (mapStatus == null || mapStatus.bound == null)
+            return null;
+
+        // The map can't be tilted, so its visible area is the bounds of the map status.
+        final LatLong northEast = MapUtils.baiduLatLngToCoord(mapStatus.bound.northeast);
+        final LatLong southWest = MapUtils.baiduLatLngToCoord(mapStatus.bound.southwest);
+        return new VisibleMapArea(new LatLong(northEast.getLatitude(), southWest.getLongitude()),
+                southWest,
+                new LatLong(southWest.getLatitude(), northEast.getLongitude()),
+                northEast);
     }
 
     @Override
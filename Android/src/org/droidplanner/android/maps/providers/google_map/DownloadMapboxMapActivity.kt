@@ -2,8 +2,10 @@ package org.droidplanner.android.maps.providers.google_map
 
 import android.os.Bundle
 import android.support.v7.app.AppCompatActivity
+import android.text.format.Formatter
 import android.view.View
 import android.widget.ProgressBar
+import android.widget.TextView
 import android.widget.Toast
 import com.google.android.gms.maps.model.CameraPosition
 import org.droidplanner.android.R
@@ -32,6 +34,10 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
             runOnUiThread { completeMapDownload() }
         }
 
+        override fun partialCompletionOfOfflineDatabaseMap(failedTilesCount: Int) {
+            runOnUiThread { completePartialMapDownload(failedTilesCount) }
+        }
+
         override fun httpStatusError(status: Int, url: String) {
             when(status){
                 HttpURLConnection.HTTP_UNAUTHORIZED -> {
@@ -63,6 +69,14 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
             }
         }
 
+        override fun throughputUpdate(tilesPerSecond: Float, bytesPerSecond: Long, averageTileLatency: Long) {
+            runOnUiThread {
+                downloadThroughput?.visibility = View.VISIBLE
+                downloadThroughput?.text = getString(R.string.label_map_download_throughput, tilesPerSecond,
+                        Formatter.formatShortFileSize(applicationContext, bytesPerSecond), averageTileLatency)
+            }
+        }
+
         override fun sqlLiteError(error: Throwable?) {
         }
 
@@ -86,6 +100,7 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
     private var downloadProgressContainer: View? = null
     private var cancelDownloadButton: View? = null
     private var downloadProgressBar: ProgressBar? = null
+    private var downloadThroughput: TextView? = null
 
     private var downloadMapFragment: DownloadMapboxMapFragment? = null
 
@@ -118,6 +133,7 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
         cancelDownloadButton?.setOnClickListener { cancelMapDownload() }
 
         downloadProgressBar = findViewById(R.id.map_download_progress_bar) as ProgressBar?
+        downloadThroughput = findViewById(R.id.map_download_throughput) as TextView?
 
         val goToMyLocation = findViewById(R.id.my_location_button)
         goToMyLocation?.setOnClickListener { downloadMapFragment?.goToMyLocation() }
@@ -157,6 +173,14 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
         enableDownloadProgress(false, true)
     }
 
+    private fun completePartialMapDownload(failedTilesCount: Int) {
+        Toast.makeText(applicationContext, getString(R.string.label_map_partially_saved, failedTilesCount),
+                Toast.LENGTH_LONG).show()
+
+        enableDownloadInstructions(true)
+        enableDownloadProgress(false, true)
+    }
+
     private fun cancelMapDownload() {
         mapDownloader.cancelDownload()
     }
@@ -174,6 +198,9 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
             enableDownloadProgress(true, true)
         }
         mapDownloader.addMapDownloaderListener(mapDownloadListener)
+
+        // Pick up the download that was interrupted, if any.
+        mapDownloader.resumeDownloadProcess()
     }
 
     override fun onStop() {
@@ -203,6 +230,7 @@ class DownloadMapboxMapActivity : AppCompatActivity() {
         if (resetProgress) {
             downloadProgressBar?.progress = 0
             downloadProgressBar?.isIndeterminate = true
+            downloadThroughput?.visibility = View.GONE
         }
     }
 
@@ -0,0 +1,57 @@
+package org.droidplanner.android.maps.providers.google_map.tiles;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+/**
+ * Serves the tiles of a tile provider through the shared {@link TileCache}, and optionally a
+ * {@link TileFileCache} (for the tiles which are downloaded).
+ */
+public class CachedTileProvider implements TileProvider {
+
+    private final String providerId;
+    private final TileProvider tileProvider;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    private final TileCache memoryCache;
+    private final TileFileCache fileCache;
+
+    /**
+     * @param providerId   Identifies the tiles of the wrapped provider in the caches
+     * @param tileProvider Provider of the tiles missing from the caches
+     * @param fileCache    Second level cache, or null to only cache the tiles in memory
+     */
+    public CachedTileProvider(String providerId, TileProvider tileProvider, int tileWidth, int tileHeight,
+                              TileFileCache fileCache) {
+        this.providerId = providerId;
+        this.tileProvider = tileProvider;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.memoryCache = TileCache.getInstance();
+        this.fileCache = fileCache;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        byte[] data = memoryCache.get(providerId, zoom, x, y);
+        if (data == null && fileCache != null) {
+            data = fileCache.get(providerId, zoom, x, y);
+            if (data != null)
+                memoryCache.put(providerId, zoom, x, y, data);
+        }
+
+        if (data != null)
+            return new Tile(tileWidth, tileHeight, data);
+
+        // NO_TILE and null (tile temporarily unavailable) aren't cached, so they're retried on the next request.
+        final Tile tile = tileProvider.getTile(x, y, zoom);
+        if (tile == null || tile == NO_TILE || tile.data == null || tile.data.length == 0)
+            return tile;
+
+        memoryCache.put(providerId, zoom, x, y, tile.data);
+        if (fileCache != null)
+            fileCache.put(providerId, zoom, x, y, tile.data);
+        return tile;
+    }
+}
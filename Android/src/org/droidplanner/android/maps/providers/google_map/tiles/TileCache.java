@@ -0,0 +1,115 @@
+package org.droidplanner.android.maps.providers.google_map.tiles;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.TilePack;
+
+/**
+ * In-memory cache of the map tiles, shared by the tile providers.
+ *
+ * The tiles are keyed on their provider, and their (zoom, x, y) coordinates. The cache is bounded by the size
+ * of the tile payloads, and evicts the least recently used tiles first.
+ */
+public class TileCache {
+
+    // Fraction of the app's maximum heap used by the cache.
+    private static final int MEMORY_BUDGET_DIVIDER = 16;
+
+    private static TileCache instance;
+
+    public static synchronized TileCache getInstance() {
+        if (instance == null) {
+            final long memoryBudget = Runtime.getRuntime().maxMemory() / MEMORY_BUDGET_DIVIDER;
+            instance = new TileCache((int) Math.min(memoryBudget, Integer.MAX_VALUE));
+        }
+        return instance;
+    }
+
+    private static final class Key {
+        private final String providerId;
+        private final long tileKey;
+
+        Key(String providerId, int zoom, int x, int y) {
+            this.providerId = providerId;
+            this.tileKey = TilePack.getTileKey(zoom, x, y);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key key = (Key) o;
+            return tileKey == key.tileKey && providerId.equals(key.providerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * providerId.hashCode() + (int) (tileKey ^ (tileKey >>> 32));
+        }
+    }
+
+    private final LruCache<Key, byte[]> tiles;
+
+    TileCache(int maxSize) {
+        tiles = new LruCache<Key, byte[]>(maxSize) {
+            @Override
+            protected int sizeOf(Key key, byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    /**
+     * @return the payload of the given tile, or null if it's not cached.
+     */
+    public byte[] get(String providerId, int zoom, int x, int y) {
+        return tiles.get(new Key(providerId, zoom, x, y));
+    }
+
+    public void put(String providerId, int zoom, int x, int y, byte[] data) {
+        tiles.put(new Key(providerId, zoom, x, y), data);
+    }
+
+    /**
+     * Releases the cached tiles when the system is running low on memory.
+     * @see ComponentCallbacks2#onTrimMemory(int)
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            tiles.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            tiles.trimToSize(tiles.maxSize() / 2);
+        }
+    }
+
+    /**
+     * @return the size, in bytes, of the cached tiles.
+     */
+    public int getSize() {
+        return tiles.size();
+    }
+
+    public int getMaxSize() {
+        return tiles.maxSize();
+    }
+
+    public int getHitCount() {
+        return tiles.hitCount();
+    }
+
+    public int getMissCount() {
+        return tiles.missCount();
+    }
+
+    public int getEvictionCount() {
+        return tiles.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "TileCache{size=" + getSize() + ", maxSize=" + getMaxSize() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+}
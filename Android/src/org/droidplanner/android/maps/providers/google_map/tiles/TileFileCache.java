@@ -0,0 +1,237 @@
+package org.droidplanner.android.maps.providers.google_map.tiles;
+
+import android.content.Context;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * File cache of the map tiles retrieved from the online tile providers.
+ *
+ * The tiles are stored in the app's cache directory, one file per tile. Tiles older than {@link #MAX_TILE_AGE}
+ * are downloaded again. When the cache grows past its maximum size, the tiles are evicted by age, oldest download
+ * first, rather than by last use: the file modification time records when the tile was downloaded, which the
+ * expiry relies on, so it isn't updated when the tile is read.
+ */
+public class TileFileCache {
+
+    private static final String CACHE_DIRECTORY = "map_tiles";
+    private static final String TILE_EXTENSION = ".tile";
+
+    private static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024; // bytes
+    private static final long MAX_TILE_AGE = TimeUnit.DAYS.toMillis(30);
+
+    // Fraction of the maximum size the cache is trimmed to.
+    private static final float TRIM_RATIO = 0.9f;
+
+    private static TileFileCache instance;
+
+    public static synchronized TileFileCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new TileFileCache(new File(context.getCacheDir(), CACHE_DIRECTORY), DEFAULT_MAX_SIZE);
+        }
+        return instance;
+    }
+
+    private final File directory;
+    private final long maxSize;
+
+    // Size of the cached tiles, computed when the first tile is saved.
+    private long size = -1;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    TileFileCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the payload of the given tile, or null if it's not cached, or is too old.
+     */
+    public byte[] get(String providerId, int zoom, int x, int y) {
+        final File tileFile = getTileFile(providerId, zoom, x, y);
+        final long length = tileFile.length();
+        if (length == 0 || System.currentTimeMillis() - tileFile.lastModified() > MAX_TILE_AGE) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        final byte[] data = new byte[(int) length];
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(tileFile);
+            int read = 0;
+            while (read < data.length) {
+                final int count = in.read(data, read, data.length - read);
+                if (count == -1)
+                    throw new IOException("Unexpected end of file " + tileFile);
+                read += count;
+            }
+        } catch (IOException e) {
+            Timber.w(e, "Unable to read cached tile %s", tileFile);
+            missCount.incrementAndGet();
+            return null;
+        } finally {
+            close(in);
+        }
+
+        hitCount.incrementAndGet();
+        return data;
+    }
+
+    public void put(String providerId, int zoom, int x, int y, byte[] data) {
+        final File tileFile = getTileFile(providerId, zoom, x, y);
+        final File providerDir = tileFile.getParentFile();
+        if (!providerDir.isDirectory() && !providerDir.mkdirs()) {
+            Timber.w("Unable to create tile cache directory %s", providerDir);
+            return;
+        }
+
+        // The tile is written to a temporary file first, so a partially written tile is never read.
+        File tmpFile = null;
+        FileOutputStream out = null;
+        boolean isWritten = false;
+        try {
+            tmpFile = File.createTempFile(tileFile.getName(), ".tmp", providerDir);
+            out = new FileOutputStream(tmpFile);
+            out.write(data);
+            isWritten = true;
+        } catch (IOException e) {
+            Timber.w(e, "Unable to save tile %s", tileFile);
+        } finally {
+            close(out);
+        }
+
+        if (!isWritten) {
+            if (tmpFile != null)
+                tmpFile.delete();
+            return;
+        }
+
+        synchronized (this) {
+            final long previousLength = tileFile.length();
+            if (!tmpFile.renameTo(tileFile)) {
+                tmpFile.delete();
+                return;
+            }
+
+            if (size < 0)
+                size = computeSize();
+            else
+                size += data.length - previousLength;
+
+            if (size > maxSize)
+                trim();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "TileFileCache{size=" + size + ", maxSize=" + maxSize + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private File getTileFile(String providerId, int zoom, int x, int y) {
+        return new File(new File(directory, providerId),
+                String.format(Locale.US, "%d_%d_%d%s", zoom, x, y, TILE_EXTENSION));
+    }
+
+    private long computeSize() {
+        long total = 0;
+        for (File tileFile : listTileFiles()) {
+            total += tileFile.length();
+        }
+        return total;
+    }
+
+    /**
+     * Deletes the least recently downloaded tiles until the cache fits within {@link #TRIM_RATIO} of its maximum size.
+     */
+    private void trim() {
+        final List<File> tileFiles = listTileFiles();
+        final int count = tileFiles.size();
+        final long[] lastModified = new long[count];
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            lastModified[i] = tileFiles.get(i).lastModified();
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                final long lhsTime = lastModified[lhs];
+                final long rhsTime = lastModified[rhs];
+                return lhsTime < rhsTime ? -1 : (lhsTime == rhsTime ? 0 : 1);
+            }
+        });
+
+        final long targetSize = (long) (maxSize * TRIM_RATIO);
+        for (int i = 0; i < count && size > targetSize; i++) {
+            final File tileFile = tileFiles.get(order[i]);
+            final long length = tileFile.length();
+            if (tileFile.delete()) {
+                size -= length;
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private List<File> listTileFiles() {
+        final File[] providerDirs = directory.listFiles();
+        if (providerDirs == null)
+            return Collections.emptyList();
+
+        final List<File> tileFiles = new ArrayList<>();
+        for (File providerDir : providerDirs) {
+            final File[] files = providerDir.listFiles();
+            if (files == null)
+                continue;
+
+            for (File file : files) {
+                if (file.getName().endsWith(TILE_EXTENSION))
+                    tileFiles.add(file);
+            }
+        }
+        return tileFiles;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null)
+            return;
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Timber.e(e, "Unable to close tile cache stream");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.droidplanner.android.maps.providers.google_map.tiles;
 
+import android.content.Context;
+
 import com.google.android.gms.maps.model.TileProvider;
 
 import org.droidplanner.android.maps.DPMap;
@@ -13,9 +15,17 @@ public abstract class TileProviderManager {
     protected final TileProvider onlineTileProvider;
     protected final TileProvider offlineTileProvider;
 
-    protected TileProviderManager(TileProvider onlineTileProvider, TileProvider offlineTileProvider) {
-        this.offlineTileProvider = offlineTileProvider;
-        this.onlineTileProvider = onlineTileProvider;
+    /**
+     * The tiles are served through the shared tile cache. The downloaded tiles are also cached on file.
+     *
+     * @param providerId Identifies the map tiles in the caches
+     */
+    protected TileProviderManager(Context context, String providerId, TileProvider onlineTileProvider,
+                                  TileProvider offlineTileProvider, int tileWidth, int tileHeight) {
+        this.offlineTileProvider = new CachedTileProvider(providerId + ".offline", offlineTileProvider,
+            tileWidth, tileHeight, null);
+        this.onlineTileProvider = new CachedTileProvider(providerId + ".online", onlineTileProvider,
+            tileWidth, tileHeight, TileFileCache.getInstance(context));
     }
 
     public TileProvider getOfflineTileProvider() {
@@ -3,7 +3,9 @@ package org.droidplanner.android.maps.providers.google_map.tiles.arcgis
 import android.content.Context
 import com.google.android.gms.maps.model.Tile
 import com.google.android.gms.maps.model.TileProvider
-import org.droidplanner.android.data.DatabaseState
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.TilePack
+import timber.log.Timber
+import java.io.IOException
 
 /**
  * Created by fredia on 4/20/16.
@@ -13,8 +15,12 @@ internal class ArcGISOfflineTileProvider(val context: Context, val mapType: ArcG
         if(zoom > mapType.maxZoomLevel)
             return TileProvider.NO_TILE
 
-        val tileUri = mapType.getMapTypeUrl(zoom, x, y) ?: return TileProvider.NO_TILE
-        val data = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapType.name).dataForURL(tileUri)
+        val data = try {
+            TilePack.get(context, mapType.name).getTile(zoom, x, y)
+        } catch(e: IOException) {
+            Timber.e(e, "Unable to open the tile pack for ${mapType.name}")
+            return TileProvider.NO_TILE
+        }
         if(data == null || data.size == 0)
             return TileProvider.NO_TILE
 
@@ -15,9 +15,11 @@ import java.util.*
  * Manager for the Arc GIS tile providers
  */
 class ArcGISTileProviderManager(val context: Context, val selectedMap: String) :
-        TileProviderManager(
+        TileProviderManager(context,
+                "arcgis." + (selectMapType(context, selectedMap)?.name?.toLowerCase(Locale.US) ?: throw IllegalArgumentException("Selected map parameter is not supported.")),
                 ArcGisTileProvider(selectMapType(context, selectedMap) ?: throw IllegalArgumentException("Selected map parameter is not supported.")),
-                ArcGISOfflineTileProvider(context, selectMapType(context, selectedMap) ?: throw IllegalArgumentException("Selected map parameter is not supported."))){
+                ArcGISOfflineTileProvider(context, selectMapType(context, selectedMap) ?: throw IllegalArgumentException("Selected map parameter is not supported.")),
+                TILE_WIDTH, TILE_HEIGHT){
 
     companion object {
         const val TILE_HEIGHT = 256
@@ -60,7 +62,7 @@ class ArcGISTileProviderManager(val context: Context, val selectedMap: String) :
 
     override fun downloadMapTiles(mapDownloader: MapDownloader, mapRegion: DPMap.VisibleMapArea,
     minimumZ : Int, maximumZ : Int) {
-        val urls = ArrayList<String>()
+        val tiles = ArrayList<MapDownloader.TileRequest>()
 
         // Loop through the zoom levels and lat/lon bounds to generate a list of urls which should be included in the offline map
         //
@@ -95,15 +97,15 @@ class ArcGISTileProviderManager(val context: Context, val selectedMap: String) :
             for (x in minX..maxX) {
                 for (y in minY..maxY) {
                     val url = mapType.getMapTypeUrl(zoom, x, y) ?: continue
-                    urls.add(url)
+                    tiles.add(MapDownloader.TileRequest(zoom, x, y, url))
                 }
             }
         }
 
-        Timber.d("${urls.size} urls generated for ArcGIS ${context.getString(mapType.labelResId)} tiles.")
+        Timber.d("${tiles.size} urls generated for ArcGIS ${context.getString(mapType.labelResId)} tiles.")
 
         //Start downloading the tiles
-        mapDownloader.startDownloadProcess(mapType.name, urls)
+        mapDownloader.startDownloadProcess(mapType.name, tiles)
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.coverage;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the camera footprints in a grid, counting how many footprints cover each cell.
+ *
+ * The cells are the pixels of the web mercator projection at {@link #GRID_ZOOM} (a bit over a meter at the
+ * equator), so the grid lines up with the map tiles. The cells are stored in square chunks, only allocated where
+ * footprints were added. The counts saturate at {@link #MAX_OVERLAP}.
+ *
+ * Thread safe: the footprints are added on the main thread, while the tiles are rendered on the map threads.
+ */
+public class CoverageGrid {
+
+    public static final int GRID_ZOOM = 17;
+
+    public static final int MAX_OVERLAP = 255;
+
+    // Chunks are the size of a map tile at the grid zoom level.
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final long GRID_SIZE = 256L << GRID_ZOOM;
+
+    // Footprints with a larger bounding box (e.g: camera pointed at the horizon) are dropped.
+    private static final double MAX_FOOTPRINT_CELLS = 1 << 22;
+
+    private final Map<Long, byte[]> chunks = new HashMap<>();
+
+    private int footprintsCount;
+
+    // Incremented on each change, so the renderers can tell when their tiles are stale.
+    private volatile int version;
+
+    /**
+     * @return the x coordinate, in cells, of the given longitude.
+     */
+    static double toGridX(double longitude) {
+        return (longitude + 180.0) / 360.0 * GRID_SIZE;
+    }
+
+    /**
+     * @return the y coordinate, in cells, of the given latitude.
+     */
+    static double toGridY(double latitude) {
+        final double sinLatitude = Math.sin(Math.toRadians(latitude));
+        final double y = 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+        return Math.max(0, Math.min(1, y)) * GRID_SIZE;
+    }
+
+    private static long getChunkKey(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xffffffffL);
+    }
+
+    /**
+     * Adds the given footprint to the grid. The cells whose center is inside the footprint are counted.
+     */
+    public synchronized void addFootprint(List<LatLong> vertices) {
+        final int vertexCount = vertices.size();
+        if (vertexCount < 3)
+            return;
+
+        final double[] xs = new double[vertexCount];
+        final double[] ys = new double[vertexCount];
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < vertexCount; i++) {
+            final LatLong vertex = vertices.get(i);
+            xs[i] = toGridX(vertex.getLongitude());
+            ys[i] = toGridY(vertex.getLatitude());
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        if ((maxX - minX) * (maxY - minY) > MAX_FOOTPRINT_CELLS)
+            return;
+
+        // Scanline fill, sampling each row at the cells center.
+        final double[] crossings = new double[vertexCount];
+        final int firstRow = (int) Math.floor(minY);
+        final int lastRow = (int) Math.ceil(maxY);
+        for (int row = firstRow; row <= lastRow; row++) {
+            final double scanY = row + 0.5;
+
+            int crossingsCount = 0;
+            for (int i = 0, j = vertexCount - 1; i < vertexCount; j = i++) {
+                if ((ys[i] <= scanY) != (ys[j] <= scanY)) {
+                    crossings[crossingsCount++] = xs[i] + (scanY - ys[i]) * (xs[j] - xs[i]) / (ys[j] - ys[i]);
+                }
+            }
+            Arrays.sort(crossings, 0, crossingsCount);
+
+            for (int c = 0; c + 1 < crossingsCount; c += 2) {
+                final int firstColumn = (int) Math.ceil(crossings[c] - 0.5);
+                final int lastColumn = (int) Math.floor(crossings[c + 1] - 0.5);
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    incrementCell(column, row);
+                }
+            }
+        }
+
+        footprintsCount++;
+        version++;
+    }
+
+    private void incrementCell(int cellX, int cellY) {
+        final long key = getChunkKey(cellX >> CHUNK_SHIFT, cellY >> CHUNK_SHIFT);
+        byte[] chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+            chunks.put(key, chunk);
+        }
+
+        final int index = ((cellY & CHUNK_MASK) << CHUNK_SHIFT) | (cellX & CHUNK_MASK);
+        final int count = chunk[index] & 0xff;
+        if (count < MAX_OVERLAP)
+            chunk[index] = (byte) (count + 1);
+    }
+
+    public synchronized void clear() {
+        chunks.clear();
+        footprintsCount = 0;
+        version++;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public synchronized int getFootprintsCount() {
+        return footprintsCount;
+    }
+
+    /**
+     * Samples the overlap counts under the pixels of the given map tile, in row order. When zoomed out of the grid
+     * resolution, each pixel takes the count of the cell at its center.
+     * @return false if nothing covers the tile, in which case the counts are left untouched.
+     */
+    boolean sampleTile(int tileX, int tileY, int zoom, int tileSize, byte[] counts) {
+        // Tile bounds, in cells.
+        final long minCellX;
+        final long minCellY;
+        final long maxCellX;
+        final long maxCellY;
+        if (zoom <= GRID_ZOOM) {
+            final long tileCells = (long) tileSize << (GRID_ZOOM - zoom);
+            minCellX = tileX * tileCells;
+            minCellY = tileY * tileCells;
+            maxCellX = minCellX + tileCells - 1;
+            maxCellY = minCellY + tileCells - 1;
+        } else {
+            final long tileCells = Math.max(1, (long) tileSize >> (zoom - GRID_ZOOM));
+            minCellX = ((long) tileX * tileSize) >> (zoom - GRID_ZOOM);
+            minCellY = ((long) tileY * tileSize) >> (zoom - GRID_ZOOM);
+            maxCellX = minCellX + tileCells - 1;
+            maxCellY = minCellY + tileCells - 1;
+        }
+
+        synchronized (this) {
+            if (!hasCoverage((int) (minCellX >> CHUNK_SHIFT), (int) (minCellY >> CHUNK_SHIFT),
+                    (int) (maxCellX >> CHUNK_SHIFT), (int) (maxCellY >> CHUNK_SHIFT)))
+                return false;
+
+            long lastChunkKey = -1;
+            byte[] chunk = null;
+            for (int py = 0; py < tileSize; py++) {
+                final int cellY = toCell(tileY, py, zoom, tileSize);
+                for (int px = 0; px < tileSize; px++) {
+                    final int cellX = toCell(tileX, px, zoom, tileSize);
+
+                    final long chunkKey = getChunkKey(cellX >> CHUNK_SHIFT, cellY >> CHUNK_SHIFT);
+                    if (chunkKey != lastChunkKey) {
+                        chunk = chunks.get(chunkKey);
+                        lastChunkKey = chunkKey;
+                    }
+
+                    counts[py * tileSize + px] = chunk == null
+                            ? 0
+                            : chunk[((cellY & CHUNK_MASK) << CHUNK_SHIFT) | (cellX & CHUNK_MASK)];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the cell coordinate under the given pixel of a map tile.
+     */
+    private static int toCell(int tileCoordinate, int pixel, int zoom, int tileSize) {
+        final long mapPixel = (long) tileCoordinate * tileSize + pixel;
+        if (zoom > GRID_ZOOM)
+            return (int) (mapPixel >> (zoom - GRID_ZOOM));
+
+        final int shift = GRID_ZOOM - zoom;
+        return (int) ((mapPixel << shift) + ((1L << shift) >> 1));
+    }
+
+    /**
+     * @return true if any cell in the given range, in chunks, is covered.
+     */
+    private boolean hasCoverage(int minChunkX, int minChunkY, int maxChunkX, int maxChunkY) {
+        for (Long key : chunks.keySet()) {
+            final int chunkX = (int) (key >> 32);
+            final int chunkY = (int) (long) key;
+            if (chunkX >= minChunkX && chunkX <= maxChunkX && chunkY >= minChunkY && chunkY <= maxChunkY)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.coverage;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Renders the overlap counts of a {@link CoverageGrid} as map tiles. The rendering cost only depends on the number
+ * of tiles on screen, not on the number of footprints in the grid.
+ */
+public class CoverageTileProvider implements TileProvider {
+
+    private static final int TILE_SIZE = 256; //pixels
+
+    // Fill color per overlap count, the last one is used past it.
+    private static final int[] OVERLAP_COLORS = {
+            Color.TRANSPARENT,
+            Color.argb(0x60, 0xF4, 0x43, 0x36),
+            Color.argb(0x60, 0xFF, 0x98, 0x00),
+            Color.argb(0x60, 0xFF, 0xEB, 0x3B),
+            Color.argb(0x60, 0x8B, 0xC3, 0x4A),
+            Color.argb(0x60, 0x4C, 0xAF, 0x50),
+    };
+
+    // Per rendering thread buffers.
+    private static final ThreadLocal<byte[]> countsBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[TILE_SIZE * TILE_SIZE];
+        }
+    };
+
+    private static final ThreadLocal<int[]> pixelsBuffer = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[TILE_SIZE * TILE_SIZE];
+        }
+    };
+
+    private final CoverageGrid coverageGrid;
+
+    public CoverageTileProvider(CoverageGrid coverageGrid) {
+        this.coverageGrid = coverageGrid;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        final byte[] counts = countsBuffer.get();
+        if (!coverageGrid.sampleTile(x, y, zoom, TILE_SIZE, counts))
+            return NO_TILE;
+
+        final int[] pixels = pixelsBuffer.get();
+        final int lastColor = OVERLAP_COLORS.length - 1;
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = OVERLAP_COLORS[Math.min(counts[i] & 0xff, lastColor)];
+        }
+
+        final Bitmap bitmap = Bitmap.createBitmap(pixels, TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        bitmap.recycle();
+
+        return new Tile(TILE_SIZE, TILE_SIZE, out.toByteArray());
+    }
+}
@@ -5,7 +5,11 @@ import android.content.Context;
 import com.google.android.gms.maps.model.Tile;
 import com.google.android.gms.maps.model.TileProvider;
 
-import org.droidplanner.android.data.DatabaseState;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.TilePack;
+
+import java.io.IOException;
+
+import timber.log.Timber;
 
 /**
  * Created by Fredia Huya-Kouadio on 5/11/15.
@@ -16,13 +20,11 @@ public class OfflineTileProvider implements TileProvider {
 
     private final Context context;
     private final String mapboxId;
-    private final String mapboxAccessToken;
     private final int maxZoomLevel;
 
-    public OfflineTileProvider(Context context, String mapboxId, String mapboxAccessToken, int maxZoomLevel) {
+    public OfflineTileProvider(Context context, String mapboxId, int maxZoomLevel) {
         this.context = context;
         this.mapboxId = mapboxId;
-        this.mapboxAccessToken = mapboxAccessToken;
         this.maxZoomLevel = maxZoomLevel;
     }
 
@@ -32,8 +34,14 @@ public class OfflineTileProvider implements TileProvider {
             return TileProvider.NO_TILE;
         }
 
-        final String tileUri = MapboxUtils.getMapTileURL(mapboxId, mapboxAccessToken, zoom, x, y);
-        byte[] data = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapboxId).dataForURL(tileUri);
+        final byte[] data;
+        try {
+            data = TilePack.get(context, mapboxId).getTile(zoom, x, y);
+        } catch (IOException e) {
+            Timber.e(e, "Unable to open the tile pack for %s", mapboxId);
+            return TileProvider.NO_TILE;
+        }
+
         if (data == null || data.length == 0)
             return TileProvider.NO_TILE;
 
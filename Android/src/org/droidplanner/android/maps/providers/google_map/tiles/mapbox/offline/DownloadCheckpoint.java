@@ -0,0 +1,121 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import timber.log.Timber;
+
+/**
+ * Persisted description of the running offline map download job, so an interrupted download can be resumed.
+ *
+ * Only the job's tiles are saved, once when the job starts. The downloaded tiles are the ones found in the map tile
+ * pack, so the progress doesn't have to be tracked separately.
+ */
+class DownloadCheckpoint {
+
+    private static final String CHECKPOINT_DIRECTORY = "offline_maps";
+    private static final String CHECKPOINT_FILENAME = "download.job";
+
+    private static final int CHECKPOINT_MAGIC = 0x544A4F42; // 'TJOB'
+    private static final int CHECKPOINT_VERSION = 1;
+
+    final String mapId;
+    final List<MapDownloader.TileRequest> tiles;
+
+    DownloadCheckpoint(String mapId, List<MapDownloader.TileRequest> tiles) {
+        this.mapId = mapId;
+        this.tiles = tiles;
+    }
+
+    static boolean exists(Context context) {
+        return getCheckpointFile(context).isFile();
+    }
+
+    static void delete(Context context) {
+        final File checkpointFile = getCheckpointFile(context);
+        if (checkpointFile.exists() && !checkpointFile.delete())
+            Timber.w("Unable to delete download checkpoint %s", checkpointFile);
+    }
+
+    /**
+     * @return the saved download job, or null if there's none, or it can't be read.
+     */
+    static DownloadCheckpoint load(Context context) {
+        final File checkpointFile = getCheckpointFile(context);
+        if (!checkpointFile.isFile())
+            return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(checkpointFile))));
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+                return null;
+
+            final String mapId = in.readUTF();
+            final int tilesCount = in.readInt();
+            final List<MapDownloader.TileRequest> tiles = new ArrayList<>(tilesCount);
+            for (int i = 0; i < tilesCount; i++) {
+                final int zoom = in.readInt();
+                final int x = in.readInt();
+                final int y = in.readInt();
+                tiles.add(new MapDownloader.TileRequest(zoom, x, y, in.readUTF()));
+            }
+            return new DownloadCheckpoint(mapId, tiles);
+        } catch (IOException e) {
+            Timber.w(e, "Unable to load download checkpoint %s", checkpointFile);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Timber.e(e, "Unable to close %s", checkpointFile);
+                }
+            }
+        }
+    }
+
+    void save(Context context) throws IOException {
+        final File checkpointFile = getCheckpointFile(context);
+        final File checkpointDir = checkpointFile.getParentFile();
+        if (!checkpointDir.isDirectory() && !checkpointDir.mkdirs())
+            throw new IOException("Unable to create directory " + checkpointDir);
+
+        final File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(tmpFile))));
+        try {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeUTF(mapId);
+            out.writeInt(tiles.size());
+            for (MapDownloader.TileRequest tile : tiles) {
+                out.writeInt(tile.zoom);
+                out.writeInt(tile.x);
+                out.writeInt(tile.y);
+                out.writeUTF(tile.url);
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!tmpFile.renameTo(checkpointFile))
+            throw new IOException("Unable to save download checkpoint " + checkpointFile);
+    }
+
+    private static File getCheckpointFile(Context context) {
+        return new File(new File(context.getFilesDir(), CHECKPOINT_DIRECTORY), CHECKPOINT_FILENAME);
+    }
+}
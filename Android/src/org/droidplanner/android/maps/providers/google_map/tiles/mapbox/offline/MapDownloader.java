@@ -1,34 +1,88 @@
 package org.droidplanner.android.maps.providers.google_map.tiles.mapbox.offline;
 
-import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.text.TextUtils;
+import android.os.SystemClock;
 
-import org.droidplanner.android.data.DatabaseState;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+
+import org.droidplanner.android.maps.providers.google_map.tiles.mapbox.MapboxUtils;
 import org.droidplanner.android.maps.providers.google_map.tiles.offline.MapDownloaderListener;
-import org.droidplanner.android.maps.providers.google_map.tiles.offline.db.OfflineDatabaseHandler;
+import org.droidplanner.android.maps.providers.google_map.tiles.offline.TilePack;
 import org.droidplanner.android.utils.NetworkUtils;
-import org.droidplanner.android.utils.Utils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import timber.log.Timber;
 
+/**
+ * Downloads the tiles of a map area into the map tile pack.
+ *
+ * A fixed number of fetchers pull the tiles from the job, so the number of in-flight requests is bounded, and share
+ * a pooled http client, so the connections are reused. Failed requests are retried with an exponential backoff.
+ * The downloaded tiles are handed to a single writer, which appends them to the tile pack and commits it in
+ * batches. The job is saved in a {@link DownloadCheckpoint} when it starts, and can be resumed with
+ * {@link #resumeDownloadProcess()} if it's interrupted, or if some of its tiles couldn't be downloaded.
+ */
 public class MapDownloader {
 
+    /**
+     * Number of downloaded tiles between two saves of the tile pack index.
+     */
+    private static final int COMMIT_INTERVAL = 500;
+
+    /**
+     * Number of downloaded tiles waiting to be written, past which the fetchers are held back.
+     */
+    private static final int WRITE_QUEUE_CAPACITY = 64;
+
+    private static final int MAX_FETCHERS = 8;
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF = 500L; //ms
+    private static final long MAX_BACKOFF = 8000L; //ms
+
+    private static final long CONNECT_TIMEOUT = 15L; //seconds
+    private static final long READ_TIMEOUT = 30L; //seconds
+
+    private static final long THROUGHPUT_REPORT_PERIOD = 1000L; //ms
+    private static final long WRITER_POLL_PERIOD = 250L; //ms
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * A map tile to download, and the url to download it from.
+     */
+    public static class TileRequest {
+        public final int zoom;
+        public final int x;
+        public final int y;
+        public final String url;
+
+        public TileRequest(int zoom, int x, int y, String url) {
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.url = url;
+        }
+    }
+
     /**
      * The possible states of the offline map downloader.
      */
@@ -47,17 +101,91 @@ public class MapDownloader {
         AVAILABLE
     }
 
-    private OfflineMapDownloaderState state;
+    /**
+     * A downloaded tile, waiting to be written to the tile pack.
+     */
+    private static class DownloadedTile {
+        final TileRequest request;
+        final byte[] data;
+
+        DownloadedTile(TileRequest request, byte[] data) {
+            this.request = request;
+            this.data = data;
+        }
+    }
+
+    /**
+     * State shared by the fetchers and the writer of a download job.
+     */
+    private static class DownloadJob {
+        final TilePack tilePack;
+        final List<TileRequest> tiles;
+
+        final AtomicInteger nextTileIndex = new AtomicInteger(0);
+        final AtomicInteger activeFetchers = new AtomicInteger(0);
+        // Tiles which couldn't be downloaded or written, while the job was running.
+        final AtomicInteger failedTiles = new AtomicInteger(0);
+        final BlockingQueue<DownloadedTile> writeQueue = new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY);
+
+        // Released when the job is stopped, which also wakes up the fetchers waiting on a retry.
+        final CountDownLatch stopSignal = new CountDownLatch(1);
+        volatile boolean keepCheckpoint;
+
+        // Statistics of the current throughput report period.
+        final AtomicInteger periodTiles = new AtomicInteger(0);
+        final AtomicLong periodBytes = new AtomicLong(0);
+        final AtomicLong periodLatency = new AtomicLong(0);
+
+        DownloadJob(TilePack tilePack, List<TileRequest> tiles) {
+            this.tilePack = tilePack;
+            this.tiles = tiles;
+        }
+
+        boolean isStopped() {
+            return stopSignal.getCount() == 0;
+        }
+
+        /**
+         * Stops the job. The tiles already downloaded are still written.
+         * @param keepCheckpoint true to keep the job checkpoint, so the job can be resumed.
+         */
+        void stop(boolean keepCheckpoint) {
+            this.keepCheckpoint = keepCheckpoint;
+            stopSignal.countDown();
+        }
+    }
+
+    private static OkHttpClient httpClient;
+
+    private static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient();
+            httpClient.setConnectionPool(new ConnectionPool(MAX_FETCHERS, TimeUnit.MINUTES.toMillis(1)));
+            httpClient.setConnectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS);
+            httpClient.setReadTimeout(READ_TIMEOUT, TimeUnit.SECONDS);
+        }
+        return httpClient;
+    }
+
+    private volatile OfflineMapDownloaderState state;
     private final AtomicInteger totalFilesWritten = new AtomicInteger(0);
     private final AtomicInteger totalFilesExpectedToWrite = new AtomicInteger(0);
 
     private final Context context;
-    private ExecutorService downloadsScheduler;
-    private final ArrayList<MapDownloaderListener> listeners = new ArrayList<>();
+    private final int fetchersCount;
+    private final ExecutorService downloadsScheduler;
+    private final List<MapDownloaderListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile DownloadJob currentJob;
 
     public MapDownloader(Context context) {
         this.context = context;
-        setupDownloadScheduler();
+
+        fetchersCount = Math.min(MAX_FETCHERS, Math.max(2,
+                (int) (Runtime.getRuntime().availableProcessors() * 1.5f)));
+        Timber.v("Using %d tile fetchers.", fetchersCount);
+        // The fetchers, and the thread setting up the job then writing the tiles.
+        downloadsScheduler = Executors.newFixedThreadPool(fetchersCount + 1);
 
         this.state = OfflineMapDownloaderState.AVAILABLE;
     }
@@ -78,28 +206,20 @@ public class MapDownloader {
         return listeners.remove(listener);
     }
 
+    /**
+     * Cancels the running download job. The tiles downloaded so far are kept in the tile pack, and the downloader
+     * becomes available once they're written.
+     */
     public void cancelDownload() {
-        if (state == OfflineMapDownloaderState.RUNNING) {
-            this.state = OfflineMapDownloaderState.CANCELLING;
-            notifyDelegateOfStateChange();
-        }
-
-        setupDownloadScheduler();
-
-        if (state == OfflineMapDownloaderState.CANCELLING) {
-            this.state = OfflineMapDownloaderState.AVAILABLE;
-            notifyDelegateOfStateChange();
-        }
-    }
+        if (state != OfflineMapDownloaderState.RUNNING)
+            return;
 
-    private void setupDownloadScheduler() {
-        if (downloadsScheduler != null) {
-            downloadsScheduler.shutdownNow();
-        }
+        this.state = OfflineMapDownloaderState.CANCELLING;
+        notifyDelegateOfStateChange();
 
-        final int processorsCount = (int) (Runtime.getRuntime().availableProcessors() * 1.5f);
-        Timber.v("Using " + processorsCount + " processors.");
-        downloadsScheduler = Executors.newFixedThreadPool(processorsCount);
+        final DownloadJob job = currentJob;
+        if (job != null)
+            job.stop(false);
     }
 
 /*
@@ -123,13 +243,19 @@ public class MapDownloader {
         }
     }
 
+    public void notifyDelegateOfThroughput(float tilesPerSecond, long bytesPerSecond, long averageTileLatency) {
+        for (MapDownloaderListener listener : listeners) {
+            listener.throughputUpdate(tilesPerSecond, bytesPerSecond, averageTileLatency);
+        }
+    }
+
     public void notifyDelegateOfNetworkConnectivityError(Throwable error) {
         for (MapDownloaderListener listener : listeners) {
             listener.networkConnectivityError(error);
         }
     }
 
-    public void notifyDelegateOfSqliteError(Throwable error) {
+    public void notifyDelegateOfStorageError(Throwable error) {
         for (MapDownloaderListener listener : listeners) {
             listener.sqlLiteError(error);
         }
@@ -147,222 +273,277 @@ public class MapDownloader {
         }
     }
 
-    private void startDownloading(final String mapId) {
+    public void notifyDelegateOfPartialCompletionWithOfflineMapDatabase(int failedTilesCount) {
+        for (MapDownloaderListener listener : listeners) {
+            listener.partialCompletionOfOfflineDatabaseMap(failedTilesCount);
+        }
+    }
 
-        // Get the actual URLs
-        ArrayList<String> urls = sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit(mapId, -1);
-        this.totalFilesExpectedToWrite.set(urls.size());
+    /**
+     * Runs the download job, and writes the downloaded tiles. Runs on the job's setup thread.
+     */
+    private void startDownloading(final TilePack tilePack, List<TileRequest> tiles) {
+        this.totalFilesExpectedToWrite.set(tiles.size());
         this.totalFilesWritten.set(0);
 
         notifyDelegateOfInitialCount(totalFilesExpectedToWrite.get());
 
-        Timber.d(String.format(Locale.US, "number of urls to download = %d", urls.size()));
+        Timber.d(String.format(Locale.US, "number of tiles to download = %d", tiles.size()));
         if (this.totalFilesExpectedToWrite.get() == 0) {
-            finishUpDownloadProcess();
+            DownloadCheckpoint.delete(context);
+            finishUpDownloadProcess(tilePack, true, 0);
             return;
         }
 
         if (!NetworkUtils.isNetworkAvailable(context)) {
             Timber.e("Network is not available.");
             notifyDelegateOfNetworkConnectivityError(new IllegalStateException("Network is not available"));
+            finishUpDownloadProcess(tilePack, false, 0);
             return;
         }
 
-        final CountDownLatch downloadsTracker = new CountDownLatch(this.totalFilesExpectedToWrite.get());
-        for (final String url : urls) {
+        final DownloadJob job = new DownloadJob(tilePack, tiles);
+        currentJob = job;
+        if (state != OfflineMapDownloaderState.RUNNING) {
+            // Cancelled while the job was being set up.
+            job.stop(false);
+        }
+
+        final int jobFetchersCount = Math.min(fetchersCount, tiles.size());
+        job.activeFetchers.set(jobFetchersCount);
+        for (int i = 0; i < jobFetchersCount; i++) {
             downloadsScheduler.execute(new Runnable() {
                 @Override
                 public void run() {
-                    HttpURLConnection conn = null;
                     try {
-                        conn = NetworkUtils.getHttpURLConnection(new URL(url));
-                        Timber.d("URL to download = " + conn.getURL().toString());
-                        conn.setConnectTimeout(60000);
-                        conn.connect();
-                        int rc = conn.getResponseCode();
-                        if (rc != HttpURLConnection.HTTP_OK) {
-                            String msg = String.format(Locale.US, "HTTP Error connection.  Response Code = %d for url = %s", rc, conn.getURL().toString());
-                            Timber.w(msg);
-                            notifyDelegateOfHTTPStatusError(rc, url);
-                            throw new IOException(msg);
-                        }
-
-                        ByteArrayOutputStream bais = new ByteArrayOutputStream();
-                        InputStream is = null;
-                        try {
-                            is = conn.getInputStream();
-                            // Read 4K at a time
-                            byte[] byteChunk = new byte[4096];
-                            int n;
-
-                            while ((n = is.read(byteChunk)) > 0) {
-                                bais.write(byteChunk, 0, n);
-                            }
-                        } catch (IOException e) {
-                            Timber.e(e, String.format(Locale.US, "Failed while reading bytes from %s: %s", conn
-                                    .getURL().toString(), e.getMessage()));
-                        } finally {
-                            if (is != null) {
-                                is.close();
-                            }
-                            conn.disconnect();
-                        }
-                        sqliteSaveDownloadedData(mapId, bais.toByteArray(), url);
-                    } catch (IOException e) {
-                        Timber.e(e, "Error occurred while retrieving map data.");
+                        fetchTiles(job);
                     } finally {
-                        downloadsTracker.countDown();
-
-                        if (conn != null) {
-                            conn.disconnect();
-                        }
+                        job.activeFetchers.decrementAndGet();
                     }
-
                 }
             });
         }
 
-        downloadsScheduler.execute(new Runnable() {
-            @Override
-            public void run() {
+        writeTiles(job);
+
+        currentJob = null;
+        final boolean completed = !job.isStopped();
+        final int failedTilesCount = job.failedTiles.get();
+
+        // A finished job with missing tiles keeps its checkpoint, so the missing tiles are retried on resume.
+        final boolean keepCheckpoint = completed ? failedTilesCount > 0 : job.keepCheckpoint;
+        if (!keepCheckpoint)
+            DownloadCheckpoint.delete(context);
+
+        finishUpDownloadProcess(tilePack, completed, failedTilesCount);
+    }
+
+    /**
+     * Downloads the job's tiles, until there are none left, or the job is stopped.
+     */
+    private void fetchTiles(DownloadJob job) {
+        final OkHttpClient client = getHttpClient();
+        final String userAgent = MapboxUtils.getUserAgent();
+
+        while (!job.isStopped()) {
+            final int tileIndex = job.nextTileIndex.getAndIncrement();
+            if (tileIndex >= job.tiles.size())
+                return;
+
+            final TileRequest tile = job.tiles.get(tileIndex);
+            final byte[] data = fetchTile(job, client, userAgent, tile);
+            if (data == null) {
+                if (!job.isStopped())
+                    job.failedTiles.incrementAndGet();
+                continue;
+            }
+
+            try {
+                job.writeQueue.put(new DownloadedTile(tile, data));
+            } catch (InterruptedException e) {
+                Timber.w("Interrupted while queuing tile %s", tile.url);
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the tile data, or null if it couldn't be downloaded.
+     */
+    private byte[] fetchTile(DownloadJob job, OkHttpClient client, String userAgent, TileRequest tile) {
+        final Request request = new Request.Builder()
+                .url(tile.url)
+                .header("User-Agent", userAgent)
+                .build();
+
+        long backoff = INITIAL_BACKOFF;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (attempt > 1) {
                 try {
-                    downloadsTracker.await();
+                    if (job.stopSignal.await(backoff, TimeUnit.MILLISECONDS))
+                        return null;
                 } catch (InterruptedException e) {
-                    Timber.e(e, "Error while waiting for downloads to complete.");
-                } finally {
-                    finishUpDownloadProcess();
+                    Thread.currentThread().interrupt();
+                    return null;
                 }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF);
             }
-        });
-    }
-
-/*
-    Implementation: sqlite stuff
-*/
 
-    public void sqliteSaveDownloadedData(String mapId, byte[] data, String url) {
-        if (Utils.runningOnMainThread()) {
-            Timber.w("trying to run sqliteSaveDownloadedData() on main thread. Return.");
-            return;
-        }
+            final long requestStart = SystemClock.elapsedRealtime();
+            try {
+                final Response response = client.newCall(request).execute();
+                final ResponseBody body = response.body();
+                try {
+                    final int rc = response.code();
+                    if (rc == HttpURLConnection.HTTP_OK) {
+                        final byte[] data = body.bytes();
+                        job.periodTiles.incrementAndGet();
+                        job.periodBytes.addAndGet(data.length);
+                        job.periodLatency.addAndGet(SystemClock.elapsedRealtime() - requestStart);
+                        return data;
+                    }
 
-        // Bail out if the state has changed to canceling, suspended, or available
-        if (this.state != OfflineMapDownloaderState.RUNNING) {
-            Timber.w("sqliteSaveDownloadedData() is not in a Running state so bailing.  State = " + this.state);
-            return;
-        }
+                    if (rc != HTTP_TOO_MANY_REQUESTS && rc < HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                        // Won't succeed on retry.
+                        Timber.w("HTTP Error connection.  Response Code = %d for url = %s", rc, tile.url);
+                        notifyDelegateOfHTTPStatusError(rc, tile.url);
+                        return null;
+                    }
 
-        // Open the database read-write and multi-threaded. The slightly obscure c-style variable names here and below are
-        // used to stay consistent with the sqlite documentaion.
-        // Continue by inserting an image blob into the data table
-        SQLiteDatabase db = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapId).getWritableDatabase();
-        try {
-            db.beginTransaction();
-
-            ContentValues values = new ContentValues();
-            values.put(OfflineDatabaseHandler.FIELD_DATA_VALUE, data);
-            db.insert(OfflineDatabaseHandler.TABLE_DATA, null, values);
-
-            db.execSQL(String.format(Locale.US, "UPDATE %s SET %s=200, %s=last_insert_rowid() WHERE %s='%s';", OfflineDatabaseHandler.TABLE_RESOURCES, OfflineDatabaseHandler.FIELD_RESOURCES_STATUS, OfflineDatabaseHandler.FIELD_RESOURCES_ID, OfflineDatabaseHandler.FIELD_RESOURCES_URL, url));
-            db.setTransactionSuccessful();
-            db.endTransaction();
-//        db.close();
-        }catch(IllegalStateException e){
-            Timber.e(e,"Error while saving downloader data to the database.");
+                    Timber.d("Response code %d for url %s, attempt %d", rc, tile.url, attempt);
+                } finally {
+                    body.close();
+                }
+            } catch (IOException e) {
+                Timber.d(e, "Error occurred while retrieving map tile %s, attempt %d", tile.url, attempt);
+                if (!NetworkUtils.isNetworkAvailable(context)) {
+                    // Keep the checkpoint, so the job is resumed once the network is back.
+                    Timber.e("Network is not available.");
+                    if (!job.isStopped()) {
+                        job.stop(true);
+                        notifyDelegateOfNetworkConnectivityError(e);
+                    }
+                    return null;
+                }
+            }
         }
 
-        // Update the progress
-        notifyDelegateOfProgress(this.totalFilesWritten.incrementAndGet(), this.totalFilesExpectedToWrite.get());
-        Timber.d("totalFilesWritten = " + this.totalFilesWritten + "; totalFilesExpectedToWrite = " + this
-                .totalFilesExpectedToWrite.get());
+        Timber.w("Unable to download map tile %s", tile.url);
+        return null;
     }
 
-    private void finishUpDownloadProcess() {
-        if (this.state == OfflineMapDownloaderState.RUNNING) {
-            Timber.i("Just finished downloading all materials.  Persist the OfflineMapDatabase, change the state, and call it a day.");
-            // This is what to do when we've downloaded all the files
-            notifyDelegateOfCompletionWithOfflineMapDatabase();
-            this.state = OfflineMapDownloaderState.AVAILABLE;
-            notifyDelegateOfStateChange();
-        }
-    }
+    /**
+     * Writes the downloaded tiles to the tile pack, until all the fetchers are done.
+     */
+    private void writeTiles(DownloadJob job) {
+        long lastReportTime = SystemClock.elapsedRealtime();
+        int uncommittedCount = 0;
+
+        while (true) {
+            final DownloadedTile downloadedTile;
+            try {
+                downloadedTile = job.writeQueue.poll(WRITER_POLL_PERIOD, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Still drain the queue, so the fetchers aren't left blocked on it.
+                Timber.w("Interrupted while writing the downloaded tiles.");
+                job.stop(true);
+                continue;
+            }
 
-    public ArrayList<String> sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit(String mapId, int limit) {
-        ArrayList<String> results = new ArrayList<String>();
-        if (Utils.runningOnMainThread()) {
-            Timber.w("Attempting to run sqliteReadArrayOfOfflineMapURLsToBeDownloadLimit() on main thread.  Returning.");
-            return results;
-        }
+            if (downloadedTile != null) {
+                if (saveDownloadedTile(job.tilePack, downloadedTile)) {
+                    if (++uncommittedCount >= COMMIT_INTERVAL) {
+                        uncommittedCount = 0;
+                        commitTilePack(job.tilePack);
+                    }
+                } else {
+                    job.failedTiles.incrementAndGet();
+                }
+            } else if (job.activeFetchers.get() == 0 && job.writeQueue.isEmpty()) {
+                // The fetchers queue their last tile before exiting.
+                return;
+            }
 
-        // Read up to limit undownloaded urls from the offline map database
-        String query = String.format(Locale.US, "SELECT %s FROM %s WHERE %s IS NULL", OfflineDatabaseHandler.FIELD_RESOURCES_URL, OfflineDatabaseHandler.TABLE_RESOURCES, OfflineDatabaseHandler.FIELD_RESOURCES_STATUS);
-        if (limit > 0) {
-            query = query + String.format(Locale.US, " LIMIT %d", limit);
-        }
-        query = query + ";";
-
-        // Open the database
-        SQLiteDatabase db = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapId).getReadableDatabase();
-        Cursor cursor = db.rawQuery(query, null);
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                do {
-                    results.add(cursor.getString(0));
-                } while (cursor.moveToNext());
+            final long now = SystemClock.elapsedRealtime();
+            if (now - lastReportTime >= THROUGHPUT_REPORT_PERIOD) {
+                reportThroughput(job, now - lastReportTime);
+                lastReportTime = now;
             }
-            cursor.close();
         }
-//        db.close();
+    }
+
+    private void reportThroughput(DownloadJob job, long period) {
+        final int tilesCount = job.periodTiles.getAndSet(0);
+        final long bytesCount = job.periodBytes.getAndSet(0);
+        final long latency = job.periodLatency.getAndSet(0);
 
-        return results;
+        final float tilesPerSecond = tilesCount * 1000f / period;
+        final long bytesPerSecond = bytesCount * 1000L / period;
+        final long averageLatency = tilesCount == 0 ? 0 : latency / tilesCount;
+
+        Timber.d("Downloading %.1f tiles/s, %d bytes/s, %d ms average latency", tilesPerSecond, bytesPerSecond,
+                averageLatency);
+        notifyDelegateOfThroughput(tilesPerSecond, bytesPerSecond, averageLatency);
     }
 
+/*
+    Implementation: tile pack stuff
+*/
 
-    public boolean sqliteCreateDatabaseUsingMetadata(String mapId, List<String> urlStrings) {
-        if (Utils.runningOnMainThread()) {
-            Timber.w("sqliteCreateDatabaseUsingMetadata() running on main thread.  Returning.");
+    /**
+     * @return true if the tile was appended to the tile pack.
+     */
+    private boolean saveDownloadedTile(TilePack tilePack, DownloadedTile downloadedTile) {
+        final TileRequest tile = downloadedTile.request;
+        if (downloadedTile.data.length == 0) {
+            Timber.w("No data retrieved for %s", tile.url);
             return false;
         }
 
-        final OfflineDatabaseHandler dbHandler = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapId);
-        if(dbHandler == null)
+        try {
+            tilePack.putTile(tile.zoom, tile.x, tile.y, downloadedTile.data);
+
+            // Update the progress
+            final int filesWritten = this.totalFilesWritten.incrementAndGet();
+            notifyDelegateOfProgress(filesWritten, this.totalFilesExpectedToWrite.get());
+            return true;
+        } catch (IOException e) {
+            Timber.e(e, "Error while saving downloaded tile to the tile pack.");
+            notifyDelegateOfStorageError(e);
             return false;
-
-        // Build a query to populate the database (map metadata and list of map resource urls)
-        SQLiteDatabase db = dbHandler.getWritableDatabase();
-        db.beginTransaction();
-
-        for (String url : urlStrings) {
-            ContentValues cv = new ContentValues();
-            cv.put(OfflineDatabaseHandler.FIELD_RESOURCES_URL, url);
-            db.insertWithOnConflict(OfflineDatabaseHandler.TABLE_RESOURCES, null, cv, SQLiteDatabase.CONFLICT_IGNORE);
         }
-
-        db.setTransactionSuccessful();
-        db.endTransaction();
-//        db.close();
-
-        return true;
     }
 
-    private boolean deleteIncompleteDownloads(String mapId){
-        if(TextUtils.isEmpty(mapId))
-            return false;
-
-        if(Utils.runningOnMainThread()){
-            Timber.w("This call should not be made on the main thread.");
-            return false;
+    private void commitTilePack(TilePack tilePack) {
+        try {
+            tilePack.commit();
+        } catch (IOException e) {
+            Timber.e(e, "Error while saving the tile pack index.");
+            notifyDelegateOfStorageError(e);
         }
+    }
 
-        final OfflineDatabaseHandler dbHandler = DatabaseState.getOfflineDatabaseHandlerForMapId(context, mapId);
-        if(dbHandler == null)
-            return false;
+    /**
+     * @param completed false if the download job was stopped before all the tiles were processed.
+     * @param failedTilesCount number of tiles which couldn't be downloaded or written.
+     */
+    private void finishUpDownloadProcess(TilePack tilePack, boolean completed, int failedTilesCount) {
+        commitTilePack(tilePack);
+
+        Timber.i("Download job done: %d of %d tiles written, %d failed.", totalFilesWritten.get(),
+                totalFilesExpectedToWrite.get(), failedTilesCount);
+        if (completed && this.state == OfflineMapDownloaderState.RUNNING) {
+            if (failedTilesCount > 0) {
+                notifyDelegateOfPartialCompletionWithOfflineMapDatabase(failedTilesCount);
+            } else {
+                // This is what to do when we've downloaded all the files
+                notifyDelegateOfCompletionWithOfflineMapDatabase();
+            }
+        }
 
-        final SQLiteDatabase db = dbHandler.getWritableDatabase();
-        final int deletedCount = db.delete(OfflineDatabaseHandler.TABLE_RESOURCES,
-                "status IS NULL OR TRIM(status) = ''", null);
-        Timber.d("Deleted %d rows", deletedCount);
-        return true;
+        this.state = OfflineMapDownloaderState.AVAILABLE;
+        notifyDelegateOfStateChange();
     }
 
 /*
@@ -372,9 +553,9 @@ public class MapDownloader {
     /**
      * Starting the Whole Download Process
      *
-     * @param urls Map urls
+     * @param tiles Map tiles. The tiles already in the map tile pack are skipped.
      */
-    public void startDownloadProcess(final String mapId, final List<String> urls) {
+    public void startDownloadProcess(final String mapId, final List<TileRequest> tiles) {
         if (state != OfflineMapDownloaderState.AVAILABLE) {
             Timber.w("state doesn't equal AVAILABLE so return.  state = " + state);
             return;
@@ -387,17 +568,69 @@ public class MapDownloader {
         downloadsScheduler.execute(new Runnable() {
             @Override
             public void run() {
-                deleteIncompleteDownloads(mapId);
+                try {
+                    new DownloadCheckpoint(mapId, tiles).save(context);
+                } catch (IOException e) {
+                    // The download can still proceed, it just can't be resumed.
+                    Timber.e(e, "Unable to save the download checkpoint.");
+                }
 
-                // Do database creation / io on background thread
-                if (!sqliteCreateDatabaseUsingMetadata(mapId, urls)) {
-                    Timber.e("Map Database wasn't created");
+                runDownloadJob(mapId, tiles);
+            }
+        });
+    }
+
+    /**
+     * Resumes the download job which was interrupted, if any.
+     *
+     * @return true if a download job is being resumed.
+     */
+    public boolean resumeDownloadProcess() {
+        if (state != OfflineMapDownloaderState.AVAILABLE || !DownloadCheckpoint.exists(context))
+            return false;
+
+        this.state = OfflineMapDownloaderState.RUNNING;
+        notifyDelegateOfStateChange();
+
+        downloadsScheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DownloadCheckpoint checkpoint = DownloadCheckpoint.load(context);
+                if (checkpoint == null) {
+                    DownloadCheckpoint.delete(context);
+                    state = OfflineMapDownloaderState.AVAILABLE;
+                    notifyDelegateOfStateChange();
                     return;
                 }
 
-                Timber.i("Starting download process for map id " + mapId);
-                startDownloading(mapId);
+                Timber.i("Resuming download process for map id %s", checkpoint.mapId);
+                runDownloadJob(checkpoint.mapId, checkpoint.tiles);
             }
         });
+        return true;
+    }
+
+    private void runDownloadJob(String mapId, List<TileRequest> tiles) {
+        // Do tile pack io on background thread
+        final TilePack tilePack;
+        try {
+            tilePack = TilePack.get(context, mapId);
+        } catch (IOException e) {
+            Timber.e(e, "Map tile pack wasn't opened");
+            notifyDelegateOfStorageError(e);
+            state = OfflineMapDownloaderState.AVAILABLE;
+            notifyDelegateOfStateChange();
+            return;
+        }
+
+        final List<TileRequest> missingTiles = new ArrayList<>(tiles.size());
+        for (TileRequest tile : tiles) {
+            if (!tilePack.contains(tile.zoom, tile.x, tile.y))
+                missingTiles.add(tile);
+        }
+
+        Timber.i("Starting download process for map id %s: %d of %d tiles missing", mapId,
+                missingTiles.size(), tiles.size());
+        startDownloading(tilePack, missingTiles);
     }
 }
@@ -7,9 +7,21 @@ public interface MapDownloaderListener {
     void stateChanged(MapDownloader.OfflineMapDownloaderState newState);
     void initialCountOfFiles(int numberOfFiles);
     void progressUpdate(int numberOfFilesWritten, int numberOfFilesExcepted);
+
+    /**
+     * Periodic report of the download throughput.
+     * @param averageTileLatency average time, in milliseconds, to download a tile.
+     */
+    void throughputUpdate(float tilesPerSecond, long bytesPerSecond, long averageTileLatency);
     void networkConnectivityError(Throwable error);
     void sqlLiteError(Throwable error);
     void httpStatusError(int status, String url);
     void completionOfOfflineDatabaseMap();
 
+    /**
+     * Called when the download job is done, but some of its tiles couldn't be downloaded. They're retried when
+     * the job is resumed.
+     */
+    void partialCompletionOfOfflineDatabaseMap(int failedTilesCount);
+
 }
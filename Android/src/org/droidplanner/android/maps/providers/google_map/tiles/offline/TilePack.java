@@ -0,0 +1,496 @@
+package org.droidplanner.android.maps.providers.google_map.tiles.offline;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import timber.log.Timber;
+
+/**
+ * Offline store for the tiles of a map.
+ *
+ * The tile payloads are appended to a data file, as records tagged with their (zoom, x, y) key. A compact index
+ * (sorted keys, offsets and lengths) is kept in memory and saved in a side file, so a lookup is a binary search
+ * and the payload is read straight from the memory mapped data file. The data file is mapped in fixed size
+ * segments which no record crosses.
+ *
+ * The data file is self describing: if the index file is missing or behind (e.g: the app was killed during a
+ * download), it's rebuilt by scanning the records.
+ */
+public class TilePack implements Closeable {
+
+    private static final String PACKS_DIRECTORY = "offline_maps";
+    private static final String DATA_EXTENSION = ".tiles";
+    private static final String INDEX_EXTENSION = ".tidx";
+
+    private static final int INDEX_MAGIC = 0x54504958; // 'TPIX'
+    private static final int INDEX_VERSION = 1;
+
+    private static final int RECORD_MAGIC = 0x54494C45; // 'TILE'
+    // Record magic (4 bytes), tile key (8 bytes) and payload length (4 bytes).
+    private static final int RECORD_HEADER_LENGTH = 16;
+
+    private static final long SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int INITIAL_INDEX_CAPACITY = 256;
+
+    private static final Map<String, TilePack> openPacks = new HashMap<>();
+
+    // Trailing tile coordinates of the urls stored in the legacy databases: '.../{z}/{x}/{y}@2x.png?access_token=...'
+    // for Mapbox, and '.../MapServer/tile/{z}/{y}/{x}' for ArcGIS.
+    private static final Pattern LEGACY_TILE_URL =
+            Pattern.compile("/(\\d+)/(\\d+)/(\\d+)(?:@2x)?(?:\\.\\w+)?(?:\\?.*)?$");
+    private static final String LEGACY_ARCGIS_TILE_PATH = "/MapServer/tile/";
+
+    /**
+     * Returns the tile pack for the given map, opening it if necessary.
+     */
+    public static TilePack get(Context context, String mapId) throws IOException {
+        final String packName = mapId.toLowerCase(Locale.US);
+        synchronized (openPacks) {
+            TilePack pack = openPacks.get(packName);
+            if (pack == null) {
+                final File packsDir = new File(context.getFilesDir(), PACKS_DIRECTORY);
+                if (!packsDir.isDirectory() && !packsDir.mkdirs())
+                    throw new IOException("Unable to create tile packs directory " + packsDir);
+
+                pack = new TilePack(new File(packsDir, packName + DATA_EXTENSION),
+                        new File(packsDir, packName + INDEX_EXTENSION));
+                openPacks.put(packName, pack);
+
+                importLegacyDatabase(context, packName, pack);
+            }
+            return pack;
+        }
+    }
+
+    /**
+     * Deletes the tile pack for the given map.
+     */
+    public static void delete(Context context, String mapId) {
+        if (context == null || TextUtils.isEmpty(mapId))
+            return;
+
+        final String packName = mapId.toLowerCase(Locale.US);
+        synchronized (openPacks) {
+            final TilePack pack = openPacks.remove(packName);
+            if (pack != null)
+                pack.close();
+
+            final File packsDir = new File(context.getFilesDir(), PACKS_DIRECTORY);
+            new File(packsDir, packName + DATA_EXTENSION).delete();
+            new File(packsDir, packName + INDEX_EXTENSION).delete();
+            context.deleteDatabase(packName);
+        }
+    }
+
+    /**
+     * The tiles used to be stored as blobs in a sqlite database per map, keyed on their download url. Those are
+     * copied in the pack, and the database is deleted once all its tiles are. If the import fails, the database
+     * is kept and the import resumes the next time the pack is opened.
+     */
+    private static void importLegacyDatabase(Context context, String packName, TilePack pack) {
+        final File databaseFile = context.getDatabasePath(packName);
+        if (!databaseFile.exists())
+            return;
+
+        SQLiteDatabase database = null;
+        Cursor cursor = null;
+        int importedCount = 0;
+        try {
+            database = SQLiteDatabase.openDatabase(databaseFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+            cursor = database.rawQuery("SELECT resources.url, data.value FROM resources"
+                    + " INNER JOIN data ON resources.id = data.id WHERE data.value IS NOT NULL", null);
+
+            while (cursor.moveToNext()) {
+                final String url = cursor.getString(0);
+                final Matcher matcher = url == null ? null : LEGACY_TILE_URL.matcher(url);
+                if (matcher == null || !matcher.find()) {
+                    // Not a tile, e.g: the Mapbox metadata.
+                    continue;
+                }
+
+                final int zoom = Integer.parseInt(matcher.group(1));
+                final int x;
+                final int y;
+                if (url.contains(LEGACY_ARCGIS_TILE_PATH)) {
+                    y = Integer.parseInt(matcher.group(2));
+                    x = Integer.parseInt(matcher.group(3));
+                } else {
+                    x = Integer.parseInt(matcher.group(2));
+                    y = Integer.parseInt(matcher.group(3));
+                }
+
+                if (!pack.contains(zoom, x, y)) {
+                    pack.putTile(zoom, x, y, cursor.getBlob(1));
+                    importedCount++;
+                }
+            }
+            pack.commit();
+        } catch (SQLException | IOException | NumberFormatException e) {
+            Timber.e(e, "Unable to import the legacy offline map database %s", packName);
+            return;
+        } finally {
+            if (cursor != null)
+                cursor.close();
+            if (database != null)
+                database.close();
+        }
+
+        Timber.i("Imported %d tiles from the legacy offline map database %s", importedCount, packName);
+        if (!context.deleteDatabase(packName))
+            Timber.w("Unable to delete the legacy offline map database %s", packName);
+    }
+
+    /**
+     * Packs the tile coordinates into an index key. Zoom levels up to 31, and coordinates up to 2^29 are supported.
+     */
+    public static long getTileKey(int zoom, int x, int y) {
+        return ((long) zoom << 58) | ((long) x << 29) | (long) y;
+    }
+
+    private final File dataFile;
+    private final File indexFile;
+
+    private final RandomAccessFile dataAccess;
+    private final FileChannel dataChannel;
+
+    // Sorted index of the committed tiles.
+    private long[] keys;
+    private long[] offsets;
+    private int[] lengths;
+    private int count;
+
+    // Tiles appended since the last commit, keyed on their tile key. Values are {offset, length}.
+    private final Map<Long, long[]> pendingTiles = new HashMap<>();
+
+    private long dataLength;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private TilePack(File dataFile, File indexFile) throws IOException {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+
+        dataAccess = new RandomAccessFile(dataFile, "rw");
+        dataChannel = dataAccess.getChannel();
+
+        if (!loadIndex()) {
+            keys = new long[INITIAL_INDEX_CAPACITY];
+            offsets = new long[INITIAL_INDEX_CAPACITY];
+            lengths = new int[INITIAL_INDEX_CAPACITY];
+            count = 0;
+            dataLength = 0;
+        }
+
+        if (dataLength != dataChannel.size()) {
+            recoverRecords();
+            commit();
+        }
+    }
+
+    public synchronized int getTileCount() {
+        return count + pendingTiles.size();
+    }
+
+    public boolean contains(int zoom, int x, int y) {
+        return findTile(getTileKey(zoom, x, y)) != null;
+    }
+
+    /**
+     * @return the payload of the given tile, or null if it's not in the pack.
+     */
+    public byte[] getTile(int zoom, int x, int y) {
+        final long[] tile = findTile(getTileKey(zoom, x, y));
+        if (tile == null)
+            return null;
+
+        final long offset = tile[0];
+        final int length = (int) tile[1];
+        try {
+            final ByteBuffer payload = getSegment(offset, length).duplicate();
+            payload.position((int) (offset % SEGMENT_SIZE));
+
+            final byte[] data = new byte[length];
+            payload.get(data);
+            return data;
+        } catch (IOException e) {
+            Timber.e(e, "Unable to read tile %d/%d/%d from %s", zoom, x, y, dataFile);
+            return null;
+        }
+    }
+
+    /**
+     * Appends the given tile to the pack. The tile is readable right away, but is only persisted in the index
+     * file on the next {@link #commit()}.
+     */
+    public synchronized void putTile(int zoom, int x, int y, byte[] data) throws IOException {
+        final int recordLength = RECORD_HEADER_LENGTH + data.length;
+        if (recordLength > SEGMENT_SIZE)
+            throw new IOException("Tile " + zoom + "/" + x + "/" + y + " is too large: " + data.length + " bytes");
+
+        long recordStart = dataLength;
+        final long segmentEnd = (recordStart / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+        if (recordStart + recordLength > segmentEnd) {
+            // Records don't cross segments, so they can be read from a single mapping.
+            recordStart = segmentEnd;
+        }
+
+        final long key = getTileKey(zoom, x, y);
+        final ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(RECORD_MAGIC).putLong(key).putInt(data.length).put(data);
+        record.flip();
+        while (record.hasRemaining()) {
+            dataChannel.write(record, recordStart + record.position());
+        }
+
+        pendingTiles.put(key, new long[]{recordStart + RECORD_HEADER_LENGTH, data.length});
+        dataLength = recordStart + recordLength;
+    }
+
+    /**
+     * Merges the appended tiles into the sorted index, and saves it.
+     */
+    public synchronized void commit() throws IOException {
+        if (!pendingTiles.isEmpty()) {
+            final int newCount = count + pendingTiles.size();
+            final long[] newKeys = new long[newCount];
+            final long[] newOffsets = new long[newCount];
+            final int[] newLengths = new int[newCount];
+
+            final long[] pendingKeys = new long[pendingTiles.size()];
+            int i = 0;
+            for (Long pendingKey : pendingTiles.keySet()) {
+                pendingKeys[i++] = pendingKey;
+            }
+            Arrays.sort(pendingKeys);
+
+            // Merge the two sorted runs. A pending tile replaces the committed tile with the same key.
+            int committedIndex = 0;
+            int pendingIndex = 0;
+            int mergedCount = 0;
+            while (committedIndex < count || pendingIndex < pendingKeys.length) {
+                final boolean takePending;
+                if (pendingIndex == pendingKeys.length) {
+                    takePending = false;
+                } else if (committedIndex == count) {
+                    takePending = true;
+                } else {
+                    takePending = pendingKeys[pendingIndex] <= keys[committedIndex];
+                    if (pendingKeys[pendingIndex] == keys[committedIndex])
+                        committedIndex++;
+                }
+
+                if (takePending) {
+                    final long[] tile = pendingTiles.get(pendingKeys[pendingIndex]);
+                    newKeys[mergedCount] = pendingKeys[pendingIndex];
+                    newOffsets[mergedCount] = tile[0];
+                    newLengths[mergedCount] = (int) tile[1];
+                    pendingIndex++;
+                } else {
+                    newKeys[mergedCount] = keys[committedIndex];
+                    newOffsets[mergedCount] = offsets[committedIndex];
+                    newLengths[mergedCount] = lengths[committedIndex];
+                    committedIndex++;
+                }
+                mergedCount++;
+            }
+
+            keys = newKeys;
+            offsets = newOffsets;
+            lengths = newLengths;
+            count = mergedCount;
+            pendingTiles.clear();
+        }
+
+        dataChannel.force(false);
+        saveIndex();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            commit();
+        } catch (IOException e) {
+            Timber.e(e, "Unable to save the index of %s", dataFile);
+        }
+
+        segments.clear();
+        try {
+            dataAccess.close();
+        } catch (IOException e) {
+            Timber.e(e, "Unable to close %s", dataFile);
+        }
+    }
+
+    private long[] findTile(long key) {
+        final long[] sortedKeys;
+        final long[] sortedOffsets;
+        final int[] sortedLengths;
+        final int sortedCount;
+        synchronized (this) {
+            final long[] pendingTile = pendingTiles.get(key);
+            if (pendingTile != null)
+                return pendingTile;
+
+            sortedKeys = keys;
+            sortedOffsets = offsets;
+            sortedLengths = lengths;
+            sortedCount = count;
+        }
+
+        final int index = Arrays.binarySearch(sortedKeys, 0, sortedCount, key);
+        return index < 0 ? null : new long[]{sortedOffsets[index], sortedLengths[index]};
+    }
+
+    /**
+     * Returns the mapping of the data file segment containing the given payload. The last segment is remapped
+     * when the payload lies past its current mapping.
+     */
+    private synchronized MappedByteBuffer getSegment(long offset, int length) throws IOException {
+        final int segmentIndex = (int) (offset / SEGMENT_SIZE);
+        final long segmentStart = segmentIndex * SEGMENT_SIZE;
+        final long requiredSize = offset + length - segmentStart;
+
+        while (segments.size() <= segmentIndex) {
+            segments.add(null);
+        }
+
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        if (segment == null || segment.capacity() < requiredSize) {
+            final long mappedSize = Math.min(SEGMENT_SIZE, dataLength - segmentStart);
+            segment = dataChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart, mappedSize);
+            segments.set(segmentIndex, segment);
+        }
+        return segment;
+    }
+
+    private boolean loadIndex() {
+        if (!indexFile.isFile())
+            return false;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+                return false;
+
+            final long indexedDataLength = in.readLong();
+            if (indexedDataLength > dataChannel.size())
+                return false;
+
+            final int indexCount = in.readInt();
+            final long[] indexKeys = new long[Math.max(indexCount, INITIAL_INDEX_CAPACITY)];
+            final long[] indexOffsets = new long[indexKeys.length];
+            final int[] indexLengths = new int[indexKeys.length];
+            for (int i = 0; i < indexCount; i++) {
+                indexKeys[i] = in.readLong();
+                indexOffsets[i] = in.readLong();
+                indexLengths[i] = in.readInt();
+            }
+
+            keys = indexKeys;
+            offsets = indexOffsets;
+            lengths = indexLengths;
+            count = indexCount;
+            dataLength = indexedDataLength;
+            return true;
+        } catch (IOException e) {
+            Timber.w(e, "Unable to load tile pack index %s", indexFile);
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Timber.e(e, "Unable to close %s", indexFile);
+                }
+            }
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        final File tmpFile = new File(indexFile.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(dataLength);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!tmpFile.renameTo(indexFile))
+            throw new IOException("Unable to save tile pack index " + indexFile);
+    }
+
+    /**
+     * Scans the records appended after the indexed part of the data file. A truncated record, left by an
+     * interrupted write, is dropped.
+     */
+    private void recoverRecords() throws IOException {
+        final long fileLength = dataChannel.size();
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+
+        long position = dataLength;
+        while (position + RECORD_HEADER_LENGTH <= fileLength) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (dataChannel.read(header, position + header.position()) == -1)
+                    break;
+            }
+            header.flip();
+
+            if (header.getInt() != RECORD_MAGIC) {
+                // Padding at the end of a segment.
+                final long nextSegment = (position / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+                if (nextSegment >= fileLength)
+                    break;
+                position = nextSegment;
+                continue;
+            }
+
+            final long key = header.getLong();
+            final int length = header.getInt();
+            if (length < 0 || position + RECORD_HEADER_LENGTH + length > fileLength)
+                break;
+
+            pendingTiles.put(key, new long[]{position + RECORD_HEADER_LENGTH, length});
+            position += RECORD_HEADER_LENGTH + length;
+        }
+
+        Timber.i("Recovered %d tiles in %s", pendingTiles.size(), dataFile);
+        dataLength = position;
+        dataChannel.truncate(position);
+    }
+}
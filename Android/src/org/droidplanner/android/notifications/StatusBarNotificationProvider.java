@@ -1,19 +1,16 @@
 package org.droidplanner.android.notifications;
 
 import android.app.PendingIntent;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.os.Bundle;
 import android.os.Handler;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.NotificationManagerCompat;
-import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.Battery;
 import com.o3dr.services.android.lib.drone.property.Gps;
 import com.o3dr.services.android.lib.drone.property.Home;
@@ -27,6 +24,9 @@ import org.beyene.sius.unit.length.LengthUnit;
 import org.droidplanner.android.DroidPlannerApp;
 import org.droidplanner.android.R;
 import org.droidplanner.android.activities.FlightActivity;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.FrameScheduler;
+import org.droidplanner.android.utils.VehicleSnapshot;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 import org.droidplanner.android.utils.unit.UnitManager;
 
@@ -47,6 +47,11 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
      */
     protected final static long FLIGHT_TIMER_PERIOD = 1000l; // 1 second
 
+    /**
+     * Maximum number of times per second the notification is updated.
+     */
+    private static final int NOTIFICATION_REFRESH_RATE = 1;
+
     private final Runnable removeNotification = new Runnable() {
         @Override
         public void run() {
@@ -89,9 +94,14 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
 
     private final Drone drone;
 
-    StatusBarNotificationProvider(Context context, Drone api) {
+    private final DroneEventBus eventBus;
+    private final VehicleSnapshot vehicleSnapshot;
+
+    StatusBarNotificationProvider(Context context, Drone api, DroneEventBus eventBus, VehicleSnapshot vehicleSnapshot) {
         mContext = context;
         this.drone = api;
+        this.eventBus = eventBus;
+        this.vehicleSnapshot = vehicleSnapshot;
         mAppPrefs = DroidPlannerPrefs.getInstance(context);
 
         mNotificationIntent = PendingIntent.getActivity(mContext, 0, new Intent(mContext,
@@ -126,7 +136,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
 
         showNotification();
 
-        LocalBroadcastManager.getInstance(mContext).registerReceiver(eventReceiver, eventFilter);
+        eventBus.subscribe(eventSubscriber, droneEvents);
     }
 
     /**
@@ -134,7 +144,8 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
      */
     @Override
     public void onTerminate() {
-        LocalBroadcastManager.getInstance(mContext).unregisterReceiver(eventReceiver);
+        eventBus.unsubscribe(eventSubscriber);
+        notificationUpdate.cancel();
 
         mInboxBuilder = null;
 
@@ -153,59 +164,42 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
         mHandler.postDelayed(removeNotification, 2000L);
     }
 
-    private static final IntentFilter eventFilter = new IntentFilter();
-
-    static {
-        eventFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-        eventFilter.addAction(AttributeEvent.GPS_POSITION);
-        eventFilter.addAction(AttributeEvent.GPS_FIX);
-        eventFilter.addAction(AttributeEvent.GPS_COUNT);
-        eventFilter.addAction(AttributeEvent.HOME_UPDATED);
-        eventFilter.addAction(AttributeEvent.SIGNAL_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_VEHICLE_MODE);
-        eventFilter.addAction(AttributeEvent.TYPE_UPDATED);
-    }
+    private static final String[] droneEvents = {
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.GPS_COUNT,
+            AttributeEvent.HOME_UPDATED,
+            AttributeEvent.SIGNAL_UPDATED,
+            AttributeEvent.STATE_UPDATED,
+            AttributeEvent.STATE_VEHICLE_MODE,
+            AttributeEvent.TYPE_UPDATED
+    };
 
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            boolean showNotification = true;
-            final String action = intent.getAction();
-            switch (action) {
-
-                case AttributeEvent.GPS_POSITION:
-                    updateHome(drone);
-                    break;
-                case AttributeEvent.GPS_FIX:
-                case AttributeEvent.GPS_COUNT:
-                    updateGps(drone);
-                    break;
-                case AttributeEvent.BATTERY_UPDATED:
-                    updateBattery(drone);
-                    break;
-                case AttributeEvent.HOME_UPDATED:
-                    updateHome(drone);
-                    break;
-                case AttributeEvent.SIGNAL_UPDATED:
-                    updateRadio(drone);
-                    break;
-                case AttributeEvent.STATE_UPDATED:
-                    updateDroneState(drone);
-                    break;
-                case AttributeEvent.STATE_VEHICLE_MODE:
-                case AttributeEvent.TYPE_UPDATED:
-                    updateFlightMode(drone);
-                    break;
-
-                default:
-                    showNotification = false;
-                    break;
-            }
+        public void onDroneEvent(String event, Bundle extras) {
+            notificationUpdate.request();
+        }
+    };
 
-            if (showNotification) {
-                showNotification();
-            }
+    /**
+     * Rebuilds and posts the notification, at most {@link #NOTIFICATION_REFRESH_RATE} times per second.
+     */
+    private final FrameScheduler.Task notificationUpdate = new FrameScheduler.Task(NOTIFICATION_REFRESH_RATE) {
+        @Override
+        protected void run() {
+            if (mInboxBuilder == null)
+                return;
+
+            updateFlightMode(drone);
+            updateDroneState(drone);
+            updateBattery(drone);
+            updateGps(drone);
+            updateHome(drone);
+            updateRadio(drone);
+
+            showNotification();
         }
     };
 
@@ -236,7 +230,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
         if (mInboxBuilder == null)
             return;
 
-        Signal droneSignal = drone.getAttribute(AttributeType.SIGNAL);
+        Signal droneSignal = vehicleSnapshot.getSignal();
         String update = droneSignal == null ? "--" : String.format("%d%%", MathUtils.getSignalStrength(droneSignal
                 .getFadeMargin(), droneSignal.getRemFadeMargin()));
         mInboxBuilder.setLine(4, SpannableUtils.normal("Signal:   ", SpannableUtils.bold(update)));
@@ -247,8 +241,8 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
             return;
 
         String update = "--";
-        final Gps droneGps = this.drone.getAttribute(AttributeType.GPS);
-        final Home droneHome = this.drone.getAttribute(AttributeType.HOME);
+        final Gps droneGps = vehicleSnapshot.getGps();
+        final Home droneHome = vehicleSnapshot.getHome();
         if (droneGps != null && droneGps.isValid() && droneHome != null && droneHome.isValid()) {
             LengthUnit distanceToHome = UnitManager.getUnitSystem(mContext).getLengthUnitProvider()
                     .boxBaseValueToTarget(MathUtils.getDistance2D(droneHome.getCoordinate(), droneGps.getPosition()));
@@ -261,7 +255,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
         if (mInboxBuilder == null)
             return;
 
-        Gps droneGps = drone.getAttribute(AttributeType.GPS);
+        Gps droneGps = vehicleSnapshot.getGps();
         String update = droneGps == null ? "--" : String.format(
                 "%d, %s", droneGps.getSatellitesCount(), droneGps.getFixType());
         mInboxBuilder.setLine(1, SpannableUtils.normal("Satellite:   ", SpannableUtils.bold(update)));
@@ -271,7 +265,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
         if (mInboxBuilder == null)
             return;
 
-        Battery droneBattery = drone.getAttribute(AttributeType.BATTERY);
+        Battery droneBattery = vehicleSnapshot.getBattery();
         String update = droneBattery == null ? "--" : String.format(
                 "%2.1fv (%2.0f%%)", droneBattery.getBatteryVoltage(),
                 droneBattery.getBatteryRemain());
@@ -293,7 +287,7 @@ public class StatusBarNotificationProvider implements NotificationHandler.Notifi
         if (mNotificationBuilder == null)
             return;
 
-        State droneState = drone.getAttribute(AttributeType.STATE);
+        State droneState = vehicleSnapshot.getState();
         VehicleMode mode = droneState == null ? null : droneState.getVehicleMode();
         String update = mode == null ? "--" : mode.getLabel();
         final CharSequence modeSummary = SpannableUtils.normal("Flight Mode:  ", SpannableUtils.bold(update));
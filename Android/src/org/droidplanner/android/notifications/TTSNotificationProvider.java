@@ -6,6 +6,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.TextToSpeech.OnInitListener;
@@ -16,7 +17,6 @@ import android.widget.Toast;
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEventExtra;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.attribute.error.ErrorType;
 import com.o3dr.services.android.lib.drone.property.Altitude;
 import com.o3dr.services.android.lib.drone.property.Battery;
@@ -28,6 +28,8 @@ import com.o3dr.services.android.lib.drone.property.VehicleMode;
 
 import org.droidplanner.android.R;
 import org.droidplanner.android.fragments.SettingsFragment;
+import org.droidplanner.android.utils.DroneEventBus;
+import org.droidplanner.android.utils.VehicleSnapshot;
 import org.droidplanner.android.utils.prefs.DroidPlannerPrefs;
 
 import java.util.ArrayList;
@@ -64,44 +66,41 @@ public class TTSNotificationProvider implements OnInitListener,
     public static final String ACTION_SPEAK_MESSAGE = CLAZZ_NAME + ".ACTION_SPEAK_MESSAGE";
     public static final String EXTRA_MESSAGE_TO_SPEAK = "extra_message_to_speak";
 
-    private final static IntentFilter eventFilter = new IntentFilter();
-
-    static {
-        eventFilter.addAction(AttributeEvent.STATE_ARMING);
-        eventFilter.addAction(AttributeEvent.BATTERY_UPDATED);
-        eventFilter.addAction(AttributeEvent.STATE_VEHICLE_MODE);
-        eventFilter.addAction(AttributeEvent.MISSION_SENT);
-        eventFilter.addAction(AttributeEvent.GPS_FIX);
-        eventFilter.addAction(AttributeEvent.MISSION_RECEIVED);
-        eventFilter.addAction(AttributeEvent.HEARTBEAT_FIRST);
-        eventFilter.addAction(AttributeEvent.HEARTBEAT_TIMEOUT);
-        eventFilter.addAction(AttributeEvent.HEARTBEAT_RESTORED);
-        eventFilter.addAction(AttributeEvent.MISSION_ITEM_UPDATED);
-        eventFilter.addAction(AttributeEvent.FOLLOW_START);
-        eventFilter.addAction(AttributeEvent.AUTOPILOT_ERROR);
-        eventFilter.addAction(AttributeEvent.ALTITUDE_UPDATED);
-        eventFilter.addAction(AttributeEvent.SIGNAL_WEAK);
-        eventFilter.addAction(AttributeEvent.WARNING_NO_GPS);
-        eventFilter.addAction(AttributeEvent.HOME_UPDATED);
-    }
+    private static final String[] droneEvents = {
+            AttributeEvent.STATE_ARMING,
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.STATE_VEHICLE_MODE,
+            AttributeEvent.MISSION_SENT,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.MISSION_RECEIVED,
+            AttributeEvent.HEARTBEAT_FIRST,
+            AttributeEvent.HEARTBEAT_TIMEOUT,
+            AttributeEvent.HEARTBEAT_RESTORED,
+            AttributeEvent.MISSION_ITEM_UPDATED,
+            AttributeEvent.FOLLOW_START,
+            AttributeEvent.AUTOPILOT_ERROR,
+            AttributeEvent.ALTITUDE_UPDATED,
+            AttributeEvent.SIGNAL_WEAK,
+            AttributeEvent.WARNING_NO_GPS,
+            AttributeEvent.HOME_UPDATED
+    };
 
-    private final BroadcastReceiver eventReceiver = new BroadcastReceiver() {
+    private final DroneEventBus.Subscriber eventSubscriber = new DroneEventBus.Subscriber() {
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onDroneEvent(String event, Bundle extras) {
             if (tts == null)
                 return;
 
-            final String action = intent.getAction();
-            State droneState = drone.getAttribute(AttributeType.STATE);
+            State droneState = vehicleSnapshot.getState();
 
-            switch (action) {
+            switch (event) {
                 case AttributeEvent.STATE_ARMING:
                     if (droneState != null)
                         speakArmedState(droneState.isArmed());
                     break;
 
                 case AttributeEvent.BATTERY_UPDATED:
-                    Battery droneBattery = drone.getAttribute(AttributeType.BATTERY);
+                    Battery droneBattery = vehicleSnapshot.getBattery();
                     if (droneBattery != null)
                         batteryDischargeNotification(droneBattery.getBatteryRemain());
                     break;
@@ -117,7 +116,7 @@ public class TTSNotificationProvider implements OnInitListener,
                     break;
 
                 case AttributeEvent.GPS_FIX:
-                    Gps droneGps = drone.getAttribute(AttributeType.GPS);
+                    Gps droneGps = vehicleSnapshot.getGps();
                     if (droneGps != null)
                         speakGpsMode(droneGps.getFixType());
                     break;
@@ -147,7 +146,8 @@ public class TTSNotificationProvider implements OnInitListener,
                     break;
 
                 case AttributeEvent.MISSION_ITEM_UPDATED:
-                    int currentWaypoint = intent.getIntExtra(AttributeEventExtra.EXTRA_MISSION_CURRENT_WAYPOINT, 0);
+                    int currentWaypoint = extras == null ? 0
+                            : extras.getInt(AttributeEventExtra.EXTRA_MISSION_CURRENT_WAYPOINT, 0);
                     if (currentWaypoint != 0) {
                         //Zeroth waypoint is the home location.
                         speak(context.getString(R.string.speak_mission_item_updated, currentWaypoint));
@@ -159,7 +159,7 @@ public class TTSNotificationProvider implements OnInitListener,
                     break;
 
                 case AttributeEvent.ALTITUDE_UPDATED:
-                    final Altitude altitude = drone.getAttribute(AttributeType.ALTITUDE);
+                    final Altitude altitude = vehicleSnapshot.getAltitude();
                     if (mAppPrefs.hasExceededMaxAltitude(altitude.getAltitude())) {
                         if (isMaxAltExceeded.compareAndSet(false, true)) {
                             handler.postDelayed(maxAltitudeExceededWarning, WARNING_DELAY);
@@ -172,7 +172,8 @@ public class TTSNotificationProvider implements OnInitListener,
 
                 case AttributeEvent.AUTOPILOT_ERROR:
                     if (mAppPrefs.getWarningOnAutopilotWarning()) {
-                        String errorId = intent.getStringExtra(AttributeEventExtra.EXTRA_AUTOPILOT_ERROR_ID);
+                        String errorId = extras == null ? null
+                                : extras.getString(AttributeEventExtra.EXTRA_AUTOPILOT_ERROR_ID);
                         final ErrorType errorType = ErrorType.getErrorById(errorId);
                         if (errorType != null && errorType != ErrorType.NO_ERROR) {
                             speak(errorType.getLabel(context).toString());
@@ -266,7 +267,7 @@ public class TTSNotificationProvider implements OnInitListener,
             handler.removeCallbacks(watchdogCallback);
 
             if (drone != null) {
-                final State droneState = drone.getAttribute(AttributeType.STATE);
+                final State droneState = vehicleSnapshot.getState();
                 if (droneState.isConnected() && droneState.isArmed())
                     speakPeriodic(drone);
             }
@@ -284,23 +285,23 @@ public class TTSNotificationProvider implements OnInitListener,
 
                 mMessageBuilder.setLength(0);
                 if (speechPrefs.get(DroidPlannerPrefs.PREF_TTS_PERIODIC_BAT_VOLT)) {
-                    final Battery droneBattery = drone.getAttribute(AttributeType.BATTERY);
+                    final Battery droneBattery = vehicleSnapshot.getBattery();
                     mMessageBuilder.append(context.getString(R.string.periodic_status_bat_volt,
                             droneBattery.getBatteryVoltage()));
                 }
 
                 if (speechPrefs.get(DroidPlannerPrefs.PREF_TTS_PERIODIC_ALT)) {
-                    final Altitude altitude = drone.getAttribute(AttributeType.ALTITUDE);
+                    final Altitude altitude = vehicleSnapshot.getAltitude();
                     mMessageBuilder.append(context.getString(R.string.periodic_status_altitude, (int) (altitude.getAltitude())));
                 }
 
                 if (speechPrefs.get(DroidPlannerPrefs.PREF_TTS_PERIODIC_AIRSPEED)) {
-                    final Speed droneSpeed = drone.getAttribute(AttributeType.SPEED);
+                    final Speed droneSpeed = vehicleSnapshot.getSpeed();
                     mMessageBuilder.append(context.getString(R.string.periodic_status_airspeed, (int) (droneSpeed.getAirSpeed())));
                 }
 
                 if (speechPrefs.get(DroidPlannerPrefs.PREF_TTS_PERIODIC_RSSI)) {
-                    final Signal signal = drone.getAttribute(AttributeType.SIGNAL);
+                    final Signal signal = vehicleSnapshot.getSignal();
                     mMessageBuilder.append(context.getString(R.string.periodic_status_rssi, (int) signal.getRssi()));
                 }
 
@@ -317,21 +318,26 @@ public class TTSNotificationProvider implements OnInitListener,
 
     private final Drone drone;
 
-    TTSNotificationProvider(Context context, Drone drone) {
+    private final DroneEventBus eventBus;
+    private final VehicleSnapshot vehicleSnapshot;
+
+    TTSNotificationProvider(Context context, Drone drone, DroneEventBus eventBus, VehicleSnapshot vehicleSnapshot) {
         this.context = context;
         this.drone = drone;
+        this.eventBus = eventBus;
+        this.vehicleSnapshot = vehicleSnapshot;
         mAppPrefs =  DroidPlannerPrefs.getInstance(context);
     }
 
     @Override
     public void init() {
         tts = new TextToSpeech(context, this);
-        LocalBroadcastManager.getInstance(context).registerReceiver(eventReceiver, eventFilter);
+        eventBus.subscribe(eventSubscriber, droneEvents);
     }
 
     @Override
     public void onTerminate() {
-        LocalBroadcastManager.getInstance(context).unregisterReceiver(eventReceiver);
+        eventBus.unsubscribe(eventSubscriber);
 
         handler.removeCallbacks(watchdogCallback);
         speak(context.getString(R.string.speak_disconected));
@@ -0,0 +1,105 @@
+package org.droidplanner.android.proxy.mission;
+
+import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the changes applied to the mission by a {@link MissionProxy} update, so the listeners can refresh
+ * only what changed.
+ *
+ * A full update means the changes are unknown (e.g: a new mission was loaded, or the items were edited in
+ * place), and every item should be considered modified.
+ */
+public class MissionChangeSet {
+
+    /**
+     * Value of {@link #getFirstMovedIndex()} when no item changed order.
+     */
+    public static final int NO_MOVED_ITEMS = -1;
+
+    private final boolean isFullUpdate;
+
+    private final List<MissionItemProxy> insertedItems = new ArrayList<>();
+    private final List<MissionItemProxy> removedItems = new ArrayList<>();
+    private final List<MissionItemProxy> modifiedItems = new ArrayList<>();
+
+    private int firstMovedIndex = NO_MOVED_ITEMS;
+
+    private MissionChangeSet(boolean isFullUpdate) {
+        this.isFullUpdate = isFullUpdate;
+    }
+
+    static MissionChangeSet newChangeSet() {
+        return new MissionChangeSet(false);
+    }
+
+    static MissionChangeSet newFullUpdate() {
+        return new MissionChangeSet(true);
+    }
+
+    MissionChangeSet addInsertedItem(MissionItemProxy item) {
+        insertedItems.add(item);
+        return this;
+    }
+
+    MissionChangeSet addInsertedItems(List<MissionItemProxy> items) {
+        insertedItems.addAll(items);
+        return this;
+    }
+
+    MissionChangeSet addRemovedItem(MissionItemProxy item) {
+        removedItems.add(item);
+        return this;
+    }
+
+    MissionChangeSet addRemovedItems(List<MissionItemProxy> items) {
+        removedItems.addAll(items);
+        return this;
+    }
+
+    MissionChangeSet addModifiedItem(MissionItemProxy item) {
+        modifiedItems.add(item);
+        return this;
+    }
+
+    /**
+     * Records that the items at, or after, the given index changed order.
+     */
+    MissionChangeSet setMovedFrom(int index) {
+        if (firstMovedIndex == NO_MOVED_ITEMS || index < firstMovedIndex)
+            firstMovedIndex = index;
+        return this;
+    }
+
+    public boolean isFullUpdate() {
+        return isFullUpdate;
+    }
+
+    public boolean isEmpty() {
+        return !isFullUpdate && insertedItems.isEmpty() && removedItems.isEmpty() && modifiedItems.isEmpty()
+                && firstMovedIndex == NO_MOVED_ITEMS;
+    }
+
+    public List<MissionItemProxy> getInsertedItems() {
+        return Collections.unmodifiableList(insertedItems);
+    }
+
+    public List<MissionItemProxy> getRemovedItems() {
+        return Collections.unmodifiableList(removedItems);
+    }
+
+    public List<MissionItemProxy> getModifiedItems() {
+        return Collections.unmodifiableList(modifiedItems);
+    }
+
+    /**
+     * @return the index of the first item whose order in the mission changed, or {@link #NO_MOVED_ITEMS}.
+     * The items from this index onward may need their order label refreshed.
+     */
+    public int getFirstMovedIndex() {
+        return firstMovedIndex;
+    }
+}
@@ -0,0 +1,237 @@
+package org.droidplanner.android.proxy.mission;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.drone.mission.Mission;
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+import com.o3dr.services.android.lib.drone.mission.item.complex.StructureScanner;
+import com.o3dr.services.android.lib.drone.mission.item.complex.Survey;
+
+import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Undo / redo history for the mission edited through {@link MissionProxy}.
+ *
+ * Each state of the mission is stored as a snapshot: an array of frozen copies of its items. Consecutive
+ * snapshots share the copies of the items which didn't change, so an edit only costs the copies of the items
+ * it touched. The undo history is bounded by an estimate of the memory it retains rather than by a number of
+ * states.
+ */
+class MissionHistory {
+
+    private static final long DEFAULT_MEMORY_BUDGET = 4 * 1024 * 1024; // bytes
+
+    // Rough memory footprint estimates, used to enforce the memory budget.
+    private static final int ITEM_REFERENCE_COST = 4;
+    private static final int ITEM_COST = 96;
+    private static final int POINT_COST = 40;
+
+    /**
+     * Immutable state of the mission.
+     */
+    static class Snapshot {
+        // Frozen copies of the mission items. They're never handed out, nor updated.
+        private final MissionItem[] items;
+
+        // Live mission items from which the frozen copies were made, or restored to.
+        private final MissionItem[] sources;
+
+        // Estimated memory retained by this snapshot on top of the items shared with the previous one.
+        private final long cost;
+
+        private Snapshot(MissionItem[] items, MissionItem[] sources, long cost) {
+            this.items = items;
+            this.sources = sources;
+            this.cost = cost;
+        }
+
+        /**
+         * @return true if the given mission has the same content as this snapshot.
+         */
+        boolean matches(Mission mission) {
+            final List<MissionItem> missionItems = mission.getMissionItems();
+            if (missionItems.size() != items.length)
+                return false;
+
+            for (int i = 0; i < items.length; i++) {
+                if (!items[i].equals(missionItems.get(i)))
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return new copies of the snapshot items, which can be edited.
+         */
+        MissionItem[] copyItems() {
+            final MissionItem[] copies = new MissionItem[items.length];
+            for (int i = 0; i < items.length; i++) {
+                copies[i] = items[i].clone();
+            }
+            return copies;
+        }
+
+    }
+
+    private final ArrayDeque<Snapshot> undoStates = new ArrayDeque<>();
+    private final ArrayDeque<Snapshot> redoStates = new ArrayDeque<>();
+
+    private final long memoryBudget;
+    private long undoCost;
+
+    private Snapshot current;
+
+    MissionHistory() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    MissionHistory(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    Snapshot getCurrent() {
+        return current;
+    }
+
+    boolean canUndo() {
+        return !undoStates.isEmpty();
+    }
+
+    boolean canRedo() {
+        return !redoStates.isEmpty();
+    }
+
+    /**
+     * Drops all the recorded states, including the current one.
+     */
+    void clear() {
+        undoStates.clear();
+        redoStates.clear();
+        undoCost = 0;
+        current = null;
+    }
+
+    /**
+     * Records the current state of the mission.
+     *
+     * @param missionItems Current mission items
+     * @param changes      Changes since the last recorded state. The items which aren't part of the changes
+     *                     reuse their previous copy.
+     * @param saveState    True to push the previous state on the undo history, false to replace it
+     */
+    void record(List<MissionItemProxy> missionItems, MissionChangeSet changes, boolean saveState) {
+        final Map<MissionItem, MissionItem> previousCopies = new IdentityHashMap<>();
+        if (current != null) {
+            for (int i = 0; i < current.items.length; i++) {
+                previousCopies.put(current.sources[i], current.items[i]);
+            }
+        }
+
+        final Set<MissionItem> changedItems = Collections.newSetFromMap(new IdentityHashMap<MissionItem, Boolean>());
+        if (!changes.isFullUpdate()) {
+            for (MissionItemProxy itemProxy : changes.getModifiedItems()) {
+                changedItems.add(itemProxy.getMissionItem());
+            }
+        }
+
+        final int itemsCount = missionItems.size();
+        final MissionItem[] items = new MissionItem[itemsCount];
+        final MissionItem[] sources = new MissionItem[itemsCount];
+        long cost = (long) itemsCount * ITEM_REFERENCE_COST * 2;
+
+        for (int i = 0; i < itemsCount; i++) {
+            final MissionItem source = missionItems.get(i).getMissionItem();
+            final MissionItem previousCopy = previousCopies.get(source);
+
+            // Without the details of the changes, the item is compared with its previous copy.
+            final boolean isUnchanged = previousCopy != null && (changes.isFullUpdate()
+                    ? previousCopy.equals(source) : !changedItems.contains(source));
+
+            if (isUnchanged) {
+                items[i] = previousCopy;
+            } else {
+                items[i] = source.clone();
+                cost += estimateCost(items[i]);
+            }
+            sources[i] = source;
+        }
+
+        if (saveState && current != null) {
+            pushUndoState(current);
+            redoStates.clear();
+        }
+        current = new Snapshot(items, sources, cost);
+    }
+
+    /**
+     * Moves back to the previous state.
+     * @return the state to restore
+     */
+    Snapshot undo() {
+        final Snapshot previous = undoStates.pollLast();
+        if (previous == null)
+            throw new IllegalStateException("Invalid state for mission undoing.");
+
+        undoCost -= previous.cost;
+        redoStates.addLast(current);
+        current = previous;
+        return previous;
+    }
+
+    /**
+     * Moves forward to the state which was undone last.
+     * @return the state to restore
+     */
+    Snapshot redo() {
+        final Snapshot next = redoStates.pollLast();
+        if (next == null)
+            throw new IllegalStateException("Invalid state for mission redoing.");
+
+        pushUndoState(current);
+        current = next;
+        return next;
+    }
+
+    /**
+     * Makes the given live items the sources of the current state, once it was restored from the history.
+     */
+    void onRestored(List<MissionItemProxy> missionItems) {
+        final MissionItem[] sources = new MissionItem[missionItems.size()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = missionItems.get(i).getMissionItem();
+        }
+        current = new Snapshot(current.items, sources, current.cost);
+    }
+
+    private void pushUndoState(Snapshot state) {
+        undoStates.addLast(state);
+        undoCost += state.cost;
+
+        // Always keep the last state, so the last edit can be undone.
+        while (undoCost > memoryBudget && undoStates.size() > 1) {
+            undoCost -= undoStates.pollFirst().cost;
+        }
+    }
+
+    private static long estimateCost(MissionItem item) {
+        long cost = ITEM_COST;
+        if (item instanceof Survey) {
+            final Survey survey = (Survey) item;
+            cost += getPointsCost(survey.getPolygonPoints());
+            cost += getPointsCost(survey.getGridPoints());
+        } else if (item instanceof StructureScanner) {
+            cost += getPointsCost(((StructureScanner) item).getPath());
+        }
+        return cost;
+    }
+
+    private static long getPointsCost(List<? extends LatLong> points) {
+        return points == null ? 0 : (long) points.size() * POINT_COST;
+    }
+}
@@ -0,0 +1,189 @@
+package org.droidplanner.android.proxy.mission;
+
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+
+import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Ordered list of the mission item proxies, indexed by identity.
+ *
+ * The mission item proxies compare by value, and their value changes as they're edited, so the list looks them up
+ * by identity: {@link #indexOf(Object)} and {@link #contains(Object)} run in constant time instead of comparing
+ * every mission item. The positions are updated incrementally: appending items keeps the index current, while
+ * inserting or removing items only invalidates the positions of the following items, which are recomputed on the
+ * next lookup.
+ */
+final class MissionItemList extends AbstractList<MissionItemProxy> implements RandomAccess {
+
+    private final List<MissionItemProxy> items = new ArrayList<>();
+
+    // Position of the items. Only the positions lower than indexedCount are current.
+    private final Map<MissionItemProxy, Integer> positions = new IdentityHashMap<>();
+    private int indexedCount;
+
+    // Proxy of each mission item.
+    private final Map<MissionItem, MissionItemProxy> proxies = new IdentityHashMap<>();
+
+    @Override
+    public MissionItemProxy get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public MissionItemProxy set(int index, MissionItemProxy item) {
+        ensureIndexed(index);
+        final MissionItemProxy previous = items.set(index, item);
+
+        // While items are swapped, an item can briefly be in two positions. It's only unindexed if its indexed
+        // position is the replaced one.
+        if (previous != item && isIndexedAt(previous, index))
+            unindex(previous);
+
+        index(item, index);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, MissionItemProxy item) {
+        items.add(index, item);
+        index(item, index);
+
+        if (index == indexedCount && index == items.size() - 1) {
+            // Appending items keeps the index current.
+            indexedCount++;
+        } else {
+            indexedCount = Math.min(indexedCount, index);
+        }
+        modCount++;
+    }
+
+    @Override
+    public MissionItemProxy remove(int index) {
+        ensureIndexed(index);
+        final MissionItemProxy removed = items.remove(index);
+        if (isIndexedAt(removed, index))
+            unindex(removed);
+
+        indexedCount = Math.min(indexedCount, index);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        if (collection.isEmpty())
+            return false;
+
+        final Set<Object> removedItems = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        removedItems.addAll(collection);
+
+        int firstRemoved = -1;
+        int kept = 0;
+        final int count = items.size();
+        for (int i = 0; i < count; i++) {
+            final MissionItemProxy item = items.get(i);
+            if (removedItems.contains(item)) {
+                unindex(item);
+                if (firstRemoved == -1)
+                    firstRemoved = i;
+            } else {
+                items.set(kept++, item);
+            }
+        }
+
+        if (firstRemoved == -1)
+            return false;
+
+        items.subList(kept, count).clear();
+        indexedCount = Math.min(indexedCount, firstRemoved);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        items.clear();
+        positions.clear();
+        proxies.clear();
+        indexedCount = 0;
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        if (!(object instanceof MissionItemProxy))
+            return -1;
+
+        // All the items have a position, which may be out of date.
+        final Integer position = positions.get(object);
+        if (position == null)
+            return -1;
+
+        if (position < indexedCount)
+            return position;
+
+        reindex();
+        return positions.get(object);
+    }
+
+    @Override
+    public int lastIndexOf(Object object) {
+        return indexOf(object);
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof MissionItemProxy && positions.containsKey(object);
+    }
+
+    /**
+     * @return the proxy of the given mission item, or null if it's not part of the list.
+     */
+    MissionItemProxy getProxy(MissionItem missionItem) {
+        return proxies.get(missionItem);
+    }
+
+    private void index(MissionItemProxy item, int position) {
+        positions.put(item, position);
+        proxies.put(item.getMissionItem(), item);
+    }
+
+    private boolean isIndexedAt(MissionItemProxy item, int position) {
+        final Integer itemPosition = positions.get(item);
+        return itemPosition != null && itemPosition == position;
+    }
+
+    private void unindex(MissionItemProxy item) {
+        positions.remove(item);
+        if (proxies.get(item.getMissionItem()) == item)
+            proxies.remove(item.getMissionItem());
+    }
+
+    private void ensureIndexed(int position) {
+        if (position >= indexedCount)
+            reindex();
+    }
+
+    private void reindex() {
+        final int count = items.size();
+        for (int i = indexedCount; i < count; i++) {
+            positions.put(items.get(i), i);
+        }
+        indexedCount = count;
+    }
+}
@@ -0,0 +1,237 @@
+package org.droidplanner.android.proxy.mission;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+import com.o3dr.services.android.lib.drone.mission.item.complex.StructureScanner;
+import com.o3dr.services.android.lib.drone.mission.item.complex.Survey;
+import com.o3dr.services.android.lib.drone.mission.item.spatial.Circle;
+import com.o3dr.services.android.lib.util.MathUtils;
+
+import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the path generated by each mission item, along with its length.
+ *
+ * An entry is keyed on the item's geometry (its coordinate and shape parameters, or the generated grid for the
+ * complex items), and for the items whose path depends on it, on the endpoint of the previous item. An edit
+ * therefore only regenerates the path of the edited item, and of the next one if it's a circle.
+ */
+class MissionPathCache {
+
+    private static class Entry {
+        // Geometry of the item when its path was generated.
+        double latitude;
+        double longitude;
+        double radius;
+        int turns;
+        Object generatedPath;
+        int generatedPathSize;
+
+        boolean hasPreviousPoint;
+        double previousLatitude;
+        double previousLongitude;
+
+        List<LatLong> path;
+        double pathLength;
+    }
+
+    private static class SplineSegment {
+        final List<LatLong> controlPoints;
+        final List<LatLong> path;
+
+        SplineSegment(List<LatLong> controlPoints, List<LatLong> path) {
+            this.controlPoints = controlPoints;
+            this.path = path;
+        }
+    }
+
+    private final Map<MissionItemProxy, Entry> entries = new IdentityHashMap<>();
+
+    // Spline segments generated by the last path computation, in path order.
+    private List<SplineSegment> splineSegments = new ArrayList<>();
+    private List<SplineSegment> nextSplineSegments = new ArrayList<>();
+
+    /**
+     * Drops the entries of the items which are no longer part of the mission.
+     */
+    void onMissionChange(MissionChangeSet changes, List<MissionItemProxy> missionItems) {
+        if (changes.isFullUpdate()) {
+            final Set<MissionItemProxy> currentItems = Collections.newSetFromMap(
+                    new IdentityHashMap<MissionItemProxy, Boolean>(missionItems.size()));
+            currentItems.addAll(missionItems);
+            entries.keySet().retainAll(currentItems);
+        } else {
+            for (MissionItemProxy removedItem : changes.getRemovedItems()) {
+                entries.remove(removedItem);
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        splineSegments.clear();
+    }
+
+    /**
+     * @return the (read-only) path generated by the given item.
+     * @see MissionItemProxy#getPath(LatLong)
+     */
+    List<LatLong> getPath(MissionItemProxy itemProxy, LatLong previousPoint) {
+        return getEntry(itemProxy, previousPoint).path;
+    }
+
+    /**
+     * @return the length, in meters, of the path generated by the given item.
+     */
+    double getPathLength(MissionItemProxy itemProxy, LatLong previousPoint) {
+        return getEntry(itemProxy, previousPoint).pathLength;
+    }
+
+    /**
+     * Returns the spline path through the given control points, reusing the one generated by the previous path
+     * computation for the same segment if its control points didn't change.
+     *
+     * The segments must be requested in path order, between {@link #startSplineSegments()} and
+     * {@link #endSplineSegments()}.
+     */
+    List<LatLong> getSplinePath(List<LatLong> controlPoints) {
+        final int segmentIndex = nextSplineSegments.size();
+        SplineSegment segment = segmentIndex < splineSegments.size() ? splineSegments.get(segmentIndex) : null;
+        if (segment == null || !isSamePath(segment.controlPoints, controlPoints)) {
+            // The control points are copied, as the item coordinates can be updated in place.
+            final List<LatLong> savedControlPoints = new ArrayList<>(controlPoints.size());
+            for (LatLong controlPoint : controlPoints) {
+                savedControlPoints.add(new LatLong(controlPoint.getLatitude(), controlPoint.getLongitude()));
+            }
+            segment = new SplineSegment(savedControlPoints,
+                    Collections.unmodifiableList(MathUtils.SplinePath.process(controlPoints)));
+        }
+        nextSplineSegments.add(segment);
+        return segment.path;
+    }
+
+    void startSplineSegments() {
+        nextSplineSegments.clear();
+    }
+
+    void endSplineSegments() {
+        final List<SplineSegment> previousSegments = splineSegments;
+        splineSegments = nextSplineSegments;
+        nextSplineSegments = previousSegments;
+        nextSplineSegments.clear();
+    }
+
+    private Entry getEntry(MissionItemProxy itemProxy, LatLong previousPoint) {
+        final MissionItem item = itemProxy.getMissionItem();
+        Entry entry = entries.get(itemProxy);
+        if (entry != null && isValid(entry, item, previousPoint))
+            return entry;
+
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(itemProxy, entry);
+        }
+
+        saveGeometry(entry, item, previousPoint);
+        entry.path = Collections.unmodifiableList(itemProxy.getPath(previousPoint));
+        entry.pathLength = getLength(entry.path);
+        return entry;
+    }
+
+    private static boolean isValid(Entry entry, MissionItem item, LatLong previousPoint) {
+        if (item instanceof Survey) {
+            final List<LatLong> gridPoints = ((Survey) item).getGridPoints();
+            return entry.generatedPath == gridPoints
+                    && entry.generatedPathSize == (gridPoints == null ? 0 : gridPoints.size());
+        }
+
+        if (item instanceof StructureScanner) {
+            final List<LatLong> scannerPath = ((StructureScanner) item).getPath();
+            return entry.generatedPath == scannerPath
+                    && entry.generatedPathSize == (scannerPath == null ? 0 : scannerPath.size());
+        }
+
+        if (item instanceof MissionItem.SpatialItem) {
+            final LatLong coordinate = ((MissionItem.SpatialItem) item).getCoordinate();
+            if (coordinate.getLatitude() != entry.latitude || coordinate.getLongitude() != entry.longitude)
+                return false;
+
+            if (item instanceof Circle) {
+                final Circle circle = (Circle) item;
+                return circle.getRadius() == entry.radius && circle.getTurns() == entry.turns
+                        && isSamePreviousPoint(entry, previousPoint);
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isSamePreviousPoint(Entry entry, LatLong previousPoint) {
+        if (previousPoint == null)
+            return !entry.hasPreviousPoint;
+
+        return entry.hasPreviousPoint && previousPoint.getLatitude() == entry.previousLatitude
+                && previousPoint.getLongitude() == entry.previousLongitude;
+    }
+
+    private static void saveGeometry(Entry entry, MissionItem item, LatLong previousPoint) {
+        entry.generatedPath = null;
+        entry.generatedPathSize = 0;
+        entry.hasPreviousPoint = false;
+
+        if (item instanceof Survey) {
+            final List<LatLong> gridPoints = ((Survey) item).getGridPoints();
+            entry.generatedPath = gridPoints;
+            entry.generatedPathSize = gridPoints == null ? 0 : gridPoints.size();
+        } else if (item instanceof StructureScanner) {
+            final List<LatLong> scannerPath = ((StructureScanner) item).getPath();
+            entry.generatedPath = scannerPath;
+            entry.generatedPathSize = scannerPath == null ? 0 : scannerPath.size();
+        } else if (item instanceof MissionItem.SpatialItem) {
+            final LatLong coordinate = ((MissionItem.SpatialItem) item).getCoordinate();
+            entry.latitude = coordinate.getLatitude();
+            entry.longitude = coordinate.getLongitude();
+
+            if (item instanceof Circle) {
+                final Circle circle = (Circle) item;
+                entry.radius = circle.getRadius();
+                entry.turns = circle.getTurns();
+                if (previousPoint != null) {
+                    entry.hasPreviousPoint = true;
+                    entry.previousLatitude = previousPoint.getLatitude();
+                    entry.previousLongitude = previousPoint.getLongitude();
+                }
+            }
+        }
+    }
+
+    private static boolean isSamePath(List<LatLong> first, List<LatLong> second) {
+        final int size = first.size();
+        if (size != second.size())
+            return false;
+
+        for (int i = 0; i < size; i++) {
+            final LatLong firstPoint = first.get(i);
+            final LatLong secondPoint = second.get(i);
+            if (firstPoint.getLatitude() != secondPoint.getLatitude()
+                    || firstPoint.getLongitude() != secondPoint.getLongitude())
+                return false;
+        }
+        return true;
+    }
+
+    private static double getLength(List<LatLong> path) {
+        double length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            length += MathUtils.getDistance2D(path.get(i - 1), path.get(i));
+        }
+        return length;
+    }
+}
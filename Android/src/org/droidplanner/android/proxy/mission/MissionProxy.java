@@ -6,7 +6,6 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.net.Uri;
 import android.support.v4.content.LocalBroadcastManager;
-import android.support.v4.util.CircularArray;
 import android.util.Pair;
 import android.widget.Toast;
 
@@ -54,9 +53,15 @@ import java.util.List;
  */
 public class MissionProxy implements DPMap.PathSource {
 
-    public static final String ACTION_MISSION_PROXY_UPDATE = Utils.PACKAGE_NAME + ".ACTION_MISSION_PROXY_UPDATE";
+    /**
+     * Classes interested in the detailed changes applied to the mission should implement this interface.
+     * The listeners are notified before the {@link #ACTION_MISSION_PROXY_UPDATE} broadcast is sent.
+     */
+    public interface OnMissionChangeListener {
+        void onMissionChange(MissionChangeSet changes);
+    }
 
-    private static final int UNDO_BUFFER_SIZE = 30;
+    public static final String ACTION_MISSION_PROXY_UPDATE = Utils.PACKAGE_NAME + ".ACTION_MISSION_PROXY_UPDATE";
 
     private static final IntentFilter eventFilter = new IntentFilter();
 
@@ -84,14 +89,22 @@ public class MissionProxy implements DPMap.PathSource {
     private final Drone.OnMissionItemsBuiltCallback missionItemsBuiltListener = new Drone.OnMissionItemsBuiltCallback() {
         @Override
         public void onMissionItemsBuilt(MissionItem.ComplexItem[] complexItems) {
-            notifyMissionUpdate(false);
+            final MissionChangeSet changes = MissionChangeSet.newChangeSet();
+            for (MissionItem.ComplexItem complexItem : complexItems) {
+                final MissionItemProxy itemProxy = missionItemProxies.getProxy((MissionItem) complexItem);
+                if (itemProxy != null)
+                    changes.addModifiedItem(itemProxy);
+            }
+            notifyMissionUpdate(false, changes);
         }
     };
 
+    private final List<OnMissionChangeListener> missionChangeListeners = new ArrayList<>();
+
     /**
      * Stores all the mission item renders for this mission render.
      */
-    private final List<MissionItemProxy> missionItemProxies = new ArrayList<MissionItemProxy>();
+    private final MissionItemList missionItemProxies = new MissionItemList();
 
     private final LocalBroadcastManager lbm;
     private final DroidPlannerPrefs dpPrefs;
@@ -99,48 +112,138 @@ public class MissionProxy implements DPMap.PathSource {
     private final DroidPlannerApp dpApp;
     private final Drone drone;
 
-    private final CircularArray<Mission> undoBuffer = new CircularArray<>(UNDO_BUFFER_SIZE);
+    private final MissionHistory history = new MissionHistory();
+
+    private final MissionPathCache pathCache = new MissionPathCache();
+    private final MissionSpatialIndex spatialIndex = new MissionSpatialIndex();
+
+    // Incremented on every mission update, to invalidate the mission wide computations.
+    private int missionVersion;
+
+    private List<LatLong> pathPoints;
+    private int pathPointsVersion = -1;
+
+    private Pair<Double, Double> flightTime;
+    private int flightTimeVersion = -1;
+    private double flightTimeSpeed;
 
-    private Mission currentMission;
     public MissionSelection selection = new MissionSelection();
 
     public MissionProxy(DroidPlannerApp app, Drone drone) {
         this.dpApp = app;
         this.context = app.getApplicationContext();
         this.drone = drone;
-        this.currentMission = generateMission(true);
+        history.record(missionItemProxies, MissionChangeSet.newFullUpdate(), false);
         lbm = LocalBroadcastManager.getInstance(context);
         lbm.registerReceiver(eventReceiver, eventFilter);
 
         dpPrefs = DroidPlannerPrefs.getInstance(context);
     }
 
+    public void addMissionChangeListener(OnMissionChangeListener listener) {
+        if (listener != null && !missionChangeListeners.contains(listener))
+            missionChangeListeners.add(listener);
+    }
+
+    public void removeMissionChangeListener(OnMissionChangeListener listener) {
+        missionChangeListeners.remove(listener);
+    }
+
     public void notifyMissionUpdate() {
         notifyMissionUpdate(true);
     }
 
+    /**
+     * Notifies that the given mission item was updated in place.
+     */
+    public void notifyMissionItemUpdate(MissionItemProxy item, boolean saveMission) {
+        notifyMissionUpdate(saveMission, MissionChangeSet.newChangeSet().addModifiedItem(item));
+    }
+
+    /**
+     * Notifies that the given mission items were updated by a local preview. The preview is transient, so it's
+     * neither recorded in the history nor saved until the items are built by the service.
+     */
+    public void notifyMissionItemsPreview(List<? extends MissionItem> items) {
+        final MissionChangeSet changes = MissionChangeSet.newChangeSet();
+        for (MissionItem item : items) {
+            final MissionItemProxy itemProxy = missionItemProxies.getProxy(item);
+            if (itemProxy != null)
+                changes.addModifiedItem(itemProxy);
+        }
+
+        if (!changes.isEmpty())
+            dispatchMissionUpdate(changes);
+    }
+
     public boolean canUndoMission() {
-        return !undoBuffer.isEmpty();
+        return history.canUndo();
     }
 
     public void undoMission() {
-        if (!canUndoMission())
-            throw new IllegalStateException("Invalid state for mission undoing.");
+        restore(history.undo());
+    }
 
-        Mission previousMission = undoBuffer.popLast();
-        load(previousMission, false);
+    public boolean canRedoMission() {
+        return history.canRedo();
     }
 
-    public void notifyMissionUpdate(boolean saveMission) {
-        if (saveMission && currentMission != null) {
-            //Store the current state of the mission.
-            undoBuffer.addLast(currentMission);
+    public void redoMission() {
+        restore(history.redo());
+    }
+
+    /**
+     * Replaces the mission items with copies of the items in the given state of the history.
+     */
+    private void restore(MissionHistory.Snapshot state) {
+        selection.mSelectedItems.clear();
+        missionItemProxies.clear();
+
+        for (MissionItem item : state.copyItems()) {
+            missionItemProxies.add(new MissionItemProxy(this, item));
         }
+        history.onRestored(missionItemProxies);
+
+        selection.notifySelectionUpdate();
+        dispatchMissionUpdate(MissionChangeSet.newFullUpdate());
+    }
+
+    public void notifyMissionUpdate(boolean saveMission) {
+        notifyMissionUpdate(saveMission, MissionChangeSet.newFullUpdate());
+    }
+
+    private void notifyMissionUpdate(boolean saveMission, MissionChangeSet changes) {
+        //Store the current state of the mission.
+        history.record(missionItemProxies, changes, saveMission);
+        dispatchMissionUpdate(changes);
+    }
+
+    private void dispatchMissionUpdate(MissionChangeSet changes) {
+        missionVersion++;
+        pathCache.onMissionChange(changes, missionItemProxies);
+        spatialIndex.onMissionChange(changes, missionItemProxies);
 
-        currentMission = generateMission(true);
+        for (OnMissionChangeListener listener : missionChangeListeners) {
+            listener.onMissionChange(changes);
+        }
         lbm.sendBroadcast(new Intent(ACTION_MISSION_PROXY_UPDATE));
     }
 
+    /**
+     * @return the mission item owning the path segment under the given point, within the given distance in
+     * meters, or null.
+     */
+    public MissionItemProxy getItemOnPath(LatLong point, double tolerance) {
+        return spatialIndex.getItemOnPath(missionItemProxies, pathCache, point, tolerance);
+    }
+
+    /**
+     * @return the mission items enclosed in the given polygon, in mission order.
+     */
+    public List<MissionItemProxy> getItemsInPolygon(List<LatLong> polygon) {
+        return spatialIndex.getItemsInPolygon(missionItemProxies, pathCache, polygon);
+    }
+
     public List<MissionItemProxy> getItems() {
         return missionItemProxies;
     }
@@ -162,18 +265,12 @@ public class MissionProxy implements DPMap.PathSource {
      * object.
      */
     private void load(Mission mission) {
-        load(mission, true);
-    }
-
-    private void load(Mission mission, boolean isNew) {
         if (mission == null)
             return;
 
-        if(!mission.equals(currentMission)) {
-            if (isNew) {
-                currentMission = null;
-                clearUndoBuffer();
-            }
+        final MissionHistory.Snapshot currentState = history.getCurrent();
+        if (currentState == null || !currentState.matches(mission)) {
+            history.clear();
 
             selection.mSelectedItems.clear();
             missionItemProxies.clear();
@@ -184,15 +281,10 @@ public class MissionProxy implements DPMap.PathSource {
 
             selection.notifySelectionUpdate();
 
-            notifyMissionUpdate(isNew);
+            notifyMissionUpdate(true);
         }
     }
 
-    private void clearUndoBuffer(){
-        while(!undoBuffer.isEmpty())
-            undoBuffer.popLast();
-    }
-
     /**
      * Checks if this mission render contains the passed argument.
      *
@@ -209,11 +301,15 @@ public class MissionProxy implements DPMap.PathSource {
      * @param item item to remove
      */
     public void removeItem(MissionItemProxy item) {
-        missionItemProxies.remove(item);
+        final int index = missionItemProxies.indexOf(item);
+        if (index == -1)
+            return;
+
+        missionItemProxies.remove(index);
         selection.mSelectedItems.remove(item);
 
         selection.notifySelectionUpdate();
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, MissionChangeSet.newChangeSet().addRemovedItem(item).setMovedFrom(index));
     }
 
     /**
@@ -285,11 +381,14 @@ public class MissionProxy implements DPMap.PathSource {
     }
 
     public void addMissionItems(List<MissionItem> missionItems) {
+        final MissionChangeSet changes = MissionChangeSet.newChangeSet();
         for (MissionItem missionItem : missionItems) {
-            missionItemProxies.add(new MissionItemProxy(this, missionItem));
+            final MissionItemProxy itemProxy = new MissionItemProxy(this, missionItem);
+            missionItemProxies.add(itemProxy);
+            changes.addInsertedItem(itemProxy);
         }
 
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, changes);
     }
 
     public void addSpatialWaypoint(BaseSpatialItem spatialItem, LatLong point) {
@@ -323,13 +422,15 @@ public class MissionProxy implements DPMap.PathSource {
     }
 
     private void addMissionItem(MissionItem missionItem) {
-        missionItemProxies.add(new MissionItemProxy(this, missionItem));
-        notifyMissionUpdate();
+        final MissionItemProxy itemProxy = new MissionItemProxy(this, missionItem);
+        missionItemProxies.add(itemProxy);
+        notifyMissionUpdate(true, MissionChangeSet.newChangeSet().addInsertedItem(itemProxy));
     }
 
     private void addMissionItem(int index, MissionItem missionItem) {
-        missionItemProxies.add(index, new MissionItemProxy(this, missionItem));
-        notifyMissionUpdate();
+        final MissionItemProxy itemProxy = new MissionItemProxy(this, missionItem);
+        missionItemProxies.add(index, itemProxy);
+        notifyMissionUpdate(true, MissionChangeSet.newChangeSet().addInsertedItem(itemProxy).setMovedFrom(index + 1));
     }
 
     public void addTakeoff() {
@@ -387,10 +488,11 @@ public class MissionProxy implements DPMap.PathSource {
     }
 
     /**
-     * Returns the order for the given argument in the mission set.
+     * Returns the order for the given argument in the mission set. The items are looked up by identity, in
+     * constant time.
      *
      * @param item
-     * @return order of the given argument
+     * @return order of the given argument, or 0 if it's not part of the mission
      */
     public int getOrder(MissionItemProxy item) {
         return missionItemProxies.indexOf(item) + 1;
@@ -400,21 +502,14 @@ public class MissionProxy implements DPMap.PathSource {
      * @return The order of the first waypoint.
      */
     public int getFirstWaypoint(){
-        if(missionItemProxies.isEmpty())
-            return 0;
-
-        return getOrder(missionItemProxies.get(0));
+        return missionItemProxies.isEmpty() ? 0 : 1;
     }
 
     /**
      * @return The order for the last waypoint.
      */
     public int getLastWaypoint(){
-        int lastIndex = missionItemProxies.size() -1;
-        if(lastIndex < 0)
-            return 0;
-
-        return getOrder(missionItemProxies.get(lastIndex));
+        return missionItemProxies.size();
     }
 
     /**
@@ -436,7 +531,7 @@ public class MissionProxy implements DPMap.PathSource {
             selection.addToSelection(newItem);
         }
 
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, MissionChangeSet.newChangeSet().addRemovedItem(oldItem).addInsertedItem(newItem));
     }
 
     public void replaceAll(List<Pair<MissionItemProxy, List<MissionItemProxy>>> oldNewList) {
@@ -451,6 +546,7 @@ public class MissionProxy implements DPMap.PathSource {
 
         List<MissionItemProxy> selectionsToRemove = new ArrayList<>(pairSize);
         List<MissionItemProxy> itemsToSelect = new ArrayList<>(pairSize);
+        MissionChangeSet changes = MissionChangeSet.newChangeSet();
 
         for (int i = 0; i < pairSize; i++) {
             MissionItemProxy oldItem = oldNewList.get(i).first;
@@ -464,6 +560,11 @@ public class MissionProxy implements DPMap.PathSource {
             List<MissionItemProxy> newItems = oldNewList.get(i).second;
             missionItemProxies.addAll(index, newItems);
 
+            changes.addRemovedItem(oldItem).addInsertedItems(newItems);
+            if (newItems.size() != 1) {
+                changes.setMovedFrom(index + newItems.size());
+            }
+
             if (selection.selectionContains(oldItem)) {
                 selectionsToRemove.add(oldItem);
                 itemsToSelect.addAll(newItems);
@@ -474,7 +575,7 @@ public class MissionProxy implements DPMap.PathSource {
         selection.removeItemsFromSelection(selectionsToRemove);
         selection.addToSelection(itemsToSelect);
 
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, changes);
     }
 
     public void swap(int fromIndex, int toIndex) {
@@ -483,13 +584,14 @@ public class MissionProxy implements DPMap.PathSource {
 
         missionItemProxies.set(toIndex, from);
         missionItemProxies.set(fromIndex, to);
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, MissionChangeSet.newChangeSet().addModifiedItem(from).addModifiedItem(to));
     }
 
     public void clear() {
         selection.clearSelection();
+        final MissionChangeSet changes = MissionChangeSet.newChangeSet().addRemovedItems(missionItemProxies);
         missionItemProxies.clear();
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, changes);
     }
 
     public double getAltitudeDiffFromPreviousItem(MissionItemProxy waypointRender) {
@@ -535,10 +637,24 @@ public class MissionProxy implements DPMap.PathSource {
         return 0;
     }
 
+    /**
+     * Returns the mission path. The result is computed once per mission update, and only the paths of the items
+     * whose geometry changed are regenerated.
+     *
+     * @return read-only list of the path points
+     */
     @Override
     public List<LatLong> getPathPoints() {
+        if (pathPointsVersion != missionVersion) {
+            pathPoints = Collections.unmodifiableList(generatePathPoints());
+            pathPointsVersion = missionVersion;
+        }
+        return pathPoints;
+    }
+
+    private List<LatLong> generatePathPoints() {
         if (missionItemProxies.isEmpty()) {
-            return Collections.emptyList();
+            return Collections.<LatLong>emptyList();
         }
 
         // Partition the mission items into spline/non-spline buckets.
@@ -601,6 +717,7 @@ public class MissionProxy implements DPMap.PathSource {
         List<LatLong> pathPoints = new ArrayList<>();
         LatLong lastPoint = null;
 
+        pathCache.startSplineSegments();
         for (Pair<Boolean, List<MissionItemProxy>> bucketEntry : bucketsList) {
 
             List<MissionItemProxy> bucket = bucketEntry.second;
@@ -610,7 +727,7 @@ public class MissionProxy implements DPMap.PathSource {
                 for(int i = 0; i < bucketSize; i++){
                     MissionItemProxy missionItemProxy = bucket.get(i);
                     MissionItemType missionItemType = missionItemProxy.getMissionItem().getType();
-                    List<LatLong> missionItemPath = missionItemProxy.getPath(lastPoint);
+                    List<LatLong> missionItemPath = pathCache.getPath(missionItemProxy, lastPoint);
 
                     switch(missionItemType){
                         case SURVEY:
@@ -633,11 +750,11 @@ public class MissionProxy implements DPMap.PathSource {
                     }
                 }
 
-                pathPoints.addAll(MathUtils.SplinePath.process(splinePoints));
+                pathPoints.addAll(pathCache.getSplinePath(splinePoints));
             }
             else {
                 for (MissionItemProxy missionItemProxy : bucket) {
-                    pathPoints.addAll(missionItemProxy.getPath(lastPoint));
+                    pathPoints.addAll(pathCache.getPath(missionItemProxy, lastPoint));
 
                     if (!pathPoints.isEmpty()) {
                         lastPoint = pathPoints.get(pathPoints.size() - 1);
@@ -645,14 +762,23 @@ public class MissionProxy implements DPMap.PathSource {
                 }
             }
         }
+        pathCache.endSplineSegments();
 
         return pathPoints;
     }
 
     public void removeSelection(MissionSelection missionSelection) {
+        final MissionChangeSet changes = MissionChangeSet.newChangeSet();
+        for (MissionItemProxy item : missionSelection.mSelectedItems) {
+            final int index = missionItemProxies.indexOf(item);
+            if (index != -1) {
+                changes.addRemovedItem(item).setMovedFrom(index);
+            }
+        }
+
         missionItemProxies.removeAll(missionSelection.mSelectedItems);
         missionSelection.clearSelection();
-        notifyMissionUpdate();
+        notifyMissionUpdate(true, changes);
     }
 
     public void move(MissionItemProxy item, LatLong position) {
@@ -667,7 +793,7 @@ public class MissionProxy implements DPMap.PathSource {
                         missionItemsBuiltListener);
             }
 
-            notifyMissionUpdate();
+            notifyMissionItemUpdate(item, true);
         }
     }
 
@@ -678,7 +804,12 @@ public class MissionProxy implements DPMap.PathSource {
     public void movePolygonPoint(Survey survey, int index, LatLong position) {
         survey.getPolygonPoints().get(index).set(position);
         this.drone.buildMissionItemsAsync(new Survey[]{survey}, missionItemsBuiltListener);
-        notifyMissionUpdate();
+
+        final MissionChangeSet changes = MissionChangeSet.newChangeSet();
+        final MissionItemProxy itemProxy = missionItemProxies.getProxy(survey);
+        if (itemProxy != null)
+            changes.addModifiedItem(itemProxy);
+        notifyMissionUpdate(true, changes);
     }
 
     public static List<LatLong> getVisibleCoords(List<MissionItemProxy> mipList) {
@@ -704,17 +835,11 @@ public class MissionProxy implements DPMap.PathSource {
     }
 
     private Mission generateMission() {
-        return generateMission(false);
-    }
-
-    private Mission generateMission(boolean isDeepCopy) {
         Mission mission = new Mission();
 
         if (!missionItemProxies.isEmpty()) {
             for (MissionItemProxy itemProxy : missionItemProxies) {
-                MissionItem sourceItem = itemProxy.getMissionItem();
-                MissionItem destItem = isDeepCopy ? sourceItem.clone() : sourceItem;
-                mission.addMissionItem(destItem);
+                mission.addMissionItem(itemProxy.getMissionItem());
             }
         }
 
@@ -756,12 +881,26 @@ public class MissionProxy implements DPMap.PathSource {
         GAUtils.sendEvent(eventBuilder);
     }
 
+    /**
+     * @return the mission flight distance (in meters) and time (in seconds). The result is computed once per
+     * mission update and vehicle speed, from the cached item paths.
+     */
     public Pair<Double, Double> getMissionFlightTime() {
+        final double vehicleSpeed = dpApp.getVehicleSpeed();
+        if (flightTimeVersion != missionVersion || flightTimeSpeed != vehicleSpeed) {
+            flightTime = computeMissionFlightTime(vehicleSpeed);
+            flightTimeVersion = missionVersion;
+            flightTimeSpeed = vehicleSpeed;
+        }
+        return flightTime;
+    }
+
+    private Pair<Double, Double> computeMissionFlightTime(double vehicleSpeed) {
         if (missionItemProxies.isEmpty()) {
             return Pair.create(0.0, 0.0);
         }
 
-        double currentSpeed = dpApp.getVehicleSpeed();
+        double currentSpeed = vehicleSpeed;
         double accumulatedDistance = 0;
         double accumulatedDelay = 0;
         LatLong lastPoint = null;
@@ -771,15 +910,14 @@ public class MissionProxy implements DPMap.PathSource {
             final MissionItem missionItem = proxy.getMissionItem();
             if (!(missionItem instanceof MissionItem.Command)) {
                 // If the mission item has a spatial component, retrieve that component.
-                List<LatLong> path = proxy.getPath(lastPoint);
+                List<LatLong> path = pathCache.getPath(proxy, lastPoint);
                 if (!path.isEmpty()) {
-                    for (LatLong point : path) {
-                        if (lastPoint != null) {
-                            // Accumulate the distance between the last point and the current point.
-                            accumulatedDistance += MathUtils.getDistance2D(lastPoint, point);
-                        }
-                        lastPoint = point;
+                    // Accumulate the distance from the last point, then along the item path.
+                    if (lastPoint != null) {
+                        accumulatedDistance += MathUtils.getDistance2D(lastPoint, path.get(0));
                     }
+                    accumulatedDistance += pathCache.getPathLength(proxy, lastPoint);
+                    lastPoint = path.get(path.size() - 1);
                 }
                 if (missionItem instanceof  Waypoint){
                     accumulatedDelay += ((Waypoint) missionItem).getDelay();
@@ -108,7 +108,12 @@ public class MissionSelection {
 	 * @return true if selected
 	 */
 	public boolean selectionContains(MissionItemProxy item) {
-		return mSelectedItems.contains(item);
+		// The items are compared by identity, rather than by their mission item value.
+		for (int i = 0, count = mSelectedItems.size(); i < count; i++) {
+			if (mSelectedItems.get(i) == item)
+				return true;
+		}
+		return false;
 	}
 
 	/**
@@ -0,0 +1,461 @@
+package org.droidplanner.android.proxy.mission;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+import com.o3dr.services.android.lib.drone.mission.item.complex.Survey;
+
+import org.droidplanner.android.proxy.mission.item.MissionItemProxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grid index over the mission geometry, for the map hit-testing and region queries.
+ *
+ * Each item contributes its coordinate, its survey polygon vertices and edges, the segments of its path, and the
+ * leg flown from the previous item. The geometry is projected on a local plane and bucketed in fixed size cells,
+ * so a query only looks at the cells around the queried area instead of walking the whole mission.
+ *
+ * Like {@link MissionPathCache}, the index is updated from the mission change sets: only the changed items, and
+ * the items whose leg starts from them, are reindexed, lazily on the next query.
+ */
+class MissionSpatialIndex {
+
+    private static final double EARTH_RADIUS = 6378137.0; // meters
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180.0;
+
+    private static final double CELL_SIZE = 100; // meters
+
+    // Segments are bucketed by sampling, every half cell. Queries look one half cell further to make up for it.
+    private static final double SEGMENT_SAMPLING = CELL_SIZE / 2;
+
+    private static final int POINT = 0;
+    private static final int VERTEX = 1;
+    private static final int SEGMENT = 2;
+
+    private static class Entry {
+        final MissionItemProxy item;
+        final int type;
+        final double x1;
+        final double y1;
+        final double x2;
+        final double y2;
+
+        Entry(MissionItemProxy item, int type, double x1, double y1, double x2, double y2) {
+            this.item = item;
+            this.type = type;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        /**
+         * @return the distance from the given point to this segment.
+         */
+        double distanceTo(double x, double y) {
+            final double dx = x2 - x1;
+            final double dy = y2 - y1;
+            final double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+            return Math.hypot(x - (x1 + t * dx), y - (y1 + t * dy));
+        }
+    }
+
+    private static class ItemEntries {
+        final List<Entry> entries = new ArrayList<>();
+        final Set<Long> cells = new LinkedHashSet<>();
+
+        // Item the leg was flown from, if any.
+        MissionItemProxy previousItem;
+
+        // End of the item's path, where the next leg starts from.
+        LatLong pathEnd;
+
+        int verticesCount;
+    }
+
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final Map<MissionItemProxy, ItemEntries> itemEntries = new IdentityHashMap<>();
+
+    // Item whose leg starts from the key item.
+    private final Map<MissionItemProxy, MissionItemProxy> nextItems = new IdentityHashMap<>();
+
+    private final Set<MissionItemProxy> dirtyItems = Collections.newSetFromMap(
+            new IdentityHashMap<MissionItemProxy, Boolean>());
+    private boolean isFullRebuildNeeded = true;
+
+    // Latitude the local plane is scaled for, set on rebuild.
+    private double longitudeScale = 1;
+
+    void onMissionChange(MissionChangeSet changes, List<MissionItemProxy> missionItems) {
+        if (isFullRebuildNeeded)
+            return;
+
+        if (changes.isFullUpdate()) {
+            isFullRebuildNeeded = true;
+            return;
+        }
+
+        for (MissionItemProxy removedItem : changes.getRemovedItems()) {
+            markDirty(nextItems.get(removedItem));
+            unindex(removedItem);
+        }
+
+        final List<MissionItemProxy> insertedItems = changes.getInsertedItems();
+        final List<MissionItemProxy> modifiedItems = changes.getModifiedItems();
+        if (!insertedItems.isEmpty() || !modifiedItems.isEmpty()) {
+            final Map<MissionItemProxy, Integer> indices = getIndices(missionItems);
+            for (MissionItemProxy insertedItem : insertedItems) {
+                markChanged(insertedItem, missionItems, indices);
+            }
+
+            for (MissionItemProxy modifiedItem : modifiedItems) {
+                markChanged(modifiedItem, missionItems, indices);
+            }
+        }
+
+        final int firstMovedIndex = changes.getFirstMovedIndex();
+        if (firstMovedIndex != MissionChangeSet.NO_MOVED_ITEMS && firstMovedIndex < missionItems.size())
+            markDirty(missionItems.get(firstMovedIndex));
+    }
+
+    void clear() {
+        cells.clear();
+        itemEntries.clear();
+        nextItems.clear();
+        dirtyItems.clear();
+        isFullRebuildNeeded = true;
+    }
+
+    /**
+     * @return the item owning the path segment closest to the given point, within the given distance in meters.
+     * Legs belong to the item they are flown to, and polygon edges to their survey.
+     */
+    MissionItemProxy getItemOnPath(List<MissionItemProxy> missionItems, MissionPathCache pathCache, LatLong point,
+                                   double tolerance) {
+        update(missionItems, pathCache);
+
+        final double x = toX(point);
+        final double y = toY(point);
+
+        MissionItemProxy nearestItem = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (Entry entry : getCandidates(x - tolerance, y - tolerance, x + tolerance, y + tolerance)) {
+            if (entry.type != SEGMENT)
+                continue;
+
+            final double distance = entry.distanceTo(x, y);
+            if (distance <= tolerance && distance < nearestDistance) {
+                nearestItem = entry.item;
+                nearestDistance = distance;
+            }
+        }
+        return nearestItem;
+    }
+
+    /**
+     * @return the items enclosed in the given polygon, in mission order. Spatial items are enclosed when their
+     * coordinate is, and surveys when all their polygon vertices are.
+     */
+    List<MissionItemProxy> getItemsInPolygon(List<MissionItemProxy> missionItems, MissionPathCache pathCache,
+                                             List<LatLong> polygon) {
+        update(missionItems, pathCache);
+        if (polygon.size() < 3)
+            return new ArrayList<>();
+
+        final int vertexCount = polygon.size();
+        final double[] xs = new double[vertexCount];
+        final double[] ys = new double[vertexCount];
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < vertexCount; i++) {
+            xs[i] = toX(polygon.get(i));
+            ys[i] = toY(polygon.get(i));
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        final Map<MissionItemProxy, Integer> enclosedVertices = new IdentityHashMap<>();
+        final Set<MissionItemProxy> enclosedItems = Collections.newSetFromMap(
+                new IdentityHashMap<MissionItemProxy, Boolean>());
+        for (Entry entry : getCandidates(minX, minY, maxX, maxY)) {
+            if (entry.type == SEGMENT || !contains(xs, ys, entry.x1, entry.y1))
+                continue;
+
+            if (entry.type == POINT) {
+                enclosedItems.add(entry.item);
+            } else {
+                final Integer count = enclosedVertices.get(entry.item);
+                final int enclosedCount = count == null ? 1 : count + 1;
+                enclosedVertices.put(entry.item, enclosedCount);
+                if (enclosedCount == itemEntries.get(entry.item).verticesCount)
+                    enclosedItems.add(entry.item);
+            }
+        }
+
+        // Walking the mission once puts them in mission order, without looking up each item's index.
+        final List<MissionItemProxy> orderedItems = new ArrayList<>(enclosedItems.size());
+        for (MissionItemProxy item : missionItems) {
+            if (enclosedItems.contains(item))
+                orderedItems.add(item);
+        }
+        return orderedItems;
+    }
+
+    /**
+     * @return the entries bucketed in the cells overlapping the given local plane bounds.
+     */
+    private Set<Entry> getCandidates(double minX, double minY, double maxX, double maxY) {
+        final long minCellX = toCell(minX - SEGMENT_SAMPLING);
+        final long minCellY = toCell(minY - SEGMENT_SAMPLING);
+        final long maxCellX = toCell(maxX + SEGMENT_SAMPLING);
+        final long maxCellY = toCell(maxY + SEGMENT_SAMPLING);
+
+        final Set<Entry> candidates = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>());
+
+        // When the area spans more cells than there are occupied ones, walking the occupied cells is cheaper.
+        final double cellsCount = (double) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+        if (cellsCount > cells.size()) {
+            for (Map.Entry<Long, List<Entry>> cell : cells.entrySet()) {
+                final long cellX = cell.getKey() >> 32;
+                final long cellY = (int) (long) cell.getKey();
+                if (cellX >= minCellX && cellX <= maxCellX && cellY >= minCellY && cellY <= maxCellY)
+                    candidates.addAll(cell.getValue());
+            }
+            return candidates;
+        }
+
+        for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+                final List<Entry> cellEntries = cells.get(toKey(cellX, cellY));
+                if (cellEntries != null)
+                    candidates.addAll(cellEntries);
+            }
+        }
+        return candidates;
+    }
+
+    private void markChanged(MissionItemProxy item, List<MissionItemProxy> missionItems,
+                             Map<MissionItemProxy, Integer> indices) {
+        markDirty(item);
+        markDirty(nextItems.get(item));
+
+        // The item following it in the mission now flies its leg from it.
+        final Integer index = indices.get(item);
+        if (index != null && index + 1 < missionItems.size())
+            markDirty(missionItems.get(index + 1));
+    }
+
+    private void markDirty(MissionItemProxy item) {
+        if (item != null)
+            dirtyItems.add(item);
+    }
+
+    private void update(List<MissionItemProxy> missionItems, MissionPathCache pathCache) {
+        if (isFullRebuildNeeded) {
+            clear();
+            isFullRebuildNeeded = false;
+
+            final LatLong reference = getReference(missionItems);
+            longitudeScale = reference == null ? 1 : Math.cos(Math.toRadians(reference.getLatitude()));
+
+            for (int i = 0; i < missionItems.size(); i++) {
+                index(missionItems, i, pathCache);
+            }
+            return;
+        }
+
+        if (dirtyItems.isEmpty())
+            return;
+
+        for (MissionItemProxy dirtyItem : dirtyItems) {
+            unindex(dirtyItem);
+        }
+
+        // Reindexed in mission order, as each leg starts from the reindexed end of the previous path.
+        final int itemsCount = missionItems.size();
+        for (int i = 0; i < itemsCount; i++) {
+            if (dirtyItems.contains(missionItems.get(i)))
+                index(missionItems, i, pathCache);
+        }
+        dirtyItems.clear();
+    }
+
+    private static Map<MissionItemProxy, Integer> getIndices(List<MissionItemProxy> missionItems) {
+        final int itemsCount = missionItems.size();
+        final Map<MissionItemProxy, Integer> indices = new IdentityHashMap<>(itemsCount);
+        for (int i = 0; i < itemsCount; i++) {
+            indices.put(missionItems.get(i), i);
+        }
+        return indices;
+    }
+
+    private void index(List<MissionItemProxy> missionItems, int index, MissionPathCache pathCache) {
+        final MissionItemProxy item = missionItems.get(index);
+        final MissionItem missionItem = item.getMissionItem();
+        final ItemEntries entries = new ItemEntries();
+        itemEntries.put(item, entries);
+
+        if (missionItem instanceof MissionItem.SpatialItem) {
+            final LatLong coordinate = ((MissionItem.SpatialItem) missionItem).getCoordinate();
+            if (coordinate != null)
+                addPoint(item, entries, POINT, coordinate);
+        }
+
+        if (missionItem instanceof Survey) {
+            final List<LatLong> polygon = ((Survey) missionItem).getPolygonPoints();
+            if (polygon != null && !polygon.isEmpty()) {
+                entries.verticesCount = polygon.size();
+                for (int i = 0; i < polygon.size(); i++) {
+                    addPoint(item, entries, VERTEX, polygon.get(i));
+                    addSegment(item, entries, polygon.get(i), polygon.get((i + 1) % polygon.size()));
+                }
+            }
+        }
+
+        // The leg starts from the end of the path of the last item which has one.
+        LatLong previousPoint = null;
+        for (int i = index - 1; i >= 0 && previousPoint == null; i--) {
+            final MissionItemProxy previousItem = missionItems.get(i);
+            final ItemEntries previousEntries = itemEntries.get(previousItem);
+            if (previousEntries != null && previousEntries.pathEnd != null) {
+                previousPoint = previousEntries.pathEnd;
+                entries.previousItem = previousItem;
+                nextItems.put(previousItem, item);
+            }
+        }
+
+        final List<LatLong> path = pathCache.getPath(item, previousPoint);
+        if (!path.isEmpty()) {
+            entries.pathEnd = path.get(path.size() - 1);
+
+            if (previousPoint != null)
+                addSegment(item, entries, previousPoint, path.get(0));
+
+            for (int i = 1; i < path.size(); i++) {
+                addSegment(item, entries, path.get(i - 1), path.get(i));
+            }
+        }
+    }
+
+    private void unindex(MissionItemProxy item) {
+        final ItemEntries entries = itemEntries.remove(item);
+        if (entries == null)
+            return;
+
+        for (Long cellKey : entries.cells) {
+            final List<Entry> cellEntries = cells.get(cellKey);
+            if (cellEntries == null)
+                continue;
+
+            for (int i = cellEntries.size() - 1; i >= 0; i--) {
+                if (cellEntries.get(i).item == item)
+                    cellEntries.remove(i);
+            }
+            if (cellEntries.isEmpty())
+                cells.remove(cellKey);
+        }
+
+        if (entries.previousItem != null && nextItems.get(entries.previousItem) == item)
+            nextItems.remove(entries.previousItem);
+    }
+
+    private void addPoint(MissionItemProxy item, ItemEntries entries, int type, LatLong point) {
+        final double x = toX(point);
+        final double y = toY(point);
+        final Entry entry = new Entry(item, type, x, y, x, y);
+        entries.entries.add(entry);
+        addToCell(entries, entry, toCell(x), toCell(y));
+    }
+
+    private void addSegment(MissionItemProxy item, ItemEntries entries, LatLong start, LatLong end) {
+        final double x1 = toX(start);
+        final double y1 = toY(start);
+        final double x2 = toX(end);
+        final double y2 = toY(end);
+        final Entry entry = new Entry(item, SEGMENT, x1, y1, x2, y2);
+        entries.entries.add(entry);
+
+        final int samplesCount = (int) Math.ceil(Math.hypot(x2 - x1, y2 - y1) / SEGMENT_SAMPLING);
+        long lastCell = 0;
+        for (int i = 0; i <= samplesCount; i++) {
+            final double t = samplesCount == 0 ? 0 : (double) i / samplesCount;
+            final long cellX = toCell(x1 + t * (x2 - x1));
+            final long cellY = toCell(y1 + t * (y2 - y1));
+            final long cell = toKey(cellX, cellY);
+            if (i == 0 || cell != lastCell)
+                addToCell(entries, entry, cellX, cellY);
+            lastCell = cell;
+        }
+    }
+
+    private void addToCell(ItemEntries entries, Entry entry, long cellX, long cellY) {
+        final Long cellKey = toKey(cellX, cellY);
+        List<Entry> cellEntries = cells.get(cellKey);
+        if (cellEntries == null) {
+            cellEntries = new ArrayList<>();
+            cells.put(cellKey, cellEntries);
+        }
+
+        // Consecutive samples of a segment can fall back in a cell it already went through.
+        if (cellEntries.isEmpty() || cellEntries.get(cellEntries.size() - 1) != entry)
+            cellEntries.add(entry);
+        entries.cells.add(cellKey);
+    }
+
+    private static LatLong getReference(List<MissionItemProxy> missionItems) {
+        for (MissionItemProxy item : missionItems) {
+            final MissionItem missionItem = item.getMissionItem();
+            if (missionItem instanceof MissionItem.SpatialItem) {
+                final LatLong coordinate = ((MissionItem.SpatialItem) missionItem).getCoordinate();
+                if (coordinate != null)
+                    return coordinate;
+            }
+
+            if (missionItem instanceof Survey) {
+                final List<LatLong> polygon = ((Survey) missionItem).getPolygonPoints();
+                if (polygon != null && !polygon.isEmpty())
+                    return polygon.get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Even-odd test of the given point against the polygon.
+     */
+    private static boolean contains(double[] xs, double[] ys, double x, double y) {
+        boolean isInside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y) && x < xs[i] + (y - ys[i]) * (xs[j] - xs[i]) / (ys[j] - ys[i]))
+                isInside = !isInside;
+        }
+        return isInside;
+    }
+
+    private double toX(LatLong point) {
+        return point.getLongitude() * longitudeScale * METERS_PER_DEGREE;
+    }
+
+    private double toY(LatLong point) {
+        return point.getLatitude() * METERS_PER_DEGREE;
+    }
+
+    private static long toCell(double value) {
+        return (long) Math.floor(value / CELL_SIZE);
+    }
+
+    private static long toKey(long cellX, long cellY) {
+        return (cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
@@ -40,7 +40,7 @@ public class MissionItemProxy {
         final Drone.OnMissionItemsBuiltCallback missionItemBuiltListener = new Drone.OnMissionItemsBuiltCallback() {
             @Override
             public void onMissionItemsBuilt(MissionItem.ComplexItem[] complexItems) {
-                mMission.notifyMissionUpdate(false);
+                mMission.notifyMissionItemUpdate(MissionItemProxy.this, false);
             }
         };
 
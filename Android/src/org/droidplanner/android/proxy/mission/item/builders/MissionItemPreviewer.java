@@ -0,0 +1,242 @@
+package org.droidplanner.android.proxy.mission.item.builders;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+import com.o3dr.services.android.lib.drone.mission.item.complex.StructureScanner;
+import com.o3dr.services.android.lib.drone.mission.item.complex.Survey;
+import com.o3dr.services.android.lib.drone.mission.item.complex.SurveyDetail;
+
+import org.droidplanner.android.proxy.mission.MissionProxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import timber.log.Timber;
+
+/**
+ * Previews the surveys and structure scans on the map while their parameters are being edited, without waiting
+ * for the round trip to the DroneKit service.
+ *
+ * The items are generated on a background thread, and only the latest request is applied: a new request cancels
+ * the pending one. The preview is transient, the items must still be built by the service once the edit is done.
+ */
+public class MissionItemPreviewer {
+
+    private static final ExecutorService previewExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Mission preview");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final ExecutorService lanesExecutor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Survey lanes " + threadCount.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Generates a preview on the background thread, then applies it to the mission items on the main thread.
+     */
+    private static abstract class PreviewTask {
+        protected final MissionItem item;
+
+        PreviewTask(MissionItem item) {
+            this.item = item;
+        }
+
+        abstract void generate(SurveyGridGenerator.CancellationCheck cancellation) throws InterruptedException;
+
+        abstract void apply();
+    }
+
+    private static class SurveyPreviewTask extends PreviewTask {
+        private final List<LatLong> polygon;
+        private final double angle;
+        private final double laneSpacing;
+        private final double triggerSpacing;
+
+        private SurveyGridGenerator.Grid grid;
+
+        SurveyPreviewTask(Survey survey, SurveyDetail surveyDetail) {
+            super(survey);
+
+            // Snapshot of the parameters, as the survey keeps being edited on the main thread.
+            polygon = copyOf(survey.getPolygonPoints());
+            angle = surveyDetail.getAngle();
+            laneSpacing = surveyDetail.getLateralPictureDistance();
+            triggerSpacing = surveyDetail.getLongitudinalPictureDistance();
+        }
+
+        @Override
+        void generate(SurveyGridGenerator.CancellationCheck cancellation) throws InterruptedException {
+            grid = new SurveyGridGenerator(polygon, angle).generate(laneSpacing, triggerSpacing, lanesExecutor,
+                    cancellation);
+        }
+
+        @Override
+        void apply() {
+            if (grid == null)
+                return;
+
+            final Survey survey = (Survey) item;
+            survey.setGridPoints(grid.gridPoints);
+            survey.setCameraLocations(grid.cameraLocations);
+            survey.setPolygonArea(grid.area);
+        }
+    }
+
+    private static class StructureScanPreviewTask extends PreviewTask {
+        private final LatLong center;
+        private final double radius;
+        private final boolean crossHatch;
+        private final double laneSpacing;
+
+        private List<LatLong> path;
+
+        StructureScanPreviewTask(StructureScanner scanner, SurveyDetail surveyDetail) {
+            super(scanner);
+
+            final LatLong coordinate = scanner.getCoordinate();
+            center = new LatLong(coordinate.getLatitude(), coordinate.getLongitude());
+            radius = scanner.getRadius();
+            crossHatch = scanner.isCrossHatch();
+            laneSpacing = surveyDetail.getLateralPictureDistance();
+        }
+
+        @Override
+        void generate(SurveyGridGenerator.CancellationCheck cancellation) throws InterruptedException {
+            path = StructureScanGenerator.generatePath(center, radius, crossHatch, laneSpacing, lanesExecutor,
+                    cancellation);
+        }
+
+        @Override
+        void apply() {
+            if (path != null)
+                ((StructureScanner) item).setPath(path);
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger requestId = new AtomicInteger();
+
+    private Future<?> pendingPreview;
+
+    /**
+     * Generates the grid of the given surveys, and updates the mission once it's ready.
+     */
+    public void previewSurveys(MissionProxy missionProxy, List<? extends Survey> surveys) {
+        final List<PreviewTask> tasks = new ArrayList<>(surveys.size());
+        for (Survey survey : surveys) {
+            final SurveyDetail surveyDetail = survey.getSurveyDetail();
+            if (surveyDetail == null || surveyDetail.getCameraDetail() == null)
+                continue;
+
+            tasks.add(new SurveyPreviewTask(survey, surveyDetail));
+        }
+
+        submit(missionProxy, tasks);
+    }
+
+    /**
+     * Generates the path of the given structure scans, and updates the mission once it's ready.
+     */
+    public void previewStructureScans(MissionProxy missionProxy, List<StructureScanner> scanners) {
+        final List<PreviewTask> tasks = new ArrayList<>(scanners.size());
+        for (StructureScanner scanner : scanners) {
+            final SurveyDetail surveyDetail = scanner.getSurveyDetail();
+            if (surveyDetail == null || surveyDetail.getCameraDetail() == null)
+                continue;
+
+            tasks.add(new StructureScanPreviewTask(scanner, surveyDetail));
+        }
+
+        submit(missionProxy, tasks);
+    }
+
+    /**
+     * Drops the pending preview, if any. Must be called before the items are built by the service, so a late
+     * preview doesn't override the built items.
+     */
+    public void cancel() {
+        requestId.incrementAndGet();
+        if (pendingPreview != null) {
+            pendingPreview.cancel(false);
+            pendingPreview = null;
+        }
+    }
+
+    private void submit(final MissionProxy missionProxy, final List<PreviewTask> tasks) {
+        cancel();
+        if (missionProxy == null || tasks.isEmpty())
+            return;
+
+        final int currentRequestId = requestId.get();
+        final SurveyGridGenerator.CancellationCheck cancellation = new SurveyGridGenerator.CancellationCheck() {
+            @Override
+            public boolean isCancelled() {
+                return requestId.get() != currentRequestId;
+            }
+        };
+
+        pendingPreview = previewExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (PreviewTask task : tasks) {
+                        task.generate(cancellation);
+                        if (cancellation.isCancelled())
+                            return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    Timber.e(e, "Unable to generate the mission items preview.");
+                    return;
+                }
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (cancellation.isCancelled())
+                            return;
+
+                        pendingPreview = null;
+                        final List<MissionItem> previewedItems = new ArrayList<>(tasks.size());
+                        for (PreviewTask task : tasks) {
+                            task.apply();
+                            previewedItems.add(task.item);
+                        }
+                        missionProxy.notifyMissionItemsPreview(previewedItems);
+                    }
+                });
+            }
+        });
+    }
+
+    private static List<LatLong> copyOf(List<LatLong> points) {
+        final List<LatLong> copy = new ArrayList<>(points.size());
+        for (LatLong point : points) {
+            copy.add(new LatLong(point.getLatitude(), point.getLongitude()));
+        }
+        return copy;
+    }
+}
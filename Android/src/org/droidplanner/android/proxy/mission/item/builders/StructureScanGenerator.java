@@ -0,0 +1,65 @@
+package org.droidplanner.android.proxy.mission.item.builders;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Generates the map path of a structure scan: the orbit around the structure, followed by the cross hatch grid
+ * over the orbit when enabled.
+ */
+public class StructureScanGenerator {
+
+    private static final int ORBIT_STEP = 10; // degrees
+
+    //Private constructor to prevent instantiation.
+    private StructureScanGenerator(){}
+
+    /**
+     * @param center         Center of the structure
+     * @param radius         Orbit radius, in meters
+     * @param crossHatch     True to add the cross hatch grid over the orbit
+     * @param laneSpacing    Distance between the cross hatch lanes, in meters
+     * @param executor       Executor for the parallel clipping of the cross hatch lanes, or null
+     * @param cancellation   Checked while generating the cross hatch grid
+     * @return the scan path, or null if it was cancelled.
+     */
+    public static List<LatLong> generatePath(LatLong center, double radius, boolean crossHatch, double laneSpacing,
+                                             ExecutorService executor,
+                                             SurveyGridGenerator.CancellationCheck cancellation)
+            throws InterruptedException {
+        final List<LatLong> orbit = generateOrbit(center, radius);
+        final List<LatLong> path = new ArrayList<>(orbit);
+        path.add(orbit.get(0));
+
+        if (crossHatch) {
+            // Lanes across the orbit, first north to south then east to west.
+            for (int angle = 0; angle <= 90; angle += 90) {
+                final SurveyGridGenerator.Grid grid = new SurveyGridGenerator(orbit, angle)
+                        .generate(laneSpacing, 0, executor, cancellation);
+                if (cancellation.isCancelled())
+                    return null;
+
+                if (grid != null)
+                    path.addAll(grid.gridPoints);
+            }
+        }
+
+        return path;
+    }
+
+    private static List<LatLong> generateOrbit(LatLong center, double radius) {
+        final double latitudeOffset = radius / SurveyGridGenerator.METERS_PER_DEGREE;
+        final double longitudeOffset = latitudeOffset / Math.cos(Math.toRadians(center.getLatitude()));
+
+        final List<LatLong> orbit = new ArrayList<>(360 / ORBIT_STEP);
+        for (int bearing = 0; bearing < 360; bearing += ORBIT_STEP) {
+            final double bearingRadians = Math.toRadians(bearing);
+            orbit.add(new LatLong(center.getLatitude() + latitudeOffset * Math.cos(bearingRadians),
+                    center.getLongitude() + longitudeOffset * Math.sin(bearingRadians)));
+        }
+        return orbit;
+    }
+}
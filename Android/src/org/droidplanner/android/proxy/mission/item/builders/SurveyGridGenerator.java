@@ -0,0 +1,335 @@
+package org.droidplanner.android.proxy.mission.item.builders;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Generates the survey grid covering a polygon: parallel lanes flown back and forth, joined by turnaround legs, and
+ * the camera trigger locations along them.
+ *
+ * The polygon is projected on a local plane around its first vertex, then rotated so the lanes are horizontal.
+ * Each lane is clipped against the polygon edges, so concave polygons yield several segments per lane. Large
+ * polygons clip their lanes in parallel.
+ *
+ * As in the DroneKit service grid builder, the grid starts from the lane end closest to the polygon first vertex,
+ * and each lane segment is sampled for camera triggers from its start, up to and including its end. The lanes can
+ * also overshoot the polygon, so the vehicle is lined up on the lane before the first trigger: the turnaround legs
+ * are then flown outside of the polygon, square to the lanes.
+ */
+public class SurveyGridGenerator {
+
+    /**
+     * Polled between lanes, to abort the generation of a stale grid.
+     */
+    public interface CancellationCheck {
+        boolean isCancelled();
+    }
+
+    /**
+     * Generated survey grid.
+     */
+    public static class Grid {
+        /**
+         * Lane segments ends, in flight order. The legs between the consecutive lanes are the turnarounds.
+         */
+        public final List<LatLong> gridPoints;
+        /**
+         * Camera triggers, in flight order. They are kept on the lane segments, never on the overshoot.
+         */
+        public final List<LatLong> cameraLocations;
+        /**
+         * Polygon area, in square meters.
+         */
+        public final double area;
+
+        Grid(List<LatLong> gridPoints, List<LatLong> cameraLocations, double area) {
+            this.gridPoints = gridPoints;
+            this.cameraLocations = cameraLocations;
+            this.area = area;
+        }
+    }
+
+    private static final double EARTH_RADIUS = 6378137.0; // meters
+    static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180.0;
+
+    // Past this many lanes, the grid is considered degenerate (e.g: spacing too small for the polygon size).
+    private static final int MAX_LANES = 5000;
+
+    // Lanes clipped per parallel task, and minimum lanes x edges count worth splitting the clipping for.
+    private static final int LANES_PER_TASK = 64;
+    private static final long MIN_PARALLEL_WORK = 50000;
+
+    // Local plane coordinates of the polygon vertices, along and across the lanes.
+    private final double[] along;
+    private final double[] across;
+
+    private final double originLatitude;
+    private final double originLongitude;
+    private final double longitudeScale;
+    private final double sinAngle;
+    private final double cosAngle;
+
+    /**
+     * @param polygon Survey polygon vertices
+     * @param angle   Lanes heading, in degrees from north
+     */
+    public SurveyGridGenerator(List<LatLong> polygon, double angle) {
+        final int vertexCount = polygon.size();
+        along = new double[vertexCount];
+        across = new double[vertexCount];
+
+        final LatLong origin = vertexCount == 0 ? new LatLong(0, 0) : polygon.get(0);
+        originLatitude = origin.getLatitude();
+        originLongitude = origin.getLongitude();
+        longitudeScale = Math.cos(Math.toRadians(originLatitude));
+
+        final double angleRadians = Math.toRadians(angle);
+        sinAngle = Math.sin(angleRadians);
+        cosAngle = Math.cos(angleRadians);
+
+        for (int i = 0; i < vertexCount; i++) {
+            final LatLong vertex = polygon.get(i);
+            final double x = (vertex.getLongitude() - originLongitude) * longitudeScale * METERS_PER_DEGREE;
+            final double y = (vertex.getLatitude() - originLatitude) * METERS_PER_DEGREE;
+            along[i] = x * sinAngle + y * cosAngle;
+            across[i] = x * cosAngle - y * sinAngle;
+        }
+    }
+
+    /**
+     * @return the polygon area, in square meters.
+     */
+    public double getArea() {
+        // The rotation preserves the area.
+        double doubleArea = 0;
+        for (int i = 0, j = along.length - 1; i < along.length; j = i++) {
+            doubleArea += along[j] * across[i] - along[i] * across[j];
+        }
+        return Math.abs(doubleArea) / 2.0;
+    }
+
+    /**
+     * Generates the survey grid, without overshoot.
+     * @see #generate(double, double, double, ExecutorService, CancellationCheck)
+     */
+    public Grid generate(double laneSpacing, double triggerSpacing, ExecutorService executor,
+                         CancellationCheck cancellation) throws InterruptedException {
+        return generate(laneSpacing, triggerSpacing, 0, executor, cancellation);
+    }
+
+    /**
+     * Generates the survey grid.
+     *
+     * @param laneSpacing    Distance between the lanes, in meters
+     * @param triggerSpacing Distance between the camera triggers along a lane, in meters
+     * @param overshoot      Distance the lanes are extended by past the polygon, in meters. Without overshoot, the
+     *                       turnaround legs join the lane ends directly.
+     * @param executor       Executor for the parallel clipping of large polygons, or null to clip on the calling thread
+     * @param cancellation   Checked between lanes
+     * @return the grid, or null if it was cancelled or the polygon can't be covered with the given spacing
+     */
+    public Grid generate(double laneSpacing, double triggerSpacing, double overshoot, ExecutorService executor,
+                         CancellationCheck cancellation) throws InterruptedException {
+        final int vertexCount = along.length;
+        if (vertexCount < 3 || laneSpacing <= 0)
+            return null;
+
+        double minAcross = Double.MAX_VALUE;
+        double maxAcross = -Double.MAX_VALUE;
+        for (double value : across) {
+            minAcross = Math.min(minAcross, value);
+            maxAcross = Math.max(maxAcross, value);
+        }
+
+        final int laneCount = Math.max(1, (int) Math.ceil((maxAcross - minAcross) / laneSpacing));
+        if (laneCount > MAX_LANES)
+            return null;
+
+        // Lanes are centered in the polygon width.
+        final double firstLane = (minAcross + maxAcross) / 2.0 - (laneCount - 1) * laneSpacing / 2.0;
+
+        final double[][] laneSegments = new double[laneCount][];
+        if (executor != null && (long) laneCount * vertexCount >= MIN_PARALLEL_WORK) {
+            clipLanesInParallel(firstLane, laneSpacing, laneSegments, executor, cancellation);
+        } else {
+            clipLanes(firstLane, laneSpacing, laneSegments, 0, laneCount, cancellation);
+        }
+
+        if (cancellation.isCancelled())
+            return null;
+
+        // The grid starts from the lane end closest to the origin of the local plane, the polygon first vertex.
+        int firstFlownLane = -1;
+        int lastFlownLane = -1;
+        for (int lane = 0; lane < laneCount; lane++) {
+            if (laneSegments[lane].length == 0)
+                continue;
+            if (firstFlownLane == -1)
+                firstFlownLane = lane;
+            lastFlownLane = lane;
+        }
+        if (firstFlownLane == -1)
+            return new Grid(new ArrayList<LatLong>(), new ArrayList<LatLong>(), getArea());
+
+        final double[] firstSegments = laneSegments[firstFlownLane];
+        final double[] lastSegments = laneSegments[lastFlownLane];
+        final double firstAcross = firstLane + firstFlownLane * laneSpacing;
+        final double lastAcross = firstLane + lastFlownLane * laneSpacing;
+        final double[] startDistances = {
+                Math.hypot(firstSegments[0], firstAcross),
+                Math.hypot(firstSegments[firstSegments.length - 1], firstAcross),
+                Math.hypot(lastSegments[0], lastAcross),
+                Math.hypot(lastSegments[lastSegments.length - 1], lastAcross)
+        };
+        int closestStart = 0;
+        for (int i = 1; i < startDistances.length; i++) {
+            if (startDistances[i] < startDistances[closestStart])
+                closestStart = i;
+        }
+        final boolean isDescending = closestStart >= 2;
+        boolean isReversed = closestStart % 2 == 1;
+
+        // Flown lanes, in flight order, with the along coordinates of their segments ends in flight order.
+        final List<double[]> flownLanes = new ArrayList<>();
+        final List<Double> flownAcross = new ArrayList<>();
+        for (int i = 0; i < laneCount; i++) {
+            final int lane = isDescending ? laneCount - 1 - i : i;
+            final double[] segments = laneSegments[lane];
+            if (segments.length == 0)
+                continue;
+
+            final double[] flownSegments = new double[segments.length];
+            for (int j = 0; j < segments.length; j++) {
+                // Every other lane is flown backward, segments included.
+                flownSegments[j] = isReversed ? segments[segments.length - 1 - j] : segments[j];
+            }
+            flownLanes.add(flownSegments);
+            flownAcross.add(firstLane + lane * laneSpacing);
+            isReversed = !isReversed;
+        }
+
+        final List<LatLong> gridPoints = new ArrayList<>();
+        final List<LatLong> cameraLocations = new ArrayList<>();
+        final int flownCount = flownLanes.size();
+        double previousTurn = Double.NaN;
+        for (int i = 0; i < flownCount; i++) {
+            final double[] segments = flownLanes.get(i);
+            final double laneAcross = flownAcross.get(i);
+            final double direction = Math.signum(segments[segments.length - 1] - segments[0]);
+
+            double laneStart = segments[0];
+            double laneEnd = segments[segments.length - 1];
+            if (overshoot > 0) {
+                laneStart -= direction * overshoot;
+                laneEnd += direction * overshoot;
+
+                // The turnaround leg is square to the lanes, past the end of both the lanes it joins.
+                if (!Double.isNaN(previousTurn))
+                    laneStart = previousTurn;
+                if (i + 1 < flownCount) {
+                    final double[] nextSegments = flownLanes.get(i + 1);
+                    final double nextStart = nextSegments[0] + direction * overshoot;
+                    laneEnd = direction >= 0 ? Math.max(laneEnd, nextStart) : Math.min(laneEnd, nextStart);
+                }
+                previousTurn = laneEnd;
+            }
+
+            final int segmentsCount = segments.length / 2;
+            for (int j = 0; j < segmentsCount; j++) {
+                final double start = segments[j * 2];
+                final double end = segments[j * 2 + 1];
+
+                gridPoints.add(toLatLong(j == 0 ? laneStart : start, laneAcross));
+                gridPoints.add(toLatLong(j == segmentsCount - 1 ? laneEnd : end, laneAcross));
+                addCameraLocations(start, end, laneAcross, triggerSpacing, cameraLocations);
+            }
+        }
+
+        return new Grid(gridPoints, cameraLocations, getArea());
+    }
+
+    private void clipLanesInParallel(final double firstLane, final double laneSpacing, final double[][] laneSegments,
+                                     ExecutorService executor, final CancellationCheck cancellation)
+            throws InterruptedException {
+        final List<Future<Void>> tasks = new ArrayList<>();
+        for (int taskStart = 0; taskStart < laneSegments.length; taskStart += LANES_PER_TASK) {
+            final int start = taskStart;
+            final int end = Math.min(taskStart + LANES_PER_TASK, laneSegments.length);
+            tasks.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    clipLanes(firstLane, laneSpacing, laneSegments, start, end, cancellation);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to clip the survey lanes", e.getCause());
+        } finally {
+            for (Future<Void> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Clips the given lanes against the polygon. Each lane gets the along coordinates of its segments ends, as
+     * sorted pairs.
+     */
+    private void clipLanes(double firstLane, double laneSpacing, double[][] laneSegments, int start, int end,
+                           CancellationCheck cancellation) {
+        final int vertexCount = along.length;
+        final double[] crossings = new double[vertexCount];
+        for (int lane = start; lane < end; lane++) {
+            if (cancellation.isCancelled())
+                return;
+
+            final double laneAcross = firstLane + lane * laneSpacing;
+            int crossingsCount = 0;
+            for (int i = 0, j = vertexCount - 1; i < vertexCount; j = i++) {
+                if ((across[i] <= laneAcross) != (across[j] <= laneAcross)) {
+                    crossings[crossingsCount++] = along[i]
+                            + (laneAcross - across[i]) * (along[j] - along[i]) / (across[j] - across[i]);
+                }
+            }
+
+            Arrays.sort(crossings, 0, crossingsCount);
+            laneSegments[lane] = Arrays.copyOf(crossings, crossingsCount - crossingsCount % 2);
+        }
+    }
+
+    /**
+     * Samples the given lane segment every trigger spacing from its start, and adds its end.
+     */
+    private void addCameraLocations(double start, double end, double laneAcross, double triggerSpacing,
+                                    List<LatLong> cameraLocations) {
+        if (triggerSpacing <= 0)
+            return;
+
+        final double length = Math.abs(end - start);
+        final double direction = Math.signum(end - start);
+        for (double distance = 0; distance < length; distance += triggerSpacing) {
+            cameraLocations.add(toLatLong(start + direction * distance, laneAcross));
+        }
+        cameraLocations.add(toLatLong(end, laneAcross));
+    }
+
+    private LatLong toLatLong(double alongValue, double acrossValue) {
+        final double x = alongValue * sinAngle + acrossValue * cosAngle;
+        final double y = alongValue * cosAngle - acrossValue * sinAngle;
+        return new LatLong(originLatitude + y / METERS_PER_DEGREE,
+                originLongitude + x / (METERS_PER_DEGREE * longitudeScale));
+    }
+}
@@ -19,7 +19,6 @@ import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.coordinate.LatLong;
 import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.mission.MissionItemType;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.drone.mission.item.command.ChangeSpeed;
@@ -444,7 +443,7 @@ public class MissionDetailFragment extends ApiListenerDialogFragment {
         boolean hideDistanceInfo = true;
 
         Drone drone = getDrone();
-        Home home = drone == null ? null : drone.<Home>getAttribute(AttributeType.HOME);
+        Home home = drone == null ? null : getVehicleSnapshot().getHome();
 
         if(home != null && home.isValid() && mSelectedProxies.size() == 1) {
             MissionItemProxy itemProxy = mSelectedProxies.get(0);
@@ -20,6 +20,7 @@ import org.droidplanner.android.R;
 import org.droidplanner.android.R.id;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.proxy.mission.item.adapters.CamerasAdapter;
+import org.droidplanner.android.proxy.mission.item.builders.MissionItemPreviewer;
 import org.droidplanner.android.utils.Utils;
 import org.droidplanner.android.utils.unit.providers.length.LengthUnitProvider;
 import org.droidplanner.android.view.spinnerWheel.CardWheelHorizontalView;
@@ -54,6 +55,8 @@ public class MissionStructureScannerFragment extends MissionDetailFragment imple
 
     private CamerasAdapter cameraAdapter;
 
+    private final MissionItemPreviewer previewer = new MissionItemPreviewer();
+
     @Override
     protected int getResource() {
         return R.layout.fragment_editor_detail_structure_scanner;
@@ -118,7 +121,15 @@ public class MissionStructureScannerFragment extends MissionDetailFragment imple
         checkBoxAdvanced.setChecked(firstItem.isCrossHatch());
     }
 
+    @Override
+    public void onApiDisconnected() {
+        super.onApiDisconnected();
+        previewer.cancel();
+    }
+
     private void submitForBuilding() {
+        previewer.cancel();
+
         final List<StructureScanner> scannerList = getMissionItems();
         if (scannerList.isEmpty()) return;
 
@@ -140,6 +151,20 @@ public class MissionStructureScannerFragment extends MissionDetailFragment imple
 
     @Override
     public void onScrollingUpdate(CardWheelHorizontalView cardWheel, Object oldValue, Object newValue) {
+        // Only the radius changes the path drawn on the map, the other parameters are previewed once built.
+        if (cardWheel.getId() != R.id.radiusPicker)
+            return;
+
+        final List<StructureScanner> scannerList = getMissionItems();
+        if (scannerList.isEmpty())
+            return;
+
+        final double radius = ((LengthUnit) newValue).toBase().getValue();
+        for (StructureScanner item : scannerList) {
+            item.setRadius(radius);
+        }
+
+        previewer.previewStructureScans(getMissionProxy(), scannerList);
     }
 
     @Override
@@ -27,6 +27,7 @@ import org.droidplanner.android.R;
 import org.droidplanner.android.R.id;
 import org.droidplanner.android.proxy.mission.MissionProxy;
 import org.droidplanner.android.proxy.mission.item.adapters.CamerasAdapter;
+import org.droidplanner.android.proxy.mission.item.builders.MissionItemPreviewer;
 import org.droidplanner.android.utils.unit.providers.area.AreaUnitProvider;
 import org.droidplanner.android.utils.unit.providers.length.LengthUnitProvider;
 import org.droidplanner.android.view.spinnerWheel.CardWheelHorizontalView;
@@ -49,7 +50,11 @@ public class MissionSurveyFragment<T extends Survey> extends MissionDetailFragme
         public void onReceive(Context context, Intent intent) {
             final String action = intent.getAction();
             if (MissionProxy.ACTION_MISSION_PROXY_UPDATE.equals(action)) {
-                updateViews();
+                // Leave the wheels alone while they're being scrolled.
+                if (isScrolling)
+                    updateTextViews();
+                else
+                    updateViews();
             }
         }
     };
@@ -88,6 +93,9 @@ public class MissionSurveyFragment<T extends Survey> extends MissionDetailFragme
     private CamerasAdapter cameraAdapter;
     private SpinnerSelfSelect cameraSpinner;
 
+    private final MissionItemPreviewer previewer = new MissionItemPreviewer();
+    private boolean isScrolling;
+
     @Override
     protected int getResource() {
         return R.layout.fragment_editor_detail_survey;
@@ -175,21 +183,55 @@ public class MissionSurveyFragment<T extends Survey> extends MissionDetailFragme
     @Override
     public void onApiDisconnected() {
         super.onApiDisconnected();
+        previewer.cancel();
+        isScrolling = false;
         getBroadcastManager().unregisterReceiver(eventReceiver);
     }
 
     @Override
     public void onScrollingStarted(CardWheelHorizontalView cardWheel, Object startValue) {
-
+        isScrolling = true;
     }
 
     @Override
     public void onScrollingUpdate(CardWheelHorizontalView cardWheel, Object oldValue, Object newValue) {
+        final List<T> surveyList = getMissionItems();
+        if (surveyList.isEmpty())
+            return;
+
+        // Preview the grid locally while the wheel is moving, the service builds it once the scrolling ends.
+        for (final T survey : surveyList) {
+            SurveyDetail surveyDetail = survey.getSurveyDetail();
+            switch (cardWheel.getId()) {
+                case R.id.anglePicker:
+                    surveyDetail.setAngle((Integer) newValue);
+                    break;
+
+                case R.id.altitudePicker:
+                    surveyDetail.setAltitude(((LengthUnit) newValue).toBase().getValue());
+                    break;
 
+                case R.id.overlapPicker:
+                    surveyDetail.setOverlap((Integer) newValue);
+                    break;
+
+                case R.id.sidelapPicker:
+                    surveyDetail.setSidelap((Integer) newValue);
+                    break;
+
+                default:
+                    return;
+            }
+        }
+
+        previewer.previewSurveys(getMissionProxy(), surveyList);
     }
 
     @Override
     public void onScrollingEnded(CardWheelHorizontalView cardWheel, Object startValue, Object endValue) {
+        isScrolling = false;
+        previewer.cancel();
+
         switch (cardWheel.getId()) {
             case R.id.anglePicker:
             case R.id.altitudePicker:
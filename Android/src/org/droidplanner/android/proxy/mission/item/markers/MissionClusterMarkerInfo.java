@@ -0,0 +1,70 @@
+package org.droidplanner.android.proxy.mission.item.markers;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import org.droidplanner.android.R;
+import org.droidplanner.android.maps.MarkerInfo;
+import org.droidplanner.android.maps.MarkerWithText;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Marker standing for a group of mission item markers too close to each other to be told apart at the current
+ * zoom level. It's labeled with the number of markers it stands for.
+ */
+public class MissionClusterMarkerInfo extends MarkerInfo {
+
+	private final LatLong position;
+	private final List<LatLong> markersPositions;
+
+	public MissionClusterMarkerInfo(LatLong position, List<LatLong> markersPositions) {
+		this.position = position;
+		this.markersPositions = markersPositions;
+	}
+
+	/**
+	 * @return the positions of the markers in the cluster.
+	 */
+	public List<LatLong> getMarkersPositions() {
+		return Collections.unmodifiableList(markersPositions);
+	}
+
+	public int getSize() {
+		return markersPositions.size();
+	}
+
+	@Override
+	public float getAnchorU() {
+		return 0.5f;
+	}
+
+	@Override
+	public float getAnchorV() {
+		return 0.5f;
+	}
+
+	@Override
+	public Bitmap getIcon(Resources res) {
+		return MarkerWithText.getMarkerWithTextAndDetail(R.drawable.ic_wp_map, Integer.toString(getSize()), null,
+				res);
+	}
+
+	@Override
+	public LatLong getPosition() {
+		return position;
+	}
+
+	@Override
+	public boolean isDraggable() {
+		return false;
+	}
+
+	@Override
+	public boolean isVisible() {
+		return true;
+	}
+}
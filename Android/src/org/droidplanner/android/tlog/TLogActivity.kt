@@ -10,15 +10,16 @@ import android.view.MenuItem
 import android.view.View
 import android.widget.TextView
 import android.widget.Toast
-import com.o3dr.android.client.utils.data.tlog.TLogParser
 import org.droidplanner.android.R
 import org.droidplanner.android.activities.DrawerNavigationUI
 import org.droidplanner.android.dialogs.OkDialog
 import org.droidplanner.android.dialogs.SupportEditInputDialog
+import org.droidplanner.android.droneshare.data.DatabaseExecutor
 import org.droidplanner.android.droneshare.data.SessionContract
 import org.droidplanner.android.droneshare.data.SessionContract.SessionData
 import org.droidplanner.android.tlog.adapters.TLogDataAdapter
 import org.droidplanner.android.tlog.adapters.TLogViewerAdapter
+import org.droidplanner.android.tlog.index.TLogEventReader
 import org.droidplanner.android.tlog.interfaces.TLogDataProvider
 import org.droidplanner.android.tlog.viewers.TLogViewer
 import timber.log.Timber
@@ -38,7 +39,8 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
     private val handler = Handler()
 
     private val tlogSubscribers = HashSet<TLogViewer>()
-    private val loadedEvents = LinkedList<TLogParser.Event>()
+    private val eventsLoaders = HashMap<TLogViewer, TLogEventsLoader>()
+    private var eventReader: TLogEventReader? = null
 
     private var isLoadingData = false
     private var dataLoader: TLogDataLoader? = null
@@ -71,10 +73,12 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
                 ?.getLong(EXTRA_CURRENT_SESSION_ID, mAppPrefs.vehicleHistorySessionId)
                 ?: mAppPrefs.vehicleHistorySessionId
         if (sessionId != INVALID_SESSION_ID) {
-            currentSessionData = dpApp.sessionDatabase.getSessionData(sessionId)
-            if (currentSessionData != null) {
-                onTLogSelected(currentSessionData!!, true)
-            }
+            dpApp.sessionDatabase.getSessionDataAsync(sessionId, DatabaseExecutor.Callback<SessionData> { sessionData ->
+                // Skipped if another session was selected in the meantime.
+                if (sessionData != null && currentSessionData == null && !isFinishing) {
+                    onTLogSelected(sessionData, true)
+                }
+            })
         }
     }
 
@@ -106,7 +110,7 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
                                     if (TextUtils.isEmpty(input)) {
                                         Toast.makeText(applicationContext, R.string.warning_invalid_session_label_entry, Toast.LENGTH_LONG).show();
                                     } else if (currentSessionData!!.label != input) {
-                                        dpApp.sessionDatabase.renameSession(currentSessionData!!.id, input.toString())
+                                        dpApp.sessionDatabase.renameSessionAsync(currentSessionData!!.id, input.toString())
                                         onTLogRenamed(currentSessionData!!.id, input.toString())
                                     }
                                 }
@@ -126,7 +130,7 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
                             object : OkDialog.Listener {
                                 override fun onOk() {
                                     // Remove the session data entry from the database.
-                                    dpApp.sessionDatabase.removeSessionData(currentSessionData!!.id)
+                                    dpApp.sessionDatabase.removeSessionDataAsync(currentSessionData!!.id)
                                     onTLogDeleted(currentSessionData!!.id)
                                 }
 
@@ -173,10 +177,10 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
             dataLoader?.cancel(true)
 
             loadingProgress?.visibility = View.GONE
-            loadedEvents.clear()
             isLoadingData = false
 
             notifyTLogDataDeleted()
+            closeEventReader()
         }
     }
 
@@ -196,13 +200,26 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
 
         // Show a loading progress bar
         loadingProgress?.visibility = View.VISIBLE
-        loadedEvents.clear()
 
-        dataLoader = TLogDataLoader(this, handler)
-        dataLoader?.execute(tlogSession.tlogLoggingUri)
+        startDataLoader(tlogSession)
 
         isLoadingData = true
         notifyTLogSelected(tlogSession)
+        closeEventReader()
+    }
+
+    private fun startDataLoader(tlogSession: SessionContract.SessionData) {
+        dataLoader = TLogDataLoader(this)
+        dataLoader?.execute(tlogSession.tlogLoggingUri)
+    }
+
+    override fun onStart() {
+        super.onStart()
+
+        // Resume the tlog index loading if it was interrupted when the activity was stopped.
+        if (isLoadingData && dataLoader == null && currentSessionData != null) {
+            startDataLoader(currentSessionData!!)
+        }
     }
 
     override fun onStop() {
@@ -211,13 +228,27 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
         dataLoader = null
     }
 
+    override fun onDestroy() {
+        super.onDestroy()
+        closeEventReader()
+    }
+
     override fun registerForTLogDataUpdate(subscriber: TLogViewer) {
-        subscriber.onTLogDataLoaded(loadedEvents, isLoadingData)
+        val currentReader = eventReader
+        if (currentReader != null) {
+            subscriber.onTLogIndexLoaded(currentReader)
+            startEventsLoader(subscriber, currentReader)
+        } else if (isLoadingData && currentSessionData != null) {
+            subscriber.onTLogSelected(currentSessionData!!)
+        } else {
+            subscriber.onClearTLogData()
+        }
         tlogSubscribers.add(subscriber)
     }
 
     override fun unregisterForTLogDataUpdate(subscriber: TLogViewer) {
         tlogSubscribers.remove(subscriber)
+        eventsLoaders.remove(subscriber)?.cancel(false)
     }
 
     private fun notifyTLogSelected(tlogSession: SessionContract.SessionData) {
@@ -232,23 +263,51 @@ class TLogActivity : DrawerNavigationUI(), TLogDataAdapter.Listener, TLogDataPro
         }
     }
 
-    private fun notifyTLogSubscribers(loadedEvents: List<TLogParser.Event>, hasMore: Boolean) {
+    private fun notifyTLogIndexLoaded(eventReader: TLogEventReader) {
         for (subscriber in tlogSubscribers) {
-            subscriber.onTLogDataLoaded(loadedEvents, hasMore)
+            subscriber.onTLogIndexLoaded(eventReader)
+            startEventsLoader(subscriber, eventReader)
         }
     }
 
-    fun onTLogLoadedData(newItems: List<TLogParser.Event>, hasMore: Boolean) {
-        loadedEvents.addAll(newItems)
+    /**
+     * Streams the tlog events the subscriber declared interest for.
+     */
+    private fun startEventsLoader(subscriber: TLogViewer, eventReader: TLogEventReader) {
+        eventsLoaders.remove(subscriber)?.cancel(false)
 
-        if (hasMore) {
-            Timber.i("Adding ${newItems.size} items")
-        } else {
-            Timber.i("Loaded ${loadedEvents.size} tlog events")
+        val messageIds = subscriber.getTLogMessageIds()
+        if (messageIds == null || messageIds.isEmpty())
+            return
+
+        val loader = TLogEventsLoader(eventReader, messageIds, subscriber, handler)
+        eventsLoaders.put(subscriber, loader)
+        loader.execute()
+    }
+
+    private fun closeEventReader() {
+        for (loader in eventsLoaders.values) {
+            loader.cancel(false)
+        }
+        eventsLoaders.clear()
+
+        // The cancelled loaders may still be reading: they retain the reader, which is only closed once they're done.
+        eventReader?.close()
+        eventReader = null
+    }
+
+    fun onTLogIndexLoaded(reader: TLogEventReader?) {
+        dataLoader = null
+        isLoadingData = false
+        loadingProgress?.visibility = View.GONE
+
+        if (reader == null) {
+            notifyTLogDataDeleted()
+            return
         }
 
-        isLoadingData = hasMore
-        notifyTLogSubscribers(newItems, hasMore)
-        loadingProgress?.visibility = if(hasMore) View.VISIBLE else View.GONE
+        Timber.i("Indexed ${reader.eventCount} tlog events")
+        eventReader = reader
+        notifyTLogIndexLoaded(reader)
     }
-}
\ No newline at end of file
+}
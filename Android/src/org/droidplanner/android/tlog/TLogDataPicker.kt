@@ -81,14 +81,25 @@ class TLogDataPicker : DialogFragment(){
         adapter.setTLogSelectionListener(selectionListenerWrapper)
         tlogsView?.adapter = adapter
 
-        if (adapter.itemCount == 0) {
-            tlogsView?.visibility = View.GONE
-            noTLogMessageView?.visibility = View.VISIBLE
-        }
-        else {
-            tlogsView?.visibility = View.VISIBLE
-            tlogsView?.scrollToPosition(adapter.getIndexFor(currentSessionId))
-            noTLogMessageView?.visibility = View.GONE
-        }
+        // Updated once the sessions are loaded from the database.
+        tlogsView?.visibility = View.GONE
+        noTLogMessageView?.visibility = View.GONE
+        var isInitialLoad = true
+        adapter.setLoadListener(object : TLogDataAdapter.LoadListener {
+            override fun onSessionsLoaded(sessionCount: Int) {
+                if (sessionCount == 0) {
+                    tlogsView?.visibility = View.GONE
+                    noTLogMessageView?.visibility = View.VISIBLE
+                }
+                else {
+                    tlogsView?.visibility = View.VISIBLE
+                    if (isInitialLoad) {
+                        tlogsView?.scrollToPosition(adapter.getIndexFor(currentSessionId))
+                    }
+                    noTLogMessageView?.visibility = View.GONE
+                }
+                isInitialLoad = false
+            }
+        })
     }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package org.droidplanner.android.tlog
+
+import android.os.AsyncTask
+import android.os.Handler
+import com.o3dr.android.client.utils.data.tlog.TLogParser
+import org.droidplanner.android.tlog.index.TLogEventReader
+import org.droidplanner.android.tlog.index.TLogParallelDecoder
+import org.droidplanner.android.tlog.interfaces.TLogDataSubscriber
+import timber.log.Timber
+import java.io.IOException
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Streams the events for a set of mavlink message ids out of an indexed tlog file.
+ * Index blocks which don't contain any of the requested messages are skipped without being read, and in the
+ * remaining ones only the records with a requested message id are decoded, in parallel.
+ *
+ * The loader must be cancelled without interruption, as interrupting a read closes the file channel shared
+ * with the other users of the [TLogEventReader]. It retains the reader while running, so the reader can be
+ * closed as soon as the loader is cancelled.
+ */
+class TLogEventsLoader(private val eventReader: TLogEventReader,
+                       private val messageIds: IntArray,
+                       subscriber: TLogDataSubscriber,
+                       val handler: Handler) : AsyncTask<Void, Void, Boolean>() {
+
+    private companion object {
+        const val EVENT_UPDATE_THRESHOLD = 5000
+        const val MIN_UPDATE_DELAY = 1000L //1 second
+    }
+
+    private val publishProgress = object : Runnable {
+        override fun run() {
+            handler.removeCallbacks(this)
+            subscriberRef.get()?.onTLogDataLoaded(grabData(), true)
+        }
+    }
+
+    private val subscriberRef = WeakReference<TLogDataSubscriber>(subscriber)
+
+    private val loadedEvents = ConcurrentLinkedQueue<TLogParser.Event>()
+
+    // Lookup table over the mavlink message ids, checked against every record header.
+    private val requestedMessages = BooleanArray(256).apply {
+        for (messageId in messageIds) {
+            this[messageId] = true
+        }
+    }
+
+    override fun doInBackground(vararg params: Void): Boolean {
+        if (!eventReader.retain())
+            return false
+
+        val index = eventReader.index
+        try {
+            // Only decode the index blocks which contain some of the requested messages.
+            val blocks = (0 until index.blockCount).filter { containsRequestedMessage(it) }.toIntArray()
+
+            var eventCounter = 0
+            var lastUpdate = System.currentTimeMillis()
+
+            TLogParallelDecoder(eventReader).decode(blocks, { isRequestedMessage(it) }, { isCancelled }) { events ->
+                loadedEvents.addAll(events)
+                eventCounter += events.size
+                if (eventCounter >= EVENT_UPDATE_THRESHOLD) {
+                    val currentTime = System.currentTimeMillis()
+                    if (currentTime - lastUpdate >= MIN_UPDATE_DELAY) {
+                        handler.post(publishProgress)
+                        lastUpdate = currentTime
+                    }
+                    eventCounter = 0
+                }
+            }
+            return true
+        } catch(e: IOException) {
+            Timber.e(e, "Error occurred while loading tlog events")
+            return false
+        } finally {
+            handler.removeCallbacks(publishProgress)
+            eventReader.release()
+        }
+    }
+
+    private fun containsRequestedMessage(block: Int): Boolean {
+        for (messageId in messageIds) {
+            if (eventReader.index.blockContainsMessage(block, messageId))
+                return true
+        }
+        return false
+    }
+
+    private fun isRequestedMessage(messageId: Int) = requestedMessages[messageId]
+
+    private fun grabData(): List<TLogParser.Event> {
+        val nextBatch = mutableListOf<TLogParser.Event>()
+        var event = loadedEvents.poll()
+        while (event != null) {
+            nextBatch.add(event)
+            event = loadedEvents.poll()
+        }
+        return nextBatch
+    }
+
+    override fun onCancelled() {
+        loadedEvents.clear()
+    }
+
+    override fun onPostExecute(result: Boolean) {
+        subscriberRef.get()?.onTLogDataLoaded(grabData(), false)
+    }
+}
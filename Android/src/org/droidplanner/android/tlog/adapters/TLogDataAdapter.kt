@@ -12,6 +12,7 @@ import org.droidplanner.android.DroidPlannerApp
 import org.droidplanner.android.R
 import org.droidplanner.android.dialogs.OkDialog
 import org.droidplanner.android.dialogs.SupportEditInputDialog
+import org.droidplanner.android.droneshare.data.DatabaseExecutor
 import org.droidplanner.android.droneshare.data.SessionContract.SessionData
 
 /**
@@ -20,6 +21,13 @@ import org.droidplanner.android.droneshare.data.SessionContract.SessionData
 class TLogDataAdapter(val app: DroidPlannerApp, val fragmentMgr: FragmentManager, val selectedSessionId: Long) :
         RecyclerView.Adapter<TLogDataAdapter.ViewHolder>() {
 
+    /**
+     * Notified when the completed sessions are loaded from the database.
+     */
+    interface LoadListener {
+        fun onSessionsLoaded(sessionCount: Int)
+    }
+
     interface Listener {
         fun onTLogSelected(tlogSession: SessionData)
         fun onTLogRenamed(sessionId: Long, sessionLabel : String)
@@ -34,12 +42,21 @@ class TLogDataAdapter(val app: DroidPlannerApp, val fragmentMgr: FragmentManager
     : RecyclerView.ViewHolder(container)
 
     private var tlogSelectionListener: Listener? = null
-    private var completedSessions = app.sessionDatabase.getCompletedSessions(true)
+    private var loadListener: LoadListener? = null
+    private var completedSessions: List<SessionData> = emptyList()
+
+    init {
+        reloadCompletedSessions()
+    }
 
     fun setTLogSelectionListener(listener: Listener?) {
         this.tlogSelectionListener = listener
     }
 
+    fun setLoadListener(listener: LoadListener?) {
+        this.loadListener = listener
+    }
+
     override fun onBindViewHolder(holder: ViewHolder, position: Int) {
         val sessionData = completedSessions[position]
 
@@ -56,7 +73,7 @@ class TLogDataAdapter(val app: DroidPlannerApp, val fragmentMgr: FragmentManager
             val confirmDialog = OkDialog.newInstance(app.applicationContext, "Delete?", "Delete session ${sessionData.label}?", object : OkDialog.Listener{
                 override fun onOk() {
                     // Remove the session data entry from the database.
-                    app.sessionDatabase.removeSessionData(sessionData.id)
+                    app.sessionDatabase.removeSessionDataAsync(sessionData.id)
                     tlogSelectionListener?.onTLogDeleted(sessionData.id)
                     reloadCompletedSessions()
                 }
@@ -78,7 +95,7 @@ class TLogDataAdapter(val app: DroidPlannerApp, val fragmentMgr: FragmentManager
                     if (TextUtils.isEmpty(input)) {
                         Toast.makeText(app.applicationContext, R.string.warning_invalid_session_label_entry, Toast.LENGTH_LONG).show();
                     } else if (sessionData.label != input) {
-                        app.sessionDatabase.renameSession(sessionData.id, input.toString())
+                        app.sessionDatabase.renameSessionAsync(sessionData.id, input.toString())
                         tlogSelectionListener?.onTLogRenamed(sessionData.id, input.toString())
                         reloadCompletedSessions()
                     }
@@ -92,8 +109,13 @@ class TLogDataAdapter(val app: DroidPlannerApp, val fragmentMgr: FragmentManager
     }
 
     private fun reloadCompletedSessions() {
-        completedSessions = app.sessionDatabase.getCompletedSessions(true)
-        notifyDataSetChanged()
+        // Queued after any pending update, so the reloaded sessions include it.
+        app.sessionDatabase.getCompletedSessionsAsync(true, DatabaseExecutor.Callback<List<SessionData>> { sessions ->
+            // Null if the sessions couldn't be read.
+            completedSessions = sessions ?: emptyList()
+            notifyDataSetChanged()
+            loadListener?.onSessionsLoaded(completedSessions.size)
+        })
     }
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder? {
@@ -8,28 +8,29 @@ import android.view.View
 import android.view.ViewGroup
 import android.widget.ProgressBar
 import android.widget.TextView
-import com.MAVLink.common.msg_global_position_int
-import com.o3dr.android.client.utils.data.tlog.TLogParser
 import org.droidplanner.android.R
 import org.droidplanner.android.tlog.event.TLogEventListener
-import org.droidplanner.android.tlog.viewers.TLogPositionViewer
+import org.droidplanner.android.utils.FlightTrack
 import org.droidplanner.android.utils.unit.UnitManager
 import org.droidplanner.android.utils.unit.providers.length.LengthUnitProvider
-import org.droidplanner.android.view.adapterViews.AbstractRecyclerViewFooterAdapter
 import java.text.SimpleDateFormat
 import java.util.*
 
 /**
+ * Displays the samples of the tlog flight track.
  * @author ne0fhyk (Fredia Huya-Kouadio)
  */
-class TLogPositionEventAdapter(context : Context, recyclerView: RecyclerView) :
-        AbstractRecyclerViewFooterAdapter<TLogParser.Event>(recyclerView, null) {
+class TLogPositionEventAdapter(context : Context, private val positionTrack: FlightTrack) :
+        RecyclerView.Adapter<RecyclerView.ViewHolder>() {
 
     class ViewHolder(val container: View, val thumbnail : View, val timestamp: TextView, val altitude: TextView) :
             RecyclerView.ViewHolder(container)
 
     companion object {
         private val dateFormatter = SimpleDateFormat("HH:mm:ss", Locale.US)
+
+        private const val ITEM_VIEW_TYPE_BASIC = 0
+        private const val ITEM_VIEW_TYPE_FOOTER = 1
     }
 
     private val lessAltitudeIcon : Drawable
@@ -46,7 +47,8 @@ class TLogPositionEventAdapter(context : Context, recyclerView: RecyclerView) :
         lengthUnitProvider = UnitManager.getUnitSystem(context).lengthUnitProvider
     }
 
-    private var selectedEvent: Pair<Int, TLogParser.Event>? = null
+    private var selectedIndex = -1
+    private var hasMoreData = true
     private var tlogEventListener: TLogEventListener? = null
 
     fun setTLogEventClickListener(listener: TLogEventListener?){
@@ -54,20 +56,50 @@ class TLogPositionEventAdapter(context : Context, recyclerView: RecyclerView) :
     }
 
     fun clear(hasMore: Boolean = true){
-        selectedEvent = null
-        resetItems(null)
-        setHasMoreData(hasMore)
+        selectedIndex = -1
+        hasMoreData = hasMore
+        notifyDataSetChanged()
+    }
+
+    /**
+     * Refreshes the view after samples were appended to the flight track.
+     * @param fromIndex Index of the first appended sample
+     * @param hasMore Whether more samples are being loaded
+     */
+    fun onPositionsAppended(fromIndex: Int, hasMore: Boolean) {
+        val hadMoreData = hasMoreData
+        hasMoreData = hasMore
+
+        val appendedCount = positionTrack.size() - fromIndex
+        if (appendedCount > 0)
+            notifyItemRangeInserted(fromIndex, appendedCount)
+
+        if (hadMoreData && !hasMore) {
+            notifyItemRemoved(positionTrack.size())
+        } else if (!hadMoreData && hasMore) {
+            notifyItemInserted(positionTrack.size())
+        }
     }
 
-    override fun onBindBasicItemView(genericHolder: RecyclerView.ViewHolder, position: Int) {
+    override fun getItemCount() = positionTrack.size() + if (hasMoreData) 1 else 0
+
+    override fun getItemViewType(position: Int): Int {
+        return if (position < positionTrack.size()) ITEM_VIEW_TYPE_BASIC else ITEM_VIEW_TYPE_FOOTER
+    }
+
+    override fun onBindViewHolder(genericHolder: RecyclerView.ViewHolder, position: Int) {
+        if (getItemViewType(position) == ITEM_VIEW_TYPE_FOOTER) {
+            (genericHolder as ProgressViewHolder).progressBar.isIndeterminate = true
+            return
+        }
+
         val holder = genericHolder as ViewHolder
 
-        val event = getItem(position)
-        holder.container.isActivated = event == selectedEvent?.second
-        holder.timestamp.text = dateFormatter.format(event.timestamp)
+        holder.container.isActivated = position == selectedIndex
+        holder.timestamp.text = dateFormatter.format(Date(positionTrack.getTime(position)))
 
-        val previousAltitude = if (position == 0) null else TLogPositionViewer.getEventAltitude(getItem(position -1).mavLinkMessage as msg_global_position_int)
-        val currentAltitude = TLogPositionViewer.getEventAltitude(event.mavLinkMessage as msg_global_position_int)
+        val previousAltitude = if (position == 0) null else positionTrack.getAltitude(position - 1)
+        val currentAltitude = positionTrack.getAltitude(position)
 
         val altIcon = if (previousAltitude == null || previousAltitude < currentAltitude) {
             moreAltitudeIcon
@@ -83,16 +115,16 @@ class TLogPositionEventAdapter(context : Context, recyclerView: RecyclerView) :
         holder.altitude.text = altitudeText
         holder.altitude.setCompoundDrawablesWithIntrinsicBounds(altIcon, null, null, null)
         holder.thumbnail.setOnClickListener {
-            if(event == selectedEvent?.second){
+            if(position == selectedIndex){
                 // Unselect the event
-                selectedEvent = null
-                tlogEventListener?.onTLogEventSelected(null)
+                selectedIndex = -1
+                tlogEventListener?.onTLogPositionSelected(-1)
                 notifyItemChanged(position)
             }
             else {
-                val previousPosition = selectedEvent?.first ?: -1
-                selectedEvent = Pair(position, event)
-                tlogEventListener?.onTLogEventSelected(event)
+                val previousPosition = selectedIndex
+                selectedIndex = position
+                tlogEventListener?.onTLogPositionSelected(position)
                 notifyItemChanged(position)
                 if(previousPosition != -1)
                     notifyItemChanged(previousPosition)
@@ -100,7 +132,13 @@ class TLogPositionEventAdapter(context : Context, recyclerView: RecyclerView) :
         }
     }
 
-    override fun onCreateBasicItemViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
+        if (viewType == ITEM_VIEW_TYPE_FOOTER) {
+            val container = LayoutInflater.from(parent.context).inflate(R.layout.list_item_tlog_position_event_loading, parent, false)
+            val progressBar = container.findViewById(R.id.progressBar) as ProgressBar
+            return ProgressViewHolder(container, progressBar)
+        }
+
         val container = LayoutInflater.from(parent.context).inflate(R.layout.list_item_tlog_position_event, parent, false)
         val thumbnail = container.findViewById(R.id.event_thumbnail)
         val timestamp = container.findViewById(R.id.event_timestamp) as TextView
@@ -108,16 +146,6 @@ class TLogPositionEventAdapter(context : Context, recyclerView: RecyclerView) :
         return ViewHolder(container, thumbnail, timestamp, altitude)
     }
 
-    override fun onCreateFooterViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
-        val container = LayoutInflater.from(parent.context).inflate(R.layout.list_item_tlog_position_event_loading, parent, false)
-        val progressBar = container.findViewById(R.id.progressBar) as ProgressBar
-        return ProgressViewHolder(container, progressBar)
-    }
-
-    override fun onBindFooterView(genericHolder: RecyclerView.ViewHolder, position: Int) {
-        (genericHolder as ProgressViewHolder).progressBar.isIndeterminate = true
-    }
-
     class ProgressViewHolder(v: View, val progressBar: ProgressBar) : RecyclerView.ViewHolder(v)
 
-}
\ No newline at end of file
+}
@@ -1,60 +1,120 @@
 package org.droidplanner.android.tlog.adapters
 
+import android.os.Handler
+import android.os.Looper
 import android.support.v7.widget.RecyclerView
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
-import android.widget.ProgressBar
 import android.widget.TextView
-import com.o3dr.android.client.utils.data.tlog.TLogParser
 import org.droidplanner.android.R
-import org.droidplanner.android.view.adapterViews.AbstractRecyclerViewFooterAdapter
-import org.droidplanner.android.view.adapterViews.OnLoadMoreListener
+import org.droidplanner.android.tlog.index.TLogEventReader
+import timber.log.Timber
+import java.io.IOException
 import java.text.SimpleDateFormat
 import java.util.*
+import java.util.concurrent.Executors
 
 /**
+ * Displays the records of an indexed tlog file. The events are paged in from the tlog file as the rows are
+ * bound, so only the visible window is kept in memory. The index blocks are read off the ui thread: rows whose
+ * block isn't loaded yet show a placeholder until it is.
  * @author ne0fhyk (Fredia Huya-Kouadio)
  */
-class TLogRawEventAdapter(recyclerView: RecyclerView, onLoadMoreListener: OnLoadMoreListener?) :
-        AbstractRecyclerViewFooterAdapter<TLogParser.Event>(recyclerView, onLoadMoreListener) {
+class TLogRawEventAdapter : RecyclerView.Adapter<TLogRawEventAdapter.ViewHolder>() {
 
     class ViewHolder(eventView: View, val eventInfo: TextView, val eventTimestamp: TextView) :
             RecyclerView.ViewHolder(eventView)
 
     companion object {
         private val dateFormatter = SimpleDateFormat("yyyy/MM/dd HH:mm:ss", Locale.US)
-    }
 
-    fun clear(hasMore: Boolean = true){
-        resetItems(null)
-        setHasMoreData(hasMore)
+        private val blockLoader = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "TLog rows loader").apply { isDaemon = true }
+        }
     }
 
-    override fun onBindBasicItemView(genericHolder: RecyclerView.ViewHolder, position: Int) {
-        val holder = genericHolder as ViewHolder
-        val event = getItem(position)
-        holder.eventInfo.text = event.mavLinkMessage.toString()
-        holder.eventTimestamp.text = dateFormatter.format(Date(event.timestamp))
+    private val handler = Handler(Looper.getMainLooper())
+
+    @Volatile private var eventReader: TLogEventReader? = null
+
+    // Index blocks being read, and the ones which couldn't be read. Only accessed from the ui thread.
+    private val loadingBlocks = HashSet<Int>()
+    private val failedBlocks = HashSet<Int>()
+
+    fun setEventReader(reader: TLogEventReader?) {
+        eventReader = reader
+        loadingBlocks.clear()
+        failedBlocks.clear()
+        notifyDataSetChanged()
     }
 
-    override fun onCreateBasicItemViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
-        val eventView = LayoutInflater.from(parent.context).inflate(R.layout.list_item_tlog_raw_event, parent, false)
-        val eventTimestamp = eventView.findViewById(R.id.event_timestamp) as TextView
-        val eventInfo = eventView.findViewById(R.id.event_info) as TextView
-        return ViewHolder(eventView, eventInfo, eventTimestamp)
+    fun clear(){
+        setEventReader(null)
     }
 
-    override fun onCreateFooterViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
-        //noinspection ConstantConditions
-        val v = LayoutInflater.from(parent.context).inflate(R.layout.progress_bar, parent, false)
-        val progressBar = v.findViewById(R.id.progressBar) as ProgressBar
-        return ProgressViewHolder(v, progressBar)
+    override fun getItemCount() = eventReader?.eventCount ?: 0
+
+    override fun onBindViewHolder(holder: ViewHolder, position: Int) {
+        val reader = eventReader ?: return
+        val index = reader.index
+        val block = index.getBlockForPosition(position)
+
+        val blockEvents = reader.getCachedBlockEvents(block)
+        if (blockEvents == null && !failedBlocks.contains(block)) {
+            holder.eventInfo.setText(R.string.label_tlog_loading_event)
+            holder.eventTimestamp.text = ""
+            loadBlock(reader, block)
+            return
+        }
+
+        val event = blockEvents?.get(position - index.getBlockStartPosition(block))
+        if (event == null) {
+            holder.eventInfo.setText(R.string.label_tlog_invalid_event)
+            holder.eventTimestamp.text = ""
+        } else {
+            holder.eventInfo.text = event.mavLinkMessage.toString()
+            holder.eventTimestamp.text = dateFormatter.format(Date(event.timestamp))
+        }
     }
 
-    override fun onBindFooterView(genericHolder: RecyclerView.ViewHolder, position: Int) {
-        (genericHolder as ProgressViewHolder).progressBar.isIndeterminate = true
+    /**
+     * Reads the given index block in the background, then rebinds its rows.
+     */
+    private fun loadBlock(reader: TLogEventReader, block: Int) {
+        if (!loadingBlocks.add(block))
+            return
+
+        blockLoader.execute {
+            // Skipped if another tlog file was loaded in the meantime.
+            var isLoaded = reader.getCachedBlockEvents(block) != null
+            if (!isLoaded && eventReader === reader && reader.retain()) {
+                try {
+                    reader.getBlockEvents(block)
+                    isLoaded = true
+                } catch(e: IOException) {
+                    Timber.e(e, "Unable to read tlog block %d", block)
+                } finally {
+                    reader.release()
+                }
+            }
+
+            handler.post {
+                if (eventReader === reader) {
+                    loadingBlocks.remove(block)
+                    if (!isLoaded)
+                        failedBlocks.add(block)
+                    notifyItemRangeChanged(reader.index.getBlockStartPosition(block),
+                            reader.index.getBlockEventCount(block))
+                }
+            }
+        }
     }
 
-    class ProgressViewHolder(v: View, val progressBar: ProgressBar) : RecyclerView.ViewHolder(v)
-}
\ No newline at end of file
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
+        val eventView = LayoutInflater.from(parent.context).inflate(R.layout.list_item_tlog_raw_event, parent, false)
+        val eventTimestamp = eventView.findViewById(R.id.event_timestamp) as TextView
+        val eventInfo = eventView.findViewById(R.id.event_info) as TextView
+        return ViewHolder(eventView, eventInfo, eventTimestamp)
+    }
+}
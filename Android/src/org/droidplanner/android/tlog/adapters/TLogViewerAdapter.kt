@@ -5,6 +5,7 @@ import android.support.v4.app.FragmentManager
 import android.support.v4.app.FragmentPagerAdapter
 import org.droidplanner.android.tlog.viewers.TLogPositionViewer
 import org.droidplanner.android.tlog.viewers.TLogRawViewer
+import org.droidplanner.android.tlog.viewers.TLogReplayViewer
 
 /**
  * Return the appropriate fragment for the selected tlog data viewer.
@@ -14,16 +15,18 @@ import org.droidplanner.android.tlog.viewers.TLogRawViewer
 class TLogViewerAdapter(fm: FragmentManager) : FragmentPagerAdapter(fm) {
     override fun getItem(position: Int): Fragment? {
         return when(position){
+            2 -> TLogReplayViewer()
             1 -> TLogRawViewer()
             0 -> TLogPositionViewer()
             else -> throw IllegalStateException("Invalid viewer index.")
         }
     }
 
-    override fun getCount() = 2
+    override fun getCount() = 3
 
     override fun getPageTitle(position: Int): CharSequence? {
         return when(position){
+            2 -> "Replay"
             1 -> "All"
             0 -> "Position"
             else -> throw IllegalStateException("Invalid viewer index.")
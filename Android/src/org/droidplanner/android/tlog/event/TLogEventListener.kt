@@ -1,10 +1,11 @@
 package org.droidplanner.android.tlog.event
 
-import com.o3dr.android.client.utils.data.tlog.TLogParser
-
 /**
  * @author ne0fhyk (Fredia Huya-Kouadio)
  */
 interface TLogEventListener {
-    fun onTLogEventSelected(event: TLogParser.Event?)
-}
\ No newline at end of file
+    /**
+     * @param index Index of the selected sample in the tlog flight track, or -1 if the selection was cleared.
+     */
+    fun onTLogPositionSelected(index: Int)
+}
@@ -1,18 +1,16 @@
 package org.droidplanner.android.tlog.event
 
 import android.content.res.Resources
-import android.graphics.BitmapFactory
 import android.widget.Toast
-import com.MAVLink.common.msg_global_position_int
-import com.o3dr.android.client.utils.data.tlog.TLogParser
 import com.o3dr.services.android.lib.coordinate.LatLong
 import org.droidplanner.android.R
 import org.droidplanner.android.droneshare.data.SessionContract
 import org.droidplanner.android.fragments.DroneMap
+import org.droidplanner.android.maps.MarkerIconCache
 import org.droidplanner.android.maps.MarkerInfo
 import org.droidplanner.android.maps.PolylineInfo
 import org.droidplanner.android.tlog.interfaces.TLogDataSubscriber
-import org.droidplanner.android.tlog.viewers.TLogPositionViewer
+import org.droidplanner.android.utils.FlightTrack
 import org.droidplanner.android.utils.prefs.AutoPanMode
 import java.util.*
 
@@ -24,6 +22,8 @@ class TLogEventMapFragment : DroneMap(), TLogDataSubscriber, TLogEventListener {
     private val eventsPolylineInfo = TLogEventsPolylineInfo()
     private val selectedPositionMarkerInfo = GlobalPositionMarkerInfo()
 
+    private var positionTrack: FlightTrack? = null
+
     override fun isMissionDraggable() = false
 
     override fun setAutoPanMode(target: AutoPanMode?): Boolean {
@@ -47,32 +47,36 @@ class TLogEventMapFragment : DroneMap(), TLogDataSubscriber, TLogEventListener {
         selectedPositionMarkerInfo.updateMarker(this)
     }
 
-    override fun onTLogDataLoaded(events: List<TLogParser.Event>, hasMore: Boolean) {
-        for(event in events){
-            val coord = TLogPositionViewer.tlogEventToSpaceTime(event) ?: continue
-            eventsPolylineInfo.addCoord(coord)
+    /**
+     * Adds the flight track samples from [fromIndex] onward to the events polyline.
+     */
+    fun onTLogTrackUpdated(track: FlightTrack, fromIndex: Int) {
+        positionTrack = track
+        for(i in fromIndex until track.size()){
+            eventsPolylineInfo.addCoord(LatLong(track.getLatitude(i), track.getLongitude(i)))
         }
         eventsPolylineInfo.update(this)
     }
 
     override fun onClearTLogData() {
+        positionTrack = null
         eventsPolylineInfo.clear()
         eventsPolylineInfo.update(this)
 
-        selectedPositionMarkerInfo.selectedGlobalPosition = null
+        selectedPositionMarkerInfo.clearSelection()
         selectedPositionMarkerInfo.updateMarker(this)
     }
 
-    override fun onTLogEventSelected(event: TLogParser.Event?) {
-        if(event == null){
-            selectedPositionMarkerInfo.selectedGlobalPosition = null
+    override fun onTLogPositionSelected(index: Int) {
+        val track = positionTrack
+        if(track == null || index < 0 || index >= track.size()){
+            selectedPositionMarkerInfo.clearSelection()
             zoomToFit()
         }
         else{
             //Add a marker for the selected event
-            val globalPositionInt = event.mavLinkMessage as msg_global_position_int
-            selectedPositionMarkerInfo.selectedGlobalPosition = globalPositionInt
-            mMapFragment.zoomToFit(listOf(LatLong(globalPositionInt.lat.toDouble()/ 1E7, globalPositionInt.lon.toDouble()/ 1E7)))
+            selectedPositionMarkerInfo.select(track, index)
+            mMapFragment.zoomToFit(listOf(LatLong(track.getLatitude(index), track.getLongitude(index))))
         }
         selectedPositionMarkerInfo.updateMarker(this)
     }
@@ -82,10 +86,11 @@ class TLogEventMapFragment : DroneMap(), TLogDataSubscriber, TLogEventListener {
     }
 
     override fun onTLogSelected(tlogSession: SessionContract.SessionData) {
+        positionTrack = null
         eventsPolylineInfo.clear()
         eventsPolylineInfo.update(this)
 
-        selectedPositionMarkerInfo.selectedGlobalPosition = null
+        selectedPositionMarkerInfo.clearSelection()
         selectedPositionMarkerInfo.updateMarker(this)
     }
 
@@ -128,22 +133,30 @@ class TLogEventMapFragment : DroneMap(), TLogDataSubscriber, TLogEventListener {
     }
 
     private class GlobalPositionMarkerInfo : MarkerInfo() {
-        var selectedGlobalPosition : msg_global_position_int? = null
+        private var selectedPosition : LatLong? = null
+        private var selectedHeading = Float.NaN
+
+        fun select(track: FlightTrack, index: Int) {
+            selectedPosition = LatLong(track.getLatitude(index), track.getLongitude(index))
+            selectedHeading = track.getYaw(index)
+        }
+
+        fun clearSelection() {
+            selectedPosition = null
+            selectedHeading = Float.NaN
+        }
 
-        override fun isVisible() = selectedGlobalPosition != null
+        override fun isVisible() = selectedPosition != null
 
-        override fun getPosition() =
-                if(selectedGlobalPosition == null) null
-                else LatLong(selectedGlobalPosition!!.lat.toDouble() / 1E7, selectedGlobalPosition!!.lon.toDouble() / 1E7)
+        override fun getPosition() = selectedPosition
 
         override fun getRotation(): Float {
-            val headingx100 = selectedGlobalPosition?.hdg ?: return 0f
-            val heading = headingx100 / 100f
-            if (heading < 0f || heading > 360f)
+            val heading = selectedHeading
+            if (heading.isNaN() || heading < 0f || heading > 360f)
                 return 0f
             return heading
         }
 
-        override fun getIcon(res: Resources) = BitmapFactory.decodeResource(res, R.drawable.quad_disconnect)
+        override fun getIcon(res: Resources) = MarkerIconCache.getInstance().getIcon(res, R.drawable.quad_disconnect)
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package org.droidplanner.android.tlog.index
+
+import com.MAVLink.MAVLinkPacket
+import com.MAVLink.Parser
+import com.o3dr.android.client.utils.data.tlog.TLogParser
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.*
+
+/**
+ * Decodes the index blocks of a tlog file, straight from its file channel.
+ *
+ * The blocks are read with positional reads, so they can be decoded concurrently from several threads. The
+ * channel is owned by the caller, which closes it.
+ */
+class TLogBlockReader(private val channel: FileChannel, val index: TLogIndex, private val sourceName: String) {
+
+    /**
+     * Decodes the given index block. Records which can't be decoded are returned as null events, so the array
+     * index matches the record position in the block.
+     */
+    @Throws(IOException::class)
+    fun decodeBlock(block: Int): Array<TLogParser.Event?> {
+        val events = arrayOfNulls<TLogParser.Event>(index.getBlockEventCount(block))
+        val buffer = readBlockBytes(block)
+        val parser = Parser()
+
+        var eventIndex = 0
+        TLogRecords.scan(buffer, 0, buffer.size) { recordStart, recordLength, timestampUs, _ ->
+            events[eventIndex++] = decodeRecord(parser, buffer, recordStart, recordLength, timestampUs)
+            eventIndex < events.size
+        }
+        return events
+    }
+
+    /**
+     * Decodes the events of the given index block whose mavlink message id is accepted by the filter.
+     * The message id is read from the frame header, so the payload of the filtered out records is never decoded.
+     */
+    @Throws(IOException::class)
+    fun decodeBlock(block: Int, acceptMessage: (Int) -> Boolean): List<TLogParser.Event> {
+        val events = ArrayList<TLogParser.Event>()
+        val buffer = readBlockBytes(block)
+        val parser = Parser()
+
+        TLogRecords.scan(buffer, 0, buffer.size) { recordStart, recordLength, timestampUs, messageId ->
+            if (acceptMessage(messageId)) {
+                val event = decodeRecord(parser, buffer, recordStart, recordLength, timestampUs)
+                if (event != null)
+                    events.add(event)
+            }
+            true
+        }
+        return events
+    }
+
+    @Throws(IOException::class)
+    private fun readBlockBytes(block: Int): ByteArray {
+        val start = index.getBlockOffset(block)
+        val buffer = ByteBuffer.allocate((index.getBlockEnd(block) - start).toInt())
+        while (buffer.hasRemaining()) {
+            // Positional reads don't update the channel position, so concurrent block reads are safe.
+            if (channel.read(buffer, start + buffer.position()) == -1)
+                throw IOException("Unexpected end of tlog file $sourceName")
+        }
+        return buffer.array()
+    }
+
+    private fun decodeRecord(parser: Parser, buffer: ByteArray, recordStart: Int, recordLength: Int,
+                             timestampUs: Long): TLogParser.Event? {
+        var packet: MAVLinkPacket? = null
+        for (i in recordStart + TLogRecords.TIMESTAMP_LENGTH until recordStart + recordLength) {
+            packet = parser.mavlink_parse_char(buffer[i].toInt() and 0xff)
+        }
+
+        val message = packet?.unpack() ?: return null
+        return TLogParser.Event(timestampUs / 1000L, message)
+    }
+}
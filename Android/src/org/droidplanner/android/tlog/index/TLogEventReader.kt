@@ -0,0 +1,124 @@
+package org.droidplanner.android.tlog.index
+
+import android.content.Context
+import android.net.Uri
+import android.os.ParcelFileDescriptor
+import com.o3dr.android.client.utils.data.tlog.TLogParser
+import java.io.Closeable
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.util.*
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Random access reader over an indexed tlog file.
+ *
+ * Events are decoded on demand, one index block at a time, and only the most recently used blocks are kept
+ * in memory. Positions are record positions in the tlog file: records which can't be decoded are reported as
+ * null events so the positions stay stable.
+ *
+ * The reader is shared by the background loaders, so it's reference counted: each user [retain]s it for the
+ * duration of its reads, and the file is closed once the last reference, including the owner's, is released.
+ */
+class TLogEventReader @Throws(IOException::class) constructor(context: Context, val uri: Uri, val index: TLogIndex) : Closeable {
+
+    private companion object {
+        const val MAX_CACHED_BLOCKS = 8
+    }
+
+    private val fileDescriptor: ParcelFileDescriptor = context.contentResolver.openFileDescriptor(uri, "r")
+            ?: throw FileNotFoundException("Unable to open $uri")
+
+    private val channel: FileChannel = FileInputStream(fileDescriptor.fileDescriptor).channel
+
+    internal val blockReader = TLogBlockReader(channel, index, uri.toString())
+
+    private val blockCache = object : LinkedHashMap<Int, Array<TLogParser.Event?>>(MAX_CACHED_BLOCKS, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, Array<TLogParser.Event?>>?): Boolean {
+            return size > MAX_CACHED_BLOCKS
+        }
+    }
+
+    // The owner's reference is released by close().
+    private val references = AtomicInteger(1)
+    private val isClosed = AtomicBoolean(false)
+
+    val eventCount: Int
+        get() = index.eventCount
+
+    /**
+     * Takes a reference on the reader, which keeps the file open until the matching [release].
+     * @return false if the reader is already closed.
+     */
+    fun retain(): Boolean {
+        while (true) {
+            val count = references.get()
+            if (count == 0)
+                return false
+            if (references.compareAndSet(count, count + 1))
+                return true
+        }
+    }
+
+    fun release() {
+        if (references.decrementAndGet() == 0) {
+            synchronized(blockCache) {
+                blockCache.clear()
+            }
+            channel.close()
+            fileDescriptor.close()
+        }
+    }
+
+    /**
+     * @return the decoded events for the given index block if it's in the block cache, null otherwise. Doesn't
+     * read from the file, so it can be used on the ui thread.
+     */
+    fun getCachedBlockEvents(block: Int): Array<TLogParser.Event?>? {
+        synchronized(blockCache) {
+            return blockCache[block]
+        }
+    }
+
+    /**
+     * Returns the decoded events for the given index block, through the block cache.
+     */
+    @Throws(IOException::class)
+    fun getBlockEvents(block: Int): Array<TLogParser.Event?> {
+        synchronized(blockCache) {
+            val cachedEvents = blockCache[block]
+            if (cachedEvents != null)
+                return cachedEvents
+        }
+
+        val events = decodeBlock(block)
+        synchronized(blockCache) {
+            blockCache.put(block, events)
+        }
+        return events
+    }
+
+    /**
+     * Decodes the given index block, bypassing the block cache. Used when streaming through the file.
+     */
+    @Throws(IOException::class)
+    fun decodeBlock(block: Int): Array<TLogParser.Event?> = blockReader.decodeBlock(block)
+
+    /**
+     * Decodes the events of the given index block whose mavlink message id is accepted by the filter.
+     */
+    @Throws(IOException::class)
+    fun decodeBlock(block: Int, acceptMessage: (Int) -> Boolean): List<TLogParser.Event> =
+            blockReader.decodeBlock(block, acceptMessage)
+
+    /**
+     * Releases the owner's reference. The file stays open until the users which retained the reader are done.
+     */
+    override fun close() {
+        if (isClosed.compareAndSet(false, true))
+            release()
+    }
+}
@@ -0,0 +1,289 @@
+package org.droidplanner.android.tlog.index
+
+import android.content.ContentResolver
+import android.content.Context
+import android.net.Uri
+import org.droidplanner.android.utils.TLogUtils
+import timber.log.Timber
+import java.io.*
+import java.util.*
+
+/**
+ * Sparse index over the records of a tlog file.
+ *
+ * The records are grouped in blocks of [stride] consecutive records. For each block, the index stores the
+ * timestamp and byte offset of its first record, and the set of mavlink message ids it contains. This is
+ * enough to seek to a given time, or record position, and to skip blocks which don't contain the messages of
+ * interest, without keeping the decoded events in memory.
+ */
+class TLogIndex private constructor(val sourceLength: Long,
+                                    val sourceLastModified: Long,
+                                    val stride: Int,
+                                    val eventCount: Int,
+                                    /** Offset of the first byte past the last complete record. */
+                                    val dataEnd: Long,
+                                    val lastTimestamp: Long,
+                                    private val blockTimestamps: LongArray,
+                                    private val blockOffsets: LongArray,
+                                    private val blockMessageMasks: LongArray) {
+
+    companion object {
+        const val DEFAULT_STRIDE = 256
+
+        private const val MESSAGE_ID_COUNT = 256
+        private const val MASK_WORDS_PER_BLOCK = MESSAGE_ID_COUNT / 64
+
+        private const val INDEX_MAGIC = 0x544c4958 // 'TLIX'
+        private const val INDEX_VERSION = 2
+
+        private const val READ_BUFFER_SIZE = 64 * 1024
+
+        /**
+         * Loads the sidecar index for the given tlog file, or builds and persists it if it's missing or stale.
+         * Must be called from a background thread.
+         */
+        @Throws(IOException::class)
+        fun open(context: Context, tlogUri: Uri, isCancelled: () -> Boolean = { false }): TLogIndex {
+            val resolver = context.contentResolver
+            val sourceLength = getSourceLength(resolver, tlogUri)
+            val sourceLastModified = getSourceLastModified(tlogUri)
+
+            val indexFile = TLogUtils.getTLogIndexFile(context, tlogUri)
+            val existingIndex = load(indexFile)
+            if (existingIndex != null
+                    && existingIndex.sourceLength == sourceLength
+                    && existingIndex.sourceLastModified == sourceLastModified) {
+                return existingIndex
+            }
+
+            val input = resolver.openInputStream(tlogUri) ?: throw FileNotFoundException("Unable to open $tlogUri")
+            val index = try {
+                build(input, sourceLength, sourceLastModified, DEFAULT_STRIDE, isCancelled)
+            } finally {
+                input.close()
+            }
+
+            if (!isCancelled()) {
+                try {
+                    index.save(indexFile)
+                } catch(e: IOException) {
+                    Timber.w(e, "Unable to persist tlog index to %s", indexFile)
+                }
+            }
+            return index
+        }
+
+        private fun getSourceLength(resolver: ContentResolver, tlogUri: Uri): Long {
+            if (ContentResolver.SCHEME_FILE == tlogUri.scheme)
+                return File(tlogUri.path).length()
+
+            val fd = resolver.openFileDescriptor(tlogUri, "r") ?: return -1L
+            try {
+                return fd.statSize
+            } finally {
+                fd.close()
+            }
+        }
+
+        private fun getSourceLastModified(tlogUri: Uri): Long {
+            return if (ContentResolver.SCHEME_FILE == tlogUri.scheme) File(tlogUri.path).lastModified() else 0L
+        }
+
+        /**
+         * Reads a persisted index.
+         * @return the index, or null if the file doesn't exist or is not a valid index file.
+         */
+        fun load(indexFile: File): TLogIndex? {
+            if (!indexFile.isFile)
+                return null
+
+            try {
+                val input = DataInputStream(BufferedInputStream(FileInputStream(indexFile)))
+                try {
+                    if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION)
+                        return null
+
+                    val sourceLength = input.readLong()
+                    val sourceLastModified = input.readLong()
+                    val stride = input.readInt()
+                    val eventCount = input.readInt()
+                    val dataEnd = input.readLong()
+                    val lastTimestamp = input.readLong()
+
+                    val blockCount = input.readInt()
+                    val blockTimestamps = LongArray(blockCount)
+                    val blockOffsets = LongArray(blockCount)
+                    val blockMessageMasks = LongArray(blockCount * MASK_WORDS_PER_BLOCK)
+                    for (i in 0 until blockCount) {
+                        blockTimestamps[i] = input.readLong()
+                        blockOffsets[i] = input.readLong()
+                        for (j in 0 until MASK_WORDS_PER_BLOCK) {
+                            blockMessageMasks[i * MASK_WORDS_PER_BLOCK + j] = input.readLong()
+                        }
+                    }
+
+                    return TLogIndex(sourceLength, sourceLastModified, stride, eventCount, dataEnd, lastTimestamp,
+                            blockTimestamps, blockOffsets, blockMessageMasks)
+                } finally {
+                    input.close()
+                }
+            } catch(e: IOException) {
+                Timber.w(e, "Unable to read tlog index %s", indexFile)
+                return null
+            }
+        }
+
+        /**
+         * Builds the index by walking the record headers of the given tlog stream. The mavlink payloads are not
+         * decoded.
+         */
+        @Throws(IOException::class)
+        fun build(input: InputStream, sourceLength: Long, sourceLastModified: Long, stride: Int,
+                  isCancelled: () -> Boolean = { false }): TLogIndex {
+            val builder = Builder(stride)
+            val buffer = ByteArray(READ_BUFFER_SIZE)
+            var bufferOffset = 0L // Offset in the source of buffer[0]
+            var bufferEnd = 0
+
+            var read = input.read(buffer, bufferEnd, buffer.size - bufferEnd)
+            while (read != -1 && !isCancelled()) {
+                bufferEnd += read
+
+                val consumed = TLogRecords.scan(buffer, 0, bufferEnd) { recordStart, recordLength, timestampUs, messageId ->
+                    builder.addRecord(bufferOffset + recordStart, recordLength, timestampUs / 1000L, messageId)
+                    true
+                }
+
+                // Carry the trailing incomplete record over to the next read.
+                System.arraycopy(buffer, consumed, buffer, 0, bufferEnd - consumed)
+                bufferOffset += consumed
+                bufferEnd -= consumed
+
+                read = input.read(buffer, bufferEnd, buffer.size - bufferEnd)
+            }
+
+            return builder.build(sourceLength, sourceLastModified)
+        }
+    }
+
+    val blockCount: Int
+        get() = blockTimestamps.size
+
+    val firstTimestamp: Long
+        get() = if (blockCount == 0) -1L else blockTimestamps[0]
+
+    fun getBlockTimestamp(block: Int) = blockTimestamps[block]
+
+    fun getBlockOffset(block: Int) = blockOffsets[block]
+
+    /**
+     * @return offset of the first byte past the given block.
+     */
+    fun getBlockEnd(block: Int) = if (block + 1 < blockCount) blockOffsets[block + 1] else dataEnd
+
+    fun getBlockStartPosition(block: Int) = block * stride
+
+    fun getBlockEventCount(block: Int) = Math.min(stride, eventCount - getBlockStartPosition(block))
+
+    fun getBlockForPosition(position: Int) = position / stride
+
+    /**
+     * @return the last block starting at or before the given timestamp (in milliseconds), or 0 if the
+     * timestamp precedes the first block.
+     */
+    fun getBlockForTimestamp(timestamp: Long): Int {
+        val searchIndex = Arrays.binarySearch(blockTimestamps, timestamp)
+        if (searchIndex >= 0) {
+            // Several blocks can share the same timestamp, use the first one.
+            var block = searchIndex
+            while (block > 0 && blockTimestamps[block - 1] == timestamp)
+                block--
+            return block
+        }
+
+        val insertionPoint = -(searchIndex + 1)
+        return Math.max(0, insertionPoint - 1)
+    }
+
+    fun blockContainsMessage(block: Int, messageId: Int): Boolean {
+        val word = blockMessageMasks[block * MASK_WORDS_PER_BLOCK + (messageId ushr 6)]
+        return (word and (1L shl (messageId and 63))) != 0L
+    }
+
+    @Throws(IOException::class)
+    fun save(indexFile: File) {
+        val tmpFile = File(indexFile.parentFile, indexFile.name + ".tmp")
+        val output = DataOutputStream(BufferedOutputStream(FileOutputStream(tmpFile)))
+        try {
+            output.writeInt(INDEX_MAGIC)
+            output.writeInt(INDEX_VERSION)
+            output.writeLong(sourceLength)
+            output.writeLong(sourceLastModified)
+            output.writeInt(stride)
+            output.writeInt(eventCount)
+            output.writeLong(dataEnd)
+            output.writeLong(lastTimestamp)
+
+            output.writeInt(blockCount)
+            for (i in 0 until blockCount) {
+                output.writeLong(blockTimestamps[i])
+                output.writeLong(blockOffsets[i])
+                for (j in 0 until MASK_WORDS_PER_BLOCK) {
+                    output.writeLong(blockMessageMasks[i * MASK_WORDS_PER_BLOCK + j])
+                }
+            }
+        } finally {
+            output.close()
+        }
+
+        if (!tmpFile.renameTo(indexFile)) {
+            tmpFile.delete()
+            throw IOException("Unable to move $tmpFile to $indexFile")
+        }
+    }
+
+    override fun toString(): String {
+        return "TLogIndex{eventCount=$eventCount, blockCount=$blockCount, firstTimestamp=$firstTimestamp, " +
+                "lastTimestamp=$lastTimestamp, sourceLength=$sourceLength}"
+    }
+
+    private class Builder(private val stride: Int) {
+        private var blockTimestamps = LongArray(64)
+        private var blockOffsets = LongArray(64)
+        private var blockMessageMasks = LongArray(64 * MASK_WORDS_PER_BLOCK)
+
+        private var blockCount = 0
+        private var eventCount = 0
+        private var dataEnd = 0L
+        private var lastTimestamp = -1L
+
+        fun addRecord(offset: Long, length: Int, timestamp: Long, messageId: Int) {
+            if (eventCount % stride == 0) {
+                if (blockCount == blockTimestamps.size) {
+                    val newSize = blockCount * 2
+                    blockTimestamps = Arrays.copyOf(blockTimestamps, newSize)
+                    blockOffsets = Arrays.copyOf(blockOffsets, newSize)
+                    blockMessageMasks = Arrays.copyOf(blockMessageMasks, newSize * MASK_WORDS_PER_BLOCK)
+                }
+
+                blockTimestamps[blockCount] = timestamp
+                blockOffsets[blockCount] = offset
+                blockCount++
+            }
+
+            val maskIndex = (blockCount - 1) * MASK_WORDS_PER_BLOCK + (messageId ushr 6)
+            blockMessageMasks[maskIndex] = blockMessageMasks[maskIndex] or (1L shl (messageId and 63))
+
+            eventCount++
+            dataEnd = offset + length
+            lastTimestamp = timestamp
+        }
+
+        fun build(sourceLength: Long, sourceLastModified: Long): TLogIndex {
+            return TLogIndex(sourceLength, sourceLastModified, stride, eventCount, dataEnd, lastTimestamp,
+                    Arrays.copyOf(blockTimestamps, blockCount),
+                    Arrays.copyOf(blockOffsets, blockCount),
+                    Arrays.copyOf(blockMessageMasks, blockCount * MASK_WORDS_PER_BLOCK))
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.droidplanner.android.tlog.index
+
+import com.o3dr.android.client.utils.data.tlog.TLogParser
+import java.io.IOException
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Decodes the events of an indexed tlog file on a pool of worker threads.
+ *
+ * The index blocks start on record boundaries, so runs of consecutive blocks are independent byte ranges which
+ * can be decoded concurrently. The decoded ranges are handed back in file order, which is the timestamp order
+ * of the tlog events.
+ */
+class TLogParallelDecoder(private val blockReader: TLogBlockReader,
+                          private val threadCount: Int = Runtime.getRuntime().availableProcessors()) {
+
+    constructor(eventReader: TLogEventReader) : this(eventReader.blockReader)
+
+    private companion object {
+        const val BLOCKS_PER_RANGE = 16
+
+        // Number of decoded ranges allowed to wait for the consumer, per worker thread.
+        const val MAX_PENDING_RANGES_PER_THREAD = 2
+    }
+
+    /**
+     * Decodes the given index blocks, and passes the accepted events to [onEvents] in file order.
+     * [onEvents] is invoked on the calling thread.
+     *
+     * @param blocks Index blocks to decode, in ascending order
+     * @param acceptMessage Filter on the mavlink message id of the records to decode
+     * @param isCancelled Polled between ranges to abort the decoding
+     */
+    @Throws(IOException::class)
+    fun decode(blocks: IntArray, acceptMessage: (Int) -> Boolean, isCancelled: () -> Boolean,
+               onEvents: (List<TLogParser.Event>) -> Unit) {
+        decodeRanges(blocks, acceptMessage, isCancelled) { _, rangeEvents ->
+            val events = ArrayList<TLogParser.Event>()
+            for (blockEvents in rangeEvents) {
+                events.addAll(blockEvents)
+            }
+            onEvents(events)
+        }
+    }
+
+    /**
+     * Same as [decode], but the accepted events are passed to [onBlock] one index block at a time, along with
+     * the block they were decoded from.
+     */
+    @Throws(IOException::class)
+    fun decodeBlocks(blocks: IntArray, acceptMessage: (Int) -> Boolean, isCancelled: () -> Boolean,
+                     onBlock: (Int, List<TLogParser.Event>) -> Unit) {
+        decodeRanges(blocks, acceptMessage, isCancelled) { rangeStart, rangeEvents ->
+            for (i in rangeEvents.indices) {
+                onBlock(blocks[rangeStart + i], rangeEvents[i])
+            }
+        }
+    }
+
+    /**
+     * Decodes the given index blocks in ranges of consecutive blocks, and passes each range's events, per block,
+     * to [onRange] in file order.
+     */
+    @Throws(IOException::class)
+    private fun decodeRanges(blocks: IntArray, acceptMessage: (Int) -> Boolean, isCancelled: () -> Boolean,
+                             onRange: (Int, List<List<TLogParser.Event>>) -> Unit) {
+        if (blocks.isEmpty())
+            return
+
+        val executor = Executors.newFixedThreadPool(threadCount)
+        val pendingRanges = ArrayDeque<Future<List<List<TLogParser.Event>>>>()
+        val pendingRangeStarts = ArrayDeque<Int>()
+        val maxPendingRanges = threadCount * MAX_PENDING_RANGES_PER_THREAD
+        var nextBlock = 0
+
+        try {
+            while ((nextBlock < blocks.size || pendingRanges.isNotEmpty()) && !isCancelled()) {
+                while (nextBlock < blocks.size && pendingRanges.size < maxPendingRanges) {
+                    val rangeStart = nextBlock
+                    val rangeEnd = Math.min(rangeStart + BLOCKS_PER_RANGE, blocks.size)
+                    pendingRanges.add(executor.submit(Callable<List<List<TLogParser.Event>>> {
+                        decodeRange(blocks, rangeStart, rangeEnd, acceptMessage)
+                    }))
+                    pendingRangeStarts.add(rangeStart)
+                    nextBlock = rangeEnd
+                }
+
+                onRange(pendingRangeStarts.poll(), getDecodedRange(pendingRanges.poll()))
+            }
+        } finally {
+            // Don't interrupt the workers, as it would close the file channel of the event reader.
+            for (pendingRange in pendingRanges) {
+                pendingRange.cancel(false)
+            }
+            executor.shutdown()
+        }
+    }
+
+    @Throws(IOException::class)
+    private fun getDecodedRange(future: Future<List<List<TLogParser.Event>>>): List<List<TLogParser.Event>> {
+        try {
+            return future.get()
+        } catch(e: InterruptedException) {
+            throw IOException("Interrupted while decoding tlog events", e)
+        } catch(e: ExecutionException) {
+            val cause = e.cause
+            throw cause as? IOException ?: IOException("Unable to decode tlog events", cause)
+        }
+    }
+
+    private fun decodeRange(blocks: IntArray, rangeStart: Int, rangeEnd: Int,
+                            acceptMessage: (Int) -> Boolean): List<List<TLogParser.Event>> {
+        val events = ArrayList<List<TLogParser.Event>>(rangeEnd - rangeStart)
+        for (i in rangeStart until rangeEnd) {
+            events.add(blockReader.decodeBlock(blocks[i], acceptMessage))
+        }
+        return events
+    }
+}
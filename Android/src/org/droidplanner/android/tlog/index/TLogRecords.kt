@@ -0,0 +1,83 @@
+package org.droidplanner.android.tlog.index
+
+/**
+ * Helpers used to walk the raw records of a tlog file without decoding them.
+ *
+ * A tlog record is made of a big endian timestamp (in microseconds), followed by a mavlink v1 frame.
+ */
+object TLogRecords {
+
+    const val TIMESTAMP_LENGTH = 8
+
+    const val MAVLINK_STX = 0xFE
+    const val MAVLINK_HEADER_LENGTH = 6
+    const val MAVLINK_CRC_LENGTH = 2
+
+    const val MIN_RECORD_LENGTH = TIMESTAMP_LENGTH + MAVLINK_HEADER_LENGTH + MAVLINK_CRC_LENGTH
+    const val MAX_RECORD_LENGTH = MIN_RECORD_LENGTH + 255
+
+    private const val PAYLOAD_LENGTH_OFFSET = TIMESTAMP_LENGTH + 1
+    private const val MESSAGE_ID_OFFSET = TIMESTAMP_LENGTH + 5
+
+    // Timestamps outside of [2000, 2100) are treated as garbage when looking for a record boundary.
+    private const val MIN_TIMESTAMP_US = 946684800000000L
+    private const val MAX_TIMESTAMP_US = 4102444800000000L
+
+    fun getTimestamp(buffer: ByteArray, start: Int): Long {
+        var timestamp = 0L
+        for (i in start until start + TIMESTAMP_LENGTH) {
+            timestamp = (timestamp shl 8) or (buffer[i].toLong() and 0xffL)
+        }
+        return timestamp
+    }
+
+    fun getPayloadLength(buffer: ByteArray, start: Int) = buffer[start + PAYLOAD_LENGTH_OFFSET].toInt() and 0xff
+
+    fun getMessageId(buffer: ByteArray, start: Int) = buffer[start + MESSAGE_ID_OFFSET].toInt() and 0xff
+
+    fun getRecordLength(buffer: ByteArray, start: Int) = MIN_RECORD_LENGTH + getPayloadLength(buffer, start)
+
+    /**
+     * @return true if the bytes at [start] look like the beginning of a tlog record.
+     */
+    fun isRecordHeader(buffer: ByteArray, start: Int, end: Int): Boolean {
+        if (end - start < MIN_RECORD_LENGTH)
+            return false
+
+        if ((buffer[start + TIMESTAMP_LENGTH].toInt() and 0xff) != MAVLINK_STX)
+            return false
+
+        val timestamp = getTimestamp(buffer, start)
+        return timestamp in MIN_TIMESTAMP_US..(MAX_TIMESTAMP_US - 1)
+    }
+
+    /**
+     * Walks the complete records in buffer[start, end), skipping over corrupted bytes until the next
+     * plausible record boundary.
+     * [onRecord] is invoked with the record start, length, timestamp (in microseconds) and mavlink message id,
+     * and returns false to stop the walk.
+     *
+     * @return the position of the first byte that wasn't consumed. This is the start of the trailing
+     * incomplete record when the buffer is a window over a larger stream.
+     */
+    inline fun scan(buffer: ByteArray, start: Int, end: Int,
+                    onRecord: (recordStart: Int, recordLength: Int, timestampUs: Long, messageId: Int) -> Boolean): Int {
+        var position = start
+        while (end - position >= MIN_RECORD_LENGTH) {
+            if (!isRecordHeader(buffer, position, end)) {
+                position++
+                continue
+            }
+
+            val recordLength = getRecordLength(buffer, position)
+            if (position + recordLength > end)
+                break
+
+            val recordStart = position
+            position += recordLength
+            if (!onRecord(recordStart, recordLength, getTimestamp(buffer, recordStart), getMessageId(buffer, recordStart)))
+                break
+        }
+        return position
+    }
+}
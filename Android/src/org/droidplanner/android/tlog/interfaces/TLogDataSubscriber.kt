@@ -2,12 +2,20 @@ package org.droidplanner.android.tlog.interfaces
 
 import com.o3dr.android.client.utils.data.tlog.TLogParser
 import org.droidplanner.android.droneshare.data.SessionContract
+import org.droidplanner.android.tlog.index.TLogEventReader
 
 /**
  * @author ne0fhyk (Fredia Huya-Kouadio)
  */
 interface TLogDataSubscriber {
+    /**
+     * @return the mavlink message ids of the tlog events this subscriber wants to receive through
+     * [onTLogDataLoaded], or null if it doesn't need any. The other records are not decoded on its behalf.
+     */
+    fun getTLogMessageIds(): IntArray? = null
+
     fun onTLogSelected(tlogSession: SessionContract.SessionData)
-    fun onTLogDataLoaded(events: List<TLogParser.Event>, hasMore: Boolean = true)
+    fun onTLogIndexLoaded(eventReader: TLogEventReader) {}
+    fun onTLogDataLoaded(events: List<TLogParser.Event>, hasMore: Boolean = true) {}
     fun onClearTLogData()
-}
\ No newline at end of file
+}
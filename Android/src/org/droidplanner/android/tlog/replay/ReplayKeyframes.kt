@@ -0,0 +1,191 @@
+package org.droidplanner.android.tlog.replay
+
+import android.content.Context
+import org.droidplanner.android.tlog.index.TLogEventReader
+import org.droidplanner.android.tlog.index.TLogIndex
+import org.droidplanner.android.tlog.index.TLogParallelDecoder
+import org.droidplanner.android.utils.TLogUtils
+import timber.log.Timber
+import java.io.*
+
+/**
+ * Replay state at the start of each block of a [TLogIndex].
+ *
+ * Seeking to a given time only requires the keyframe of the block containing it, and decoding the block up to
+ * that time. Blocks hold at most [TLogIndex.stride] records, so the decoding cost of a seek doesn't depend on
+ * the log length.
+ */
+class ReplayKeyframes private constructor(val sourceLength: Long,
+                                          val sourceLastModified: Long,
+                                          private val keyframes: Array<ReplayState>) {
+
+    companion object {
+        private const val KEYFRAMES_MAGIC = 0x544c4b46 // 'TLKF'
+        private const val KEYFRAMES_VERSION = 2
+
+        /**
+         * Loads the sidecar keyframes for the given tlog file, or builds and persists them if they're missing or
+         * stale. Must be called from a background thread.
+         * @return the keyframes, or null if the build was cancelled.
+         */
+        @Throws(IOException::class)
+        fun open(context: Context, eventReader: TLogEventReader, isCancelled: () -> Boolean = { false }): ReplayKeyframes? {
+            val index = eventReader.index
+            val keyframesFile = TLogUtils.getTLogKeyframesFile(context, eventReader.uri)
+            val existingKeyframes = load(keyframesFile)
+            if (existingKeyframes != null
+                    && existingKeyframes.sourceLength == index.sourceLength
+                    && existingKeyframes.sourceLastModified == index.sourceLastModified
+                    && existingKeyframes.size == index.blockCount) {
+                return existingKeyframes
+            }
+
+            val keyframes = build(eventReader, isCancelled) ?: return null
+            try {
+                keyframes.save(keyframesFile)
+            } catch(e: IOException) {
+                Timber.w(e, "Unable to persist tlog keyframes to %s", keyframesFile)
+            }
+            return keyframes
+        }
+
+        /**
+         * Reads persisted keyframes.
+         * @return the keyframes, or null if the file doesn't exist or is not a valid keyframes file.
+         */
+        fun load(keyframesFile: File): ReplayKeyframes? {
+            if (!keyframesFile.isFile)
+                return null
+
+            try {
+                val input = DataInputStream(BufferedInputStream(FileInputStream(keyframesFile)))
+                try {
+                    if (input.readInt() != KEYFRAMES_MAGIC || input.readInt() != KEYFRAMES_VERSION)
+                        return null
+
+                    val sourceLength = input.readLong()
+                    val sourceLastModified = input.readLong()
+                    val keyframeCount = input.readInt()
+
+                    // Consecutive blocks without replayed messages share the same keyframe, which is only
+                    // written once, followed by its repeat count.
+                    val keyframes = arrayOfNulls<ReplayState>(keyframeCount)
+                    var i = 0
+                    while (i < keyframeCount) {
+                        val keyframe = ReplayState.read(input)
+                        val repeatCount = input.readInt()
+                        for (j in 0 until repeatCount) {
+                            keyframes[i++] = keyframe
+                        }
+                    }
+
+                    @Suppress("UNCHECKED_CAST")
+                    return ReplayKeyframes(sourceLength, sourceLastModified, keyframes as Array<ReplayState>)
+                } finally {
+                    input.close()
+                }
+            } catch(e: IOException) {
+                Timber.w(e, "Unable to read tlog keyframes %s", keyframesFile)
+                return null
+            } catch(e: IndexOutOfBoundsException) {
+                Timber.w(e, "Invalid tlog keyframes %s", keyframesFile)
+                return null
+            }
+        }
+
+        /**
+         * Builds the keyframes by replaying the whole tlog file. Only the replayed messages are decoded, and
+         * the blocks which don't contain any are skipped without being read.
+         * @return the keyframes, or null if the build was cancelled.
+         */
+        @Throws(IOException::class)
+        fun build(eventReader: TLogEventReader, isCancelled: () -> Boolean = { false }): ReplayKeyframes? {
+            val index = eventReader.index
+            val blockCount = index.blockCount
+            val keyframes = arrayOfNulls<ReplayState>(blockCount)
+
+            val blocks = (0 until blockCount).filter { containsReplayedMessage(index, it) }.toIntArray()
+
+            // Keyframes are only copied when the state changes, unchanged blocks share the previous one.
+            val state = ReplayState()
+            var keyframe = state.copy()
+            var nextBlock = 0
+            TLogParallelDecoder(eventReader).decodeBlocks(blocks, { ReplayState.isReplayedMessage(it) },
+                    isCancelled) { block, events ->
+                while (nextBlock <= block) {
+                    keyframes[nextBlock++] = keyframe
+                }
+
+                for (event in events) {
+                    state.apply(event.mavLinkMessage)
+                }
+                if (events.isNotEmpty())
+                    keyframe = state.copy()
+            }
+
+            if (isCancelled())
+                return null
+
+            while (nextBlock < blockCount) {
+                keyframes[nextBlock++] = keyframe
+            }
+
+            @Suppress("UNCHECKED_CAST")
+            return ReplayKeyframes(index.sourceLength, index.sourceLastModified, keyframes as Array<ReplayState>)
+        }
+
+        private fun containsReplayedMessage(index: TLogIndex, block: Int): Boolean {
+            for (messageId in ReplayState.MESSAGE_IDS) {
+                if (index.blockContainsMessage(block, messageId))
+                    return true
+            }
+            return false
+        }
+    }
+
+    val size: Int
+        get() = keyframes.size
+
+    /**
+     * @return the replay state at the start of the given index block. It's shared, and must be copied before
+     * being updated.
+     */
+    fun getKeyframe(block: Int) = keyframes[block]
+
+    @Throws(IOException::class)
+    fun save(keyframesFile: File) {
+        val tmpFile = File(keyframesFile.parentFile, keyframesFile.name + ".tmp")
+        val output = DataOutputStream(BufferedOutputStream(FileOutputStream(tmpFile)))
+        try {
+            output.writeInt(KEYFRAMES_MAGIC)
+            output.writeInt(KEYFRAMES_VERSION)
+            output.writeLong(sourceLength)
+            output.writeLong(sourceLastModified)
+            output.writeInt(keyframes.size)
+
+            var i = 0
+            while (i < keyframes.size) {
+                val keyframe = keyframes[i]
+                var repeatCount = 1
+                while (i + repeatCount < keyframes.size && keyframes[i + repeatCount] === keyframe) {
+                    repeatCount++
+                }
+
+                keyframe.write(output)
+                output.writeInt(repeatCount)
+                i += repeatCount
+            }
+        } finally {
+            output.close()
+        }
+
+        if (!tmpFile.renameTo(keyframesFile)) {
+            tmpFile.delete()
+            throw IOException("Unable to move $tmpFile to $keyframesFile")
+        }
+    }
+
+    override fun toString(): String {
+        return "ReplayKeyframes{size=$size, sourceLength=$sourceLength}"
+    }
+}
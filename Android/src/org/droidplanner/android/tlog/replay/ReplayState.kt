@@ -0,0 +1,212 @@
+package org.droidplanner.android.tlog.replay
+
+import com.MAVLink.Messages.MAVLinkMessage
+import com.MAVLink.common.*
+import com.o3dr.services.android.lib.coordinate.LatLong
+import com.o3dr.services.android.lib.coordinate.LatLongAlt
+import com.o3dr.services.android.lib.drone.property.*
+import java.io.DataInput
+import java.io.DataOutput
+import java.io.IOException
+
+/**
+ * Vehicle attributes reconstructed from the mavlink messages of a tlog file.
+ *
+ * Only the messages backing the attributes shown by the map and the telemetry widgets are replayed. Each
+ * attribute group is updated by a single message type, so the state at any point in the log only depends on the
+ * last message of each type received before it.
+ */
+data class ReplayState(var hasPosition: Boolean = false,
+                       var latitude: Double = 0.0,
+                       var longitude: Double = 0.0,
+                       var fixType: Int = 0,
+                       var satellitesCount: Int = 0,
+                       var gpsEph: Double = UNKNOWN_GPS_EPH,
+                       var altitude: Double = 0.0,
+                       var groundSpeed: Double = 0.0,
+                       var airSpeed: Double = 0.0,
+                       var verticalSpeed: Double = 0.0,
+                       var roll: Double = 0.0,
+                       var pitch: Double = 0.0,
+                       var yaw: Double = 0.0,
+                       var batteryVoltage: Double = 0.0,
+                       var batteryCurrent: Double = 0.0,
+                       var batteryRemain: Double = 0.0,
+                       var hasHome: Boolean = false,
+                       var homeLatitude: Double = 0.0,
+                       var homeLongitude: Double = 0.0,
+                       var homeAltitude: Double = 0.0) {
+
+    companion object {
+        // Attribute groups, as bit flags.
+        const val GPS = 1
+        const val ALTITUDE = 1 shl 1
+        const val SPEED = 1 shl 2
+        const val ATTITUDE = 1 shl 3
+        const val BATTERY = 1 shl 4
+        const val HOME = 1 shl 5
+
+        const val ALL_ATTRIBUTES = GPS or ALTITUDE or SPEED or ATTITUDE or BATTERY or HOME
+
+        /**
+         * Horizontal dilution of precision reported when the gps doesn't know it.
+         */
+        const val UNKNOWN_GPS_EPH = -1.0
+
+        // Value of the gps_raw_int eph field when unknown.
+        private const val MAVLINK_UNKNOWN_EPH = 65535
+
+        val MESSAGE_IDS = intArrayOf(
+                msg_sys_status.MAVLINK_MSG_ID_SYS_STATUS,
+                msg_gps_raw_int.MAVLINK_MSG_ID_GPS_RAW_INT,
+                msg_attitude.MAVLINK_MSG_ID_ATTITUDE,
+                msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT,
+                msg_vfr_hud.MAVLINK_MSG_ID_VFR_HUD,
+                msg_home_position.MAVLINK_MSG_ID_HOME_POSITION)
+
+        // Lookup table over the mavlink message ids, checked against every record header.
+        private val replayedMessages = BooleanArray(256).apply {
+            for (messageId in MESSAGE_IDS) {
+                this[messageId] = true
+            }
+        }
+
+        fun isReplayedMessage(messageId: Int) = replayedMessages[messageId]
+
+        @Throws(IOException::class)
+        fun read(input: DataInput): ReplayState {
+            return ReplayState(input.readBoolean(), input.readDouble(), input.readDouble(),
+                    input.readInt(), input.readInt(), input.readDouble(),
+                    input.readDouble(),
+                    input.readDouble(), input.readDouble(), input.readDouble(),
+                    input.readDouble(), input.readDouble(), input.readDouble(),
+                    input.readDouble(), input.readDouble(), input.readDouble(),
+                    input.readBoolean(), input.readDouble(), input.readDouble(), input.readDouble())
+        }
+    }
+
+    /**
+     * Updates the state with the given mavlink message.
+     * @return the attribute groups updated by the message.
+     */
+    fun apply(message: MAVLinkMessage): Int {
+        when (message) {
+            is msg_global_position_int -> {
+                hasPosition = message.lat != 0 || message.lon != 0
+                latitude = message.lat / 1E7
+                longitude = message.lon / 1E7
+                altitude = message.relative_alt / 1000.0
+                return GPS or ALTITUDE
+            }
+
+            is msg_gps_raw_int -> {
+                fixType = message.fix_type.toInt()
+                satellitesCount = message.satellites_visible.toInt()
+                gpsEph = if (message.eph == MAVLINK_UNKNOWN_EPH) UNKNOWN_GPS_EPH else message.eph / 100.0
+                return GPS
+            }
+
+            is msg_attitude -> {
+                roll = Math.toDegrees(message.roll.toDouble())
+                pitch = Math.toDegrees(message.pitch.toDouble())
+                yaw = Math.toDegrees(message.yaw.toDouble())
+                return ATTITUDE
+            }
+
+            is msg_vfr_hud -> {
+                groundSpeed = message.groundspeed.toDouble()
+                airSpeed = message.airspeed.toDouble()
+                verticalSpeed = message.climb.toDouble()
+                return SPEED
+            }
+
+            is msg_sys_status -> {
+                batteryVoltage = message.voltage_battery / 1000.0
+                batteryCurrent = message.current_battery / 100.0
+                batteryRemain = message.battery_remaining.toDouble()
+                return BATTERY
+            }
+
+            is msg_home_position -> {
+                hasHome = true
+                homeLatitude = message.latitude / 1E7
+                homeLongitude = message.longitude / 1E7
+                homeAltitude = message.altitude / 1000.0
+                return HOME
+            }
+
+            else -> return 0
+        }
+    }
+
+    fun newGps(): Gps {
+        val gps = Gps()
+        if (hasPosition)
+            gps.setPosition(LatLong(latitude, longitude))
+        gps.setFixType(fixType)
+        gps.setSatCount(satellitesCount)
+        gps.setGpsEph(gpsEph)
+        return gps
+    }
+
+    fun newAltitude(): Altitude {
+        val droneAltitude = Altitude()
+        droneAltitude.setAltitude(altitude)
+        return droneAltitude
+    }
+
+    fun newSpeed(): Speed {
+        val speed = Speed()
+        speed.setGroundSpeed(groundSpeed)
+        speed.setAirSpeed(airSpeed)
+        speed.setVerticalSpeed(verticalSpeed)
+        return speed
+    }
+
+    fun newAttitude(): Attitude {
+        val attitude = Attitude()
+        attitude.setRoll(roll)
+        attitude.setPitch(pitch)
+        attitude.setYaw(yaw)
+        return attitude
+    }
+
+    fun newBattery(): Battery {
+        val battery = Battery()
+        battery.setBatteryVoltage(batteryVoltage)
+        battery.setBatteryCurrent(batteryCurrent)
+        battery.setBatteryRemain(batteryRemain)
+        return battery
+    }
+
+    fun newHome(): Home {
+        val home = Home()
+        if (hasHome)
+            home.setCoordinate(LatLongAlt(homeLatitude, homeLongitude, homeAltitude))
+        return home
+    }
+
+    @Throws(IOException::class)
+    fun write(output: DataOutput) {
+        output.writeBoolean(hasPosition)
+        output.writeDouble(latitude)
+        output.writeDouble(longitude)
+        output.writeInt(fixType)
+        output.writeInt(satellitesCount)
+        output.writeDouble(gpsEph)
+        output.writeDouble(altitude)
+        output.writeDouble(groundSpeed)
+        output.writeDouble(airSpeed)
+        output.writeDouble(verticalSpeed)
+        output.writeDouble(roll)
+        output.writeDouble(pitch)
+        output.writeDouble(yaw)
+        output.writeDouble(batteryVoltage)
+        output.writeDouble(batteryCurrent)
+        output.writeDouble(batteryRemain)
+        output.writeBoolean(hasHome)
+        output.writeDouble(homeLatitude)
+        output.writeDouble(homeLongitude)
+        output.writeDouble(homeAltitude)
+    }
+}
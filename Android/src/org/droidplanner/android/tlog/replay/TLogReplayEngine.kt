@@ -0,0 +1,398 @@
+package org.droidplanner.android.tlog.replay
+
+import android.content.Context
+import android.os.*
+import com.o3dr.android.client.utils.data.tlog.TLogParser
+import com.o3dr.services.android.lib.drone.attribute.AttributeEvent
+import com.o3dr.services.android.lib.drone.attribute.AttributeType
+import com.o3dr.services.android.lib.drone.property.*
+import org.droidplanner.android.DroidPlannerApp
+import org.droidplanner.android.tlog.index.TLogEventReader
+import org.droidplanner.android.utils.VehicleSnapshot
+import timber.log.Timber
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Replays the vehicle attributes recorded in an indexed tlog file, in place of the connected drone's.
+ *
+ * The replayed attributes are served to the ui through the app [VehicleSnapshot], and their updates are published
+ * on the app event bus, so the map and the telemetry widgets render them as they would the live telemetry.
+ *
+ * Seeking restores the [ReplayKeyframes] state of the index block containing the target time, and decodes the
+ * block up to it. Scrubbing is coalesced: only the latest seek request is processed. Playback decodes forward
+ * from the current position, at 1x to 64x the recorded speed.
+ *
+ * The replay runs on a dedicated thread. The public methods must be called from the main thread, on which the
+ * [Listener] callbacks are invoked.
+ */
+class TLogReplayEngine(context: Context,
+                       private val eventReader: TLogEventReader,
+                       private val listener: Listener) : VehicleSnapshot.Source {
+
+    interface Listener {
+        /**
+         * The replay keyframes are loaded, and the log can be played back between the given timestamps.
+         */
+        fun onReplayReady(startTime: Long, endTime: Long)
+
+        fun onReplayFailed()
+
+        fun onReplayTimeUpdated(replayTime: Long)
+
+        /**
+         * The playback stopped on its own: either the end of the log was reached, or the replay was interrupted
+         * by a vehicle connection.
+         */
+        fun onReplayPaused(interrupted: Boolean)
+    }
+
+    companion object {
+        const val MIN_SPEED = 1
+        const val MAX_SPEED = 64
+
+        private const val TICK_PERIOD = 33L //ms
+
+        private const val NO_SEEK = Long.MIN_VALUE
+
+        private val GPS_EVENTS = arrayOf(AttributeEvent.GPS_POSITION, AttributeEvent.GPS_FIX,
+                AttributeEvent.GPS_COUNT)
+    }
+
+    private val appContext = context.applicationContext
+    private val dpApp = appContext as DroidPlannerApp
+
+    private val workerThread = HandlerThread("TLog replay", Process.THREAD_PRIORITY_DEFAULT)
+    private val worker: Handler
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    private val index = eventReader.index
+
+    // Worker thread state.
+    private var keyframes: ReplayKeyframes? = null
+    private var state = ReplayState()
+    private var currentBlock = -1
+    private var blockEvents: List<TLogParser.Event> = emptyList()
+    private var nextEventIndex = 0
+    private var replayTime = NO_SEEK
+    private var lastTickTime = 0L
+
+    private val pendingSeek = AtomicLong(NO_SEEK)
+
+    @Volatile private var isReleased = false
+
+    @Volatile var isPlaying = false
+        private set
+
+    @Volatile var speed = MIN_SPEED
+        set(value) {
+            field = Math.max(MIN_SPEED, Math.min(MAX_SPEED, value))
+        }
+
+    // Latest replayed attributes, read from the ui threads.
+    @Volatile private var gps: Gps? = null
+    @Volatile private var altitude: Altitude? = null
+    @Volatile private var droneSpeed: Speed? = null
+    @Volatile private var attitude: Attitude? = null
+    @Volatile private var battery: Battery? = null
+    @Volatile private var home: Home? = null
+
+    @Volatile private var uiReplayTime = NO_SEEK
+
+    private val loadTask = Runnable {
+        try {
+            val loadedKeyframes = ReplayKeyframes.open(appContext, eventReader) { isReleased }
+            if (loadedKeyframes == null || isReleased)
+                return@Runnable
+
+            Timber.i("Loaded tlog replay keyframes: %s", loadedKeyframes)
+            keyframes = loadedKeyframes
+            seekTo(index.firstTimestamp)
+            updateAttributes(ReplayState.ALL_ATTRIBUTES)
+
+            mainHandler.post {
+                if (!isReleased)
+                    listener.onReplayReady(index.firstTimestamp, index.lastTimestamp)
+            }
+        } catch(e: IOException) {
+            Timber.e(e, "Unable to load the tlog replay keyframes")
+            mainHandler.post {
+                if (!isReleased)
+                    listener.onReplayFailed()
+            }
+        }
+    }
+
+    private val seekTask = Runnable {
+        val targetTime = pendingSeek.getAndSet(NO_SEEK)
+        if (targetTime != NO_SEEK && keyframes != null) {
+            try {
+                seekTo(targetTime)
+                publish(ReplayState.ALL_ATTRIBUTES)
+            } catch(e: IOException) {
+                Timber.e(e, "Unable to seek the tlog replay to %d", targetTime)
+            }
+        }
+    }
+
+    private val tickTask = object : Runnable {
+        override fun run() {
+            if (!isPlaying)
+                return
+
+            val now = SystemClock.elapsedRealtime()
+            val targetTime = replayTime + (now - lastTickTime) * speed
+            lastTickTime = now
+
+            try {
+                val changedAttributes = advanceTo(targetTime)
+                if (!publish(changedAttributes)) {
+                    stopPlaying(true)
+                    return
+                }
+            } catch(e: IOException) {
+                Timber.e(e, "Unable to play the tlog replay")
+                stopPlaying(false)
+                return
+            }
+
+            if (replayTime >= index.lastTimestamp)
+                stopPlaying(false)
+            else
+                worker.postDelayed(this, TICK_PERIOD)
+        }
+    }
+
+    private val timeUpdate = Runnable {
+        if (!isReleased && uiReplayTime != NO_SEEK)
+            listener.onReplayTimeUpdated(uiReplayTime)
+    }
+
+    // Keeps the event reader open until the worker thread is done with it.
+    private val isReaderRetained = eventReader.retain()
+
+    init {
+        workerThread.start()
+        worker = Handler(workerThread.looper)
+    }
+
+    /**
+     * Loads the replay keyframes, building them if needed. [Listener.onReplayReady] is invoked once done.
+     */
+    fun start() {
+        if (!isReaderRetained) {
+            listener.onReplayFailed()
+            return
+        }
+        worker.post(loadTask)
+    }
+
+    /**
+     * Moves the replay to the given time. Requests received while a seek is running are coalesced.
+     */
+    fun seek(timestamp: Long) {
+        pendingSeek.set(timestamp)
+        worker.removeCallbacks(seekTask)
+        worker.post(seekTask)
+    }
+
+    /**
+     * Plays back the log from the current replay time, at the current [speed]. The replay is fed to the ui only
+     * while no vehicle is connected.
+     * @return false if a vehicle is connected.
+     */
+    fun play(): Boolean {
+        if (isReleased || !dpApp.startReplay(this))
+            return false
+
+        if (!isPlaying) {
+            isPlaying = true
+            worker.post {
+                if (keyframes != null) {
+                    try {
+                        // Restart from the beginning once the end of the log was reached.
+                        if (replayTime >= index.lastTimestamp)
+                            seekTo(index.firstTimestamp)
+                        publish(ReplayState.ALL_ATTRIBUTES)
+                    } catch(e: IOException) {
+                        Timber.e(e, "Unable to restart the tlog replay")
+                    }
+                }
+
+                lastTickTime = SystemClock.elapsedRealtime()
+                tickTask.run()
+            }
+        }
+        return true
+    }
+
+    fun pause() {
+        isPlaying = false
+        worker.removeCallbacks(tickTask)
+    }
+
+    /**
+     * Feeds the ui with the replayed attributes, without playing back the log, e.g: to scrub through it.
+     * @return false if a vehicle is connected.
+     */
+    fun attach(): Boolean {
+        if (isReleased || !dpApp.startReplay(this))
+            return false
+
+        worker.post {
+            if (keyframes != null)
+                publish(ReplayState.ALL_ATTRIBUTES)
+        }
+        return true
+    }
+
+    /**
+     * Stops the replay, and hands the ui back to the drone.
+     */
+    fun release() {
+        isReleased = true
+        isPlaying = false
+
+        worker.removeCallbacksAndMessages(null)
+        // Don't interrupt a running read, as it would close the file channel of the event reader. The reader is
+        // released once the running task, if any, is done.
+        worker.post {
+            if (isReaderRetained)
+                eventReader.release()
+            workerThread.quit()
+        }
+        mainHandler.removeCallbacksAndMessages(null)
+
+        dpApp.stopReplay(this)
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    override fun <T : Parcelable> getAttribute(attributeType: String): T? {
+        val attribute: Parcelable? = when (attributeType) {
+            AttributeType.GPS -> gps
+            AttributeType.ALTITUDE -> altitude
+            AttributeType.SPEED -> droneSpeed
+            AttributeType.ATTITUDE -> attitude
+            AttributeType.BATTERY -> battery
+            AttributeType.HOME -> home
+            else -> null
+        }
+        return attribute as T?
+    }
+
+    private fun stopPlaying(interrupted: Boolean) {
+        isPlaying = false
+        mainHandler.post {
+            if (!isReleased)
+                listener.onReplayPaused(interrupted)
+        }
+    }
+
+    /**
+     * Restores the state at the given time from the keyframe of its index block.
+     */
+    @Throws(IOException::class)
+    private fun seekTo(timestamp: Long) {
+        val block = index.getBlockForTimestamp(timestamp)
+        state = keyframes!!.getKeyframe(block).copy()
+        loadBlock(block)
+        replayTime = timestamp
+        advanceTo(timestamp)
+    }
+
+    /**
+     * Applies the replayed events up to the given time.
+     * @return the attribute groups updated along the way.
+     */
+    @Throws(IOException::class)
+    private fun advanceTo(timestamp: Long): Int {
+        val targetTime = Math.max(index.firstTimestamp, Math.min(index.lastTimestamp, timestamp))
+
+        var changedAttributes = 0
+        while (true) {
+            if (nextEventIndex >= blockEvents.size) {
+                if (currentBlock + 1 >= index.blockCount || index.getBlockTimestamp(currentBlock + 1) > targetTime)
+                    break
+
+                loadBlock(currentBlock + 1)
+                continue
+            }
+
+            val event = blockEvents[nextEventIndex]
+            if (event.timestamp > targetTime)
+                break
+
+            changedAttributes = changedAttributes or state.apply(event.mavLinkMessage)
+            nextEventIndex++
+        }
+
+        replayTime = targetTime
+        return changedAttributes
+    }
+
+    @Throws(IOException::class)
+    private fun loadBlock(block: Int) {
+        if (block != currentBlock) {
+            blockEvents = if (containsReplayedMessage(block))
+                eventReader.decodeBlock(block) { ReplayState.isReplayedMessage(it) }
+            else
+                emptyList()
+            currentBlock = block
+        }
+        nextEventIndex = 0
+    }
+
+    private fun containsReplayedMessage(block: Int): Boolean {
+        for (messageId in ReplayState.MESSAGE_IDS) {
+            if (index.blockContainsMessage(block, messageId))
+                return true
+        }
+        return false
+    }
+
+    private fun updateAttributes(changedAttributes: Int) {
+        if (changedAttributes and ReplayState.GPS != 0)
+            gps = state.newGps()
+        if (changedAttributes and ReplayState.ALTITUDE != 0)
+            altitude = state.newAltitude()
+        if (changedAttributes and ReplayState.SPEED != 0)
+            droneSpeed = state.newSpeed()
+        if (changedAttributes and ReplayState.ATTITUDE != 0)
+            attitude = state.newAttitude()
+        if (changedAttributes and ReplayState.BATTERY != 0)
+            battery = state.newBattery()
+        if (changedAttributes and ReplayState.HOME != 0)
+            home = state.newHome()
+    }
+
+    /**
+     * Updates the replayed attributes, and publishes their update events.
+     * @return false if the replay was stopped by the app.
+     */
+    private fun publish(changedAttributes: Int): Boolean {
+        updateAttributes(changedAttributes)
+
+        uiReplayTime = replayTime
+        mainHandler.removeCallbacks(timeUpdate)
+        mainHandler.post(timeUpdate)
+
+        var isReplaying = true
+        if (changedAttributes and ReplayState.GPS != 0) {
+            for (event in GPS_EVENTS) {
+                isReplaying = isReplaying && dpApp.publishReplayEvent(this, event)
+            }
+        }
+        if (changedAttributes and ReplayState.ALTITUDE != 0)
+            isReplaying = isReplaying && dpApp.publishReplayEvent(this, AttributeEvent.ALTITUDE_UPDATED)
+        if (changedAttributes and ReplayState.SPEED != 0)
+            isReplaying = isReplaying && dpApp.publishReplayEvent(this, AttributeEvent.SPEED_UPDATED)
+        if (changedAttributes and ReplayState.ATTITUDE != 0)
+            isReplaying = isReplaying && dpApp.publishReplayEvent(this, AttributeEvent.ATTITUDE_UPDATED)
+        if (changedAttributes and ReplayState.BATTERY != 0)
+            isReplaying = isReplaying && dpApp.publishReplayEvent(this, AttributeEvent.BATTERY_UPDATED)
+        if (changedAttributes and ReplayState.HOME != 0)
+            isReplaying = isReplaying && dpApp.publishReplayEvent(this, AttributeEvent.HOME_UPDATED)
+
+        return isReplaying && dpApp.vehicleSnapshot.source === this
+    }
+}
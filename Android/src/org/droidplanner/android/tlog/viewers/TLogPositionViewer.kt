@@ -15,8 +15,9 @@ import org.droidplanner.android.droneshare.data.SessionContract
 import org.droidplanner.android.tlog.adapters.TLogPositionEventAdapter
 import org.droidplanner.android.tlog.event.TLogEventListener
 import org.droidplanner.android.tlog.event.TLogEventMapFragment
+import org.droidplanner.android.tlog.index.TLogEventReader
+import org.droidplanner.android.utils.FlightTrack
 import org.droidplanner.android.utils.MapUtils
-import org.droidplanner.android.utils.SpaceTime
 import org.droidplanner.android.view.FastScroller
 
 /**
@@ -25,24 +26,24 @@ import org.droidplanner.android.view.FastScroller
 class TLogPositionViewer : TLogViewer(), TLogEventListener {
 
     companion object {
-        fun tlogEventToSpaceTime(event: TLogParser.Event): SpaceTime? {
-            if(event.mavLinkMessage !is msg_global_position_int)
-                return null
-
-            val position = event.mavLinkMessage as msg_global_position_int
-            return SpaceTime(position.lat.toDouble()/ 1E7,
-                    position.lon.toDouble()/ 1E7,
-                    getEventAltitude(position),
-                    event.timestamp)
-        }
-
-        fun getEventAltitude(position: msg_global_position_int) : Double {
-            return (position.relative_alt / 1000.0)
+        fun appendPosition(track: FlightTrack, timestamp: Long, position: msg_global_position_int) {
+            val groundSpeed = Math.hypot(position.vx.toDouble(), position.vy.toDouble()) / 100.0
+            track.append(timestamp,
+                    position.lat.toDouble() / 1E7,
+                    position.lon.toDouble() / 1E7,
+                    position.relative_alt / 1000.0,
+                    Float.NaN,
+                    Float.NaN,
+                    position.hdg / 100f,
+                    groundSpeed.toFloat(),
+                    -position.vz / 100f)
         }
 
         const val STATE_NO_DATA = 0
         const val STATE_LOADING_DATA = 1
         const val STATE_DATA_LOADED = 2
+
+        private val POSITION_MESSAGE_IDS = intArrayOf(msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT)
     }
 
     private var tlogPositionAdapter : TLogPositionEventAdapter? = null
@@ -63,7 +64,7 @@ class TLogPositionViewer : TLogViewer(), TLogEventListener {
         getView()?.findViewById(R.id.fast_scroller) as FastScroller
     }
 
-    private val newPositionEvents = mutableListOf<TLogParser.Event>()
+    private val positionTrack = FlightTrack()
 
     private var tlogEventMap : TLogEventMapFragment? = null
 
@@ -95,7 +96,7 @@ class TLogPositionViewer : TLogViewer(), TLogEventListener {
             layoutManager = LinearLayoutManager(getContext(), LinearLayoutManager.HORIZONTAL, false)
         }
 
-        tlogPositionAdapter = TLogPositionEventAdapter(context, eventsView!!)
+        tlogPositionAdapter = TLogPositionEventAdapter(context, positionTrack)
         eventsView?.adapter = tlogPositionAdapter
 
         fastScroller.setRecyclerView(eventsView!!)
@@ -131,17 +132,7 @@ class TLogPositionViewer : TLogViewer(), TLogEventListener {
         when(item.itemId){
             R.id.menu_export_mission -> {
                 // Generate a mission from the drone historical gps position.
-                val events = tlogPositionAdapter?.getItems() ?: return true
-                val positions = mutableListOf<SpaceTime>()
-                for(event in events){
-                    if(event == null)
-                        continue
-
-                    val spaceTime = tlogEventToSpaceTime(event) ?: continue
-                    positions.add(spaceTime)
-                }
-
-                val missionItems = MapUtils.exportPathAsMissionItems(positions, 0.00012)
+                val missionItems = MapUtils.exportPathAsMissionItems(positionTrack, 0.00012)
 
                 val missionProxy = missionProxy
                 missionProxy.clear()
@@ -161,17 +152,23 @@ class TLogPositionViewer : TLogViewer(), TLogEventListener {
         return Math.round(value * scale).toInt()
     }
 
-    override fun onClearTLogData() {
+    override fun getTLogMessageIds() = POSITION_MESSAGE_IDS
+
+    private fun clearPositions() {
+        positionTrack.clear()
         tlogPositionAdapter?.clear()
         lastEventTimestamp = -1L
+    }
+
+    override fun onClearTLogData() {
+        clearPositions()
         stateNoData()
 
         tlogEventMap?.onClearTLogData()
     }
 
     override fun onTLogSelected(tlogSession: SessionContract.SessionData) {
-        tlogPositionAdapter?.clear()
-        lastEventTimestamp = -1L
+        clearPositions()
         stateLoadingData()
 
         // Refresh the map.
@@ -183,25 +180,31 @@ class TLogPositionViewer : TLogViewer(), TLogEventListener {
         lastEventTimestamp = -1L
     }
 
+    override fun onTLogIndexLoaded(eventReader: TLogEventReader) {
+        // The position events are streamed in next through onTLogDataLoaded.
+        clearPositions()
+        stateLoadingData()
+        tlogEventMap?.onClearTLogData()
+    }
+
     override fun onTLogDataLoaded(events: List<TLogParser.Event>, hasMore: Boolean) {
-        // Parse the event list and retrieve only the position events.
-        newPositionEvents.clear()
+
+        // Append the position events to the flight track.
+        val firstNewIndex = positionTrack.size()
 
         for(event in events){
-            if(event.mavLinkMessage is msg_global_position_int) {
-                // Events should be at least 1 second apart.
-                if(lastEventTimestamp == -1L || (event.timestamp/1000 - lastEventTimestamp/1000) >= 1L){
-                    lastEventTimestamp = event.timestamp
-                    newPositionEvents.add(event)
-                }
+            val position = event.mavLinkMessage as? msg_global_position_int ?: continue
+            // Events should be at least 1 second apart.
+            if(lastEventTimestamp == -1L || (event.timestamp/1000 - lastEventTimestamp/1000) >= 1L){
+                lastEventTimestamp = event.timestamp
+                appendPosition(positionTrack, event.timestamp, position)
             }
         }
 
         // Refresh the adapter
-        tlogPositionAdapter?.addItems(newPositionEvents)
-        tlogPositionAdapter?.setHasMoreData(hasMore)
+        tlogPositionAdapter?.onPositionsAppended(firstNewIndex, hasMore)
 
-        if(tlogPositionAdapter?.itemCount == 0){
+        if(positionTrack.isEmpty){
             if(hasMore){
                 stateLoadingData()
             }
@@ -212,12 +215,12 @@ class TLogPositionViewer : TLogViewer(), TLogEventListener {
             stateDataLoaded()
         }
 
-        tlogEventMap?.onTLogDataLoaded(newPositionEvents, hasMore)
+        tlogEventMap?.onTLogTrackUpdated(positionTrack, firstNewIndex)
     }
 
-    override fun onTLogEventSelected(event: TLogParser.Event?) {
+    override fun onTLogPositionSelected(index: Int) {
         //Propagate the click event to the map
-        tlogEventMap?.onTLogEventSelected(event)
+        tlogEventMap?.onTLogPositionSelected(index)
     }
 
     private fun stateLoadingData() {
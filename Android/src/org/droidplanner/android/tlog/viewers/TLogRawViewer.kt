@@ -7,10 +7,10 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
-import com.o3dr.android.client.utils.data.tlog.TLogParser
 import org.droidplanner.android.R
 import org.droidplanner.android.droneshare.data.SessionContract
 import org.droidplanner.android.tlog.adapters.TLogRawEventAdapter
+import org.droidplanner.android.tlog.index.TLogEventReader
 import org.droidplanner.android.view.FastScroller
 
 /**
@@ -48,7 +48,7 @@ class TLogRawViewer : TLogViewer() {
             layoutManager = LinearLayoutManager(getContext())
         }
 
-        tlogEventsAdapter = TLogRawEventAdapter(rawData!!, null)
+        tlogEventsAdapter = TLogRawEventAdapter()
         rawData?.adapter = tlogEventsAdapter
 
         fastScroller.setRecyclerView(rawData!!)
@@ -64,18 +64,12 @@ class TLogRawViewer : TLogViewer() {
         stateLoadingData()
     }
 
-    override fun onTLogDataLoaded(events: List<TLogParser.Event>, hasMore: Boolean){
+    override fun onTLogIndexLoaded(eventReader: TLogEventReader) {
         // Refresh the recycler view
-        tlogEventsAdapter?.addItems(events)
-        tlogEventsAdapter?.setHasMoreData(hasMore)
-
-        if(tlogEventsAdapter?.itemCount == 0){
-            if(hasMore){
-                stateLoadingData()
-            }
-            else {
-                stateNoData()
-            }
+        tlogEventsAdapter?.setEventReader(eventReader)
+
+        if(eventReader.eventCount == 0){
+            stateNoData()
         }
         else{
             stateDataLoaded()
@@ -0,0 +1,230 @@
+package org.droidplanner.android.tlog.viewers
+
+import android.os.Bundle
+import android.text.format.DateUtils
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.*
+import org.droidplanner.android.R
+import org.droidplanner.android.droneshare.data.SessionContract
+import org.droidplanner.android.fragments.widget.telemetry.MiniWidgetAttitudeSpeedInfo
+import org.droidplanner.android.tlog.event.TLogEventMapFragment
+import org.droidplanner.android.tlog.index.TLogEventReader
+import org.droidplanner.android.tlog.replay.TLogReplayEngine
+
+/**
+ * Replays the selected tlog file through the map and the telemetry widgets, as if the vehicle was connected.
+ */
+class TLogReplayViewer : TLogViewer(), TLogReplayEngine.Listener {
+
+    companion object {
+        private val PLAYBACK_SPEEDS = intArrayOf(1, 2, 4, 8, 16, 32, 64)
+    }
+
+    // The viewer pages are detached when out of sight, so the views are looked up every time they're created.
+    private var playPauseButton: ImageButton? = null
+    private var speedButton: Button? = null
+    private var seekBar: SeekBar? = null
+    private var timeView: TextView? = null
+    private var statusView: TextView? = null
+
+    private var replayMap: TLogEventMapFragment? = null
+    private var replayEngine: TLogReplayEngine? = null
+
+    private var startTime = 0L
+    private var endTime = 0L
+    private var speedIndex = 0
+    private var isSeeking = false
+
+    override fun onCreateView(inflater: LayoutInflater, container: ViewGroup?, savedInstanceState: Bundle?): View? {
+        return inflater.inflate(R.layout.fragment_tlog_replay_viewer, container, false)
+    }
+
+    override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
+        super.onViewCreated(view, savedInstanceState)
+
+        playPauseButton = view.findViewById(R.id.tlog_replay_play_pause) as ImageButton?
+        speedButton = view.findViewById(R.id.tlog_replay_speed) as Button?
+        seekBar = view.findViewById(R.id.tlog_replay_seek_bar) as SeekBar?
+        timeView = view.findViewById(R.id.tlog_replay_time) as TextView?
+        statusView = view.findViewById(R.id.tlog_replay_status) as TextView?
+
+        val fm = childFragmentManager
+        replayMap = fm.findFragmentById(R.id.tlog_replay_map_container) as TLogEventMapFragment?
+        if (replayMap == null) {
+            replayMap = TLogEventMapFragment()
+            fm.beginTransaction().add(R.id.tlog_replay_map_container, replayMap).commit()
+        }
+
+        if (fm.findFragmentById(R.id.tlog_replay_widget_container) == null) {
+            fm.beginTransaction().add(R.id.tlog_replay_widget_container, MiniWidgetAttitudeSpeedInfo()).commit()
+        }
+
+        view.findViewById(R.id.my_location_button)?.setOnClickListener {
+            replayMap?.goToMyLocation()
+        }
+
+        view.findViewById(R.id.drone_location_button)?.setOnClickListener {
+            replayMap?.goToDroneLocation()
+        }
+
+        playPauseButton?.setOnClickListener {
+            togglePlayback()
+        }
+
+        speedButton?.setOnClickListener {
+            speedIndex = (speedIndex + 1) % PLAYBACK_SPEEDS.size
+            replayEngine?.speed = PLAYBACK_SPEEDS[speedIndex]
+            updateSpeedLabel()
+        }
+        updateSpeedLabel()
+
+        seekBar?.setOnSeekBarChangeListener(object : SeekBar.OnSeekBarChangeListener {
+            override fun onStartTrackingTouch(seekBar: SeekBar) {
+                isSeeking = true
+                val engine = replayEngine
+                if (engine != null && !engine.attach())
+                    showVehicleConnectedWarning()
+            }
+
+            override fun onProgressChanged(seekBar: SeekBar, progress: Int, fromUser: Boolean) {
+                if (!fromUser)
+                    return
+
+                val replayTime = startTime + progress
+                replayEngine?.seek(replayTime)
+                updateTimeLabel(replayTime)
+            }
+
+            override fun onStopTrackingTouch(seekBar: SeekBar) {
+                isSeeking = false
+            }
+        })
+    }
+
+    override fun onDestroyView() {
+        super.onDestroyView()
+        releaseReplay()
+
+        playPauseButton = null
+        speedButton = null
+        seekBar = null
+        timeView = null
+        statusView = null
+    }
+
+    override fun onClearTLogData() {
+        releaseReplay()
+        stateNoData()
+    }
+
+    override fun onTLogSelected(tlogSession: SessionContract.SessionData) {
+        releaseReplay()
+        statePreparing()
+    }
+
+    override fun onTLogIndexLoaded(eventReader: TLogEventReader) {
+        releaseReplay()
+
+        if (eventReader.eventCount == 0) {
+            stateNoData()
+            return
+        }
+
+        statePreparing()
+        replayEngine = TLogReplayEngine(context, eventReader, this).apply {
+            speed = PLAYBACK_SPEEDS[speedIndex]
+            start()
+        }
+    }
+
+    override fun onReplayReady(startTime: Long, endTime: Long) {
+        this.startTime = startTime
+        this.endTime = endTime
+
+        seekBar?.apply {
+            max = (endTime - startTime).toInt()
+            progress = 0
+        }
+        updateTimeLabel(startTime)
+        updatePlayPauseButton(false)
+        stateReady()
+    }
+
+    override fun onReplayFailed() {
+        releaseReplay()
+        stateNoData()
+        Toast.makeText(context, R.string.error_tlog_replay_failed, Toast.LENGTH_LONG).show()
+    }
+
+    override fun onReplayTimeUpdated(replayTime: Long) {
+        if (!isSeeking) {
+            seekBar?.progress = (replayTime - startTime).toInt()
+            updateTimeLabel(replayTime)
+        }
+    }
+
+    override fun onReplayPaused(interrupted: Boolean) {
+        updatePlayPauseButton(false)
+        if (interrupted)
+            showVehicleConnectedWarning()
+    }
+
+    private fun togglePlayback() {
+        val engine = replayEngine ?: return
+        if (engine.isPlaying) {
+            engine.pause()
+            updatePlayPauseButton(false)
+        } else if (engine.play()) {
+            updatePlayPauseButton(true)
+        } else {
+            showVehicleConnectedWarning()
+        }
+    }
+
+    private fun releaseReplay() {
+        replayEngine?.release()
+        replayEngine = null
+        isSeeking = false
+        updatePlayPauseButton(false)
+    }
+
+    private fun showVehicleConnectedWarning() {
+        Toast.makeText(context, R.string.warning_tlog_replay_vehicle_connected, Toast.LENGTH_LONG).show()
+    }
+
+    private fun updatePlayPauseButton(isPlaying: Boolean) {
+        playPauseButton?.apply {
+            setImageResource(if (isPlaying) android.R.drawable.ic_media_pause else android.R.drawable.ic_media_play)
+            contentDescription = getString(if (isPlaying) R.string.label_tlog_replay_pause else R.string.label_tlog_replay_play)
+        }
+    }
+
+    private fun updateSpeedLabel() {
+        speedButton?.text = getString(R.string.label_tlog_replay_speed, PLAYBACK_SPEEDS[speedIndex])
+    }
+
+    private fun updateTimeLabel(replayTime: Long) {
+        timeView?.text = DateUtils.formatElapsedTime((replayTime - startTime) / 1000L) + " / " +
+                DateUtils.formatElapsedTime((endTime - startTime) / 1000L)
+    }
+
+    private fun stateNoData() {
+        statusView?.apply {
+            setText(R.string.no_tlog_data_loaded)
+            visibility = View.VISIBLE
+        }
+    }
+
+    private fun statePreparing() {
+        statusView?.apply {
+            setText(R.string.label_tlog_replay_preparing)
+            visibility = View.VISIBLE
+        }
+    }
+
+    private fun stateReady() {
+        statusView?.visibility = View.GONE
+    }
+}
@@ -0,0 +1,312 @@
+package org.droidplanner.android.utils;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-process bus for the drone events.
+ *
+ * Subscribers register for the event types they handle, and receive them either on the main thread, or on the
+ * bus background thread. The high rate telemetry events (see {@link #COALESCED_EVENTS}) are coalesced: on the
+ * main thread, a subscriber receives at most the latest event of each of those types per display frame, through
+ * the {@link FrameScheduler}. The other events are delivered right away, in order, after the pending telemetry
+ * events.
+ */
+public class DroneEventBus {
+
+    /**
+     * Receives the drone events it subscribed to.
+     */
+    public interface Subscriber {
+        void onDroneEvent(String event, Bundle extras);
+    }
+
+    /**
+     * Thread on which a subscriber receives its events.
+     */
+    public enum Delivery {
+        MAIN_THREAD,
+        BACKGROUND
+    }
+
+    /**
+     * Events coalesced per frame. Only the latest event of each of these types is delivered.
+     */
+    public static final Set<String> COALESCED_EVENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            AttributeEvent.GPS_POSITION,
+            AttributeEvent.GPS_FIX,
+            AttributeEvent.GPS_COUNT,
+            AttributeEvent.ATTITUDE_UPDATED,
+            AttributeEvent.SPEED_UPDATED,
+            AttributeEvent.ALTITUDE_UPDATED,
+            AttributeEvent.BATTERY_UPDATED,
+            AttributeEvent.SIGNAL_UPDATED,
+            AttributeEvent.STATE_VEHICLE_VIBRATION,
+            AttributeEvent.STATE_EKF_REPORT
+    )));
+
+    private final Dispatcher mainDispatcher;
+    private final Dispatcher backgroundDispatcher;
+
+    public DroneEventBus() {
+        mainDispatcher = new Dispatcher(new Handler(Looper.getMainLooper()), true);
+
+        final HandlerThread backgroundThread = new HandlerThread("Drone events",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        backgroundThread.start();
+        backgroundDispatcher = new Dispatcher(new Handler(backgroundThread.getLooper()), false);
+    }
+
+    /**
+     * Subscribes to the given events, delivered on the main thread.
+     */
+    public void subscribe(Subscriber subscriber, String... events) {
+        subscribe(subscriber, Delivery.MAIN_THREAD, events);
+    }
+
+    public void subscribe(Subscriber subscriber, Delivery delivery, String... events) {
+        if (subscriber == null)
+            return;
+
+        getDispatcher(delivery).subscribe(subscriber, events);
+    }
+
+    /**
+     * Removes the given subscriber from all the events it subscribed to.
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        if (subscriber == null)
+            return;
+
+        mainDispatcher.unsubscribe(subscriber);
+        backgroundDispatcher.unsubscribe(subscriber);
+    }
+
+    /**
+     * Publishes a drone event to its subscribers.
+     *
+     * @param extras Event extras. They're shared by all the subscribers, which mustn't update them.
+     */
+    public void publish(String event, Bundle extras) {
+        final boolean isCoalesced = COALESCED_EVENTS.contains(event);
+        mainDispatcher.post(event, extras, isCoalesced);
+        backgroundDispatcher.post(event, extras, isCoalesced);
+    }
+
+    private Dispatcher getDispatcher(Delivery delivery) {
+        return delivery == Delivery.BACKGROUND ? backgroundDispatcher : mainDispatcher;
+    }
+
+    private static class PendingEvent {
+        final String event;
+        Bundle extras;
+        boolean isQueued;
+
+        PendingEvent(String event) {
+            this.event = event;
+        }
+    }
+
+    /**
+     * Delivers the events to the subscribers of a thread.
+     */
+    private static class Dispatcher implements Runnable {
+
+        private final Handler handler;
+
+        // Delivers the coalesced events on the next display frame. Null if they're delivered right away.
+        private final FrameScheduler.Task frameTask;
+
+        // Requests the frame task from the main thread.
+        private final Runnable frameRequest = new Runnable() {
+            @Override
+            public void run() {
+                frameTask.request();
+            }
+        };
+
+        // Subscribers per event type. The arrays are replaced, never updated, so they can be iterated while
+        // subscribers are added or removed.
+        private final Map<String, Subscriber[]> subscribers = new HashMap<>();
+
+        // Reusable pending slot of each coalesced event type.
+        private final Map<String, PendingEvent> coalescedEvents = new HashMap<>();
+
+        private List<PendingEvent> queue = new ArrayList<>();
+        private List<PendingEvent> drainedQueue = new ArrayList<>();
+
+        private boolean isScheduled;
+        private boolean isImmediate;
+        private boolean isDelivering;
+
+        Dispatcher(Handler handler, boolean isFramePaced) {
+            this.handler = handler;
+            this.frameTask = isFramePaced ? new FrameScheduler.Task(0) {
+                @Override
+                protected void run() {
+                    Dispatcher.this.run();
+                }
+            } : null;
+        }
+
+        synchronized void subscribe(Subscriber subscriber, String... events) {
+            for (String event : events) {
+                final Subscriber[] current = subscribers.get(event);
+                if (current == null) {
+                    subscribers.put(event, new Subscriber[]{subscriber});
+                    continue;
+                }
+
+                if (indexOf(current, subscriber) != -1)
+                    continue;
+
+                final Subscriber[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscriber;
+                subscribers.put(event, updated);
+            }
+        }
+
+        synchronized void unsubscribe(Subscriber subscriber) {
+            for (Map.Entry<String, Subscriber[]> entry : subscribers.entrySet()) {
+                final Subscriber[] current = entry.getValue();
+                final int index = indexOf(current, subscriber);
+                if (index == -1)
+                    continue;
+
+                final Subscriber[] updated = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, index);
+                System.arraycopy(current, index + 1, updated, index, updated.length - index);
+                entry.setValue(updated);
+            }
+        }
+
+        void post(String event, Bundle extras, boolean isCoalesced) {
+            boolean deliverNow = false;
+            synchronized (this) {
+                final Subscriber[] eventSubscribers = subscribers.get(event);
+                if (eventSubscribers == null || eventSubscribers.length == 0)
+                    return;
+
+                PendingEvent pending;
+                if (isCoalesced) {
+                    pending = coalescedEvents.get(event);
+                    if (pending == null) {
+                        pending = new PendingEvent(event);
+                        coalescedEvents.put(event, pending);
+                    }
+                } else {
+                    pending = new PendingEvent(event);
+                }
+
+                pending.extras = extras;
+                if (!pending.isQueued) {
+                    pending.isQueued = true;
+                    queue.add(pending);
+                }
+
+                if (isCoalesced) {
+                    if (!isScheduled) {
+                        isScheduled = true;
+                        scheduleFrame();
+                    }
+                } else if (Looper.myLooper() == handler.getLooper() && !isDelivering) {
+                    // The pending events are delivered right away, without waiting for the next frame.
+                    handler.removeCallbacks(this);
+                    isScheduled = false;
+                    isImmediate = false;
+                    deliverNow = true;
+                } else if (!isScheduled || !isImmediate) {
+                    handler.removeCallbacks(this);
+                    isScheduled = true;
+                    isImmediate = true;
+                    handler.post(this);
+                }
+            }
+
+            if (deliverNow)
+                run();
+        }
+
+        private void scheduleFrame() {
+            if (frameTask == null)
+                handler.post(this);
+            else if (Looper.myLooper() == handler.getLooper())
+                frameTask.request();
+            else
+                handler.post(frameRequest);
+        }
+
+        @Override
+        public void run() {
+            final List<PendingEvent> events;
+            synchronized (this) {
+                isScheduled = false;
+                isImmediate = false;
+                isDelivering = true;
+
+                events = queue;
+                queue = drainedQueue;
+                drainedQueue = events;
+            }
+
+            try {
+                final int count = events.size();
+                for (int i = 0; i < count; i++) {
+                    final PendingEvent pending = events.get(i);
+                    final String event = pending.event;
+                    final Bundle extras;
+                    final Subscriber[] eventSubscribers;
+                    synchronized (this) {
+                        extras = pending.extras;
+                        pending.extras = null;
+                        pending.isQueued = false;
+                        eventSubscribers = subscribers.get(event);
+                    }
+
+                    if (eventSubscribers == null)
+                        continue;
+
+                    for (Subscriber subscriber : eventSubscribers) {
+                        if (isSubscribed(event, subscriber))
+                            subscriber.onDroneEvent(event, extras);
+                    }
+                }
+            } finally {
+                events.clear();
+                synchronized (this) {
+                    isDelivering = false;
+                }
+            }
+        }
+
+        /**
+         * Checks the subscriber wasn't removed by a previous subscriber, while the event was being delivered.
+         */
+        private synchronized boolean isSubscribed(String event, Subscriber subscriber) {
+            final Subscriber[] eventSubscribers = subscribers.get(event);
+            return eventSubscribers != null && indexOf(eventSubscribers, subscriber) != -1;
+        }
+
+        private static int indexOf(Subscriber[] array, Subscriber subscriber) {
+            for (int i = 0; i < array.length; i++) {
+                if (array[i] == subscriber)
+                    return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package org.droidplanner.android.utils;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.o3dr.services.android.lib.coordinate.LatLongAlt;
+
+import java.util.Arrays;
+
+/**
+ * Compact time series of flight telemetry samples.
+ *
+ * Each channel is stored in its own growable primitive array, so appending a sample doesn't allocate
+ * (besides the amortized array growth), and a multi-hour track costs a few bytes per sample instead of a few
+ * objects per sample. The samples are expected to be appended in chronological order.
+ */
+public class FlightTrack implements Parcelable {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private int size;
+
+    private long[] times;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] altitudes;
+
+    // Attitude in degrees, and speeds in meters per second. NaN when not available.
+    private float[] rolls;
+    private float[] pitches;
+    private float[] yaws;
+    private float[] groundSpeeds;
+    private float[] verticalSpeeds;
+
+    public FlightTrack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FlightTrack(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    private void allocate(int capacity) {
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        altitudes = new double[capacity];
+        rolls = new float[capacity];
+        pitches = new float[capacity];
+        yaws = new float[capacity];
+        groundSpeeds = new float[capacity];
+        verticalSpeeds = new float[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replaces the content of this track with the given one.
+     */
+    public void set(FlightTrack reference) {
+        clear();
+        ensureCapacity(reference.size);
+        System.arraycopy(reference.times, 0, times, 0, reference.size);
+        System.arraycopy(reference.latitudes, 0, latitudes, 0, reference.size);
+        System.arraycopy(reference.longitudes, 0, longitudes, 0, reference.size);
+        System.arraycopy(reference.altitudes, 0, altitudes, 0, reference.size);
+        System.arraycopy(reference.rolls, 0, rolls, 0, reference.size);
+        System.arraycopy(reference.pitches, 0, pitches, 0, reference.size);
+        System.arraycopy(reference.yaws, 0, yaws, 0, reference.size);
+        System.arraycopy(reference.groundSpeeds, 0, groundSpeeds, 0, reference.size);
+        System.arraycopy(reference.verticalSpeeds, 0, verticalSpeeds, 0, reference.size);
+        size = reference.size;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        int capacity = times.length;
+        if (minCapacity <= capacity)
+            return;
+
+        int newCapacity = Math.max(minCapacity, capacity + (capacity >> 1));
+        times = Arrays.copyOf(times, newCapacity);
+        latitudes = Arrays.copyOf(latitudes, newCapacity);
+        longitudes = Arrays.copyOf(longitudes, newCapacity);
+        altitudes = Arrays.copyOf(altitudes, newCapacity);
+        rolls = Arrays.copyOf(rolls, newCapacity);
+        pitches = Arrays.copyOf(pitches, newCapacity);
+        yaws = Arrays.copyOf(yaws, newCapacity);
+        groundSpeeds = Arrays.copyOf(groundSpeeds, newCapacity);
+        verticalSpeeds = Arrays.copyOf(verticalSpeeds, newCapacity);
+    }
+
+    /**
+     * Appends a position sample, without attitude or speed information.
+     */
+    public void append(long timeInMs, double latitude, double longitude, double altitude) {
+        append(timeInMs, latitude, longitude, altitude, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+    }
+
+    public void append(long timeInMs, double latitude, double longitude, double altitude,
+                       float roll, float pitch, float yaw, float groundSpeed, float verticalSpeed) {
+        ensureCapacity(size + 1);
+
+        times[size] = timeInMs;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        altitudes[size] = altitude;
+        rolls[size] = roll;
+        pitches[size] = pitch;
+        yaws[size] = yaw;
+        groundSpeeds[size] = groundSpeed;
+        verticalSpeeds[size] = verticalSpeed;
+        size++;
+    }
+
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+
+    public double getLatitude(int index) {
+        checkIndex(index);
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        checkIndex(index);
+        return longitudes[index];
+    }
+
+    public double getAltitude(int index) {
+        checkIndex(index);
+        return altitudes[index];
+    }
+
+    public float getRoll(int index) {
+        checkIndex(index);
+        return rolls[index];
+    }
+
+    public float getPitch(int index) {
+        checkIndex(index);
+        return pitches[index];
+    }
+
+    public float getYaw(int index) {
+        checkIndex(index);
+        return yaws[index];
+    }
+
+    public float getGroundSpeed(int index) {
+        checkIndex(index);
+        return groundSpeeds[index];
+    }
+
+    public float getVerticalSpeed(int index) {
+        checkIndex(index);
+        return verticalSpeeds[index];
+    }
+
+    /**
+     * Allocates a coordinate for the given sample. Meant for the apis which require one.
+     */
+    public LatLongAlt getLatLongAlt(int index) {
+        checkIndex(index);
+        return new LatLongAlt(latitudes[index], longitudes[index], altitudes[index]);
+    }
+
+    /**
+     * @return the index of the first sample at or after the given time, or the track size if there is none.
+     */
+    public int indexOfTime(long timeInMs) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < timeInMs)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Copies the positions of the samples in [fromIndex, toIndex) in the given arrays.
+     * @return the number of copied samples
+     */
+    public int copyPositions(int fromIndex, int toIndex, double[] latitudesOut, double[] longitudesOut,
+                             double[] altitudesOut) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("Invalid range [" + fromIndex + ", " + toIndex + "), size is " + size);
+
+        int count = toIndex - fromIndex;
+        System.arraycopy(latitudes, fromIndex, latitudesOut, 0, count);
+        System.arraycopy(longitudes, fromIndex, longitudesOut, 0, count);
+        System.arraycopy(altitudes, fromIndex, altitudesOut, 0, count);
+        return count;
+    }
+
+    /**
+     * Simplifies the track using the Douglas-Peucker algorithm on the latitude / longitude plane.
+     * @param tolerance Maximum distance, in degrees, between the track and its simplification
+     * @return the indexes of the samples kept by the simplification, in ascending order
+     */
+    public int[] simplify(double tolerance) {
+        return simplify(0, size, tolerance);
+    }
+
+    /**
+     * Simplifies the samples in [fromIndex, toIndex) using the Douglas-Peucker algorithm.
+     * @see #simplify(double)
+     */
+    public int[] simplify(int fromIndex, int toIndex, double tolerance) {
+        int count = toIndex - fromIndex;
+        if (count <= 2) {
+            int[] kept = new int[Math.max(0, count)];
+            for (int i = 0; i < kept.length; i++) {
+                kept[i] = fromIndex + i;
+            }
+            return kept;
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+
+        // Iterative implementation, to bound the stack usage on long tracks.
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = fromIndex;
+        stack[stackSize++] = toIndex - 1;
+
+        while (stackSize > 0) {
+            int last = stack[--stackSize];
+            int first = stack[--stackSize];
+
+            double maxDistance = 0;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToSegment(i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+
+            if (farthest != -1 && maxDistance > tolerance) {
+                keep[farthest - fromIndex] = true;
+                if (stackSize + 4 > stack.length)
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+
+                stack[stackSize++] = first;
+                stack[stackSize++] = farthest;
+                stack[stackSize++] = farthest;
+                stack[stackSize++] = last;
+            }
+        }
+
+        int keptCount = 0;
+        for (boolean kept : keep) {
+            if (kept)
+                keptCount++;
+        }
+
+        int[] kept = new int[keptCount];
+        int keptIndex = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i])
+                kept[keptIndex++] = fromIndex + i;
+        }
+        return kept;
+    }
+
+    /**
+     * Distance, in degrees, from the given sample to the segment between the start and end samples.
+     */
+    private double distanceToSegment(int index, int start, int end) {
+        double startLat = latitudes[start];
+        double startLon = longitudes[start];
+
+        double pointLat = latitudes[index] - startLat;
+        double pointLon = longitudes[index] - startLon;
+        double segmentLat = latitudes[end] - startLat;
+        double segmentLon = longitudes[end] - startLon;
+
+        double segmentLengthSq = segmentLat * segmentLat + segmentLon * segmentLon;
+        double param = segmentLengthSq == 0 ? -1 : (pointLat * segmentLat + pointLon * segmentLon) / segmentLengthSq;
+
+        double projectionLat;
+        double projectionLon;
+        if (param < 0) {
+            projectionLat = 0;
+            projectionLon = 0;
+        } else if (param > 1) {
+            projectionLat = segmentLat;
+            projectionLon = segmentLon;
+        } else {
+            projectionLat = param * segmentLat;
+            projectionLon = param * segmentLon;
+        }
+
+        return Math.hypot(pointLat - projectionLat, pointLon - projectionLon);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(size);
+        dest.writeLongArray(Arrays.copyOf(times, size));
+        dest.writeDoubleArray(Arrays.copyOf(latitudes, size));
+        dest.writeDoubleArray(Arrays.copyOf(longitudes, size));
+        dest.writeDoubleArray(Arrays.copyOf(altitudes, size));
+        dest.writeFloatArray(Arrays.copyOf(rolls, size));
+        dest.writeFloatArray(Arrays.copyOf(pitches, size));
+        dest.writeFloatArray(Arrays.copyOf(yaws, size));
+        dest.writeFloatArray(Arrays.copyOf(groundSpeeds, size));
+        dest.writeFloatArray(Arrays.copyOf(verticalSpeeds, size));
+    }
+
+    protected FlightTrack(Parcel in) {
+        size = in.readInt();
+        times = in.createLongArray();
+        latitudes = in.createDoubleArray();
+        longitudes = in.createDoubleArray();
+        altitudes = in.createDoubleArray();
+        rolls = in.createFloatArray();
+        pitches = in.createFloatArray();
+        yaws = in.createFloatArray();
+        groundSpeeds = in.createFloatArray();
+        verticalSpeeds = in.createFloatArray();
+        ensureCapacity(Math.max(1, size));
+    }
+
+    public static final Creator<FlightTrack> CREATOR = new Creator<FlightTrack>() {
+        @Override
+        public FlightTrack createFromParcel(Parcel source) {
+            return new FlightTrack(source);
+        }
+
+        @Override
+        public FlightTrack[] newArray(int size) {
+            return new FlightTrack[size];
+        }
+    };
+}
@@ -0,0 +1,185 @@
+package org.droidplanner.android.utils;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the ui updates on the main thread, aligned on the display frames.
+ *
+ * Each {@link Task} declares its maximum refresh rate. However often a task is requested, it runs at most once per
+ * frame, and at most once per refresh interval. On api levels without {@link Choreographer}, the frames are
+ * emulated with a handler.
+ */
+public class FrameScheduler {
+
+    /**
+     * Ui update run by the frame scheduler.
+     */
+    public static abstract class Task {
+
+        private final long refreshInterval;
+
+        private long lastRunTime;
+        private boolean isRequested;
+
+        /**
+         * @param maxRefreshRate Maximum number of runs per second. Zero for no limit other than the frame rate.
+         */
+        protected Task(int maxRefreshRate) {
+            this.refreshInterval = maxRefreshRate <= 0 ? 0 : 1000L / maxRefreshRate;
+        }
+
+        /**
+         * Requests the task to run on an upcoming frame. Must be called on the main thread.
+         */
+        public final void request() {
+            getInstance().request(this);
+        }
+
+        /**
+         * Cancels the pending run of the task, if any. Must be called on the main thread.
+         */
+        public final void cancel() {
+            getInstance().cancel(this);
+        }
+
+        protected abstract void run();
+    }
+
+    private static final long FRAME_PERIOD = 16L; //ms
+
+    private static FrameScheduler instance;
+
+    public static FrameScheduler getInstance() {
+        if (instance == null)
+            instance = new FrameScheduler();
+        return instance;
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Object frameCallback;
+
+    private final Runnable frameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame();
+        }
+    };
+
+    private final List<Task> requestedTasks = new ArrayList<>();
+    private final List<Task> runningTasks = new ArrayList<>();
+
+    // Time at which the next frame is scheduled, or -1 if no frame is scheduled.
+    private long nextFrameTime = -1;
+
+    private FrameScheduler() {
+        frameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ? createFrameCallback() : null;
+    }
+
+    void request(Task task) {
+        if (task.isRequested)
+            return;
+
+        task.isRequested = true;
+        requestedTasks.add(task);
+        scheduleFrame(task.lastRunTime + task.refreshInterval);
+    }
+
+    void cancel(Task task) {
+        if (!task.isRequested)
+            return;
+
+        task.isRequested = false;
+        requestedTasks.remove(task);
+    }
+
+    private void doFrame() {
+        nextFrameTime = -1;
+
+        final long now = SystemClock.uptimeMillis();
+        long nextRunTime = Long.MAX_VALUE;
+
+        // Tasks requested while running the current ones are run on a later frame.
+        runningTasks.addAll(requestedTasks);
+        requestedTasks.clear();
+
+        final int count = runningTasks.size();
+        for (int i = 0; i < count; i++) {
+            final Task task = runningTasks.get(i);
+            if (!task.isRequested)
+                continue;
+
+            final long runTime = task.lastRunTime + task.refreshInterval;
+            if (runTime > now) {
+                requestedTasks.add(task);
+                nextRunTime = Math.min(nextRunTime, runTime);
+                continue;
+            }
+
+            task.isRequested = false;
+            task.lastRunTime = now;
+            task.run();
+        }
+        runningTasks.clear();
+
+        // The tasks requested while running the current ones already scheduled their frame.
+        if (nextRunTime != Long.MAX_VALUE)
+            scheduleFrame(nextRunTime);
+    }
+
+    private void scheduleFrame(long runTime) {
+        final long now = SystemClock.uptimeMillis();
+        if (runTime < now)
+            runTime = now;
+
+        if (nextFrameTime != -1 && nextFrameTime <= runTime)
+            return;
+
+        if (nextFrameTime != -1)
+            removeFrame();
+
+        nextFrameTime = runTime;
+        postFrame(runTime - now);
+    }
+
+    private void postFrame(long delay) {
+        if (frameCallback != null)
+            postFrameCallback(frameCallback, delay);
+        else
+            handler.postDelayed(frameRunnable, Math.max(delay, FRAME_PERIOD));
+    }
+
+    private void removeFrame() {
+        if (frameCallback != null)
+            removeFrameCallback(frameCallback);
+        else
+            handler.removeCallbacks(frameRunnable);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Object createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                FrameScheduler.this.doFrame();
+            }
+        };
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static void postFrameCallback(Object frameCallback, long delay) {
+        Choreographer.getInstance().postFrameCallbackDelayed((Choreographer.FrameCallback) frameCallback, delay);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static void removeFrameCallback(Object frameCallback) {
+        Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+}
@@ -43,52 +43,53 @@ public class MapUtils {
 	}
 
     /**
-     * Export the given path as a Mission
-     * @param pathPoints
+     * Export the given flight track as a Mission
+     * @param flightTrack
+     * @param tolerance Simplification tolerance, in degrees
      * @return
      */
-	public static List<MissionItem> exportPathAsMissionItems(List<? extends LatLongAlt> pathPoints, double toleranceInPixels) {
+	public static List<MissionItem> exportPathAsMissionItems(FlightTrack flightTrack, double tolerance) {
         List<MissionItem> exportedMissionItems = new LinkedList<>();
-        if(pathPoints != null && !pathPoints.isEmpty()) {
-            List<LatLong> simplifiedPath = MathUtils.simplify(pathPoints, toleranceInPixels);
-
-            int pointsCount = simplifiedPath.size();
-            if(pointsCount > 3){
-                // When taking off and/or landing the altitude has a tendency to be a bit too low.
-                LatLongAlt first = (LatLongAlt) simplifiedPath.get(0);
-                LatLongAlt second = (LatLongAlt) simplifiedPath.get(1);
-                first.setAltitude((second.getAltitude() + first.getAltitude())/ 2.0);
-
-                LatLongAlt beforeLast = (LatLongAlt) simplifiedPath.get(pointsCount - 2);
-                LatLongAlt last = (LatLongAlt) simplifiedPath.get(pointsCount -1);
-                last.setAltitude((last.getAltitude() + beforeLast.getAltitude())/2.0);
-            }
-
-            SpaceTime lastPoint = null;
-            for(LatLong point : simplifiedPath) {
-                if(point instanceof SpaceTime) {
-                    SpaceTime currentPoint = (SpaceTime) point;
-                    if(lastPoint != null) {
-                        // Calculate the speed used by the vehicle from the last point to the
-                        // current one.
-                        double distanceInM = MathUtils.getDistance3D(lastPoint, currentPoint);
-                        float deltaTimeInSecs = Math.abs(currentPoint.getTimeInMs()
-                            - lastPoint.getTimeInMs()) / 1000F;
-
-                        if (Float.compare(deltaTimeInSecs, 0f) != 0) {
-                            double speed = distanceInM / deltaTimeInSecs;
-                            ChangeSpeed speedMissionItem = new ChangeSpeed();
-                            speedMissionItem.setSpeed(speed);
-                            exportedMissionItems.add(speedMissionItem);
-                        }
+        if(flightTrack != null && !flightTrack.isEmpty()) {
+            int[] simplifiedPath = flightTrack.simplify(tolerance);
+
+            int pointsCount = simplifiedPath.length;
+            LatLongAlt lastPoint = null;
+            long lastPointTime = 0;
+            for(int i = 0; i < pointsCount; i++) {
+                int pointIndex = simplifiedPath[i];
+                double altitude = flightTrack.getAltitude(pointIndex);
+                if(pointsCount > 3){
+                    // When taking off and/or landing the altitude has a tendency to be a bit too low.
+                    if(i == 0){
+                        altitude = (flightTrack.getAltitude(simplifiedPath[1]) + altitude) / 2.0;
+                    }
+                    else if(i == pointsCount - 1){
+                        altitude = (altitude + flightTrack.getAltitude(simplifiedPath[pointsCount - 2])) / 2.0;
                     }
-                    lastPoint = currentPoint;
                 }
-                else {
-                    lastPoint = null;
+
+                LatLongAlt currentPoint = new LatLongAlt(flightTrack.getLatitude(pointIndex),
+                    flightTrack.getLongitude(pointIndex), altitude);
+                long currentPointTime = flightTrack.getTime(pointIndex);
+                if(lastPoint != null) {
+                    // Calculate the speed used by the vehicle from the last point to the
+                    // current one.
+                    double distanceInM = MathUtils.getDistance3D(lastPoint, currentPoint);
+                    float deltaTimeInSecs = Math.abs(currentPointTime - lastPointTime) / 1000F;
+
+                    if (Float.compare(deltaTimeInSecs, 0f) != 0) {
+                        double speed = distanceInM / deltaTimeInSecs;
+                        ChangeSpeed speedMissionItem = new ChangeSpeed();
+                        speedMissionItem.setSpeed(speed);
+                        exportedMissionItems.add(speedMissionItem);
+                    }
                 }
+                lastPoint = currentPoint;
+                lastPointTime = currentPointTime;
+
                 SplineWaypoint waypoint = new SplineWaypoint();
-                waypoint.setCoordinate((LatLongAlt) point);
+                waypoint.setCoordinate(currentPoint);
                 exportedMissionItems.add(waypoint);
             }
         }
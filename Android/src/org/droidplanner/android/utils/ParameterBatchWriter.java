@@ -0,0 +1,247 @@
+package org.droidplanner.android.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.o3dr.android.client.Drone;
+import com.o3dr.android.client.apis.VehicleApi;
+import com.o3dr.services.android.lib.drone.attribute.AttributeType;
+import com.o3dr.services.android.lib.drone.property.Parameter;
+import com.o3dr.services.android.lib.drone.property.Parameters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import timber.log.Timber;
+
+/**
+ * Writes a set of parameters to the vehicle in small batches, and verifies each batch.
+ *
+ * Only the parameters whose value differs from the vehicle's are written. After a batch is written, the values
+ * echoed back by the vehicle are checked as they're received (see {@link #onParameterReceived(String, double)}).
+ * If some are still missing when the verification times out, the vehicle parameters are read once to check them.
+ * Mismatched parameters are written again, and reported once they've used all their attempts. The next batch is
+ * only written once the current one is verified, which keeps the link from being flooded.
+ *
+ * Must be used from the main thread.
+ */
+public class ParameterBatchWriter {
+
+    public interface Listener {
+        /**
+         * Called after each batch is verified.
+         */
+        void onWriteProgress(int processedCount, int totalCount);
+
+        /**
+         * Called once all the parameters are written.
+         * @param mismatches the parameters whose value couldn't be verified on the vehicle.
+         */
+        void onWriteCompleted(int writtenCount, List<Parameter> mismatches);
+    }
+
+    private static final int BATCH_SIZE = 10;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final long VERIFY_TIMEOUT = 1500L; //ms
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final Drone drone;
+    private final List<Parameter> parameters;
+    private final Listener listener;
+
+    private final List<Parameter> pending = new ArrayList<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final List<Parameter> mismatches = new ArrayList<>();
+
+    private final List<Parameter> batch = new ArrayList<>(BATCH_SIZE);
+
+    // Names of the batch parameters whose value wasn't echoed back by the vehicle yet.
+    private final Set<String> unverified = new HashSet<>(BATCH_SIZE * 2);
+
+    private int totalCount;
+    private int processedCount;
+    private boolean isRunning;
+
+    private final Runnable verifyTimeout = new Runnable() {
+        @Override
+        public void run() {
+            onVerifyTimeout();
+        }
+    };
+
+    public ParameterBatchWriter(Drone drone, List<Parameter> parameters, Listener listener) {
+        this.drone = drone;
+        this.parameters = parameters;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts writing the parameters.
+     * @return false if there's nothing to write: all the parameters already have their value on the vehicle.
+     */
+    public boolean start() {
+        if (isRunning)
+            return true;
+
+        pending.clear();
+        pending.addAll(diff(drone.<Parameters>getAttribute(AttributeType.PARAMETERS), parameters));
+        // The batches are taken from the end of the pending list.
+        Collections.reverse(pending);
+        attempts.clear();
+        mismatches.clear();
+
+        totalCount = pending.size();
+        processedCount = 0;
+        if (totalCount == 0) {
+            Timber.d("The %d parameters are already set on the vehicle", parameters.size());
+            return false;
+        }
+
+        isRunning = true;
+        Timber.d("Writing %d changed parameters out of %d", totalCount, parameters.size());
+        writeNextBatch();
+        return true;
+    }
+
+    public void cancel() {
+        isRunning = false;
+        handler.removeCallbacks(verifyTimeout);
+        batch.clear();
+        unverified.clear();
+        pending.clear();
+    }
+
+    /**
+     * Checks the value of a parameter received from the vehicle against the current batch.
+     */
+    public void onParameterReceived(String name, double value) {
+        if (!isRunning || name == null || !unverified.contains(name))
+            return;
+
+        for (Parameter parameter : batch) {
+            if (name.equals(parameter.getName())) {
+                if (isSameValue(value, parameter.getValue()))
+                    unverified.remove(name);
+                break;
+            }
+        }
+
+        if (unverified.isEmpty()) {
+            handler.removeCallbacks(verifyTimeout);
+            completeBatch();
+        }
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * @return the given parameters whose value differs from the vehicle's.
+     */
+    static List<Parameter> diff(Parameters vehicleParameters, List<Parameter> parameters) {
+        final Map<String, Parameter> vehicleValues = new HashMap<>();
+        if (vehicleParameters != null) {
+            for (Parameter parameter : vehicleParameters.getParameters()) {
+                vehicleValues.put(parameter.getName(), parameter);
+            }
+        }
+
+        final List<Parameter> changed = new ArrayList<>();
+        for (Parameter parameter : parameters) {
+            final Parameter vehicleParameter = vehicleValues.get(parameter.getName());
+            if (vehicleParameter == null || !isSameValue(vehicleParameter.getValue(), parameter.getValue()))
+                changed.add(parameter);
+        }
+        return changed;
+    }
+
+    /**
+     * The vehicle stores the parameters as single precision floats.
+     */
+    private static boolean isSameValue(double vehicleValue, double value) {
+        return Float.compare((float) vehicleValue, (float) value) == 0;
+    }
+
+    private void writeNextBatch() {
+        if (!isRunning)
+            return;
+
+        if (pending.isEmpty()) {
+            isRunning = false;
+            Timber.d("Parameters written: %d, mismatches: %d", totalCount - mismatches.size(), mismatches.size());
+            listener.onWriteCompleted(totalCount - mismatches.size(), new ArrayList<>(mismatches));
+            return;
+        }
+
+        batch.clear();
+        final int batchSize = Math.min(BATCH_SIZE, pending.size());
+        for (int i = 0; i < batchSize; i++) {
+            final Parameter parameter = pending.remove(pending.size() - 1);
+            batch.add(parameter);
+
+            final Integer attempt = attempts.get(parameter.getName());
+            attempts.put(parameter.getName(), attempt == null ? 1 : attempt + 1);
+        }
+
+        unverified.clear();
+        for (Parameter parameter : batch) {
+            unverified.add(parameter.getName());
+        }
+
+        VehicleApi.getApi(drone).writeParameters(new Parameters(new ArrayList<>(batch)));
+        handler.postDelayed(verifyTimeout, VERIFY_TIMEOUT);
+    }
+
+    /**
+     * Checks the parameters which weren't echoed back against the vehicle parameters, read once.
+     */
+    private void onVerifyTimeout() {
+        if (!isRunning)
+            return;
+
+        final Parameters vehicleParameters = drone.getAttribute(AttributeType.PARAMETERS);
+        if (vehicleParameters != null) {
+            final List<Parameter> unverifiedParameters = new ArrayList<>(unverified.size());
+            for (Parameter parameter : batch) {
+                if (unverified.contains(parameter.getName()))
+                    unverifiedParameters.add(parameter);
+            }
+
+            for (Parameter parameter : diff(vehicleParameters, unverifiedParameters)) {
+                unverifiedParameters.remove(parameter);
+            }
+            for (Parameter parameter : unverifiedParameters) {
+                unverified.remove(parameter.getName());
+            }
+        }
+
+        completeBatch();
+    }
+
+    private void completeBatch() {
+        for (Parameter parameter : batch) {
+            if (!unverified.contains(parameter.getName())) {
+                processedCount++;
+            } else if (attempts.get(parameter.getName()) < MAX_ATTEMPTS) {
+                pending.add(parameter);
+            } else {
+                Timber.w("Unable to verify parameter %s", parameter.getName());
+                mismatches.add(parameter);
+                processedCount++;
+            }
+        }
+        batch.clear();
+        unverified.clear();
+
+        listener.onWriteProgress(processedCount, totalCount);
+        writeNextBatch();
+    }
+}
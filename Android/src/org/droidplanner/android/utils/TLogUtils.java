@@ -1,5 +1,6 @@
 package org.droidplanner.android.utils;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 
@@ -17,6 +18,10 @@ public class TLogUtils {
     private static final String TLOG_FILENAME_EXT = ".tlog";
     private static final String TLOG_PREFIX = "log";
 
+    private static final String DIRECTORY_TLOG_INDEXES = "tlog_indexes";
+    private static final String TLOG_INDEX_FILENAME_EXT = ".idx";
+    private static final String TLOG_KEYFRAMES_FILENAME_EXT = ".keys";
+
     // Private to prevent instantiation
     private TLogUtils(){}
 
@@ -58,4 +63,37 @@ public class TLogUtils {
             getTLogFilename(ConnectionType.getConnectionTypeLabel(connectionType), connectionTimestamp));
         return Uri.fromFile(tlogLoggingFile);
     }
+
+    /**
+     * Returns the file where the index for the given tlog file is stored.
+     * The index is stored next to the tlog file when it's a local file, and in the app cache directory otherwise.
+     * @param context
+     * @param tlogUri Uri of the indexed tlog file
+     * @return File for the tlog index
+     */
+    public static File getTLogIndexFile(Context context, Uri tlogUri){
+        if(ContentResolver.SCHEME_FILE.equals(tlogUri.getScheme())){
+            return new File(tlogUri.getPath() + TLOG_INDEX_FILENAME_EXT);
+        }
+
+        File indexDir = new File(context.getCacheDir(), DIRECTORY_TLOG_INDEXES);
+        if(!indexDir.isDirectory()){
+            indexDir.mkdirs();
+        }
+
+        return new File(indexDir, Integer.toHexString(tlogUri.toString().hashCode()) + TLOG_INDEX_FILENAME_EXT);
+    }
+
+    /**
+     * Returns the file where the replay keyframes for the given tlog file are stored, next to its index.
+     * @param context
+     * @param tlogUri Uri of the replayed tlog file
+     * @return File for the tlog replay keyframes
+     */
+    public static File getTLogKeyframesFile(Context context, Uri tlogUri){
+        File indexFile = getTLogIndexFile(context, tlogUri);
+        String indexPath = indexFile.getPath();
+        return new File(indexPath.substring(0, indexPath.length() - TLOG_INDEX_FILENAME_EXT.length())
+                + TLOG_KEYFRAMES_FILENAME_EXT);
+    }
 }
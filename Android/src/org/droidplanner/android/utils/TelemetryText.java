@@ -0,0 +1,240 @@
+package org.droidplanner.android.utils;
+
+import android.widget.TextView;
+
+import org.droidplanner.android.R;
+import org.droidplanner.android.utils.unit.providers.length.LengthUnitProvider;
+import org.droidplanner.android.utils.unit.providers.speed.SpeedUnitProvider;
+
+/**
+ * Reusable text buffer for a telemetry view.
+ *
+ * The telemetry values are written in the buffer as fixed precision numbers, with their unit symbols, without
+ * creating any object. {@link #apply()} only sets the text of the view if it's different from the view's
+ * current text. Each telemetry view has its own buffer, see {@link #of(TextView)}.
+ */
+public class TelemetryText {
+
+    private static final int NO_ICON = -1;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    // The view is displaying the applied buffer, so the text is written in the pending one.
+    private char[] pending = new char[DEFAULT_CAPACITY];
+    private char[] applied = new char[DEFAULT_CAPACITY];
+    private int length;
+
+    // Left compound drawable of the view.
+    private int pendingIcon = NO_ICON;
+    private int appliedIcon = NO_ICON;
+
+    private final TextView view;
+
+    private TelemetryText(TextView view) {
+        this.view = view;
+    }
+
+    /**
+     * @return the cleared text buffer of the given view.
+     */
+    public static TelemetryText of(TextView view) {
+        TelemetryText text = (TelemetryText) view.getTag(R.id.telemetry_text);
+        if (text == null) {
+            text = new TelemetryText(view);
+            view.setTag(R.id.telemetry_text, text);
+        }
+        return text.clear();
+    }
+
+    /**
+     * Clears the buffer, before writing a new text.
+     */
+    public TelemetryText clear() {
+        length = 0;
+        pendingIcon = NO_ICON;
+        return this;
+    }
+
+    /**
+     * Sets the left compound drawable of the view, along with the text.
+     */
+    public TelemetryText icon(int resId) {
+        pendingIcon = resId;
+        return this;
+    }
+
+    public TelemetryText append(char c) {
+        ensureCapacity(length + 1);
+        pending[length++] = c;
+        return this;
+    }
+
+    public TelemetryText append(CharSequence text) {
+        final int textLength = text.length();
+        ensureCapacity(length + textLength);
+        for (int i = 0; i < textLength; i++) {
+            pending[length++] = text.charAt(i);
+        }
+        return this;
+    }
+
+    public TelemetryText append(long value) {
+        if (value < 0) {
+            append('-');
+            if (value == Long.MIN_VALUE) {
+                // Can't be negated.
+                return append("9223372036854775808");
+            }
+            value = -value;
+        }
+
+        appendDigits(value, 1);
+        return this;
+    }
+
+    /**
+     * Appends the given value with the given number of decimals, at most 6, as the "%.nf" format does.
+     */
+    public TelemetryText append(double value, int decimals) {
+        return append(value, decimals, 0);
+    }
+
+    /**
+     * Appends the given value with the given number of decimals, left padded with spaces to the given width, as the
+     * "%w.nf" format does.
+     */
+    public TelemetryText append(double value, int decimals, int minWidth) {
+        if (Double.isNaN(value))
+            return appendPadded("NaN", minWidth);
+
+        if (Double.isInfinite(value))
+            return appendPadded(value > 0 ? "Infinity" : "-Infinity", minWidth);
+
+        final long scale = POWERS_OF_TEN[decimals];
+        final long scaled = Math.round(Math.abs(value) * scale);
+        final boolean isNegative = value < 0 && scaled != 0;
+
+        final long integerPart = scaled / scale;
+        final long fractionPart = scaled % scale;
+
+        int width = countDigits(integerPart);
+        if (decimals > 0)
+            width += decimals + 1;
+        if (isNegative)
+            width++;
+
+        for (int i = width; i < minWidth; i++) {
+            append(' ');
+        }
+
+        if (isNegative)
+            append('-');
+
+        appendDigits(integerPart, 1);
+        if (decimals > 0) {
+            append('.');
+            appendDigits(fractionPart, decimals);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the given length in the target unit of the given provider, as printed by the unit returned by
+     * {@link LengthUnitProvider#boxBaseValueToTarget(double)}.
+     */
+    public TelemetryText appendLength(LengthUnitProvider provider, double valueInMeters) {
+        return append(provider.toTargetValue(valueInMeters), 1, 2)
+                .append(' ')
+                .append(provider.getTargetSymbol(valueInMeters));
+    }
+
+    /**
+     * Appends the given speed in the target unit of the given provider, as printed by the unit returned by
+     * {@link SpeedUnitProvider#boxBaseValueToTarget(double)}.
+     */
+    public TelemetryText appendSpeed(SpeedUnitProvider provider, double valueInMps) {
+        return append(provider.toTargetValue(valueInMps), 1, 2)
+                .append(' ')
+                .append(provider.getTargetSymbol());
+    }
+
+    /**
+     * Displays the buffer text in the view, unless the view is already displaying it.
+     */
+    public void apply() {
+        if (pendingIcon != NO_ICON && pendingIcon != appliedIcon) {
+            view.setCompoundDrawablesWithIntrinsicBounds(pendingIcon, 0, 0, 0);
+            appliedIcon = pendingIcon;
+        }
+
+        if (isDisplayed())
+            return;
+
+        view.setText(pending, 0, length);
+
+        // The view keeps a reference to the displayed buffer, which must not be modified.
+        final char[] displayed = pending;
+        pending = applied;
+        applied = displayed;
+        pending = ensureCapacity(pending, length);
+        System.arraycopy(applied, 0, pending, 0, length);
+    }
+
+    private boolean isDisplayed() {
+        final CharSequence text = view.getText();
+        if (text == null || text.length() != length)
+            return false;
+
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) != pending[i])
+                return false;
+        }
+        return true;
+    }
+
+    private TelemetryText appendPadded(String text, int minWidth) {
+        for (int i = text.length(); i < minWidth; i++) {
+            append(' ');
+        }
+        return append(text);
+    }
+
+    private void appendDigits(long value, int minDigits) {
+        final int digits = Math.max(countDigits(value), minDigits);
+        ensureCapacity(length + digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            pending[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private static int countDigits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensureCapacity(int capacity) {
+        pending = ensureCapacity(pending, capacity);
+    }
+
+    private char[] ensureCapacity(char[] buffer, int capacity) {
+        if (buffer.length >= capacity)
+            return buffer;
+
+        final char[] expanded = new char[Math.max(capacity, buffer.length * 2)];
+        System.arraycopy(buffer, 0, expanded, 0, buffer.length);
+        return expanded;
+    }
+
+    @Override
+    public String toString() {
+        return new String(pending, 0, length);
+    }
+}
@@ -0,0 +1,250 @@
+package org.droidplanner.android.utils;
+
+import android.os.Parcelable;
+import android.os.SystemClock;
+
+import com.o3dr.android.client.Drone;
+import com.o3dr.services.android.lib.drone.attribute.AttributeEvent;
+import com.o3dr.services.android.lib.drone.attribute.AttributeType;
+import com.o3dr.services.android.lib.drone.property.Altitude;
+import com.o3dr.services.android.lib.drone.property.Attitude;
+import com.o3dr.services.android.lib.drone.property.Battery;
+import com.o3dr.services.android.lib.drone.property.Gps;
+import com.o3dr.services.android.lib.drone.property.Home;
+import com.o3dr.services.android.lib.drone.property.Signal;
+import com.o3dr.services.android.lib.drone.property.Speed;
+import com.o3dr.services.android.lib.drone.property.State;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the vehicle attributes read by the ui on every telemetry update.
+ *
+ * Each attribute is fetched from the drone at most once per events dispatching period: it's then served from the
+ * snapshot until an event updating it is received, or the period elapses. The returned attributes are shared by
+ * all the readers, and must not be modified. The drone is read outside of the snapshot lock, so a reader never
+ * waits for another reader's fetch.
+ *
+ * While no vehicle is connected, a {@link Source} (e.g: a tlog replay) can stand in for the drone.
+ */
+public class VehicleSnapshot {
+
+    /**
+     * Provides the vehicle attributes in place of the drone.
+     */
+    public interface Source {
+        /**
+         * Called from any thread.
+         * @return the attribute of the given type, or null to read it from the drone. The returned attribute
+         * mustn't be modified afterwards.
+         */
+        <T extends Parcelable> T getAttribute(String attributeType);
+    }
+
+    private static final int STATE = 0;
+    private static final int GPS = 1;
+    private static final int ALTITUDE = 2;
+    private static final int SPEED = 3;
+    private static final int ATTITUDE = 4;
+    private static final int BATTERY = 5;
+    private static final int HOME = 6;
+    private static final int SIGNAL = 7;
+
+    private static final String[] ATTRIBUTE_TYPES = {
+            AttributeType.STATE,
+            AttributeType.GPS,
+            AttributeType.ALTITUDE,
+            AttributeType.SPEED,
+            AttributeType.ATTITUDE,
+            AttributeType.BATTERY,
+            AttributeType.HOME,
+            AttributeType.SIGNAL
+    };
+
+    // Attribute updated by each event. Events missing from the map don't update the snapshot attributes, except
+    // for the connection events which reset the whole snapshot.
+    private static final Map<String, Integer> EVENT_ATTRIBUTES = new HashMap<>();
+
+    static {
+        EVENT_ATTRIBUTES.put(AttributeEvent.STATE_ARMING, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.STATE_UPDATED, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.STATE_VEHICLE_MODE, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.STATE_EKF_REPORT, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.STATE_VEHICLE_VIBRATION, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.HEARTBEAT_FIRST, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.HEARTBEAT_RESTORED, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.HEARTBEAT_TIMEOUT, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.AUTOPILOT_ERROR, STATE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.CALIBRATION_IMU, STATE);
+
+        EVENT_ATTRIBUTES.put(AttributeEvent.GPS_POSITION, GPS);
+        EVENT_ATTRIBUTES.put(AttributeEvent.GPS_FIX, GPS);
+        EVENT_ATTRIBUTES.put(AttributeEvent.GPS_COUNT, GPS);
+
+        EVENT_ATTRIBUTES.put(AttributeEvent.ALTITUDE_UPDATED, ALTITUDE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.SPEED_UPDATED, SPEED);
+        EVENT_ATTRIBUTES.put(AttributeEvent.ATTITUDE_UPDATED, ATTITUDE);
+        EVENT_ATTRIBUTES.put(AttributeEvent.BATTERY_UPDATED, BATTERY);
+        EVENT_ATTRIBUTES.put(AttributeEvent.HOME_UPDATED, HOME);
+        EVENT_ATTRIBUTES.put(AttributeEvent.SIGNAL_UPDATED, SIGNAL);
+    }
+
+    private final Drone drone;
+    private final long maxAge;
+
+    private final Parcelable[] attributes = new Parcelable[ATTRIBUTE_TYPES.length];
+    private final long[] fetchTimes = new long[ATTRIBUTE_TYPES.length];
+
+    // Incremented when an attribute is discarded, so a fetch started before isn't saved in the snapshot.
+    private final int[] generations = new int[ATTRIBUTE_TYPES.length];
+
+    private Source source;
+
+    private long requestCount;
+    private long fetchCount;
+
+    /**
+     * @param maxAge Period, in milliseconds, after which an attribute is fetched again even though no event
+     *               updated it.
+     */
+    public VehicleSnapshot(Drone drone, long maxAge) {
+        this.drone = drone;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Discards the attributes updated by the given drone event. Must be called before the event is dispatched.
+     */
+    public synchronized void onDroneEvent(String event) {
+        switch (event) {
+            case AttributeEvent.STATE_CONNECTED:
+            case AttributeEvent.STATE_DISCONNECTED:
+            case AttributeEvent.TYPE_UPDATED:
+                discardAll();
+                break;
+
+            default:
+                final Integer attribute = EVENT_ATTRIBUTES.get(event);
+                if (attribute != null)
+                    discard(attribute);
+                break;
+        }
+    }
+
+    /**
+     * Sets the source of the vehicle attributes, or null to read them from the drone.
+     */
+    public synchronized void setSource(Source source) {
+        this.source = source;
+        discardAll();
+    }
+
+    public synchronized Source getSource() {
+        return source;
+    }
+
+    public State getState() {
+        return get(STATE);
+    }
+
+    public Gps getGps() {
+        return get(GPS);
+    }
+
+    public Altitude getAltitude() {
+        return get(ALTITUDE);
+    }
+
+    public Speed getSpeed() {
+        return get(SPEED);
+    }
+
+    public Attitude getAttitude() {
+        return get(ATTITUDE);
+    }
+
+    public Battery getBattery() {
+        return get(BATTERY);
+    }
+
+    public Home getHome() {
+        return get(HOME);
+    }
+
+    public Signal getSignal() {
+        return get(SIGNAL);
+    }
+
+    /**
+     * @return the number of attributes read from the snapshot.
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return the number of attributes fetched from the drone.
+     */
+    public synchronized long getFetchCount() {
+        return fetchCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VehicleSnapshot{requests=" + requestCount + ", fetches=" + fetchCount + "}";
+    }
+
+    private void discard(int attribute) {
+        attributes[attribute] = null;
+        generations[attribute]++;
+    }
+
+    private void discardAll() {
+        for (int i = 0; i < attributes.length; i++) {
+            discard(i);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Parcelable> T get(int attribute) {
+        final Source currentSource;
+        final int generation;
+        synchronized (this) {
+            requestCount++;
+            currentSource = source;
+
+            final Parcelable value = attributes[attribute];
+            if (currentSource == null && value != null
+                    && SystemClock.elapsedRealtime() - fetchTimes[attribute] <= maxAge)
+                return (T) value;
+
+            generation = generations[attribute];
+        }
+
+        // The source attributes are kept up to date by the source itself.
+        if (currentSource != null) {
+            final T sourceValue = currentSource.getAttribute(ATTRIBUTE_TYPES[attribute]);
+            if (sourceValue != null)
+                return sourceValue;
+
+            synchronized (this) {
+                final Parcelable value = attributes[attribute];
+                if (value != null && SystemClock.elapsedRealtime() - fetchTimes[attribute] <= maxAge)
+                    return (T) value;
+            }
+        }
+
+        // Remote call, made without holding the lock.
+        final Parcelable value = drone.getAttribute(ATTRIBUTE_TYPES[attribute]);
+
+        synchronized (this) {
+            fetchCount++;
+            if (generations[attribute] == generation) {
+                attributes[attribute] = value;
+                fetchTimes[attribute] = SystemClock.elapsedRealtime();
+            }
+        }
+        return (T) value;
+    }
+}
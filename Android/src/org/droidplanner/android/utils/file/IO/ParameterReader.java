@@ -11,8 +11,28 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import timber.log.Timber;
+
+/**
+ * Reads the parameter files, line by line.
+ *
+ * Both the Mission Planner format ("NAME,VALUE" lines) and the QGroundControl format ("SYSID COMPID NAME VALUE
+ * TYPE" tab separated lines) are supported. Lines starting with '#' are comments.
+ */
 public class ParameterReader  {
-	private List<Parameter> parameters;
+
+	/**
+	 * Receives the parameters as they're parsed.
+	 */
+	public interface Listener {
+		void onParameterRead(String name, double value, int type);
+	}
+
+	// Maximum number of fields in a parameter line (QGroundControl format).
+	private static final int MAX_FIELDS = 5;
+
+	private final List<Parameter> parameters;
+	private int skippedLinesCount;
 
 	public ParameterReader() {
 		this.parameters = new ArrayList<Parameter>();
@@ -22,54 +42,126 @@ public class ParameterReader  {
 		if (!FileStream.isExternalStorageAvailable()) {
 			return false;
 		}
-		try {
-			FileInputStream in = new FileInputStream(itemList);
-			BufferedReader reader = new BufferedReader(new InputStreamReader(in));
 
-			parseWaypointLines(reader);
-
-			in.close();
-
-		} catch (Exception e) {
-			e.printStackTrace();
+		parameters.clear();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(itemList)));
+			read(reader, new Listener() {
+				@Override
+				public void onParameterRead(String name, double value, int type) {
+					parameters.add(new Parameter(name, value, type));
+				}
+			});
+
+		} catch (IOException e) {
+			Timber.e(e, "Unable to read parameters file %s", itemList);
 			return false;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					Timber.e(e, "Unable to close parameters file %s", itemList);
+				}
+			}
 		}
 
 		return true;
 	}
 
-	private void parseWaypointLines(BufferedReader reader) throws IOException {
+	/**
+	 * Parses the parameter lines from the given reader, and passes each parameter to the listener. Invalid lines
+	 * are skipped.
+	 * @return the number of parameters read.
+	 */
+	public int read(BufferedReader reader, Listener listener) throws IOException {
+		skippedLinesCount = 0;
+
+		final int[] fieldStarts = new int[MAX_FIELDS];
+		final int[] fieldEnds = new int[MAX_FIELDS];
+
+		int readCount = 0;
+		int lineNumber = 0;
 		String line;
-		parameters.clear();
 		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+
+			final int fieldsCount = splitLine(line, fieldStarts, fieldEnds);
+			if (fieldsCount == 0)
+				continue;
+
 			try {
-				parseLine(line);
-			} catch (Exception e) {
-				e.printStackTrace();
+				final int nameField;
+				final int type;
+				if (fieldsCount == 2) {
+					// Mission Planner format.
+					nameField = 0;
+					type = 0;
+				} else if (fieldsCount >= 4) {
+					// QGroundControl format.
+					nameField = 2;
+					type = fieldsCount == 5
+							? Integer.parseInt(line.substring(fieldStarts[4], fieldEnds[4]))
+							: 0;
+				} else {
+					throw new NumberFormatException("Invalid fields count: " + fieldsCount);
+				}
+
+				final String name = line.substring(fieldStarts[nameField], fieldEnds[nameField]);
+				final double value = Double.parseDouble(line.substring(fieldStarts[nameField + 1],
+						fieldEnds[nameField + 1]));
+
+				listener.onParameterRead(name, value, type);
+				readCount++;
+			} catch (NumberFormatException e) {
+				skippedLinesCount++;
+				Timber.w("Skipping invalid parameter line %d: %s", lineNumber, line);
 			}
 		}
-	}
-
-	private void parseLine(String line) throws Exception {
-		String[] RowData = splitLine(line);
-
-		String name = RowData[0];
-		Double value = Double.valueOf(RowData[1]);
 
-		parameters.add(new Parameter(name, value, 0));
+		return readCount;
 	}
 
-	private String[] splitLine(String line) throws Exception {
-		String[] RowData = line.split(",");
-		if (RowData.length != 2) {
-			throw new Exception("Invalid Length");
+	/**
+	 * Finds the fields of the given line, separated by commas or whitespaces.
+	 * @return the number of fields, 0 for a blank or comment line, or more than the max fields count if the line
+	 * has too many fields.
+	 */
+	private static int splitLine(String line, int[] fieldStarts, int[] fieldEnds) {
+		final int length = line.length();
+		int count = 0;
+		int fieldStart = -1;
+		for (int i = 0; i <= length; i++) {
+			final char c = i < length ? line.charAt(i) : ',';
+			if (c == '#' && count == 0 && fieldStart == -1)
+				return 0;
+
+			final boolean isSeparator = c == ',' || Character.isWhitespace(c);
+			if (!isSeparator) {
+				if (fieldStart == -1)
+					fieldStart = i;
+			} else if (fieldStart != -1) {
+				if (count == MAX_FIELDS)
+					return MAX_FIELDS + 1;
+
+				fieldStarts[count] = fieldStart;
+				fieldEnds[count] = i;
+				count++;
+				fieldStart = -1;
+			}
 		}
-		RowData[0] = RowData[0].trim();
-		return RowData;
+		return count;
 	}
 
 	public List<Parameter> getParameters() {
 		return parameters;
 	}
 
+	/**
+	 * @return the number of invalid lines skipped by the last read.
+	 */
+	public int getSkippedLinesCount() {
+		return skippedLinesCount;
+	}
 }
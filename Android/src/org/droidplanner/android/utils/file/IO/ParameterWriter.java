@@ -2,53 +2,82 @@ package org.droidplanner.android.utils.file.IO;
 
 import com.o3dr.services.android.lib.drone.property.Parameter;
 
-import java.io.FileOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.util.List;
 import java.util.Locale;
 
 import org.droidplanner.android.utils.file.FileList;
 import org.droidplanner.android.utils.file.FileStream;
 
+import timber.log.Timber;
+
 public class ParameterWriter {
 	private List<Parameter> parameterList;
 
+	// Same output as the "%f" format: six decimals, rounded half up.
+	private final DecimalFormat valueFormat = new DecimalFormat("0.000000",
+			DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+
 	public ParameterWriter(List<Parameter> param) {
 		this.parameterList = param;
+		valueFormat.setRoundingMode(RoundingMode.HALF_UP);
 	}
 
 	public boolean saveParametersToFile(String filename) {
-		try {
-			if (!FileStream.isExternalStorageAvailable()) {
-				return false;
-			}
+		if (!FileStream.isExternalStorageAvailable()) {
+			return false;
+		}
 
-            if(!filename.endsWith(FileList.PARAM_FILENAME_EXT)){
-                filename += FileList.PARAM_FILENAME_EXT;
-            }
+		if(!filename.endsWith(FileList.PARAM_FILENAME_EXT)){
+			filename += FileList.PARAM_FILENAME_EXT;
+		}
 
-			FileOutputStream out = FileStream.getParameterFileStream(filename);
+		Writer out = null;
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(FileStream.getParameterFileStream(filename)));
 
 			writeFirstLine(out);
 
 			writeWaypointsLines(out);
-			out.close();
+
+			// The buffered lines are only written on close, so its failure is a failed save.
+			final Writer closedOut = out;
+			out = null;
+			closedOut.close();
 
 		} catch (Exception e) {
-			e.printStackTrace();
+			Timber.e(e, "Unable to save parameters to %s", filename);
 			return false;
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					Timber.e(e, "Unable to close parameters file %s", filename);
+				}
+			}
 		}
 		return true;
 	}
 
-	private void writeFirstLine(FileOutputStream out) throws IOException {
-		out.write((("#NOTE: " + FileStream.getTimeStamp() + "\n").getBytes()));
+	private void writeFirstLine(Writer out) throws IOException {
+		out.write("#NOTE: ");
+		out.write(FileStream.getTimeStamp());
+		out.write('\n');
 	}
 
-	private void writeWaypointsLines(FileOutputStream out) throws IOException {
+	private void writeWaypointsLines(Writer out) throws IOException {
 		for (Parameter param : parameterList) {
-			out.write(String.format(Locale.ENGLISH, "%s , %f\n", param.getName(), param.getValue())
-					.getBytes());
+			out.write(param.getName());
+			out.write(" , ");
+			out.write(valueFormat.format(param.getValue()));
+			out.write('\n');
 		}
 	}
 }
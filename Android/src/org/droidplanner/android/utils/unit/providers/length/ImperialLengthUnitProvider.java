@@ -22,6 +22,19 @@ public class ImperialLengthUnitProvider extends LengthUnitProvider {
             return Operation.convert(base, UnitIdentifier.FOOT);
     }
 
+    @Override
+    public double toTargetValue(double valueInMeters) {
+        if (Math.abs(valueInMeters) >= Constants.METER_PER_MILE)
+            return valueInMeters / Constants.METER_PER_MILE;
+        else
+            return valueInMeters / Constants.METER_PER_FOOT;
+    }
+
+    @Override
+    public String getTargetSymbol(double valueInMeters) {
+        return Math.abs(valueInMeters) >= Constants.METER_PER_MILE ? "mi" : "ft";
+    }
+
     @Override
     public LengthUnit boxTargetValue(double valueInTargetUnits) {
         return FactoryLength.foot(valueInTargetUnits);
@@ -22,6 +22,16 @@ public abstract class LengthUnitProvider {
 
     public abstract LengthUnit fromBaseToTarget(Meter base);
 
+    /**
+     * Converts the given length to the target unit picked by {@link #fromBaseToTarget(Meter)}, without boxing it.
+     */
+    public abstract double toTargetValue(double valueInMeters);
+
+    /**
+     * @return the symbol of the target unit picked by {@link #fromBaseToTarget(Meter)} for the given length.
+     */
+    public abstract String getTargetSymbol(double valueInMeters);
+
     public Meter fromTargetToBase(LengthUnit target) {
         if(target instanceof Meter)
             return (Meter) target;
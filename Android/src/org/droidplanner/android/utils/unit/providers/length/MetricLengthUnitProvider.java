@@ -21,6 +21,19 @@ public class MetricLengthUnitProvider extends LengthUnitProvider {
             return base;
     }
 
+    @Override
+    public double toTargetValue(double valueInMeters) {
+        if (Math.abs(valueInMeters) >= Constants.METER_PER_KILOMETER)
+            return valueInMeters / Constants.METER_PER_KILOMETER;
+        else
+            return valueInMeters;
+    }
+
+    @Override
+    public String getTargetSymbol(double valueInMeters) {
+        return Math.abs(valueInMeters) >= Constants.METER_PER_KILOMETER ? "km" : "m";
+    }
+
     @Override
     public LengthUnit boxTargetValue(double valueInTargetUnits) {
         return FactoryLength.meter(valueInTargetUnits);
@@ -2,6 +2,7 @@ package org.droidplanner.android.utils.unit.providers.speed;
 
 import org.beyene.sius.operation.Operation;
 import org.beyene.sius.unit.UnitIdentifier;
+import org.beyene.sius.unit.composition.speed.Constants;
 import org.beyene.sius.unit.composition.speed.MeterPerSecond;
 import org.beyene.sius.unit.composition.speed.SpeedUnit;
 import org.beyene.sius.unit.impl.FactorySpeed;
@@ -15,6 +16,16 @@ public class ImperialSpeedUnitProvider extends SpeedUnitProvider {
         return Operation.convert(base, UnitIdentifier.MILES_PER_HOUR);
     }
 
+    @Override
+    public double toTargetValue(double valueInMps) {
+        return valueInMps / Constants.MPS_PER_MPH;
+    }
+
+    @Override
+    public String getTargetSymbol() {
+        return "mph";
+    }
+
     @Override
     public SpeedUnit boxTargetValue(double speedInMph) {
         return FactorySpeed.mph(speedInMph);
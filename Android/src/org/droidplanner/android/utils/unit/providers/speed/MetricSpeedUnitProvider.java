@@ -13,6 +13,16 @@ public class MetricSpeedUnitProvider extends SpeedUnitProvider {
         return base;
     }
 
+    @Override
+    public double toTargetValue(double valueInMps) {
+        return valueInMps;
+    }
+
+    @Override
+    public String getTargetSymbol() {
+        return "m/s";
+    }
+
     @Override
     public SpeedUnit boxTargetValue(double speedInMps) {
         return FactorySpeed.mps(speedInMps);
@@ -22,6 +22,16 @@ public abstract class SpeedUnitProvider {
 
     public abstract SpeedUnit fromBaseToTarget(MeterPerSecond base);
 
+    /**
+     * Converts the given speed to the target unit, without boxing it.
+     */
+    public abstract double toTargetValue(double valueInMps);
+
+    /**
+     * @return the symbol of the target unit.
+     */
+    public abstract String getTargetSymbol();
+
     public MeterPerSecond fromTargetToBase(SpeedUnit target){
         if(target instanceof MeterPerSecond)
             return (MeterPerSecond) target;
@@ -8,6 +8,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
+import android.widget.Filter;
 import android.widget.TextView;
 
 import com.o3dr.services.android.lib.drone.property.Parameter;
@@ -48,6 +49,9 @@ public class ParamsAdapter extends FilterableArrayAdapter<ParamsAdapterItem> {
 	private OnInfoListener onInfoListener;
 	private OnParametersChangeListener onParametersChangeListener;
 
+	// Rebuilt whenever parameters are added, and read by the filter thread.
+	private volatile ParamsSearchIndex searchIndex;
+
 	public ParamsAdapter(Context context, int resource) {
 		this(context, resource, new ArrayList<ParamsAdapterItem>());
 	}
@@ -58,6 +62,7 @@ public class ParamsAdapter extends FilterableArrayAdapter<ParamsAdapterItem> {
 		this.resource = resource;
 		colorAltRow = context.getResources().getColor(R.color.paramAltRow);
         mInflater = LayoutInflater.from(context);
+		searchIndex = new ParamsSearchIndex(getOriginalValues());
 	}
 
 	public void clearFocus() {
@@ -149,6 +154,7 @@ public class ParamsAdapter extends FilterableArrayAdapter<ParamsAdapterItem> {
             for(Map.Entry<String, Parameter> entry : parameters.entrySet()){
                 addParameter(entry.getKey(), entry.getValue(), true);
             }
+            searchIndex = new ParamsSearchIndex(getOriginalValues());
         }
 
         notifyDataSetChanged();
@@ -162,6 +168,7 @@ public class ParamsAdapter extends FilterableArrayAdapter<ParamsAdapterItem> {
 		for (Map.Entry<String, Parameter> entry : parameters.entrySet()) {
             addParameter(entry.getKey(), entry.getValue());
         }
+		searchIndex = new ParamsSearchIndex(getOriginalValues());
         dirtyCount = 0;
 		if(onParametersChangeListener != null) {
 			onParametersChangeListener.onParametersChange(dirtyCount);
@@ -186,6 +193,31 @@ public class ParamsAdapter extends FilterableArrayAdapter<ParamsAdapterItem> {
     }
 
 
+	@Override
+	protected Filter initFilter(final ArrayList<ParamsAdapterItem> originalValues,
+								final List<ParamsAdapterItem> currentObjects) {
+		return new Filter() {
+			@Override
+			protected FilterResults performFiltering(CharSequence constraint) {
+				final List<ParamsAdapterItem> matches = searchIndex.search(constraint);
+
+				final FilterResults results = new FilterResults();
+				results.values = matches;
+				results.count = matches.size();
+				return results;
+			}
+
+			@Override
+			protected void publishResults(CharSequence constraint, FilterResults results) {
+				//noinspection unchecked
+				currentObjects.clear();
+				currentObjects.addAll((List<ParamsAdapterItem>) results.values);
+
+				notifyDataSetChanged();
+			}
+		};
+	}
+
 	private String getDescription(Parameter parameter) {
 		String desc = "";
 		if (parameter != null) {
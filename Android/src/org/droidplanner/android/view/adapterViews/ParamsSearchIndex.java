@@ -0,0 +1,229 @@
+package org.droidplanner.android.view.adapterViews;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Search index of the parameters listed by the {@link ParamsAdapter}.
+ *
+ * The index is built once per parameters load, and maps every substring of up to {@link #GRAM_LENGTH} characters
+ * of the parameters name and description to the parameters containing it. A query word is matched through the
+ * postings of its n-grams instead of scanning the text of every parameter. When a query extends the previous one,
+ * as it does while typing, only the previous matches are checked.
+ *
+ * The matches are ranked: parameters whose name starts with the query words come first, then those whose name
+ * contains them, then those only matched by their description. The parameters order is kept within a rank.
+ */
+final class ParamsSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int RANK_NAME_PREFIX = 0;
+    private static final int RANK_NAME = 1;
+    private static final int RANK_DESCRIPTION = 2;
+
+    private final ParamsAdapterItem[] items;
+
+    // Lower case name, and searched text, of each item.
+    private final String[] names;
+    private final String[] texts;
+
+    // Ascending indexes of the items containing each n-gram.
+    private final Map<String, int[]> postings;
+
+    // Last query, and the indexes of its matches.
+    private String lastQuery;
+    private int[] lastMatches;
+
+    ParamsSearchIndex(List<ParamsAdapterItem> items) {
+        final int count = items.size();
+        this.items = items.toArray(new ParamsAdapterItem[count]);
+        this.names = new String[count];
+        this.texts = new String[count];
+
+        final Map<String, IntList> builder = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final ParamsAdapterItem item = this.items[i];
+            names[i] = normalize(item.getParameter().getName());
+            texts[i] = normalize(item.toString()).trim();
+
+            final String text = texts[i];
+            final int length = text.length();
+            for (int start = 0; start < length; start++) {
+                final int maxEnd = Math.min(length, start + GRAM_LENGTH);
+                for (int end = start + 1; end <= maxEnd; end++) {
+                    final String gram = text.substring(start, end);
+                    IntList posting = builder.get(gram);
+                    if (posting == null) {
+                        posting = new IntList();
+                        builder.put(gram, posting);
+                    }
+                    posting.addOnce(i);
+                }
+            }
+        }
+
+        postings = new HashMap<>(builder.size() * 4 / 3 + 1);
+        for (Map.Entry<String, IntList> entry : builder.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Returns the parameters containing all the words of the given query, ranked. An empty query matches all the
+     * parameters, in their original order.
+     */
+    synchronized List<ParamsAdapterItem> search(CharSequence query) {
+        final String normalizedQuery = query == null ? "" : normalize(query.toString()).trim();
+        if (normalizedQuery.isEmpty()) {
+            lastQuery = null;
+            lastMatches = null;
+            return new ArrayList<>(Arrays.asList(items));
+        }
+
+        final String[] words = normalizedQuery.split("\\s+");
+        final String joinedQuery = TextUtils.join(" ", words);
+
+        final int[] matches;
+        if (lastQuery != null && joinedQuery.startsWith(lastQuery)) {
+            // The query extends the previous one: its matches are part of the previous ones.
+            matches = filter(lastMatches, lastMatches.length, words);
+        } else {
+            matches = lookup(words);
+        }
+
+        lastQuery = joinedQuery;
+        lastMatches = matches;
+
+        return rank(matches, words);
+    }
+
+    private int[] lookup(String[] words) {
+        // Candidates are the items containing all the n-grams of the query words.
+        int[] candidates = null;
+        int candidatesCount = 0;
+        boolean needsCheck = false;
+
+        for (String word : words) {
+            final int length = word.length();
+            final int gramLength = Math.min(length, GRAM_LENGTH);
+            for (int start = 0; start + gramLength <= length; start++) {
+                final int[] posting = postings.get(word.substring(start, start + gramLength));
+                if (posting == null)
+                    return new int[0];
+
+                if (candidates == null) {
+                    candidates = Arrays.copyOf(posting, posting.length);
+                    candidatesCount = posting.length;
+                } else {
+                    candidatesCount = intersect(candidates, candidatesCount, posting);
+                }
+
+                if (candidatesCount == 0)
+                    return new int[0];
+            }
+
+            // Words longer than the n-grams may not be contained even though all their n-grams are.
+            if (length > GRAM_LENGTH)
+                needsCheck = true;
+        }
+
+        return needsCheck ? filter(candidates, candidatesCount, words) : Arrays.copyOf(candidates, candidatesCount);
+    }
+
+    /**
+     * Keeps the given items whose text contains all the query words.
+     */
+    private int[] filter(int[] candidates, int candidatesCount, String[] words) {
+        final int[] matches = new int[candidatesCount];
+        int matchesCount = 0;
+        for (int i = 0; i < candidatesCount; i++) {
+            final int index = candidates[i];
+            if (containsAll(texts[index], words))
+                matches[matchesCount++] = index;
+        }
+        return matchesCount == candidatesCount ? matches : Arrays.copyOf(matches, matchesCount);
+    }
+
+    private List<ParamsAdapterItem> rank(int[] matches, String[] words) {
+        final int count = matches.length;
+        if (count == 0)
+            return Collections.emptyList();
+
+        final int[] ranks = new int[count];
+        for (int i = 0; i < count; i++) {
+            final String name = names[matches[i]];
+            if (name.startsWith(words[0]) && containsAll(name, words))
+                ranks[i] = RANK_NAME_PREFIX;
+            else if (containsAll(name, words))
+                ranks[i] = RANK_NAME;
+            else
+                ranks[i] = RANK_DESCRIPTION;
+        }
+
+        final List<ParamsAdapterItem> ranked = new ArrayList<>(count);
+        for (int rank = RANK_NAME_PREFIX; rank <= RANK_DESCRIPTION; rank++) {
+            for (int i = 0; i < count; i++) {
+                if (ranks[i] == rank)
+                    ranked.add(items[matches[i]]);
+            }
+        }
+        return ranked;
+    }
+
+    private static boolean containsAll(String text, String[] words) {
+        for (String word : words) {
+            if (!text.contains(word))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Intersects the first count items of the given sorted indexes with the given posting, in place.
+     * @return the number of indexes left.
+     */
+    private static int intersect(int[] indexes, int count, int[] posting) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < posting.length; i++) {
+            final int index = indexes[i];
+            while (j < posting.length && posting[j] < index)
+                j++;
+
+            if (j < posting.length && posting[j] == index)
+                indexes[kept++] = index;
+        }
+        return kept;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addOnce(int value) {
+            // The values are added in ascending order.
+            if (size > 0 && values[size - 1] == value)
+                return;
+
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -4,27 +4,29 @@ import android.content.Context;
 
 import com.o3dr.android.client.Drone;
 import com.o3dr.android.client.apis.VehicleApi;
-import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.property.Battery;
 import com.o3dr.services.android.lib.drone.property.Gps;
 import com.o3dr.services.android.lib.drone.property.State;
 
 import org.droidplanner.android.DroidPlannerApp;
+import org.droidplanner.android.utils.VehicleSnapshot;
 
 public class CheckListSysLink {
     private Context context;
 	private Drone drone;
+	private VehicleSnapshot vehicleSnapshot;
 
-	public CheckListSysLink(Context context, Drone drone) {
+	public CheckListSysLink(Context context, Drone drone, VehicleSnapshot vehicleSnapshot) {
         this.context = context;
 		this.drone = drone;
+		this.vehicleSnapshot = vehicleSnapshot;
 	}
 
 	public void getSystemData(CheckListItem mListItem, String mSysTag) {
 		if (mSysTag == null)
 			return;
 
-		Battery batt = drone.getAttribute(AttributeType.BATTERY);
+		Battery batt = vehicleSnapshot.getBattery();
 		if (batt != null) {
 			if (mSysTag.equalsIgnoreCase("SYS_BATTREM_LVL")) {
 				mListItem.setSys_value(batt.getBatteryRemain());
@@ -35,14 +37,14 @@ public class CheckListSysLink {
 			}
 		}
 
-		Gps gps = drone.getAttribute(AttributeType.GPS);
+		Gps gps = vehicleSnapshot.getGps();
 		if (gps != null) {
 			if (mSysTag.equalsIgnoreCase("SYS_GPS3D_LVL")) {
 				mListItem.setSys_value(gps.getSatellitesCount());
 			}
 		}
 
-		State state = drone.getAttribute(AttributeType.STATE);
+		State state = vehicleSnapshot.getState();
 		if (state != null) {
 			if (mSysTag.equalsIgnoreCase("SYS_ARM_STATE")) {
 				mListItem.setSys_activated(state.isArmed());
@@ -71,7 +73,7 @@ public class CheckListSysLink {
 	}
 
 	private void doSysArm(CheckListItem checkListItem) {
-        final State droneState = drone.getAttribute(AttributeType.STATE);
+        final State droneState = vehicleSnapshot.getState();
 		if (droneState.isConnected()) {
 			if (checkListItem.isSys_activated() && !droneState.isArmed()) {
 				VehicleApi.getApi(drone).arm(true);
@@ -0,0 +1,111 @@
+package org.droidplanner.android.proxy.mission.item.builders;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Compares the grid generation of a large concave polygon with the lanes clipped in parallel, and on the
+ * calling thread. Both must yield the same grid.
+ */
+public class SurveyGridGeneratorBenchmark {
+
+    private static final int VERTEX_COUNT = 2000;
+    private static final double RADIUS = 5000; // meters
+    private static final double LANE_SPACING = 3;
+    private static final double TRIGGER_SPACING = 10;
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 7;
+
+    private static final SurveyGridGenerator.CancellationCheck NOT_CANCELLED =
+            new SurveyGridGenerator.CancellationCheck() {
+                @Override
+                public boolean isCancelled() {
+                    return false;
+                }
+            };
+
+    private ExecutorService executor;
+    private SurveyGridGenerator generator;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        generator = new SurveyGridGenerator(newStarPolygon(), 30);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void parallelGenerationMatchesSequentialGeneration() throws InterruptedException {
+        final SurveyGridGenerator.Grid sequentialGrid = generator.generate(LANE_SPACING, TRIGGER_SPACING, null,
+                NOT_CANCELLED);
+        final SurveyGridGenerator.Grid parallelGrid = generator.generate(LANE_SPACING, TRIGGER_SPACING, executor,
+                NOT_CANCELLED);
+        assertNotNull(sequentialGrid);
+        assertNotNull(parallelGrid);
+        assertEquals(sequentialGrid.gridPoints, parallelGrid.gridPoints);
+        assertEquals(sequentialGrid.cameraLocations, parallelGrid.cameraLocations);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            generator.generate(LANE_SPACING, TRIGGER_SPACING, null, NOT_CANCELLED);
+            generator.generate(LANE_SPACING, TRIGGER_SPACING, executor, NOT_CANCELLED);
+        }
+
+        final long sequentialTime = measure(null);
+        final long parallelTime = measure(executor);
+        System.out.println(String.format(Locale.US, "Generated %d grid points over %d vertices: sequential %.1f ms, "
+                        + "parallel %.1f ms on %d cores, speed-up x%.2f", sequentialGrid.gridPoints.size(),
+                VERTEX_COUNT, sequentialTime / 1e6, parallelTime / 1e6, Runtime.getRuntime().availableProcessors(),
+                (double) sequentialTime / parallelTime));
+    }
+
+    /**
+     * @return the median duration of the measured runs, in nanoseconds.
+     */
+    private long measure(ExecutorService executor) throws InterruptedException {
+        final long[] durations = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long start = System.nanoTime();
+            generator.generate(LANE_SPACING, TRIGGER_SPACING, executor, NOT_CANCELLED);
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        return durations[MEASURED_RUNS / 2];
+    }
+
+    /**
+     * @return a star shaped polygon, so most lanes are clipped in several segments.
+     */
+    private static List<LatLong> newStarPolygon() {
+        final double latitude = 47.3977;
+        final double longitude = 8.5456;
+        final double longitudeScale = Math.cos(Math.toRadians(latitude));
+
+        final List<LatLong> polygon = new ArrayList<>(VERTEX_COUNT);
+        for (int i = 0; i < VERTEX_COUNT; i++) {
+            final double angle = 2 * Math.PI * i / VERTEX_COUNT;
+            final double radius = i % 2 == 0 ? RADIUS : RADIUS / 2;
+            polygon.add(new LatLong(
+                    latitude + radius * Math.cos(angle) / SurveyGridGenerator.METERS_PER_DEGREE,
+                    longitude + radius * Math.sin(angle) / (SurveyGridGenerator.METERS_PER_DEGREE * longitudeScale)));
+        }
+        return polygon;
+    }
+}
@@ -0,0 +1,87 @@
+package org.droidplanner.android.proxy.mission.item.builders;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SurveyGridGeneratorTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static final double SIDE = 0.0009; // About 100 meters
+
+    private static final double LANE_SPACING = 30;
+    private static final double TRIGGER_SPACING = 25;
+    private static final double OVERSHOOT = 10;
+
+    // Square whose first vertex is the north east corner. The lanes are flown north to south.
+    private static final List<LatLong> SQUARE = Arrays.asList(new LatLong(SIDE, SIDE), new LatLong(0, SIDE),
+            new LatLong(0, 0), new LatLong(SIDE, 0));
+
+    private static final SurveyGridGenerator.CancellationCheck NOT_CANCELLED =
+            new SurveyGridGenerator.CancellationCheck() {
+                @Override
+                public boolean isCancelled() {
+                    return false;
+                }
+            };
+
+    @Test
+    public void gridStartsFromTheFirstVertex() throws InterruptedException {
+        final SurveyGridGenerator.Grid grid = generate(0);
+
+        final LatLong start = grid.gridPoints.get(0);
+        assertEquals(SIDE, start.getLatitude(), DELTA);
+        assertTrue(SIDE - start.getLongitude() < LANE_SPACING / SurveyGridGenerator.METERS_PER_DEGREE);
+    }
+
+    @Test
+    public void cameraTriggersIncludeTheLanesEnds() throws InterruptedException {
+        final SurveyGridGenerator.Grid grid = generate(0);
+
+        assertEquals(grid.gridPoints.get(0), grid.cameraLocations.get(0));
+        assertEquals(grid.gridPoints.get(grid.gridPoints.size() - 1),
+                grid.cameraLocations.get(grid.cameraLocations.size() - 1));
+    }
+
+    @Test
+    public void overshootExtendsTheLanesPastThePolygon() throws InterruptedException {
+        final SurveyGridGenerator.Grid grid = generate(OVERSHOOT);
+        final double overshoot = OVERSHOOT / SurveyGridGenerator.METERS_PER_DEGREE;
+
+        for (LatLong point : grid.gridPoints) {
+            final double latitude = point.getLatitude();
+            assertTrue("Lane end " + point + " isn't past the polygon",
+                    Math.abs(latitude - (SIDE + overshoot)) < DELTA || Math.abs(latitude + overshoot) < DELTA);
+        }
+    }
+
+    @Test
+    public void overshootTurnaroundsAreSquareToTheLanes() throws InterruptedException {
+        final List<LatLong> gridPoints = generate(OVERSHOOT).gridPoints;
+
+        // Each lane end is followed by the next lane start, at the same distance along the lanes.
+        for (int i = 1; i + 1 < gridPoints.size(); i += 2) {
+            assertEquals(gridPoints.get(i).getLatitude(), gridPoints.get(i + 1).getLatitude(), DELTA);
+        }
+    }
+
+    @Test
+    public void overshootDoesNotMoveTheCameraTriggers() throws InterruptedException {
+        assertEquals(generate(0).cameraLocations, generate(OVERSHOOT).cameraLocations);
+    }
+
+    private static SurveyGridGenerator.Grid generate(double overshoot) throws InterruptedException {
+        final SurveyGridGenerator.Grid grid = new SurveyGridGenerator(SQUARE, 0)
+                .generate(LANE_SPACING, TRIGGER_SPACING, overshoot, null, NOT_CANCELLED);
+        assertNotNull(grid);
+        return grid;
+    }
+}
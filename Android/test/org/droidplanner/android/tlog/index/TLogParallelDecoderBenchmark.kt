@@ -0,0 +1,143 @@
+package org.droidplanner.android.tlog.index
+
+import com.MAVLink.common.msg_attitude
+import com.MAVLink.common.msg_global_position_int
+import com.MAVLink.common.msg_heartbeat
+import com.MAVLink.common.msg_vfr_hud
+import com.o3dr.android.client.utils.data.tlog.TLogParser
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.util.*
+
+/**
+ * Compares the parallel decoding of a synthetic tlog file with its sequential decoding, block by block on the
+ * calling thread. Both must yield the same events, in the same order.
+ */
+class TLogParallelDecoderBenchmark {
+
+    private companion object {
+        const val RECORD_COUNT = 400000
+        const val START_TIMESTAMP_US = 1500000000000000L
+        const val RECORD_PERIOD_US = 5000L
+
+        const val WARMUP_RUNS = 2
+        const val MEASURED_RUNS = 5
+    }
+
+    private lateinit var tlogFile: File
+    private lateinit var input: FileInputStream
+    private lateinit var blockReader: TLogBlockReader
+
+    @Before
+    fun setUp() {
+        tlogFile = File.createTempFile("benchmark", ".tlog")
+        writeTLog(tlogFile)
+
+        val index = FileInputStream(tlogFile).use {
+            TLogIndex.build(it, tlogFile.length(), tlogFile.lastModified(), TLogIndex.DEFAULT_STRIDE)
+        }
+        assertEquals(RECORD_COUNT, index.eventCount)
+
+        input = FileInputStream(tlogFile)
+        blockReader = TLogBlockReader(input.channel, index, tlogFile.path)
+    }
+
+    @After
+    fun tearDown() {
+        input.close()
+        tlogFile.delete()
+    }
+
+    @Test
+    fun parallelDecodeMatchesSequentialDecode() {
+        val blocks = IntArray(blockReader.index.blockCount) { it }
+
+        val sequentialTimestamps = decodeSequentially(blocks)
+        val parallelTimestamps = decodeInParallel(blocks)
+        assertEquals(RECORD_COUNT, sequentialTimestamps.size)
+        assertEquals(sequentialTimestamps, parallelTimestamps)
+
+        for (i in 0 until WARMUP_RUNS) {
+            decodeSequentially(blocks)
+            decodeInParallel(blocks)
+        }
+
+        val sequentialTime = measure { decodeSequentially(blocks) }
+        val parallelTime = measure { decodeInParallel(blocks) }
+        println(String.format(Locale.US, "Decoded %d records: sequential %.1f ms, parallel %.1f ms on %d cores, " +
+                "speed-up x%.2f", RECORD_COUNT, sequentialTime / 1e6, parallelTime / 1e6,
+                Runtime.getRuntime().availableProcessors(), sequentialTime.toDouble() / parallelTime))
+    }
+
+    private fun decodeSequentially(blocks: IntArray): List<Long> {
+        val timestamps = ArrayList<Long>(RECORD_COUNT)
+        for (block in blocks) {
+            addTimestamps(blockReader.decodeBlock(block) { true }, timestamps)
+        }
+        return timestamps
+    }
+
+    private fun decodeInParallel(blocks: IntArray): List<Long> {
+        val timestamps = ArrayList<Long>(RECORD_COUNT)
+        TLogParallelDecoder(blockReader).decode(blocks, { true }, { false }) { addTimestamps(it, timestamps) }
+        return timestamps
+    }
+
+    private fun addTimestamps(events: List<TLogParser.Event>, timestamps: MutableList<Long>) {
+        for (event in events) {
+            timestamps.add(event.timestamp)
+        }
+    }
+
+    /**
+     * @return the median duration of the measured runs, in nanoseconds.
+     */
+    private fun measure(run: () -> Unit): Long {
+        val durations = LongArray(MEASURED_RUNS)
+        for (i in 0 until MEASURED_RUNS) {
+            val start = System.nanoTime()
+            run()
+            durations[i] = System.nanoTime() - start
+        }
+        Arrays.sort(durations)
+        return durations[MEASURED_RUNS / 2]
+    }
+
+    /**
+     * Writes a flight like mix of mavlink messages, as tlog records.
+     */
+    private fun writeTLog(file: File) {
+        val random = Random(42)
+        DataOutputStream(BufferedOutputStream(FileOutputStream(file))).use { output ->
+            for (i in 0 until RECORD_COUNT) {
+                val message = when (i % 4) {
+                    0 -> msg_global_position_int().apply {
+                        lat = 473977420 + random.nextInt(10000)
+                        lon = 85455940 + random.nextInt(10000)
+                        relative_alt = random.nextInt(100000)
+                    }
+                    1 -> msg_attitude().apply {
+                        roll = random.nextFloat()
+                        pitch = random.nextFloat()
+                        yaw = random.nextFloat()
+                    }
+                    2 -> msg_vfr_hud().apply {
+                        airspeed = random.nextFloat() * 20
+                        groundspeed = random.nextFloat() * 20
+                    }
+                    else -> msg_heartbeat()
+                }
+
+                output.writeLong(START_TIMESTAMP_US + i * RECORD_PERIOD_US)
+                output.write(message.pack().encodePacket())
+            }
+        }
+    }
+}